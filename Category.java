@@ -1,21 +1,91 @@
 // Category.java
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class Category implements Serializable {
     private static final long serialVersionUID = 1L;
+    /**
+     * The timestamp of a grade whose time is not known, e.g. one saved before grades had timestamps.
+     * It sorts before every real timestamp, so it is never in a time range.
+     */
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    // Points possible of a grade entered as a percentage, in hundredths
+    static final int PERCENT_POSSIBLE = 100 * FixedPoint.SCALE;
+    // Up to this many dropped grades are found in one pass, more by sorting a copy
+    private static final int MAX_SELECTED_DROPS = 8;
+    // Rounds of the search for the grades to drop by total points; it settles after a few
+    private static final int MAX_DROP_ROUNDS = 32;
+    // Saved in the form from before grades were kept in hundredths, a list of percentages, so files stay
+    // compatible; the averaging and the points of points-based grades are saved in addition
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("name", String.class),
+            new ObjectStreamField("weight", double.class),
+            new ObjectStreamField("numGradesDropped", int.class),
+            new ObjectStreamField("grades", ArrayList.class),
+            new ObjectStreamField("averaging", Averaging.class),
+            new ObjectStreamField("points", long[].class),
+            new ObjectStreamField("timestamps", byte[].class)
+    };
+
+    /**
+     * How the grades of a category are combined into its average.
+     */
+    public enum Averaging {
+        /**
+         * Every grade counts the same, whatever it is out of: the mean of the percentages.
+         */
+        EQUAL_WEIGHT,
+        /**
+         * All points earned over all points possible, so a 45/50 counts more than an 18/20.
+         */
+        TOTAL_POINTS
+    }
 
     private String name;
-    private double weight; // Weight as a percentage
+    private volatile double weight; // Weight as a percentage
     private int numGradesDropped; // Number of lowest grades to drop
-    private ArrayList<Double> grades;
+    private Averaging averaging;
+    // Each grade packs the points earned and the points possible in hundredths, see pack()
+    private transient long[] points;
+    private transient int gradeCount;
+    // When each grade was given, in grade order
+    private transient GradeTimeline timeline;
+    // Totals over all grades in hundredths, kept up to date by every change so the average is O(1) without drops
+    private transient long percentTotal;
+    private transient long earnedTotal;
+    private transient long possibleTotal;
+
+    // Guards grades; replaced by the owning class's lock when the category is added to a class
+    private transient volatile ReentrantReadWriteLock lock;
+    // The class this category belongs to, which forwards change events to its GradeBook
+    private transient volatile ClassRecord owner;
+    // Built on first use, then kept up to date by every change; guarded by the write lock, or by the read lock and statisticsLock
+    private transient GradeStatistics statistics;
+    // Same lifecycle and guard as statistics; inserting or deleting before the newest grade drops it
+    private transient GradeTrend trend;
+    private transient Object statisticsLock = new Object();
 
     public Category(String name, double weight, int numGradesDropped) {
-        this.name = name;
+        this(name, weight, numGradesDropped, Averaging.EQUAL_WEIGHT);
+    }
+
+    public Category(String name, double weight, int numGradesDropped, Averaging averaging) {
+        // Most classes use the same few category names; share one string per name
+        this.name = name.intern();
         this.weight = weight;
         this.numGradesDropped = numGradesDropped;
-        this.grades = new ArrayList<>();
+        this.averaging = averaging;
+        this.points = new long[8];
+        this.timeline = new GradeTimeline();
+        this.lock = new ReentrantReadWriteLock();
     }
 
     public String getName() {
@@ -26,27 +96,274 @@ public class Category implements Serializable {
         return weight;
     }
 
+    /**
+     * Changes the weight of this category.
+     *
+     * @param weight The new weight as a percentage.
+     */
+    public void setWeight(double weight) {
+        if (weight < 0.0) {
+            throw new IllegalArgumentException("Weight cannot be negative.");
+        }
+        lock.writeLock().lock();
+        try {
+            double oldWeight = this.weight;
+            this.weight = weight;
+            fire(GradeEvent.weightChanged(ownerName(), name, weight, oldWeight));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     public int getNumGradesDropped() {
         return numGradesDropped;
     }
 
-    public ArrayList<Double> getGrades() {
-        return grades;
+    public Averaging getAveraging() {
+        return averaging;
+    }
+
+    /**
+     * Returns a read-only copy of the grades as percentages, safe to use while other threads add or edit grades.
+     *
+     * @return The grades at the time of the call.
+     */
+    public List<Double> getGrades() {
+        lock.readLock().lock();
+        try {
+            return Collections.unmodifiableList(gradeList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The points earned on a grade; for a grade entered as a percentage, the percentage.
+     */
+    public double getPointsEarned(int index) {
+        return FixedPoint.toPoints(earnedOf(gradeAt(index)));
+    }
+
+    /**
+     * @return The points possible on a grade; 100 for a grade entered as a percentage.
+     */
+    public double getPointsPossible(int index) {
+        return FixedPoint.toPoints(possibleOf(gradeAt(index)));
+    }
+
+    /**
+     * @return When a grade was given, in epoch millis, or {@link #NO_TIMESTAMP} if that is not known.
+     */
+    public long getTimestamp(int index) {
+        lock.readLock().lock();
+        try {
+            gradeAt(index);
+            return timeline.get(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return A copy of the timestamps of the grades, in grade order.
+     */
+    long[] getTimestamps() {
+        lock.readLock().lock();
+        try {
+            return timeline.toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return A copy of the grades, packed as by {@link #pack(int, int)}.
+     */
+    long[] getPackedGrades() {
+        lock.readLock().lock();
+        try {
+            return Arrays.copyOf(points, gradeCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getGradeCount() {
+        lock.readLock().lock();
+        try {
+            return gradeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the median, spread, percentiles and histogram of all grades, including dropped ones.
+     * The first call counts the grades once; after that the statistics follow each change, so a query
+     * costs the same however many grades the category has.
+     *
+     * @return A copy of the statistics at the time of the call.
+     */
+    public GradeStatistics getStatistics() {
+        lock.readLock().lock();
+        try {
+            // Writers hold the write lock, so only concurrent readers can meet here
+            synchronized (statisticsLock) {
+                if (statistics == null) {
+                    statistics = GradeStatistics.of(gradeList());
+                }
+                return statistics.copy();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
+    /**
+     * Projects the average of the next grades from the trend of the grades so far, with a 95% range.
+     * The trend is built on first use and then updated with each new grade in O(1).
+     *
+     * @param remaining The number of future grades, at least 1.
+     * @return The projection, or null if the category has no grades.
+     * @see GradeTrend
+     */
+    public GradeTrend.Projection projectGrades(int remaining) {
+        lock.readLock().lock();
+        try {
+            synchronized (statisticsLock) {
+                if (trend == null) {
+                    trend = GradeTrend.of(gradeList());
+                }
+                return trend.project(remaining);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean hasGrades() {
+        return getGradeCount() > 0;
+    }
+
+    /**
+     * Adds a grade as a percentage. Grades are kept in hundredths of a point, so a grade with more decimals is rounded.
+     */
     public void addGrade(double grade) {
-        grades.add(grade);
+        addGrade(grade, 100.0);
+    }
+
+    /**
+     * Adds a grade worth a number of points, e.g. 18 out of 20.
+     *
+     * @param pointsEarned   The points earned.
+     * @param pointsPossible The points the assignment is out of; must be positive.
+     */
+    public void addGrade(double pointsEarned, double pointsPossible) {
+        long now = System.currentTimeMillis();
+        addGrade(pointsEarned, pointsPossible, now, now);
+    }
+
+    /**
+     * Adds a grade given at another time, e.g. when entering grades after the fact.
+     *
+     * @param gradedAt When the grade was given, in epoch millis.
+     */
+    public void addGrade(double pointsEarned, double pointsPossible, long gradedAt) {
+        addGrade(pointsEarned, pointsPossible, gradedAt, System.currentTimeMillis());
+    }
+
+    private void addGrade(double pointsEarned, double pointsPossible, long gradedAt, long now) {
+        long grade = pack(pointsEarned, pointsPossible);
+        lock.writeLock().lock();
+        try {
+            insert(gradeCount, grade, gradedAt);
+            fire(GradeEvent.gradeAdded(ownerName(), name, gradeCount - 1, earnedPointsOf(grade), possiblePointsOf(grade),
+                    gradedAt, now));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts a grade at a position, e.g. to restore a deleted grade where it was.
+     *
+     * @param index The position, between 0 and the number of grades.
+     * @param grade The grade to insert, as a percentage.
+     */
+    void insertGrade(int index, double grade) {
+        insertGrade(index, grade, 100.0);
+    }
+
+    void insertGrade(int index, double pointsEarned, double pointsPossible) {
+        long now = System.currentTimeMillis();
+        insertGrade(index, pointsEarned, pointsPossible, now, now);
+    }
+
+    /**
+     * Inserts a grade given at a known time, e.g. to restore a deleted grade with its timestamp.
+     */
+    void insertGrade(int index, double pointsEarned, double pointsPossible, long gradedAt) {
+        insertGrade(index, pointsEarned, pointsPossible, gradedAt, System.currentTimeMillis());
+    }
+
+    private void insertGrade(int index, double pointsEarned, double pointsPossible, long gradedAt, long now) {
+        long grade = pack(pointsEarned, pointsPossible);
+        lock.writeLock().lock();
+        try {
+            if (index < 0 || index > gradeCount) {
+                throw new IllegalArgumentException("Grade position " + index + " is out of range for '" + name + "'.");
+            }
+            insert(index, grade, gradedAt);
+            fire(GradeEvent.gradeInserted(ownerName(), name, index, earnedPointsOf(grade), possiblePointsOf(grade),
+                    gradedAt, now));
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void editGrade(int index, double newGrade) {
-        if (index >= 0 && index < grades.size()) {
-            grades.set(index, newGrade);
+        editGrade(index, newGrade, 100.0);
+    }
+
+    /**
+     * Replaces a grade with one worth a number of points. The grade keeps its timestamp.
+     */
+    public void editGrade(int index, double pointsEarned, double pointsPossible) {
+        long grade = pack(pointsEarned, pointsPossible);
+        lock.writeLock().lock();
+        try {
+            if (index >= 0 && index < gradeCount) {
+                long oldGrade = points[index];
+                points[index] = grade;
+                removeFromTotals(oldGrade);
+                addToTotals(grade);
+                if (trend != null) {
+                    trend.replace(index, FixedPoint.toPoints(percentOf(oldGrade)), FixedPoint.toPoints(percentOf(grade)));
+                }
+                fire(GradeEvent.gradeEdited(ownerName(), name, index, earnedPointsOf(grade), possiblePointsOf(grade),
+                        earnedPointsOf(oldGrade), possiblePointsOf(oldGrade)));
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     public void deleteGrade(int index) {
-        if (index >= 0 && index < grades.size()) {
-            grades.remove(index);
+        lock.writeLock().lock();
+        try {
+            if (index >= 0 && index < gradeCount) {
+                long oldGrade = points[index];
+                long oldTimestamp = timeline.get(index);
+                System.arraycopy(points, index + 1, points, index, gradeCount - index - 1);
+                gradeCount--;
+                timeline.remove(index);
+                removeFromTotals(oldGrade);
+                trend = null; // Every later grade gets younger; rebuilt on the next projection
+                fire(GradeEvent.gradeDeleted(ownerName(), name, index, earnedPointsOf(oldGrade), possiblePointsOf(oldGrade),
+                        oldTimestamp));
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -56,23 +373,548 @@ public class Category implements Serializable {
      * @return The average grade after dropping the lowest grades. Returns 0.0 if no grades are present.
      */
     public double calculateAverage() {
-        if (grades.isEmpty()) {
-            return 0.0;
+        long[] average = getAverageFraction();
+        return FixedPoint.average(average[0], average[1]);
+    }
+
+    /**
+     * Calculates what the average would be after adding more grades, e.g. to see what the remaining
+     * assignments need. In a total-points category each added grade is out of the average points
+     * possible of the existing grades, or out of 100 if there are none.
+     *
+     * @param count      The number of grades to add.
+     * @param percentage The percentage scored on each of them.
+     * @return The average as {@link #calculateAverage()} would return it with the added grades.
+     */
+    public double calculateAverageWith(int count, double percentage) {
+        lock.readLock().lock();
+        try {
+            int possible = averaging == Averaging.TOTAL_POINTS && gradeCount > 0
+                    ? (int) Math.max(1, Math.round((double) possibleTotal / gradeCount)) : PERCENT_POSSIBLE;
+            long grade = pack((int) Math.round(percentage * possible / 100.0), possible);
+            long[] grades = Arrays.copyOf(points, gradeCount + count);
+            Arrays.fill(grades, gradeCount, grades.length, grade);
+            long[] average = averageFraction(grades, grades.length, numGradesDropped, averaging);
+            return FixedPoint.average(average[0], average[1]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Averages the grades given in a time range, e.g. over the last 30 days to see recent progress.
+     * The grades are combined as by {@link #calculateAverage()}, but none are dropped: the drop policy
+     * applies to the whole term, not to a part of it. The range is found by binary search over the
+     * time column, so the cost depends on the grades in the range, not on all grades.
+     *
+     * @param from The start of the range in epoch millis, inclusive.
+     * @param to   The end of the range in epoch millis, exclusive.
+     * @return The average of the grades given in the range, or 0.0 if there are none.
+     */
+    public double calculateAverageBetween(long from, long to) {
+        lock.readLock().lock();
+        try {
+            long[] grades = gradesBetween(from, to);
+            long[] average = averageFraction(grades, grades.length, 0, averaging);
+            return FixedPoint.average(average[0], average[1]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of grades given in a time range, as by {@link #calculateAverageBetween(long, long)}.
+     */
+    public int getGradeCountBetween(long from, long to) {
+        lock.readLock().lock();
+        try {
+            if (timeline.isSorted()) {
+                return Math.max(0, timeline.lowerBound(to) - timeline.lowerBound(from));
+            }
+            return gradesBetween(from, to).length;
+        } finally {
+            lock.readLock().unlock();
         }
+    }
+
+    private long[] gradesBetween(long from, long to) {
+        if (timeline.isSorted()) {
+            int start = timeline.lowerBound(from);
+            int end = Math.max(start, timeline.lowerBound(to));
+            return Arrays.copyOfRange(points, start, end);
+        }
+        // Grades were inserted out of order (e.g. entered after the fact), so look at every timestamp
+        long[] times = timeline.toArray();
+        long[] grades = new long[gradeCount];
+        int count = 0;
+        for (int i = 0; i < gradeCount; i++) {
+            if (times[i] >= from && times[i] < to) {
+                grades[count++] = points[i];
+            }
+        }
+        return Arrays.copyOf(grades, count);
+    }
+
+    /**
+     * Returns the average in hundredths as an exact fraction, for the final grade formula.
+     *
+     * @return The numerator and the denominator; the denominator is 0 if every grade is dropped and -1
+     * if there are no grades.
+     */
+    long[] getAverageFraction() {
+        lock.readLock().lock();
+        try {
+            if (numGradesDropped == 0 && gradeCount > 0) {
+                // The running totals already hold the answer
+                return averaging == Averaging.TOTAL_POINTS
+                        ? new long[]{earnedTotal * PERCENT_POSSIBLE, possibleTotal}
+                        : new long[]{percentTotal, gradeCount};
+            }
+            return averageFraction(points, gradeCount, numGradesDropped, averaging);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Averages grades after dropping some; shared by categories and their snapshots. With equal weights
+     * the lowest percentages are dropped; by total points, the grades whose removal raises the average most.
+     *
+     * @param grades           The packed grades; the array is not changed.
+     * @param count            The number of grades, at the start of the array.
+     * @param numGradesDropped Number of grades to drop.
+     * @param averaging        How the remaining grades are combined.
+     * @return The average in hundredths as a numerator and a denominator, as by {@link #getAverageFraction()}.
+     */
+    static long[] averageFraction(long[] grades, int count, int numGradesDropped, Averaging averaging) {
+        if (count == 0) {
+            return new long[]{0, -1};
+        }
+        if (count <= numGradesDropped) {
+            return new long[]{0, 0}; // All grades are dropped
+        }
+        if (averaging == Averaging.TOTAL_POINTS) {
+            return totalPointsFraction(grades, count, numGradesDropped);
+        }
+        int[] percents = new int[count];
+        for (int i = 0; i < count; i++) {
+            percents[i] = percentOf(grades[i]);
+        }
+        return new long[]{keptSum(percents, count, numGradesDropped), count - numGradesDropped};
+    }
+
+    /**
+     * Sums grades after dropping the lowest ones; shared by categories and their snapshots.
+     *
+     * @param grades           The grades in hundredths; the array is not changed.
+     * @param count            The number of grades, at the start of the array.
+     * @param numGradesDropped Number of lowest grades to drop.
+     * @return The sum of the remaining grades in hundredths, or 0 if no grades are left.
+     */
+    static long keptSum(int[] grades, int count, int numGradesDropped) {
+        if (count <= numGradesDropped) {
+            return 0; // All grades are dropped
+        }
+        long sum = FixedPoint.sum(grades, 0, count);
+        if (numGradesDropped == 0) {
+            return sum;
+        }
+        if (numGradesDropped > MAX_SELECTED_DROPS) {
+            int[] sorted = Arrays.copyOf(grades, count);
+            Arrays.sort(sorted);
+            return sum - FixedPoint.sum(sorted, 0, numGradesDropped);
+        }
+        // Few grades are dropped, so keep the lowest ones in a small sorted buffer instead of sorting them all
+        int[] lowest = new int[numGradesDropped];
+        Arrays.fill(lowest, Integer.MAX_VALUE);
+        int highestKept = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            int grade = grades[i];
+            if (grade < highestKept) {
+                int j = numGradesDropped - 1;
+                while (j > 0 && lowest[j - 1] > grade) {
+                    lowest[j] = lowest[j - 1];
+                    j--;
+                }
+                lowest[j] = grade;
+                highestKept = lowest[numGradesDropped - 1];
+            }
+        }
+        return sum - FixedPoint.sum(lowest, 0, numGradesDropped);
+    }
+
+    /**
+     * Averages grades by total points after dropping the ones whose removal raises the average most.
+     * These are not simply the lowest percentages: dropping a 0/50 helps more than dropping a 0/10.
+     * Dinkelbach's method finds them: for the current ratio r of points earned to points possible, drop
+     * the grades with the lowest earned - r * possible, which gives a ratio at least as high, and repeat
+     * until the ratio stops rising, which takes a few rounds. Each round selects the dropped grades in
+     * linear time (see {@link #kthSmallest}) instead of sorting them all.
+     */
+    private static long[] totalPointsFraction(long[] grades, int count, int numGradesDropped) {
+        long earnedAll = 0;
+        long possibleAll = 0;
+        for (int i = 0; i < count; i++) {
+            earnedAll += earnedOf(grades[i]);
+            possibleAll += possibleOf(grades[i]);
+        }
+        long keptEarned = earnedAll;
+        long keptPossible = possibleAll;
+        if (numGradesDropped > 0) {
+            double[] keys = new double[count];
+            double[] scratch = new double[count];
+            for (int round = 0; round < MAX_DROP_ROUNDS; round++) {
+                double ratio = (double) keptEarned / keptPossible;
+                for (int i = 0; i < count; i++) {
+                    keys[i] = earnedOf(grades[i]) - ratio * possibleOf(grades[i]);
+                }
+                double threshold = kthSmallest(keys, scratch, count, numGradesDropped);
+                // Grades with a key equal to the threshold are dropped in order until enough are
+                int below = 0;
+                for (int i = 0; i < count; i++) {
+                    if (keys[i] < threshold) {
+                        below++;
+                    }
+                }
+                int tiesToDrop = numGradesDropped - below;
+                long droppedEarned = 0;
+                long droppedPossible = 0;
+                for (int i = 0; i < count; i++) {
+                    if (keys[i] < threshold || (keys[i] == threshold && tiesToDrop-- > 0)) {
+                        droppedEarned += earnedOf(grades[i]);
+                        droppedPossible += possibleOf(grades[i]);
+                    }
+                }
+                long earned = earnedAll - droppedEarned;
+                long possible = possibleAll - droppedPossible;
+                if (round > 0 && FixedPoint.compareFractions(earned, possible, keptEarned, keptPossible) <= 0) {
+                    break;
+                }
+                keptEarned = earned;
+                keptPossible = possible;
+            }
+        }
+        return new long[]{keptEarned * PERCENT_POSSIBLE, keptPossible};
+    }
+
+    /**
+     * Finds the k-th smallest of some values by selection, which takes linear time on average; with few
+     * dropped grades, a pass that keeps the lowest values in a small sorted buffer, like {@link #keptSum}.
+     *
+     * @param values  The values; the array is not changed.
+     * @param scratch Space for a copy of the values, at least {@code count} long.
+     * @param count   The number of values, at the start of the array.
+     * @param k       The rank, between 1 and {@code count}.
+     * @return The k-th smallest value.
+     */
+    static double kthSmallest(double[] values, double[] scratch, int count, int k) {
+        if (k <= MAX_SELECTED_DROPS) {
+            double[] lowest = new double[k];
+            Arrays.fill(lowest, Double.POSITIVE_INFINITY);
+            for (int i = 0; i < count; i++) {
+                double value = values[i];
+                if (value < lowest[k - 1]) {
+                    int j = k - 1;
+                    while (j > 0 && lowest[j - 1] > value) {
+                        lowest[j] = lowest[j - 1];
+                        j--;
+                    }
+                    lowest[j] = value;
+                }
+            }
+            return lowest[k - 1];
+        }
+        System.arraycopy(values, 0, scratch, 0, count);
+        int target = k - 1;
+        int from = 0;
+        int to = count - 1;
+        // Quickselect with the median of three as the pivot; after too many bad splits, sort what is left
+        int budget = 2 * (32 - Integer.numberOfLeadingZeros(count));
+        while (from < to) {
+            if (budget-- == 0) {
+                Arrays.sort(scratch, from, to + 1);
+                break;
+            }
+            int middle = (from + to) >>> 1;
+            double pivot = medianOf(scratch[from], scratch[middle], scratch[to]);
+            int i = from;
+            int j = to;
+            while (i <= j) {
+                while (scratch[i] < pivot) {
+                    i++;
+                }
+                while (scratch[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    double swap = scratch[i];
+                    scratch[i++] = scratch[j];
+                    scratch[j--] = swap;
+                }
+            }
+            if (target <= j) {
+                to = j;
+            } else if (target >= i) {
+                from = i;
+            } else {
+                break; // Between the two parts every value equals the pivot
+            }
+        }
+        return scratch[target];
+    }
 
-        ArrayList<Double> sortedGrades = new ArrayList<>(grades);
-        Collections.sort(sortedGrades);
+    private static double medianOf(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
 
-        int gradesToConsider = sortedGrades.size() - numGradesDropped;
-        if (gradesToConsider <= 0) {
-            return 0.0; // All grades are dropped
+    /**
+     * The derivative of the average with respect to the last grade's percentage: how many points the
+     * average moves per point on that grade. Once the grades to drop are chosen it is linear in the grade,
+     * 1 / kept grades with equal weights or points possible / kept points possible by total points, and
+     * 0 if the grade is dropped. Towards higher scores, a grade tied with the highest dropped one counts as kept.
+     *
+     * @param grades           The packed grades, the last one at {@code count - 1}; the array is not changed.
+     * @param count            The number of grades, at least 1.
+     * @param numGradesDropped Number of grades to drop.
+     * @param averaging        How the remaining grades are combined.
+     * @return Points of average per point of grade.
+     */
+    static double marginalRate(long[] grades, int count, int numGradesDropped, Averaging averaging) {
+        long[] fraction = averageFraction(grades, count, numGradesDropped, averaging);
+        if (fraction[1] <= 0) {
+            return 0.0; // Every grade is dropped
         }
+        int last = count - 1;
+        if (numGradesDropped > 0) {
+            // With equal weights the lowest percentages are dropped; by total points, the lowest earned - r * possible
+            double ratio = averaging == Averaging.TOTAL_POINTS ? (double) fraction[0] / fraction[1] / PERCENT_POSSIBLE : 0.0;
+            double lastKey = averaging == Averaging.TOTAL_POINTS
+                    ? earnedOf(grades[last]) - ratio * possibleOf(grades[last]) : percentOf(grades[last]);
+            int atOrBelow = 0;
+            for (int i = 0; i < last; i++) {
+                double key = averaging == Averaging.TOTAL_POINTS
+                        ? earnedOf(grades[i]) - ratio * possibleOf(grades[i]) : percentOf(grades[i]);
+                if (key <= lastKey) {
+                    atOrBelow++;
+                }
+            }
+            if (atOrBelow < numGradesDropped) {
+                return 0.0;
+            }
+        }
+        return averaging == Averaging.TOTAL_POINTS
+                ? (double) possibleOf(grades[last]) / fraction[1]
+                : 1.0 / fraction[1];
+    }
+
+    /**
+     * @return The number of grades left after dropping the lowest ones, or -1 if there are no grades.
+     */
+    static int keptCount(int count, int numGradesDropped) {
+        return count == 0 ? -1 : Math.max(0, count - numGradesDropped);
+    }
 
-        double sum = 0.0;
-        for (int i = numGradesDropped; i < sortedGrades.size(); i++) {
-            sum += sortedGrades.get(i);
+    /**
+     * Parses a grade entered as a percentage ("92.5") or as points ("18/20"), as in the GUI and the local API.
+     *
+     * @param text The entered text.
+     * @return The points earned and the points possible (100 for a percentage), or null if out of range.
+     * @throws NumberFormatException If the text is not a number or a pair of numbers.
+     */
+    static double[] parseGrade(String text) {
+        String trimmed = text.trim();
+        int slash = trimmed.indexOf('/');
+        double earned = Double.parseDouble(slash < 0 ? trimmed : trimmed.substring(0, slash).trim());
+        double possible = slash < 0 ? 100.0 : Double.parseDouble(trimmed.substring(slash + 1).trim());
+        // Written so that NaN is out of range too
+        if (!(possible > 0.0 && Double.isFinite(possible) && earned >= 0.0 && earned <= possible)) {
+            return null;
         }
+        return new double[]{earned, possible};
+    }
 
-        return sum / gradesToConsider;
+    /**
+     * Packs a grade into a long: the points earned in the upper 32 bits, the points possible in the
+     * lower 32 bits, both in hundredths. A grade entered as a percentage is out of 100 points.
+     */
+    static long pack(int earned, int possible) {
+        return ((long) earned << 32) | (possible & 0xFFFFFFFFL);
+    }
+
+    static long pack(double pointsEarned, double pointsPossible) {
+        int possible = FixedPoint.toHundredths(pointsPossible);
+        if (possible <= 0) {
+            throw new IllegalArgumentException("Points possible must be positive.");
+        }
+        return pack(FixedPoint.toHundredths(pointsEarned), possible);
+    }
+
+    static int earnedOf(long grade) {
+        return (int) (grade >> 32);
+    }
+
+    static int possibleOf(long grade) {
+        return (int) grade;
+    }
+
+    /**
+     * @return The percentage of a packed grade in hundredths, rounded half up.
+     */
+    static int percentOf(long grade) {
+        int earned = earnedOf(grade);
+        int possible = possibleOf(grade);
+        if (possible == PERCENT_POSSIBLE) {
+            return earned;
+        }
+        return (int) Math.floorDiv(2L * earned * PERCENT_POSSIBLE + possible, 2L * possible);
+    }
+
+    static double earnedPointsOf(long grade) {
+        return FixedPoint.toPoints(earnedOf(grade));
+    }
+
+    static double possiblePointsOf(long grade) {
+        return FixedPoint.toPoints(possibleOf(grade));
+    }
+
+    /**
+     * Attaches this category to the class it belongs to. The category then shares the class's lock,
+     * so that a class and all of its categories form one lock stripe, and reports its changes through it.
+     */
+    void attachTo(ClassRecord classRecord, ReentrantReadWriteLock classLock) {
+        this.lock = classLock;
+        this.owner = classRecord;
+    }
+
+    /**
+     * Detaches this category from its class after it was removed; it keeps its own lock from then on.
+     */
+    void detach() {
+        this.owner = null;
+        this.lock = new ReentrantReadWriteLock();
+    }
+
+    private String ownerName() {
+        ClassRecord classRecord = owner;
+        return classRecord == null ? null : classRecord.getName();
+    }
+
+    private void fire(GradeEvent event) {
+        ClassRecord classRecord = owner;
+        if (classRecord != null) {
+            classRecord.fire(event);
+        }
+    }
+
+    private long gradeAt(int index) {
+        lock.readLock().lock();
+        try {
+            if (index < 0 || index >= gradeCount) {
+                throw new IllegalArgumentException("Grade position " + index + " is out of range for '" + name + "'.");
+            }
+            return points[index];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(int index, long grade, long gradedAt) {
+        if (gradeCount == points.length) {
+            points = Arrays.copyOf(points, Math.max(8, gradeCount * 2));
+        }
+        System.arraycopy(points, index, points, index + 1, gradeCount - index);
+        points[index] = grade;
+        if (index == gradeCount) {
+            timeline.add(gradedAt);
+            if (trend != null) {
+                trend.add(FixedPoint.toPoints(percentOf(grade)));
+            }
+        } else {
+            timeline.insert(index, gradedAt);
+            trend = null;
+        }
+        gradeCount++;
+        addToTotals(grade);
+    }
+
+    private void addToTotals(long grade) {
+        int percent = percentOf(grade);
+        percentTotal += percent;
+        earnedTotal += earnedOf(grade);
+        possibleTotal += possibleOf(grade);
+        if (statistics != null) {
+            statistics.add(FixedPoint.toPoints(percent));
+        }
+    }
+
+    private void removeFromTotals(long grade) {
+        int percent = percentOf(grade);
+        percentTotal -= percent;
+        earnedTotal -= earnedOf(grade);
+        possibleTotal -= possibleOf(grade);
+        if (statistics != null) {
+            statistics.remove(FixedPoint.toPoints(percent));
+        }
+    }
+
+    private ArrayList<Double> gradeList() {
+        ArrayList<Double> list = new ArrayList<>(gradeCount);
+        for (int i = 0; i < gradeCount; i++) {
+            list.add(FixedPoint.toPoints(percentOf(points[i])));
+        }
+        return list;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        lock.readLock().lock();
+        try {
+            fields.put("name", name);
+            fields.put("weight", weight);
+            fields.put("numGradesDropped", numGradesDropped);
+            fields.put("grades", gradeList());
+            fields.put("averaging", averaging);
+            boolean percentagesOnly = true;
+            for (int i = 0; i < gradeCount; i++) {
+                percentagesOnly &= possibleOf(points[i]) == PERCENT_POSSIBLE;
+            }
+            fields.put("points", percentagesOnly ? null : Arrays.copyOf(points, gradeCount));
+            fields.put("timestamps", timeline.toBytes());
+        } finally {
+            lock.readLock().unlock();
+        }
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        name = ((String) fields.get("name", null)).intern();
+        weight = fields.get("weight", 0.0);
+        numGradesDropped = fields.get("numGradesDropped", 0);
+        Averaging savedAveraging = (Averaging) fields.get("averaging", null);
+        averaging = savedAveraging != null ? savedAveraging : Averaging.EQUAL_WEIGHT;
+        long[] savedPoints = (long[]) fields.get("points", null);
+        if (savedPoints == null) {
+            // Percentages only, or a file from before points were kept
+            ArrayList<?> grades = (ArrayList<?>) fields.get("grades", null);
+            savedPoints = new long[grades == null ? 0 : grades.size()];
+            for (int i = 0; i < savedPoints.length; i++) {
+                savedPoints[i] = pack(FixedPoint.toHundredths((Double) grades.get(i)), PERCENT_POSSIBLE);
+            }
+        }
+        byte[] savedTimestamps = (byte[]) fields.get("timestamps", null);
+        long[] timestamps = new long[savedPoints.length];
+        if (savedTimestamps != null) {
+            timestamps = GradeTimeline.fromBytes(savedTimestamps, savedPoints.length).toArray();
+        } else {
+            Arrays.fill(timestamps, NO_TIMESTAMP); // Saved before grades had timestamps
+        }
+        points = new long[Math.max(8, savedPoints.length)];
+        timeline = new GradeTimeline();
+        for (int i = 0; i < savedPoints.length; i++) {
+            insert(gradeCount, savedPoints[i], timestamps[i]);
+        }
+        lock = new ReentrantReadWriteLock();
+        statisticsLock = new Object();
     }
-}
\ No newline at end of file
+}
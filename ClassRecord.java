@@ -1,26 +1,50 @@
 // ClassRecord.java
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 public class ClassRecord implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    // Credit hours of classes created without them, and of classes saved before they had any
+    public static final double DEFAULT_CREDIT_HOURS = 3.0;
+
     private String name;
     private ArrayList<Category> categories;
     private GradingScale gradingScale;
     private boolean usesRounding; // Indicates if rounding is used
     private double roundingThreshold; // Number of points for rounding
     private double extraCredit; // Extra credit points added to final grade
+    private double creditHours; // Weight of the class in the GPA
+
+    // Case-folded category name -> category, rebuilt after deserialization
+    private transient HashMap<String, Category> categoryIndex;
+    // Lock stripe shared by this class and its categories
+    private transient ReentrantReadWriteLock lock;
+    // The GradeBook this class belongs to, which notifies listeners of changes
+    private transient volatile GradeBook owner;
+    // Counts the changes to this class and its categories, which all fire an event under the write lock
+    private transient long version;
 
     public ClassRecord(String name, GradingScale gradingScale, boolean usesRounding, double roundingThreshold) {
         this.name = name;
         this.categories = new ArrayList<>();
-        this.gradingScale = gradingScale;
+        // Shared with every other class of the same scale, in memory and in saved files
+        this.gradingScale = GradingScale.intern(gradingScale);
         this.usesRounding = usesRounding;
         this.roundingThreshold = roundingThreshold;
         this.extraCredit = 0.0;
+        this.creditHours = DEFAULT_CREDIT_HOURS;
+        this.categoryIndex = new HashMap<>();
+        this.lock = new ReentrantReadWriteLock();
     }
 
     // Getters and Setters
@@ -28,12 +52,33 @@ public class ClassRecord implements Serializable {
         return name;
     }
 
-    public ArrayList<Category> getCategories() {
-        return categories;
+    /**
+     * Returns a read-only copy of the categories, safe to use while other threads modify the class.
+     *
+     * @return The categories at the time of the call.
+     */
+    public List<Category> getCategories() {
+        return withReadLock(() -> Collections.unmodifiableList(new ArrayList<>(categories)));
     }
 
     public GradingScale getGradingScale() {
-        return gradingScale;
+        return withReadLock(() -> gradingScale);
+    }
+
+    /**
+     * Replaces the grading scale of this class.
+     *
+     * @param gradingScale The new grading scale.
+     */
+    public void setGradingScale(GradingScale gradingScale) {
+        lock.writeLock().lock();
+        try {
+            GradingScale oldGradingScale = this.gradingScale;
+            this.gradingScale = GradingScale.intern(gradingScale);
+            fire(GradeEvent.scaleChanged(name, this.gradingScale, oldGradingScale));
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public boolean isUsesRounding() {
@@ -44,124 +89,313 @@ public class ClassRecord implements Serializable {
         return roundingThreshold;
     }
 
+    /**
+     * Adds a category to this class.
+     *
+     * @param category The category to add.
+     * @throws IllegalArgumentException If a category with the same name (ignoring case) already exists.
+     */
     public void addCategory(Category category) {
-        categories.add(category);
+        String key = GradeBook.indexKey(category.getName());
+        lock.writeLock().lock();
+        try {
+            if (categoryIndex.containsKey(key)) {
+                throw new IllegalArgumentException("A category named '" + category.getName() + "' already exists in '" + name + "'.");
+            }
+            category.attachTo(this, lock);
+            categories.add(category);
+            categoryIndex.put(key, category);
+            fireCategoryAdded(category);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
-    public Category getCategoryByName(String categoryName) {
-        for (Category category : categories) {
-            if (category.getName().equalsIgnoreCase(categoryName)) {
-                return category;
+    /**
+     * Removes a category (and its grades) from this class.
+     *
+     * @param categoryName The name of the category (case-insensitive).
+     * @return The removed category, or null if there is no such category.
+     */
+    public Category removeCategory(String categoryName) {
+        String key = GradeBook.indexKey(categoryName);
+        lock.writeLock().lock();
+        try {
+            Category removed = categoryIndex.remove(key);
+            if (removed != null) {
+                categories.remove(removed);
+                removed.detach();
+                fire(GradeEvent.categoryRemoved(name, removed));
             }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all categories (and their grades) from this class.
+     */
+    public void clearCategories() {
+        lock.writeLock().lock();
+        try {
+            List<Category> removed = new ArrayList<>(categories);
+            for (Category category : categories) {
+                category.detach();
+            }
+            categories.clear();
+            categoryIndex.clear();
+            fire(GradeEvent.categoriesCleared(name, removed));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean hasCategory(String categoryName) {
+        return getCategoryByName(categoryName) != null;
+    }
+
+    public Category getCategoryByName(String categoryName) {
+        if (categoryName == null) {
+            return null;
         }
-        return null;
+        String key = GradeBook.indexKey(categoryName);
+        return withReadLock(() -> categoryIndex.get(key));
     }
 
     // Extra Credit Methods
     public double getExtraCredit() {
-        return extraCredit;
+        return withReadLock(() -> extraCredit);
     }
 
     public void setExtraCredit(double extraCredit) {
         if (extraCredit < 0.0) {
             throw new IllegalArgumentException("Extra credit cannot be negative.");
         }
-        this.extraCredit = extraCredit;
+        lock.writeLock().lock();
+        try {
+            double oldExtraCredit = this.extraCredit;
+            this.extraCredit = extraCredit;
+            fire(GradeEvent.extraCreditSet(name, extraCredit, oldExtraCredit));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds extra credit points to the current extra credit in one atomic step.
+     *
+     * @param points The points to add.
+     * @return The new total extra credit.
+     */
+    public double addExtraCredit(double points) {
+        if (points < 0.0) {
+            throw new IllegalArgumentException("Extra credit cannot be negative.");
+        }
+        lock.writeLock().lock();
+        try {
+            double oldExtraCredit = extraCredit;
+            extraCredit += points;
+            fire(GradeEvent.extraCreditSet(name, extraCredit, oldExtraCredit));
+            return extraCredit;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
      * Resets the extra credit to zero.
      */
     public void resetExtraCredit() {
-        this.extraCredit = 0.0;
+        setExtraCredit(0.0);
+    }
+
+    // Credit Hours Methods
+    public double getCreditHours() {
+        return withReadLock(() -> creditHours);
     }
 
     /**
-     * Calculates the final grade based on category averages, weights, and extra credit.
-     * For categories with no grades, assigns the average of existing category averages.
-     * Applies rounding if enabled and within the specified threshold.
-     * Ensures the final grade does not exceed 100%.
+     * Sets how much the class counts in the GPA; a class with 0 credit hours does not count.
      *
-     * @return The final grade after applying extra credit and rounding logic.
+     * @param creditHours The credit hours of the class.
      */
-    public double calculateFinalGrade() {
-        double finalGrade = 0.0;
-        double sumWeights = 0.0;
-
-        // First, collect averages of categories that have grades
-        ArrayList<Double> existingAverages = new ArrayList<>();
-        for (Category category : categories) {
-            if (!category.getGrades().isEmpty()) {
-                existingAverages.add(category.calculateAverage());
-            }
+    public void setCreditHours(double creditHours) {
+        if (creditHours < 0.0 || Double.isNaN(creditHours)) {
+            throw new IllegalArgumentException("Credit hours cannot be negative.");
+        }
+        lock.writeLock().lock();
+        try {
+            double oldCreditHours = this.creditHours;
+            this.creditHours = creditHours;
+            fire(GradeEvent.creditHoursSet(name, creditHours, oldCreditHours));
+        } finally {
+            lock.writeLock().unlock();
         }
+    }
 
-        // Compute the average of existing category averages
-        double averageOfAverages = 0.0;
-        if (!existingAverages.isEmpty()) {
-            double sumAverages = 0.0;
-            for (double avg : existingAverages) {
-                sumAverages += avg;
+    /**
+     * Attaches this class to the GradeBook it was added to and reports its current contents
+     * (categories, grades, extra credit and credit hours) as events, so that listeners can rebuild it.
+     */
+    void attachTo(GradeBook gradeBook) {
+        lock.readLock().lock();
+        try {
+            owner = gradeBook;
+            for (Category category : categories) {
+                fireCategoryAdded(category);
+            }
+            if (extraCredit != 0.0) {
+                fire(GradeEvent.extraCreditSet(name, extraCredit, 0.0));
+            }
+            if (creditHours != DEFAULT_CREDIT_HOURS) {
+                fire(GradeEvent.creditHoursSet(name, creditHours, DEFAULT_CREDIT_HOURS));
             }
-            averageOfAverages = sumAverages / existingAverages.size();
+        } finally {
+            lock.readLock().unlock();
         }
+    }
 
-        // Now, calculate the final grade
-        for (Category category : categories) {
-            double categoryAverage;
-            if (!category.getGrades().isEmpty()) {
-                categoryAverage = category.calculateAverage();
-            } else {
-                // Assign average of existing categories
-                categoryAverage = averageOfAverages;
-            }
-            finalGrade += categoryAverage * (category.getWeight() / 100.0);
-            sumWeights += category.getWeight();
+    /**
+     * Detaches this class from its GradeBook after it was removed.
+     */
+    void detach() {
+        owner = null;
+    }
+
+    /**
+     * @return A number that changes whenever this class or one of its categories changes, so results
+     * computed from the class can be cached under it.
+     */
+    long getVersion() {
+        return withReadLock(() -> version);
+    }
+
+    void fire(GradeEvent event) {
+        version++;
+        GradeBook gradeBook = owner;
+        if (gradeBook != null) {
+            gradeBook.fire(event);
         }
+    }
 
-        // Ensure that sumWeights is approximately 100%
-        if (Math.abs(sumWeights - 100.0) > 0.01) {
-            // Optionally, handle weight normalization or alert the user
-            // For now, we'll proceed as is
+    private void fireCategoryAdded(Category category) {
+        version++;
+        if (owner == null) {
+            return;
         }
+        fire(GradeEvent.categoryAdded(name, category));
+        long[] grades = category.getPackedGrades();
+        long[] timestamps = category.getTimestamps();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < grades.length; i++) {
+            fire(GradeEvent.gradeAdded(name, category.getName(), i, Category.earnedPointsOf(grades[i]),
+                    Category.possiblePointsOf(grades[i]), timestamps[i], now));
+        }
+    }
 
-        // Apply rounding if enabled
-        if (usesRounding) {
-            // Retrieve the grading scale map in descending order
-            TreeMap<Double, String> scaleMapDesc = gradingScale.getScale();
+    Lock readLock() {
+        return lock.readLock();
+    }
 
-            Double nextCutoff = null;
-            for (Map.Entry<Double, String> entry : scaleMapDesc.entrySet()) {
-                if (finalGrade < entry.getKey()) {
-                    nextCutoff = entry.getKey();
-                } else {
-                    break; // Found the appropriate cutoff
-                }
-            }
+    /**
+     * Runs a computation while holding this class's read lock, so that it sees the class and all of
+     * its categories in one consistent state.
+     *
+     * @param computation The computation to run.
+     * @return The result of the computation.
+     */
+    <T> T withReadLock(Supplier<T> computation) {
+        lock.readLock().lock();
+        try {
+            return computation.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
 
-            if (nextCutoff != null) {
-                double difference = nextCutoff - finalGrade;
-                if (difference <= roundingThreshold) {
-                    finalGrade = nextCutoff;
+    /**
+     * Calculates the final grade based on category averages, weights, and extra credit.
+     * For categories with no grades, assigns the average of existing category averages.
+     * Applies rounding if enabled and within the specified threshold.
+     * Ensures the final grade does not exceed 100%.
+     *
+     * @return The final grade after applying extra credit and rounding logic.
+     */
+    public double calculateFinalGrade() {
+        GradeBookEvents.FinalGradeEvent event = new GradeBookEvents.FinalGradeEvent();
+        event.begin();
+        lock.readLock().lock();
+        try {
+            double finalGrade = calculateFinalGradeLocked();
+            event.end();
+            if (event.shouldCommit()) {
+                event.className = name;
+                event.categoryCount = categories.size();
+                for (Category category : categories) {
+                    event.gradeCount += category.getGradeCount();
                 }
+                event.commit();
             }
-        } else {
-            // Round to two decimal places without rounding up
-            finalGrade = Math.round(finalGrade * 100.0) / 100.0;
+            return finalGrade;
+        } finally {
+            lock.readLock().unlock();
         }
+    }
 
-        // Add extra credit
-        finalGrade += extraCredit;
-
-        // Ensure final grade does not exceed 100%
-        if (finalGrade > 100.0) {
-            finalGrade = 100.0;
+    private double calculateFinalGradeLocked() {
+        long[] numerators = new long[categories.size()];
+        long[] denominators = new long[categories.size()];
+        double[] weights = new double[categories.size()];
+        for (int i = 0; i < numerators.length; i++) {
+            Category category = categories.get(i);
+            long[] average = category.getAverageFraction();
+            numerators[i] = average[0];
+            denominators[i] = average[1];
+            weights[i] = category.getWeight();
         }
+        return calculateFinalGrade(numerators, denominators, weights, gradingScale, usesRounding, roundingThreshold, extraCredit);
+    }
 
-        // Round again if necessary after adding extra credit
-        finalGrade = Math.round(finalGrade * 100.0) / 100.0;
+    /**
+     * The final grade formula, shared by classes and their snapshots. It is evaluated in hundredths of a
+     * point (see {@link FixedPoint}), so a grade exactly on a cutoff or halfway between two hundredths is
+     * always rounded the same way.
+     *
+     * @param numerators        Per category, the numerator of the average in hundredths.
+     * @param denominators      Per category, the denominator of the average, 0 if every grade is dropped and
+     *                          -1 for categories without grades.
+     * @param weights           The category weights as percentages.
+     * @param gradingScale      The grading scale used for rounding.
+     * @param usesRounding      Whether grades close to the next cutoff are rounded up.
+     * @param roundingThreshold Number of points for rounding.
+     * @param extraCredit       Extra credit points added to the final grade.
+     * @return The final grade after applying extra credit and rounding logic.
+     */
+    static double calculateFinalGrade(long[] numerators, long[] denominators, double[] weights, GradingScale gradingScale,
+                                      boolean usesRounding, double roundingThreshold, double extraCredit) {
+        long[] fixedWeights = new long[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            fixedWeights[i] = FixedPoint.toWeight(weights[i]);
+        }
+        return FixedPoint.toPoints(FixedPoint.finalGrade(numerators, denominators, fixedWeights,
+                gradingScale.getCutoffsInHundredths(), usesRounding, FixedPoint.toHundredths(roundingThreshold),
+                FixedPoint.toHundredths(extraCredit)));
+    }
 
-        return finalGrade;
+    /**
+     * Returns the statistics of all grades of this class, merged from the statistics its categories keep.
+     *
+     * @return New statistics covering every category.
+     */
+    public GradeStatistics getStatistics() {
+        return withReadLock(() -> {
+            GradeStatistics statistics = new GradeStatistics();
+            for (Category category : categories) {
+                statistics.merge(category.getStatistics());
+            }
+            return statistics;
+        });
     }
 
     /**
@@ -173,4 +407,33 @@ public class ClassRecord implements Serializable {
         double finalGrade = calculateFinalGrade();
         return gradingScale.getLetterGrade(finalGrade);
     }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.defaultWriteObject();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        name = (String) fields.get("name", null);
+        categories = (ArrayList<Category>) fields.get("categories", null);
+        gradingScale = (GradingScale) fields.get("gradingScale", null);
+        usesRounding = fields.get("usesRounding", false);
+        roundingThreshold = fields.get("roundingThreshold", 0.0);
+        extraCredit = fields.get("extraCredit", 0.0);
+        // Files saved before classes had credit hours
+        creditHours = fields.defaulted("creditHours") ? DEFAULT_CREDIT_HOURS : fields.get("creditHours", DEFAULT_CREDIT_HOURS);
+        lock = new ReentrantReadWriteLock();
+        categoryIndex = new HashMap<>();
+        for (Category category : categories) {
+            category.attachTo(this, lock);
+            // Older files may contain duplicate names; the first one wins, as with the old linear scan
+            categoryIndex.putIfAbsent(GradeBook.indexKey(category.getName()), category);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,261 @@
+// FixedPoint.java
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point arithmetic for grades. Grades, cutoffs, rounding thresholds and extra credit are counted in
+ * hundredths of a point (87.25% is 8725), the precision grades are entered and shown with; category
+ * weights are counted in millionths of a percent (see {@link #toWeight}).
+ * A grade fits in an int, half the size of a double, and sums of grades are exact in a long. Points-based
+ * grades keep their points earned and possible in hundredths too, so a category average is an exact
+ * fraction of two longs whichever way the category averages its grades.
+ * <p>
+ * The final grade formula divides by the number of grades and by the weights, so it is not an integer
+ * in general. It is first estimated in floating point, which decides almost every grade; only when the
+ * estimate is too close to a rounding boundary or a cutoff to tell which side the grade is on, the
+ * formula is evaluated again with exact fractions. A grade that lands exactly on a boundary is then
+ * always rounded the same way, however the floating-point sums happened to come out.
+ */
+final class FixedPoint {
+    static final int SCALE = 100; // Hundredths per point
+    static final long MAX_GRADE = 100L * SCALE;
+    // Weights are finer: a weight like 100/3 has no exact decimal form, and three of them must still add up
+    // to 100% to within far less than the hundredth a final grade is rounded to
+    static final long WEIGHT_SCALE = 1_000_000; // Millionths of a percent
+    static final long FULL_WEIGHT = 100L * WEIGHT_SCALE;
+    static final long AMBIGUOUS = Long.MIN_VALUE;
+
+    // Bound on the error of a floating-point estimate in hundredths, far above the actual rounding error
+    private static final double TOLERANCE = 1e-6;
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Converts a number of points to hundredths, rounding half up at the third decimal as it was written,
+     * e.g. 86.665 becomes 8667.
+     *
+     * @throws IllegalArgumentException If the value is not a number or does not fit.
+     */
+    static int toHundredths(double points) {
+        if (Double.isNaN(points) || Double.isInfinite(points) || Math.abs(points) >= Integer.MAX_VALUE / SCALE) {
+            throw new IllegalArgumentException("Invalid grade value: " + points);
+        }
+        double scaled = points * SCALE;
+        double nearest = Math.rint(scaled);
+        if (Math.abs(scaled - nearest) < TOLERANCE) {
+            return (int) nearest; // Already on the grid, which covers grades entered by hand
+        }
+        return BigDecimal.valueOf(points).setScale(2, RoundingMode.HALF_UP).unscaledValue().intValue();
+    }
+
+    /**
+     * Converts a weight in percent to millionths of a percent, rounding half up.
+     *
+     * @throws IllegalArgumentException If the weight is not a number or does not fit.
+     */
+    static long toWeight(double percent) {
+        if (Double.isNaN(percent) || Double.isInfinite(percent) || Math.abs(percent) >= Long.MAX_VALUE / (double) WEIGHT_SCALE) {
+            throw new IllegalArgumentException("Invalid weight: " + percent);
+        }
+        return BigDecimal.valueOf(percent).setScale(6, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static double toPoints(long hundredths) {
+        return hundredths / (double) SCALE;
+    }
+
+    /**
+     * Sums a range of grades. The loop has no dependencies between iterations other than the sum,
+     * so the JIT compiles it to vector instructions.
+     */
+    static long sum(int[] grades, int from, int to) {
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += grades[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return The average in points of a category whose average in hundredths is numerator / denominator,
+     * or 0.0 if the denominator is not positive (no grades, or all dropped).
+     */
+    static double average(long numerator, long denominator) {
+        return denominator <= 0 ? 0.0 : numerator / ((double) denominator * SCALE);
+    }
+
+    /**
+     * Compares a / b with c / d exactly, for positive b and d, using 128-bit products.
+     */
+    static int compareFractions(long a, long b, long c, long d) {
+        long highLeft = Math.multiplyHigh(a, d);
+        long highRight = Math.multiplyHigh(c, b);
+        if (highLeft != highRight) {
+            return Long.compare(highLeft, highRight);
+        }
+        return Long.compareUnsigned(a * d, c * b);
+    }
+
+    /**
+     * Calculates a final grade: categories without grades count with the average of the other categories,
+     * the weighted sum is rounded up to the next cutoff if it is within the rounding threshold (or else
+     * rounded to hundredths if rounding is off), and extra credit is added up to 100%.
+     *
+     * @param numerators        Per category, the numerator of the average in hundredths.
+     * @param denominators      Per category, the denominator of the average: 0 if every grade is dropped,
+     *                          which counts as an average of 0, or -1 if the category has no grades at all.
+     * @param weights           Per category, the weight in millionths of a percent (see {@link #toWeight}).
+     * @param cutoffs           The cutoffs of the grading scale in hundredths, ascending.
+     * @param usesRounding      Whether grades close to the next cutoff are rounded up.
+     * @param roundingThreshold The rounding threshold in hundredths.
+     * @param extraCredit       The extra credit in hundredths.
+     * @return The final grade in hundredths.
+     */
+    static long finalGrade(long[] numerators, long[] denominators, long[] weights, long[] cutoffs,
+                           boolean usesRounding, long roundingThreshold, long extraCredit) {
+        double sumAverages = 0.0;
+        int existingAverages = 0;
+        for (int i = 0; i < denominators.length; i++) {
+            if (denominators[i] >= 0) {
+                sumAverages += denominators[i] == 0 ? 0.0 : (double) numerators[i] / denominators[i];
+                existingAverages++;
+            }
+        }
+        double averageOfAverages = existingAverages > 0 ? sumAverages / existingAverages : 0.0;
+        double estimate = 0.0;
+        for (int i = 0; i < denominators.length; i++) {
+            double average = denominators[i] < 0 ? averageOfAverages
+                    : denominators[i] == 0 ? 0.0 : (double) numerators[i] / denominators[i];
+            estimate += average * weights[i];
+        }
+        long finalGrade = round(estimate / FULL_WEIGHT, cutoffs, usesRounding, roundingThreshold, extraCredit);
+        if (finalGrade == AMBIGUOUS) {
+            finalGrade = exactFinalGrade(numerators, denominators, weights, cutoffs, usesRounding, roundingThreshold, extraCredit);
+        }
+        return finalGrade;
+    }
+
+    /**
+     * Applies the rounding, the extra credit and the cap at 100% to a floating-point estimate of the
+     * weighted sum of the category averages.
+     *
+     * @param estimate The weighted sum in hundredths, accurate to well within 10<sup>-6</sup>.
+     * @return The final grade in hundredths, or {@link #AMBIGUOUS} if the estimate is too close to a
+     * boundary and {@link #exactFinalGrade} must decide.
+     */
+    static long round(double estimate, long[] cutoffs, boolean usesRounding, long roundingThreshold, long extraCredit) {
+        // Rounding never decreases as the grade increases, so if both ends of the error interval round
+        // to the same grade, so does the exact value in between
+        long low = roundApproximately(estimate - TOLERANCE, cutoffs, usesRounding, roundingThreshold, extraCredit);
+        long high = roundApproximately(estimate + TOLERANCE, cutoffs, usesRounding, roundingThreshold, extraCredit);
+        return low == high ? low : AMBIGUOUS;
+    }
+
+    private static long roundApproximately(double grade, long[] cutoffs, boolean usesRounding,
+                                           long roundingThreshold, long extraCredit) {
+        if (usesRounding) {
+            for (long cutoff : cutoffs) {
+                if (grade < cutoff) {
+                    if (cutoff - grade <= roundingThreshold) {
+                        grade = cutoff;
+                    }
+                    break;
+                }
+            }
+        } else {
+            grade = Math.floor(grade + 0.5);
+        }
+        return (long) Math.floor(Math.min(MAX_GRADE, grade + extraCredit) + 0.5);
+    }
+
+    /**
+     * The final grade formula of {@link #finalGrade} in exact fractions, for grades on a boundary.
+     */
+    static long exactFinalGrade(long[] numerators, long[] denominators, long[] weights, long[] cutoffs,
+                                boolean usesRounding, long roundingThreshold, long extraCredit) {
+        Fraction sumAverages = Fraction.ZERO;
+        int existingAverages = 0;
+        for (int i = 0; i < denominators.length; i++) {
+            if (denominators[i] >= 0) {
+                sumAverages = sumAverages.plus(Fraction.average(numerators[i], denominators[i]));
+                existingAverages++;
+            }
+        }
+        Fraction averageOfAverages = existingAverages > 0 ? sumAverages.dividedBy(existingAverages) : Fraction.ZERO;
+        Fraction grade = Fraction.ZERO;
+        for (int i = 0; i < denominators.length; i++) {
+            Fraction average = denominators[i] < 0 ? averageOfAverages : Fraction.average(numerators[i], denominators[i]);
+            grade = grade.plus(average.times(weights[i]));
+        }
+        grade = grade.dividedBy(FULL_WEIGHT);
+
+        if (usesRounding) {
+            for (long cutoff : cutoffs) {
+                if (grade.compareTo(cutoff) < 0) {
+                    if (grade.compareTo(cutoff - roundingThreshold) >= 0) {
+                        grade = Fraction.of(cutoff);
+                    }
+                    break;
+                }
+            }
+        } else {
+            grade = Fraction.of(grade.roundHalfUp());
+        }
+        grade = grade.plus(Fraction.of(extraCredit));
+        return grade.compareTo(MAX_GRADE) > 0 ? MAX_GRADE : grade.roundHalfUp();
+    }
+
+    /**
+     * A rational number with a positive denominator. The formula adds a handful of them, so they are
+     * not reduced.
+     */
+    private static final class Fraction {
+        static final Fraction ZERO = of(0);
+
+        final BigInteger numerator;
+        final BigInteger denominator;
+
+        private Fraction(BigInteger numerator, BigInteger denominator) {
+            this.numerator = numerator;
+            this.denominator = denominator;
+        }
+
+        static Fraction of(long value) {
+            return new Fraction(BigInteger.valueOf(value), BigInteger.ONE);
+        }
+
+        static Fraction average(long numerator, long denominator) {
+            return denominator <= 0 ? ZERO : new Fraction(BigInteger.valueOf(numerator), BigInteger.valueOf(denominator));
+        }
+
+        Fraction plus(Fraction other) {
+            return new Fraction(numerator.multiply(other.denominator).add(other.numerator.multiply(denominator)),
+                    denominator.multiply(other.denominator));
+        }
+
+        Fraction times(long factor) {
+            return new Fraction(numerator.multiply(BigInteger.valueOf(factor)), denominator);
+        }
+
+        Fraction dividedBy(long divisor) {
+            return new Fraction(numerator, denominator.multiply(BigInteger.valueOf(divisor)));
+        }
+
+        int compareTo(long value) {
+            return numerator.compareTo(denominator.multiply(BigInteger.valueOf(value)));
+        }
+
+        /**
+         * @return The nearest integer, halves rounded up like {@link Math#round(double)}.
+         */
+        long roundHalfUp() {
+            // floor((2n + d) / 2d)
+            BigInteger twiceDenominator = denominator.shiftLeft(1);
+            BigInteger[] quotient = numerator.shiftLeft(1).add(denominator).divideAndRemainder(twiceDenominator);
+            BigInteger floor = quotient[1].signum() < 0 ? quotient[0].subtract(BigInteger.ONE) : quotient[0];
+            return floor.longValueExact();
+        }
+    }
+}
@@ -0,0 +1,270 @@
+// GpaTracker.java
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The grade point average of a GradeBook: every class counts with the grade points of its letter grade
+ * (as its grading scale maps them), weighted by its credit hours. Classes without grades or without
+ * credit hours do not count. The cumulative GPA adds the GradeBook's prior terms.
+ * <p>
+ * The GPA is kept up to date incrementally: a change only marks its class, and the next query
+ * recomputes the marked classes from the latest snapshot, whose unchanged categories keep their cached
+ * averages, and adjusts the running totals by the difference. What-if queries replace the cached
+ * entries of a few classes and never recompute the others.
+ * <p>
+ * Writers notify the tracker while they hold their class's lock, and taking a snapshot may wait for class
+ * locks, so the tracker never takes a snapshot while it holds its own monitor.
+ */
+public class GpaTracker implements GradeBookListener {
+
+    /**
+     * What a class adds to the GPA.
+     */
+    private static final class Entry {
+        final GradingScale gradingScale;
+        final double creditHours;
+        final double gradePoints;
+        final boolean counted;
+
+        Entry(GradeBookSnapshot.ClassSnapshot classSnapshot) {
+            this.gradingScale = classSnapshot.getGradingScale();
+            this.creditHours = classSnapshot.getCreditHours();
+            this.counted = classSnapshot.hasGrades() && creditHours > 0.0;
+            this.gradePoints = counted ? classSnapshot.getGradePoints() : 0.0;
+        }
+
+        double countedCreditHours() {
+            return counted ? creditHours : 0.0;
+        }
+
+        double qualityPoints() {
+            return counted ? creditHours * gradePoints : 0.0;
+        }
+    }
+
+    // All guarded by this
+    private GradeBook gradeBook;
+    // Case-folded class name -> entry, for every class as of the last refresh
+    private final Map<String, Entry> entries = new HashMap<>();
+    // Names of the classes changed since the last refresh
+    private Set<String> dirty = new LinkedHashSet<>();
+    // Whether the prior terms may have changed since the last refresh
+    private boolean priorTermsChanged;
+    private double creditHours;
+    private double qualityPoints;
+    private double priorCreditHours;
+    private double priorQualityPoints;
+    // Lets one query at a time refresh; never held by listeners, so it is safe to take a snapshot under it
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    /**
+     * Creates a tracker that follows a GradeBook, e.g. for a one-off export.
+     */
+    public static GpaTracker of(GradeBook gradeBook) {
+        GpaTracker tracker = new GpaTracker();
+        tracker.attach(gradeBook);
+        return tracker;
+    }
+
+    /**
+     * Starts following a GradeBook instead of the one followed before.
+     */
+    public void attach(GradeBook newGradeBook) {
+        synchronized (this) {
+            if (gradeBook != null) {
+                gradeBook.removeListener(this);
+            }
+            gradeBook = newGradeBook;
+            entries.clear();
+            dirty = new LinkedHashSet<>();
+            priorTermsChanged = true;
+            creditHours = 0.0;
+            qualityPoints = 0.0;
+            priorCreditHours = 0.0;
+            priorQualityPoints = 0.0;
+        }
+        // Listen before capturing, so no change is missed; the capture may wait for class locks, which
+        // writers hold while notifying this tracker, so it happens outside the monitor
+        newGradeBook.addListener(this);
+        GradeBookSnapshot snapshot = newGradeBook.snapshot();
+        synchronized (this) {
+            if (gradeBook == newGradeBook) {
+                // Every class is computed by the first query
+                for (GradeBookSnapshot.ClassSnapshot classSnapshot : snapshot.getClasses()) {
+                    dirty.add(classSnapshot.getName());
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void gradeBookChanged(GradeEvent event) {
+        if (event.getType() == GradeEvent.Type.PRIOR_TERMS_SET) {
+            priorTermsChanged = true;
+        } else {
+            dirty.add(event.getClassName());
+        }
+    }
+
+    /**
+     * @return The GPA of the current classes, or NaN if no class counts yet.
+     */
+    public double getGpa() {
+        refresh();
+        synchronized (this) {
+            return creditHours > 0.0 ? qualityPoints / creditHours : Double.NaN;
+        }
+    }
+
+    /**
+     * @return The credit hours of the classes that count in the GPA.
+     */
+    public double getCreditHours() {
+        refresh();
+        synchronized (this) {
+            return creditHours;
+        }
+    }
+
+    /**
+     * @return The credit hours times grade points of the classes that count in the GPA.
+     */
+    public double getQualityPoints() {
+        refresh();
+        synchronized (this) {
+            return qualityPoints;
+        }
+    }
+
+    /**
+     * @return The GPA over the current classes and the prior terms, or NaN if nothing counts yet.
+     */
+    public double getCumulativeGpa() {
+        refresh();
+        synchronized (this) {
+            double totalCreditHours = creditHours + priorCreditHours;
+            return totalCreditHours > 0.0 ? (qualityPoints + priorQualityPoints) / totalCreditHours : Double.NaN;
+        }
+    }
+
+    /**
+     * @return The credit hours of the current classes that count and of the prior terms.
+     */
+    public double getCumulativeCreditHours() {
+        refresh();
+        synchronized (this) {
+            return creditHours + priorCreditHours;
+        }
+    }
+
+    /**
+     * Returns the GPA if a class ended with another final grade, e.g. one from
+     * {@link GradeCalculator#calculateHypotheticalFinalGrade}.
+     *
+     * @param className  The class (case-insensitive).
+     * @param finalGrade The final grade the class would end with.
+     * @return The GPA with that final grade, or NaN if no class would count.
+     * @throws IllegalArgumentException If there is no such class.
+     */
+    public double whatIf(String className, double finalGrade) {
+        Map<String, Double> finalGrades = new HashMap<>();
+        finalGrades.put(className, finalGrade);
+        return whatIf(finalGrades);
+    }
+
+    /**
+     * Returns the GPA if several classes ended with other final grades. The other classes keep their
+     * cached grade points.
+     *
+     * @param finalGrades Class name (case-insensitive) -&gt; the final grade it would end with.
+     * @return The GPA with those final grades, or NaN if no class would count.
+     * @throws IllegalArgumentException If one of the classes does not exist.
+     */
+    public double whatIf(Map<String, Double> finalGrades) {
+        refresh();
+        synchronized (this) {
+            return whatIfRefreshed(finalGrades);
+        }
+    }
+
+    private double whatIfRefreshed(Map<String, Double> finalGrades) {
+        double newCreditHours = creditHours;
+        double newQualityPoints = qualityPoints;
+        for (Map.Entry<String, Double> finalGrade : finalGrades.entrySet()) {
+            Entry entry = entries.get(GradeBook.indexKey(finalGrade.getKey()));
+            if (entry == null) {
+                throw new IllegalArgumentException("Unknown class '" + finalGrade.getKey() + "'");
+            }
+            newCreditHours -= entry.countedCreditHours();
+            newQualityPoints -= entry.qualityPoints();
+            // With a final grade given, a class counts even if it has no grades yet
+            if (entry.creditHours > 0.0) {
+                newCreditHours += entry.creditHours;
+                newQualityPoints += entry.creditHours * entry.gradingScale.getGradePointsFor(finalGrade.getValue());
+            }
+        }
+        return newCreditHours > 0.0 ? newQualityPoints / newCreditHours : Double.NaN;
+    }
+
+    /**
+     * Recomputes the entries of the classes changed since the last refresh. The changed classes are taken
+     * before the snapshot: the snapshot is published before listeners hear of a change, so it includes
+     * every change taken, and changes that arrive meanwhile wait for the next refresh.
+     */
+    private void refresh() {
+        refreshLock.lock();
+        try {
+            GradeBook source;
+            Set<String> changed;
+            boolean priorTerms;
+            synchronized (this) {
+                if (dirty.isEmpty() && !priorTermsChanged) {
+                    return;
+                }
+                source = gradeBook;
+                changed = dirty;
+                priorTerms = priorTermsChanged;
+                dirty = new LinkedHashSet<>();
+                priorTermsChanged = false;
+            }
+            GradeBookSnapshot snapshot = source.snapshot();
+            synchronized (this) {
+                if (source != gradeBook) {
+                    return; // Attached to another GradeBook meanwhile, which starts over
+                }
+                apply(snapshot, changed, priorTerms);
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void apply(GradeBookSnapshot snapshot, Set<String> changed, boolean priorTerms) {
+        if (priorTerms) {
+            priorCreditHours = snapshot.getPriorCreditHours();
+            priorQualityPoints = snapshot.getPriorQualityPoints();
+        }
+        for (String className : changed) {
+            String key = GradeBook.indexKey(className);
+            GradeBookSnapshot.ClassSnapshot classSnapshot = snapshot.getClassByName(className);
+            Entry oldEntry = classSnapshot == null ? entries.remove(key) : entries.put(key, new Entry(classSnapshot));
+            if (oldEntry != null) {
+                creditHours -= oldEntry.countedCreditHours();
+                qualityPoints -= oldEntry.qualityPoints();
+            }
+            if (classSnapshot != null) {
+                Entry entry = entries.get(key);
+                creditHours += entry.countedCreditHours();
+                qualityPoints += entry.qualityPoints();
+            }
+        }
+        if (entries.isEmpty()) {
+            // Nothing left to count; drop the rounding error of the running totals
+            creditHours = 0.0;
+            qualityPoints = 0.0;
+        }
+    }
+}
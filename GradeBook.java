@@ -1,29 +1,256 @@
 // GradeBook.java
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * The collection of classes.
+ * Thread-safe: the class list is guarded by the GradeBook's own read/write lock, and each ClassRecord
+ * guards itself and its categories with a lock of its own, so threads working on different classes
+ * never contend with each other.
+ */
 public class GradeBook implements Serializable {
     private static final long serialVersionUID = 1L;
     private ArrayList<ClassRecord> classes;
+    // Totals of the terms before this GradeBook's classes, for the cumulative GPA; 0 in older files
+    private double priorCreditHours;
+    private double priorQualityPoints;
+
+    // Case-folded class name -> class, rebuilt after deserialization
+    private transient HashMap<String, ClassRecord> classIndex;
+    private transient ReentrantReadWriteLock lock;
+    private transient CopyOnWriteArrayList<GradeBookListener> listeners;
+    // The latest immutable version, maintained once snapshot() was called
+    private transient volatile AtomicReference<GradeBookSnapshot> published;
 
     public GradeBook() {
         classes = new ArrayList<>();
+        classIndex = new HashMap<>();
+        lock = new ReentrantReadWriteLock();
+        listeners = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Registers a listener for every change to this GradeBook, its classes and their categories.
+     *
+     * @param listener The listener to add.
+     */
+    public void addListener(GradeBookListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GradeBookListener listener) {
+        listeners.remove(listener);
+    }
+
+    void fire(GradeEvent event) {
+        AtomicReference<GradeBookSnapshot> current = published;
+        if (current != null) {
+            // Changes to different classes may race here; the CAS loop serializes them
+            current.updateAndGet(snapshot -> snapshot.apply(event));
+        }
+        for (GradeBookListener listener : listeners) {
+            listener.gradeBookChanged(event);
+        }
     }
 
+    /**
+     * Adds a class to the GradeBook.
+     *
+     * @param classRecord The class to add.
+     * @throws IllegalArgumentException If a class with the same name (ignoring case) already exists.
+     */
     public void addClass(ClassRecord classRecord) {
-        classes.add(classRecord);
+        String key = indexKey(classRecord.getName());
+        lock.writeLock().lock();
+        try {
+            if (classIndex.containsKey(key)) {
+                throw new IllegalArgumentException("A class named '" + classRecord.getName() + "' already exists.");
+            }
+            classes.add(classRecord);
+            classIndex.put(key, classRecord);
+            fire(GradeEvent.classAdded(classRecord));
+            classRecord.attachTo(this);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the class with the given name (ignoring case).
+     *
+     * @param name The name of the class to remove.
+     * @return The removed class, or null if no class has that name.
+     */
+    public ClassRecord removeClass(String name) {
+        lock.writeLock().lock();
+        try {
+            ClassRecord removed = classIndex.remove(indexKey(name));
+            if (removed != null) {
+                classes.remove(removed);
+                removed.detach();
+                fire(GradeEvent.classRemoved(removed));
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the current immutable version of this GradeBook. Readers such as the table, exports and
+     * saving can use it without locking and never block writers. The first call captures the current
+     * state; from then on every change publishes a new version.
+     *
+     * @return The latest version.
+     */
+    public GradeBookSnapshot snapshot() {
+        AtomicReference<GradeBookSnapshot> current = published;
+        if (current == null) {
+            current = startPublishing();
+        }
+        return current.get();
+    }
+
+    private AtomicReference<GradeBookSnapshot> startPublishing() {
+        lock.writeLock().lock();
+        try {
+            if (published != null) {
+                return published;
+            }
+            // Hold every class's lock so no change can slip in between capturing and publishing.
+            // Writers only ever hold one class lock at a time, so taking them all here cannot deadlock.
+            List<Lock> held = new ArrayList<>(classes.size());
+            try {
+                List<GradeBookSnapshot.ClassSnapshot> classSnapshots = new ArrayList<>(classes.size());
+                for (ClassRecord classRecord : classes) {
+                    Lock classLock = classRecord.readLock();
+                    classLock.lock();
+                    held.add(classLock);
+                    classSnapshots.add(GradeBookSnapshot.ClassSnapshot.of(classRecord));
+                }
+                published = new AtomicReference<>(GradeBookSnapshot.of(classSnapshots, priorCreditHours, priorQualityPoints));
+                return published;
+            } finally {
+                for (Lock classLock : held) {
+                    classLock.unlock();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
-    public ArrayList<ClassRecord> getClasses() {
-        return classes;
+    /**
+     * Returns a read-only copy of the classes, safe to use while other threads add or remove classes.
+     *
+     * @return The classes at the time of the call.
+     */
+    public List<ClassRecord> getClasses() {
+        lock.readLock().lock();
+        try {
+            return Collections.unmodifiableList(new ArrayList<>(classes));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean hasClass(String name) {
+        return getClassByName(name) != null;
     }
 
     public ClassRecord getClassByName(String name) {
+        if (name == null) {
+            return null;
+        }
+        String key = indexKey(name);
+        lock.readLock().lock();
+        try {
+            return classIndex.get(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public double getPriorCreditHours() {
+        lock.readLock().lock();
+        try {
+            return priorCreditHours;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public double getPriorQualityPoints() {
+        lock.readLock().lock();
+        try {
+            return priorQualityPoints;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the totals of earlier terms that count in the cumulative GPA along with the current classes,
+     * e.g. from a transcript. Quality points are credit hours times grade points, so a prior GPA of 3.5
+     * over 30 credit hours is 105 quality points.
+     *
+     * @param creditHours   The credit hours of earlier terms.
+     * @param qualityPoints The quality points of earlier terms.
+     * @throws IllegalArgumentException If either total is negative.
+     */
+    public void setPriorTerms(double creditHours, double qualityPoints) {
+        if (creditHours < 0.0 || qualityPoints < 0.0 || Double.isNaN(creditHours) || Double.isNaN(qualityPoints)) {
+            throw new IllegalArgumentException("Prior credit hours and quality points cannot be negative.");
+        }
+        lock.writeLock().lock();
+        try {
+            double oldCreditHours = priorCreditHours;
+            double oldQualityPoints = priorQualityPoints;
+            priorCreditHours = creditHours;
+            priorQualityPoints = qualityPoints;
+            fire(GradeEvent.priorTermsSet(creditHours, qualityPoints, oldCreditHours, oldQualityPoints));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the key used by the name indexes of GradeBook and ClassRecord.
+     * Names are compared ignoring case, as the lookups always have.
+     */
+    static String indexKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.defaultWriteObject();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        lock = new ReentrantReadWriteLock();
+        listeners = new CopyOnWriteArrayList<>();
+        classIndex = new HashMap<>();
         for (ClassRecord classRecord : classes) {
-            if (classRecord.getName().equalsIgnoreCase(name)) {
-                return classRecord;
-            }
+            classRecord.attachTo(this); // No listeners yet, so nothing is reported
+            // Older files may contain duplicate names; the first one wins, as with the old linear scan
+            classIndex.putIfAbsent(indexKey(classRecord.getName()), classRecord);
         }
-        return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,299 @@
+// GradeBookBatch.java
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Headless entry point for running gradebook computations without Swing, e.g. on report servers.
+ * All output is JSON, one object per line. Bulk commands spread the work over all cores.
+ */
+public class GradeBookBatch {
+
+    private static final String USAGE = String.join("\n",
+            "Usage: java GradeBookBatch [--data <file>] <command> [arguments]",
+            "",
+            "Commands:",
+            "  grades                              Final grade, letter and category averages of every class",
+            "  gpa                                 Term and cumulative GPA over the classes' credit hours",
+            "  needed <letter> <remaining> [class] Needed-grades scenarios for one class, or every class;",
+            "                                      <remaining> is one count for all categories or a comma list",
+            "  export <csv-file|->                 Write all classes, categories and grades as CSV",
+            "  import <csv-file|->                 Add classes, categories and grades from CSV and save",
+            "  report <html-file|->                Report cards of every class as a paginated HTML document",
+            "  terms                               The archived terms, without loading their classes",
+            "  term <name>                         Final grade, letter and category averages of an archived term",
+            "  archive <name>                      Archive the current classes as a term and start the next one",
+            "",
+            "The data file defaults to " + GradeBookStore.DEFAULT_DATA_FILE + "; archived terms are kept",
+            "in the directory of the same name with \".terms\" appended.");
+
+    public static void main(String[] args) {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        File dataFile = new File(GradeBookStore.DEFAULT_DATA_FILE);
+        if (arguments.size() >= 2 && "--data".equals(arguments.get(0))) {
+            dataFile = new File(arguments.get(1));
+            arguments = arguments.subList(2, arguments.size());
+        }
+        if (arguments.isEmpty()) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        try {
+            GradeBook gradeBook = GradeBookStore.load(dataFile);
+            String command = arguments.get(0);
+            List<String> rest = arguments.subList(1, arguments.size());
+            switch (command) {
+                case "grades":
+                    printGrades(gradeBook, out);
+                    break;
+                case "gpa":
+                    out.println(gpaJson(GpaTracker.of(gradeBook)));
+                    break;
+                case "needed":
+                    if (rest.size() < 2) {
+                        throw new IllegalArgumentException("needed requires <letter> and <remaining>");
+                    }
+                    printNeeded(gradeBook, rest.get(0), rest.get(1), rest.size() > 2 ? rest.get(2) : null, out);
+                    break;
+                case "export":
+                    requireArgument(rest, "export requires a CSV file or -");
+                    try (Writer writer = "-".equals(rest.get(0))
+                            ? new OutputStreamWriter(out, StandardCharsets.UTF_8)
+                            : new FileWriter(rest.get(0), StandardCharsets.UTF_8)) {
+                        GradeBookStore.exportCsv(gradeBook, writer);
+                    }
+                    break;
+                case "report":
+                    requireArgument(rest, "report requires an HTML file or -");
+                    try (Writer writer = "-".equals(rest.get(0))
+                            ? new OutputStreamWriter(out, StandardCharsets.UTF_8)
+                            : new FileWriter(rest.get(0), StandardCharsets.UTF_8)) {
+                        GradeBookReport.write(gradeBook, writer);
+                    }
+                    break;
+                case "import":
+                    requireArgument(rest, "import requires a CSV file or -");
+                    long imported;
+                    try (Reader reader = "-".equals(rest.get(0))
+                            ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                            : new FileReader(rest.get(0), StandardCharsets.UTF_8)) {
+                        imported = GradeBookStore.importCsv(gradeBook, reader);
+                    }
+                    GradeBookStore.save(gradeBook, dataFile);
+                    out.println("{\"imported\":" + imported + ",\"classes\":" + gradeBook.getClasses().size() + "}");
+                    break;
+                case "terms":
+                    for (TermArchive.Term term : new TermArchive(termsDirectory(dataFile)).getTerms()) {
+                        out.println(termJson(term));
+                    }
+                    break;
+                case "term":
+                    requireArgument(rest, "term requires a term name");
+                    TermArchive.Term term = findTerm(new TermArchive(termsDirectory(dataFile)), rest.get(0));
+                    for (GradeBookSnapshot.ClassSnapshot classSnapshot : term.load().getClasses()) {
+                        out.println(classJson(classSnapshot));
+                    }
+                    break;
+                case "archive":
+                    requireArgument(rest, "archive requires a term name");
+                    GradeBook next = new TermArchive(termsDirectory(dataFile)).archive(gradeBook, rest.get(0), dataFile);
+                    out.println(gpaJson(GpaTracker.of(next)));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown command '" + command + "'\n" + USAGE);
+            }
+            out.flush();
+        } catch (IllegalArgumentException e) {
+            System.err.println("error: " + e.getMessage());
+            System.exit(2);
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void requireArgument(List<String> rest, String message) {
+        if (rest.isEmpty()) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    /**
+     * Prints one JSON object per class. Classes are evaluated in parallel but printed in GradeBook order.
+     */
+    static void printGrades(GradeBook gradeBook, PrintStream out) {
+        gradeBook.getClasses().parallelStream()
+                .map(GradeBookBatch::classJson)
+                .forEachOrdered(out::println);
+    }
+
+    static String classJson(ClassRecord classRecord) {
+        return classJson(GradeBookSnapshot.ClassSnapshot.of(classRecord));
+    }
+
+    static String classJson(GradeBookSnapshot.ClassSnapshot classSnapshot) {
+        double finalGrade = classSnapshot.getFinalGrade();
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"class\":").append(Json.quote(classSnapshot.getName()))
+                .append(",\"finalGrade\":").append(Json.number(finalGrade))
+                .append(",\"letterGrade\":").append(Json.quote(classSnapshot.getGradingScale().getLetterGrade(finalGrade)))
+                .append(",\"extraCredit\":").append(Json.number(classSnapshot.getExtraCredit()))
+                .append(",\"creditHours\":").append(Json.number(classSnapshot.getCreditHours()))
+                .append(",\"gradePoints\":").append(classSnapshot.hasGrades() ? Json.number(classSnapshot.getGradePoints()) : "null")
+                .append(",\"categories\":[");
+        List<GradeBookSnapshot.CategorySnapshot> categories = classSnapshot.getCategories();
+        for (int i = 0; i < categories.size(); i++) {
+            GradeBookSnapshot.CategorySnapshot category = categories.get(i);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"name\":").append(Json.quote(category.getName()))
+                    .append(",\"weight\":").append(Json.number(category.getWeight()))
+                    .append(",\"dropped\":").append(category.getNumGradesDropped())
+                    .append(",\"grades\":").append(category.getGradeCount())
+                    .append(",\"average\":").append(category.hasGrades() ? Json.number(category.getAverage()) : "null")
+                    .append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    static File termsDirectory(File dataFile) {
+        return new File(dataFile.getPath() + ".terms");
+    }
+
+    private static TermArchive.Term findTerm(TermArchive archive, String name) throws IOException {
+        for (TermArchive.Term term : archive.getTerms()) {
+            if (GradeBook.indexKey(term.getName()).equals(GradeBook.indexKey(name))) {
+                return term;
+            }
+        }
+        throw new IllegalArgumentException("Unknown term '" + name + "'");
+    }
+
+    /**
+     * The header of an archived term as one JSON object.
+     */
+    static String termJson(TermArchive.Term term) {
+        return "{\"term\":" + Json.quote(term.getName())
+                + ",\"archivedAt\":" + Json.quote(Instant.ofEpochMilli(term.getSealedAt()).toString())
+                + ",\"classes\":" + term.getClassCount()
+                + ",\"grades\":" + term.getGradeCount()
+                + ",\"creditHours\":" + Json.number(term.getCreditHours())
+                + ",\"gpa\":" + Json.number(term.getGpa()) + "}";
+    }
+
+    /**
+     * The GPA totals as one JSON object; GPAs are null while no class counts.
+     */
+    static String gpaJson(GpaTracker tracker) {
+        return "{\"gpa\":" + Json.number(tracker.getGpa())
+                + ",\"creditHours\":" + Json.number(tracker.getCreditHours())
+                + ",\"qualityPoints\":" + Json.number(tracker.getQualityPoints())
+                + ",\"cumulativeGpa\":" + Json.number(tracker.getCumulativeGpa())
+                + ",\"cumulativeCreditHours\":" + Json.number(tracker.getCumulativeCreditHours()) + "}";
+    }
+
+    /**
+     * Prints the needed-grades scenarios of one class, or of every class in parallel.
+     */
+    static void printNeeded(GradeBook gradeBook, String letter, String remaining, String className, PrintStream out) {
+        List<ClassRecord> classes;
+        if (className != null) {
+            ClassRecord classRecord = gradeBook.getClassByName(className);
+            if (classRecord == null) {
+                throw new IllegalArgumentException("Unknown class '" + className + "'");
+            }
+            classes = List.of(classRecord);
+        } else {
+            classes = gradeBook.getClasses();
+        }
+        classes.parallelStream()
+                .map(classRecord -> neededJson(classRecord, letter, parseRemaining(remaining, classRecord.getCategories().size())))
+                .forEachOrdered(out::println);
+    }
+
+    static String neededJson(ClassRecord classRecord, String letter, int[] remaining) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"class\":").append(Json.quote(classRecord.getName()))
+                .append(",\"letterGrade\":").append(Json.quote(letter));
+        double cutoff = GradeCalculator.getCutoffForLetterGrade(letter, classRecord.getGradingScale().getScale());
+        if (cutoff < 0) {
+            return sb.append(",\"error\":\"Letter grade not in grading scale\"}").toString();
+        }
+        sb.append(",\"cutoff\":").append(Json.number(cutoff));
+
+        List<Category> categories = classRecord.getCategories();
+        GradeTrend.Projection[] trends = GradeCalculator.projectTrends(classRecord, remaining);
+        sb.append(",\"trends\":[");
+        for (int i = 0; i < trends.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            GradeTrend.Projection trend = trends[i];
+            sb.append("{\"name\":").append(Json.quote(categories.get(i).getName()));
+            if (trend != null) {
+                sb.append(",\"projected\":").append(Json.number(trend.getScore()))
+                        .append(",\"lower\":").append(Json.number(trend.getLower()))
+                        .append(",\"upper\":").append(Json.number(trend.getUpper()))
+                        .append(",\"slope\":").append(Json.number(trend.getSlope()));
+            } else {
+                sb.append(",\"projected\":null");
+            }
+            sb.append('}');
+        }
+        sb.append(']');
+
+        List<GradeCalculator.Scenario> scenarios = GradeCalculator.neededGradeScenarios(classRecord, remaining, cutoff);
+        sb.append(",\"possible\":").append(!scenarios.isEmpty()).append(",\"scenarios\":[");
+        for (int s = 0; s < scenarios.size(); s++) {
+            GradeCalculator.Scenario scenario = scenarios.get(s);
+            if (s > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"title\":").append(Json.quote(scenario.getTitle()))
+                    .append(",\"finalGrade\":").append(Json.number(scenario.getFinalGrade()))
+                    .append(",\"letterGrade\":").append(Json.quote(scenario.getLetterGrade()))
+                    .append(",\"categories\":[");
+            for (int i = 0; i < categories.size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append("{\"name\":").append(Json.quote(categories.get(i).getName()))
+                        .append(",\"remaining\":").append(remaining[i])
+                        .append(",\"score\":").append(remaining[i] > 0 ? Json.number(scenario.getScores()[i]) : "null")
+                        .append('}');
+            }
+            sb.append("]}");
+        }
+        return sb.append("]}").toString();
+    }
+
+    /**
+     * Parses "2" (same count for every category) or "2,0,1" (one count per category).
+     */
+    static int[] parseRemaining(String text, int categoryCount) {
+        String[] parts = text.split(",");
+        int[] remaining = new int[categoryCount];
+        for (int i = 0; i < categoryCount; i++) {
+            String part = parts.length == 1 ? parts[0] : (i < parts.length ? parts[i] : "0");
+            remaining[i] = Integer.parseInt(part.trim());
+            if (remaining[i] < 0) {
+                throw new IllegalArgumentException("Remaining assignments cannot be negative.");
+            }
+        }
+        return remaining;
+    }
+}
@@ -0,0 +1,216 @@
+// GradeBookChangeBus.java
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Coalesces the change events of a GradeBook into batches for subscribers such as the GUI.
+ * The first event after a delivery schedules the next one on the delivery executor; all events up to
+ * then are merged, so a burst of thousands of grade additions results in a single batch.
+ * <p>
+ * Derived values follow the dependency chain grade -&gt; category average -&gt; class final grade -&gt;
+ * average final grade, and only the affected links are recomputed: a batch recomputes the final grade
+ * of each changed class from the latest snapshot, where unchanged categories keep their cached
+ * averages, and adjusts the book-wide average by the difference.
+ */
+public class GradeBookChangeBus implements GradeBookListener {
+
+    /**
+     * Receives coalesced changes on the delivery executor.
+     */
+    public interface Subscriber {
+        void gradeBookChanged(Batch batch);
+    }
+
+    /**
+     * The changes since the previous batch.
+     */
+    public static final class Batch {
+        private final GradeBookSnapshot snapshot;
+        private final Set<String> changedClasses;
+        private final List<ClassRecord> removedClasses;
+        private final int eventCount;
+        private final double averageFinalGrade;
+
+        Batch(GradeBookSnapshot snapshot, Set<String> changedClasses, List<ClassRecord> removedClasses, int eventCount, double averageFinalGrade) {
+            this.snapshot = snapshot;
+            this.changedClasses = Collections.unmodifiableSet(changedClasses);
+            this.removedClasses = Collections.unmodifiableList(removedClasses);
+            this.eventCount = eventCount;
+            this.averageFinalGrade = averageFinalGrade;
+        }
+
+        /**
+         * @return The version of the GradeBook that includes every change of this batch.
+         */
+        public GradeBookSnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        /**
+         * @return The names of the classes that were added or changed and still exist.
+         */
+        public Set<String> getChangedClasses() {
+            return changedClasses;
+        }
+
+        public List<ClassRecord> getRemovedClasses() {
+            return removedClasses;
+        }
+
+        /**
+         * @return The number of change events merged into this batch.
+         */
+        public int getEventCount() {
+            return eventCount;
+        }
+
+        /**
+         * @return The average final grade over all classes, or NaN if there are none.
+         */
+        public double getAverageFinalGrade() {
+            return averageFinalGrade;
+        }
+    }
+
+    private final Executor deliveryExecutor;
+    private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    // Pending changes, guarded by this
+    private GradeBook gradeBook;
+    private LinkedHashSet<String> pendingClasses = new LinkedHashSet<>();
+    private List<ClassRecord> pendingRemoved = new ArrayList<>();
+    private int pendingEvents;
+    private boolean scheduled;
+
+    // Derived values, guarded by derivedLock: case-folded class name -> final grade in hundredths, and their
+    // sum; final grades are whole hundredths, so the sum stays exact however often it is updated
+    private final Object derivedLock = new Object();
+    private final Map<String, Integer> finalGrades = new HashMap<>();
+    private long finalGradeSum;
+
+    /**
+     * @param deliveryExecutor Runs the deliveries, e.g. SwingUtilities::invokeLater; deliveries must not overlap.
+     */
+    public GradeBookChangeBus(Executor deliveryExecutor) {
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
+    public void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * Starts following a GradeBook, dropping pending changes of the GradeBook followed before.
+     * Subscribers are not notified of the GradeBook's current contents.
+     */
+    public void attach(GradeBook newGradeBook) {
+        synchronized (this) {
+            if (gradeBook != null) {
+                gradeBook.removeListener(this);
+            }
+            gradeBook = newGradeBook;
+            pendingClasses = new LinkedHashSet<>();
+            pendingRemoved = new ArrayList<>();
+            pendingEvents = 0;
+        }
+        // Listen before summing, so a change made meanwhile is delivered again. The snapshot is taken under
+        // derivedLock, so a delivery applied before the sum can only be older than it
+        newGradeBook.addListener(this);
+        synchronized (derivedLock) {
+            finalGrades.clear();
+            finalGradeSum = 0;
+            for (GradeBookSnapshot.ClassSnapshot classSnapshot : newGradeBook.snapshot().getClasses()) {
+                int finalGrade = FixedPoint.toHundredths(classSnapshot.getFinalGrade());
+                finalGrades.put(GradeBook.indexKey(classSnapshot.getName()), finalGrade);
+                finalGradeSum += finalGrade;
+            }
+        }
+    }
+
+    /**
+     * @return The average final grade over all classes as of the last delivery, or NaN if there are none.
+     */
+    public double getAverageFinalGrade() {
+        synchronized (derivedLock) {
+            return averageFinalGrade();
+        }
+    }
+
+    /**
+     * @return The average of the final grades; the caller holds derivedLock.
+     */
+    private double averageFinalGrade() {
+        return finalGrades.isEmpty() ? Double.NaN : FixedPoint.toPoints(finalGradeSum) / finalGrades.size();
+    }
+
+    @Override
+    public synchronized void gradeBookChanged(GradeEvent event) {
+        pendingEvents++;
+        if (event.getType() == GradeEvent.Type.CLASS_REMOVED) {
+            pendingRemoved.add((ClassRecord) event.getRemoved());
+        }
+        if (event.getClassName() != null) {
+            pendingClasses.add(event.getClassName());
+        }
+        if (!scheduled) {
+            scheduled = true;
+            deliveryExecutor.execute(this::deliver);
+        }
+    }
+
+    private void deliver() {
+        GradeBook source;
+        Set<String> classes;
+        List<ClassRecord> removed;
+        int events;
+        synchronized (this) {
+            scheduled = false;
+            source = gradeBook;
+            classes = pendingClasses;
+            removed = pendingRemoved;
+            events = pendingEvents;
+            pendingClasses = new LinkedHashSet<>();
+            pendingRemoved = new ArrayList<>();
+            pendingEvents = 0;
+        }
+        if (events == 0) {
+            return;
+        }
+
+        GradeBookSnapshot snapshot = source.snapshot();
+        Set<String> changed = new LinkedHashSet<>();
+        double averageFinalGrade;
+        synchronized (derivedLock) {
+            for (String className : classes) {
+                String key = GradeBook.indexKey(className);
+                GradeBookSnapshot.ClassSnapshot classSnapshot = snapshot.getClassByName(className);
+                int finalGrade = classSnapshot == null ? 0 : FixedPoint.toHundredths(classSnapshot.getFinalGrade());
+                Integer oldFinalGrade = classSnapshot == null ? finalGrades.remove(key) : finalGrades.put(key, finalGrade);
+                if (oldFinalGrade != null) {
+                    finalGradeSum -= oldFinalGrade;
+                }
+                if (classSnapshot != null) {
+                    finalGradeSum += finalGrade;
+                    changed.add(classSnapshot.getName());
+                }
+            }
+            averageFinalGrade = averageFinalGrade();
+        }
+
+        Batch batch = new Batch(snapshot, changed, removed, events, averageFinalGrade);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.gradeBookChanged(batch);
+        }
+    }
+}
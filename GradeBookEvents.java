@@ -0,0 +1,197 @@
+// GradeBookEvents.java
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder events for the expensive operations of the grade book, and the recording the GUI
+ * keeps running so a "slow" report can be answered with a recording dump.
+ * <p>
+ * Each operation follows the usual pattern: create the event, {@code begin()}, do the work, {@code end()},
+ * and fill in the fields only if {@code shouldCommit()}. Without a running recording the events are
+ * compiled away to almost nothing; with one, events shorter than their threshold are discarded without
+ * being written. The recording uses the JDK's "default" settings, which are meant for production use,
+ * and keeps a bounded amount of recent data on disk.
+ */
+public final class GradeBookEvents {
+    private static final String CATEGORY = "Grade Book";
+
+    private static Recording recording;
+
+    private GradeBookEvents() {
+    }
+
+    @Name("gradebook.Load")
+    @Label("Load Grade Book")
+    @jdk.jfr.Category(CATEGORY)
+    @StackTrace(false)
+    static class LoadEvent extends Event {
+        @Label("File")
+        String path;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+
+        @Label("Classes")
+        int classCount;
+
+        @Label("Grades")
+        long gradeCount;
+    }
+
+    @Name("gradebook.Save")
+    @Label("Save Grade Book")
+    @jdk.jfr.Category(CATEGORY)
+    @StackTrace(false)
+    static class SaveEvent extends Event {
+        @Label("File")
+        String path;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+
+        @Label("Classes")
+        int classCount;
+
+        @Label("Grades")
+        long gradeCount;
+    }
+
+    @Name("gradebook.TableUpdate")
+    @Label("Update Classes Table")
+    @Description("Rebuilding the rows of the classes table from the latest version of the grade book")
+    @jdk.jfr.Category(CATEGORY)
+    @StackTrace(false)
+    static class TableUpdateEvent extends Event {
+        @Label("Classes")
+        int classCount;
+
+        @Label("Classes Formatted")
+        @Description("Classes whose rows were not cached and had to be formatted")
+        int formattedClasses;
+
+        @Label("Rows")
+        int rowCount;
+
+        @Label("Search")
+        String query;
+    }
+
+    @Name("gradebook.TablePaint")
+    @Label("Paint Classes Table")
+    @jdk.jfr.Category(CATEGORY)
+    @StackTrace(false)
+    @Threshold("1 ms")
+    static class TablePaintEvent extends Event {
+        @Label("First Row")
+        int firstRow;
+
+        @Label("Rows Painted")
+        int rowCount;
+    }
+
+    @Name("gradebook.FinalGrade")
+    @Label("Calculate Final Grade")
+    @Description("ClassRecord.calculateFinalGrade(), which averages every category of a class")
+    @jdk.jfr.Category(CATEGORY)
+    @Threshold("1 ms")
+    static class FinalGradeEvent extends Event {
+        @Label("Class")
+        String className;
+
+        @Label("Categories")
+        int categoryCount;
+
+        @Label("Grades")
+        long gradeCount;
+    }
+
+    @Name("gradebook.NeededGrades")
+    @Label("Needed Grades Scenarios")
+    @jdk.jfr.Category(CATEGORY)
+    @StackTrace(false)
+    static class NeededGradesEvent extends Event {
+        @Label("Class")
+        String className;
+
+        @Label("Categories")
+        int categoryCount;
+
+        @Label("Scenarios")
+        int scenarioCount;
+
+        @Label("Iterations")
+        @Description("Hypothetical final grades evaluated while searching for the needed scores")
+        int iterations;
+
+        @Label("Cached")
+        @Description("Whether the scenarios were answered from the result cache")
+        boolean cached;
+    }
+
+    /**
+     * Starts the background recording unless it runs already or the system property
+     * {@code gradebook.jfr} is "false".
+     *
+     * @return True if the recording is running.
+     */
+    public static synchronized boolean startRecording() {
+        if (recording != null) {
+            return true;
+        }
+        if (!Boolean.parseBoolean(System.getProperty("gradebook.jfr", "true"))) {
+            return false;
+        }
+        try {
+            Recording newRecording = new Recording(Configuration.getConfiguration("default"));
+            newRecording.setName("Grade Book");
+            newRecording.setToDisk(true);
+            newRecording.setMaxAge(Duration.ofMinutes(30));
+            newRecording.setMaxSize(64L * 1024 * 1024);
+            newRecording.start();
+            recording = newRecording;
+            return true;
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            // Flight Recorder is unavailable or disabled in this JVM; the grade book works without it
+            System.err.println("Flight recording not started: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public static synchronized boolean isRecording() {
+        return recording != null;
+    }
+
+    /**
+     * Writes the recent data of the background recording to a file that JDK Mission Control or
+     * the {@code jfr} tool can open. The recording keeps running.
+     *
+     * @param file The destination, usually ending in ".jfr".
+     */
+    public static synchronized void dumpRecording(Path file) throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("No flight recording is running.");
+        }
+        recording.dump(file);
+    }
+
+    public static synchronized void stopRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
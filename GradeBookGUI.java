@@ -1,33 +1,89 @@
 // GradeBookGUI.java
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
 import javax.swing.plaf.basic.BasicTableUI;
 import javax.swing.table.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class GradeBookGUI extends JFrame {
     private GradeBook gradeBook;
-    private static final String DATA_FILE = System.getProperty("user.home") + File.separator + "gradebook.dat";
+    private static final String DATA_FILE = GradeBookStore.DEFAULT_DATA_FILE;
 
     // GUI Components
     private JMenuBar menuBar;
-    private JMenu fileMenu, optionsMenu, helpMenu;
+    private JMenu fileMenu, editMenu, optionsMenu, helpMenu;
     private JMenuItem exitItem, addClassItem, addGradeItem, addExtraCreditItem, addHypotheticalGradesItem, calculateNeededGradesItem, saveItem;
-    private JMenuItem editGradeItem, deleteClassItem, deleteAllDataItem, seeMoreInfoItem;
-    private JMenuItem helpItem;
+    private JMenuItem creditHoursItem;
+    private JMenuItem localApiItem;
+    private JMenuItem archiveTermItem, browseTermsItem, exportReportItem;
+    private JMenuItem undoItem, redoItem;
+    private JMenuItem editGradeItem, deleteClassItem, deleteAllDataItem, seeMoreInfoItem, viewHistoryItem, sensitivityItem;
+    private JMenuItem helpItem, saveRecordingItem, diagnosticsItem;
+
+    // Hidden columns of the classes table, behind the display text and the grades
+    private static final int ROW_TYPE_COLUMN = 2;
+    private static final int CLASS_NAME_COLUMN = 3;
+    private static final int CATEGORY_NAME_COLUMN = 4;
+    // How long the search box waits for the user to stop typing before it filters the table
+    private static final int SEARCH_DELAY_MILLIS = 200;
 
     private JTable classesTable;
     private DefaultTableModel classesTableModel;
+    private TableRowSorter<DefaultTableModel> classesSorter;
+    private Timer searchTimer;
     private JPanel mainPanel;
+    private JTextField searchField;
+    private JLabel statusLabel;
+
+    private final GradeBookSearchIndex searchIndex = new GradeBookSearchIndex();
+    private GradeHistory history;
+    // Sealed terms next to the data file; only their headers are read until a term is browsed
+    private final TermArchive termArchive = new TermArchive(new File(DATA_FILE + ".terms"));
+    private final GradeBookUndo undo = new GradeBookUndo(
+            Integer.getInteger("gradebook.undoDepth", GradeBookUndo.DEFAULT_MAX_STEPS),
+            Long.getLong("gradebook.undoBytes", GradeBookUndo.DEFAULT_MAX_BYTES));
+    // API changes run on the event thread too, so they are kept out of the undo step of an open dialog
+    private final GradeBookServer apiServer = new GradeBookServer(() -> gradeBook,
+            mutation -> SwingUtilities.invokeLater(() -> undo.runAsStep(mutation)));
+    // Delivers the model's changes to the table in one batch per burst
+    private final GradeBookChangeBus changeBus = new GradeBookChangeBus(SwingUtilities::invokeLater);
+    // Term and cumulative GPA, recomputed only for the classes that changed
+    private final GpaTracker gpaTracker = new GpaTracker();
+    // Measures how responsive the event dispatch thread is, per menu action
+    private final GradeBookWatchdog watchdog = new GradeBookWatchdog(
+            Long.getLong("gradebook.stallThresholdMs", GradeBookWatchdog.DEFAULT_STALL_THRESHOLD_MILLIS));
+    // Table rows per class version; a class that did not change keeps its version and its rows
+    private IdentityHashMap<GradeBookSnapshot.ClassSnapshot, Object[][]> rowCache = new IdentityHashMap<>();
 
     /**
      * Constructs the GradeBookGUI and initializes all components.
      */
     public GradeBookGUI() {
+        watchdog.install();
+
         // Initialize GUI components
         setTitle("Grade Book");
         setSize(900, 600);
@@ -48,37 +104,83 @@ public class GradeBookGUI extends JFrame {
         // File menu
         fileMenu = new JMenu("File");
         saveItem = new JMenuItem("Save");
-        saveItem.addActionListener(e -> saveGradeBook());
+        saveItem.addActionListener(watchdog.timed("Save", e -> saveGradeBook()));
+        archiveTermItem = new JMenuItem("Archive Term...");
+        archiveTermItem.addActionListener(watchdog.timed("Archive Term", e -> archiveTerm()));
+        browseTermsItem = new JMenuItem("Browse Archived Terms...");
+        browseTermsItem.addActionListener(watchdog.timed("Browse Archived Terms", e -> browseTerms()));
+        exportReportItem = new JMenuItem("Export Report...");
+        exportReportItem.addActionListener(watchdog.timed("Export Report", e -> exportReport()));
+        localApiItem = new JMenuItem("Start Local API...");
+        localApiItem.addActionListener(watchdog.timed("Start Local API", e -> toggleLocalApi()));
         exitItem = new JMenuItem("Exit");
-        exitItem.addActionListener(e -> exitApplication());
+        exitItem.addActionListener(watchdog.timed("Exit", e -> exitApplication()));
         fileMenu.add(saveItem);
+        fileMenu.add(exportReportItem);
+        fileMenu.addSeparator();
+        fileMenu.add(archiveTermItem);
+        fileMenu.add(browseTermsItem);
+        fileMenu.addSeparator();
+        fileMenu.add(localApiItem);
         fileMenu.addSeparator();
         fileMenu.add(exitItem);
 
+        // Edit menu
+        editMenu = new JMenu("Edit");
+        undoItem = new JMenuItem("Undo");
+        undoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        undoItem.addActionListener(watchdog.timed("Undo", e -> undoOrRedo(true)));
+        redoItem = new JMenuItem("Redo");
+        redoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        redoItem.addActionListener(watchdog.timed("Redo", e -> undoOrRedo(false)));
+        editMenu.add(undoItem);
+        editMenu.add(redoItem);
+        editMenu.addMenuListener(new MenuListener() {
+            @Override
+            public void menuSelected(MenuEvent e) {
+                updateUndoItems();
+            }
+
+            @Override
+            public void menuDeselected(MenuEvent e) {
+            }
+
+            @Override
+            public void menuCanceled(MenuEvent e) {
+            }
+        });
+
         // Options menu
         optionsMenu = new JMenu("Options");
         addClassItem = new JMenuItem("Add Class");
-        addClassItem.addActionListener(e -> addClass());
+        addClassItem.addActionListener(watchdog.timed("Add Class", e -> undoable("Add Class", this::addClass)));
         addGradeItem = new JMenuItem("Add Grade");
-        addGradeItem.addActionListener(e -> addGrade());
+        addGradeItem.addActionListener(watchdog.timed("Add Grade", e -> undoable("Add Grade", this::addGrade)));
         addExtraCreditItem = new JMenuItem("Add Extra Credit");
-        addExtraCreditItem.addActionListener(e -> addExtraCredit());
+        addExtraCreditItem.addActionListener(watchdog.timed("Add Extra Credit", e -> undoable("Add Extra Credit", this::addExtraCredit)));
+        creditHoursItem = new JMenuItem("Credit Hours and GPA");
+        creditHoursItem.addActionListener(watchdog.timed("Credit Hours and GPA", e -> undoable("Credit Hours", this::setCreditHours)));
         addHypotheticalGradesItem = new JMenuItem("Hypothetical Grades");
-        addHypotheticalGradesItem.addActionListener(e -> calculateHypotheticalGrades());
+        addHypotheticalGradesItem.addActionListener(watchdog.timed("Hypothetical Grades", e -> calculateHypotheticalGrades()));
         calculateNeededGradesItem = new JMenuItem("Calculate Needed Grades");
-        calculateNeededGradesItem.addActionListener(e -> calculateNeededGrades());
+        calculateNeededGradesItem.addActionListener(watchdog.timed("Calculate Needed Grades", e -> calculateNeededGrades()));
         editGradeItem = new JMenuItem("Edit or Delete Grades");
-        editGradeItem.addActionListener(e -> editGrade());
+        editGradeItem.addActionListener(watchdog.timed("Edit or Delete Grades", e -> undoable("Edit Grades", this::editGrade)));
         deleteClassItem = new JMenuItem("Delete Class");
-        deleteClassItem.addActionListener(e -> deleteClass());
+        deleteClassItem.addActionListener(watchdog.timed("Delete Class", e -> undoable("Delete Class", this::deleteClass)));
         deleteAllDataItem = new JMenuItem("Delete All Data");
-        deleteAllDataItem.addActionListener(e -> deleteAllData());
+        deleteAllDataItem.addActionListener(watchdog.timed("Delete All Data", e -> deleteAllData()));
         seeMoreInfoItem = new JMenuItem("See More Information");
-        seeMoreInfoItem.addActionListener(e -> seeMoreInformation());
+        seeMoreInfoItem.addActionListener(watchdog.timed("See More Information", e -> seeMoreInformation()));
+        viewHistoryItem = new JMenuItem("View Grades As Of...");
+        viewHistoryItem.addActionListener(watchdog.timed("View Grades As Of", e -> viewGradesAsOf()));
+        sensitivityItem = new JMenuItem("Grade Sensitivity");
+        sensitivityItem.addActionListener(watchdog.timed("Grade Sensitivity", e -> showSensitivity()));
 
         optionsMenu.add(addClassItem);
         optionsMenu.add(addGradeItem);
         optionsMenu.add(addExtraCreditItem);
+        optionsMenu.add(creditHoursItem);
         optionsMenu.add(addHypotheticalGradesItem);
         optionsMenu.add(calculateNeededGradesItem);
         optionsMenu.add(editGradeItem);
@@ -86,15 +188,25 @@ public class GradeBookGUI extends JFrame {
         optionsMenu.add(deleteAllDataItem);
         optionsMenu.addSeparator();
         optionsMenu.add(seeMoreInfoItem);
+        optionsMenu.add(sensitivityItem);
+        optionsMenu.add(viewHistoryItem);
 
         // Help menu
         helpMenu = new JMenu("Help");
         helpItem = new JMenuItem("Help");
-        helpItem.addActionListener(e -> showHelpDialog());
+        helpItem.addActionListener(watchdog.timed("Help", e -> showHelpDialog()));
+        saveRecordingItem = new JMenuItem("Save Performance Recording...");
+        saveRecordingItem.addActionListener(watchdog.timed("Save Performance Recording", e -> savePerformanceRecording()));
+        diagnosticsItem = new JMenuItem("Diagnostics...");
+        diagnosticsItem.addActionListener(e -> showDiagnostics());
         helpMenu.add(helpItem);
+        helpMenu.addSeparator();
+        helpMenu.add(diagnosticsItem);
+        helpMenu.add(saveRecordingItem);
 
         // Add menus to menu bar
         menuBar.add(fileMenu);
+        menuBar.add(editMenu);
         menuBar.add(optionsMenu);
         menuBar.add(helpMenu);
 
@@ -105,7 +217,7 @@ public class GradeBookGUI extends JFrame {
         mainPanel.setLayout(new BorderLayout());
 
         // Classes table
-        classesTableModel = new DefaultTableModel(0, 3) { // Now 3 columns
+        classesTableModel = new DefaultTableModel(0, 5) { // Display text, grades and the hidden row type, class and category
             @Override
             public boolean isCellEditable(int row, int column) {
                 return false; // Make table cells non-editable
@@ -117,6 +229,9 @@ public class GradeBookGUI extends JFrame {
             }
         };
         classesTable = new JTable(classesTableModel);
+        // The search box filters the view; the model keeps the rows of every class
+        classesSorter = new TableRowSorter<>(classesTableModel);
+        classesTable.setRowSorter(classesSorter);
         classesTable.setFillsViewportHeight(true);
         classesTable.setRowHeight(30); // Increased row height for better readability
 
@@ -126,10 +241,11 @@ public class GradeBookGUI extends JFrame {
         // Adjust column widths
         classesTable.getColumnModel().getColumn(0).setPreferredWidth(400);
         classesTable.getColumnModel().getColumn(1).setPreferredWidth(400);
-        classesTable.getColumnModel().getColumn(2).setPreferredWidth(100); // Hidden column
 
-        // Hide the third column (rowType)
-        classesTable.removeColumn(classesTable.getColumnModel().getColumn(2));
+        // Hide the row type, class name and category name columns
+        for (int column = ROW_TYPE_COLUMN; column <= CATEGORY_NAME_COLUMN; column++) {
+            classesTable.removeColumn(classesTable.getColumnModel().getColumn(ROW_TYPE_COLUMN));
+        }
 
         // Custom cell renderer to handle formatting
         classesTable.setDefaultRenderer(Object.class, new DefaultTableCellRenderer() {
@@ -143,7 +259,7 @@ public class GradeBookGUI extends JFrame {
                 super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
 
                 int modelRow = classesTable.convertRowIndexToModel(row);
-                String rowType = (String) classesTableModel.getValueAt(modelRow, 2);
+                String rowType = (String) classesTableModel.getValueAt(modelRow, ROW_TYPE_COLUMN);
 
                 if ("class".equals(rowType)) {
                     setFont(boldFont);
@@ -162,6 +278,8 @@ public class GradeBookGUI extends JFrame {
         classesTable.setUI(new BasicTableUI() {
             @Override
             public void paint(Graphics g, JComponent c) {
+                GradeBookEvents.TablePaintEvent event = new GradeBookEvents.TablePaintEvent();
+                event.begin();
                 Rectangle clipBounds = g.getClipBounds();
                 int firstRow = classesTable.rowAtPoint(new Point(0, clipBounds.y));
                 int lastRow = classesTable.rowAtPoint(new Point(0, clipBounds.y + clipBounds.height));
@@ -174,6 +292,12 @@ public class GradeBookGUI extends JFrame {
                 for (int row = firstRow; row <= lastRow; row++) {
                     paintRow(g, row);
                 }
+                event.end();
+                if (event.shouldCommit()) {
+                    event.firstRow = firstRow;
+                    event.rowCount = Math.max(0, lastRow - firstRow + 1);
+                    event.commit();
+                }
             }
 
             private void paintRow(Graphics g, int row) {
@@ -185,7 +309,7 @@ public class GradeBookGUI extends JFrame {
                         component.validate();
                     } else {
                         int modelRow = classesTable.convertRowIndexToModel(row);
-                        String rowType = (String) classesTableModel.getValueAt(modelRow, 2);
+                        String rowType = (String) classesTableModel.getValueAt(modelRow, ROW_TYPE_COLUMN);
 
                         if ("class".equals(rowType)) {
                             if (column == 0) {
@@ -216,10 +340,49 @@ public class GradeBookGUI extends JFrame {
         JScrollPane tableScrollPane = new JScrollPane(classesTable);
         mainPanel.add(tableScrollPane, BorderLayout.CENTER);
 
+        // Search box above the table, filtering once the user stops typing
+        searchTimer = new Timer(SEARCH_DELAY_MILLIS, e -> applySearchFilter());
+        searchTimer.setRepeats(false);
+        JPanel searchPanel = new JPanel(new BorderLayout(5, 0));
+        searchPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        searchPanel.add(new JLabel("Search:"), BorderLayout.WEST);
+        searchField = new JTextField();
+        searchField.setToolTipText("Filter by class or category name, e.g. \"hw\", \"avg < 70\", \"final >= 90\", \"letter = B-\"");
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        mainPanel.add(searchPanel, BorderLayout.NORTH);
+
+        // Summary below the table, kept up to date by the change bus
+        statusLabel = new JLabel(" ");
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(3, 5, 3, 5));
+        mainPanel.add(statusLabel, BorderLayout.SOUTH);
+
         add(mainPanel);
 
         // Load data
         loadGradeBook();
+        attachHistory();
+        undo.attach(gradeBook);
+        changeBus.subscribe(this::gradeBookChanged);
+        changeBus.attach(gradeBook);
+        gpaTracker.attach(gradeBook);
+        searchIndex.rebuild(gradeBook);
+        updateStatus();
 
         // Update classes table
         updateClassesTable();
@@ -229,46 +392,234 @@ public class GradeBookGUI extends JFrame {
     }
 
     /**
-     * Updates the classes table to reflect the current state of the GradeBook.
+     * Runs a menu action so that all of its changes can be undone as one step.
+     *
+     * @param label  The name of the step shown in the Edit menu.
+     * @param action The action to run.
      */
-    private void updateClassesTable() {
-        // Clear existing data
-        classesTableModel.setRowCount(0);
+    private void undoable(String label, Runnable action) {
+        undo.beginStep(label);
+        try {
+            action.run();
+        } finally {
+            undo.endStep();
+        }
+    }
 
-        for (ClassRecord classRecord : gradeBook.getClasses()) {
-            String className = classRecord.getName();
+    /**
+     * Reverts or repeats the last step and refreshes the table.
+     *
+     * @param isUndo True to undo, false to redo.
+     */
+    private void undoOrRedo(boolean isUndo) {
+        try {
+            String label = isUndo ? undo.undo() : undo.redo();
+            if (label == null) {
+                Toolkit.getDefaultToolkit().beep();
+                return;
+            }
+        } catch (IllegalStateException | IllegalArgumentException ex) {
+            // The GradeBook was changed in a way the step no longer fits, e.g. through the local API
+            JOptionPane.showMessageDialog(this, "Could not " + (isUndo ? "undo" : "redo") + ": " + ex.getMessage(), "Undo Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
 
-            // Calculate final grade and letter grade
-            double finalGrade = classRecord.calculateFinalGrade();
-            String letterGrade = classRecord.getLetterGrade();
-            String finalGradeStr = String.format("Final Grade: %.2f%% (%s)", finalGrade, letterGrade);
+    /**
+     * Shows the name of the step that Undo and Redo would revert or repeat.
+     */
+    private void updateUndoItems() {
+        String undoLabel = undo.getUndoLabel();
+        String redoLabel = undo.getRedoLabel();
+        undoItem.setText(undoLabel == null ? "Undo" : "Undo " + undoLabel);
+        redoItem.setText(redoLabel == null ? "Redo" : "Redo " + redoLabel);
+    }
 
-            // Include Extra Credit in the display if applicable
-            String extraCreditStr = classRecord.getExtraCredit() > 0.0 ? String.format(" | Extra Credit: %.2f points", classRecord.getExtraCredit()) : "";
+    /**
+     * Re-indexes the classes of a batch of changes and refreshes the table once for the whole batch.
+     *
+     * @param batch The changes since the last batch.
+     */
+    private void gradeBookChanged(GradeBookChangeBus.Batch batch) {
+        for (ClassRecord removed : batch.getRemovedClasses()) {
+            searchIndex.remove(removed);
+        }
+        for (String className : batch.getChangedClasses()) {
+            ClassRecord classRecord = gradeBook.getClassByName(className);
+            if (classRecord != null) {
+                searchIndex.update(classRecord);
+            }
+        }
+        updateClassesTable();
+        updateStatus();
+    }
 
-            // Combine class name and final grade
-            String classDisplay = String.format("%s - %s%s", className, finalGradeStr, extraCreditStr);
+    /**
+     * Shows the number of classes, their average final grade and the GPA below the table.
+     */
+    private void updateStatus() {
+        int classCount = gradeBook.snapshot().getClasses().size();
+        double average = changeBus.getAverageFinalGrade();
+        String status = classCount == 0 ? "No classes" : String.format("Classes: %d | Average final grade: %.2f%%", classCount, average);
+        double gpa = gpaTracker.getGpa();
+        if (!Double.isNaN(gpa)) {
+            status += String.format(" | GPA: %.2f (%s credits)", gpa, formatCredits(gpaTracker.getCreditHours()));
+        }
+        if (gradeBook.getPriorCreditHours() > 0.0) {
+            status += String.format(" | Cumulative GPA: %.2f (%s credits)", gpaTracker.getCumulativeGpa(),
+                    formatCredits(gpaTracker.getCumulativeCreditHours()));
+        }
+        statusLabel.setText(status);
+    }
 
-            // Add class name row (merged cells), rowType = "class"
-            classesTableModel.addRow(new Object[]{classDisplay, "", "class"});
+    private static String formatCredits(double creditHours) {
+        return creditHours == Math.rint(creditHours) ? String.valueOf((long) creditHours) : String.format("%.1f", creditHours);
+    }
 
-            for (Category category : classRecord.getCategories()) {
-                String categoryName = category.getName();
-                double categoryAverage = category.calculateAverage();
-                String averageStr = category.getGrades().isEmpty() ? "N/A" : String.format("%.2f%%", categoryAverage);
+    /**
+     * Updates the classes table to reflect the current state of the GradeBook,
+     * showing only the classes and categories that match the search box.
+     */
+    private void updateClassesTable() {
+        GradeBookEvents.TableUpdateEvent event = new GradeBookEvents.TableUpdateEvent();
+        event.begin();
+
+        // Render one consistent version without locking out changes made meanwhile
+        IdentityHashMap<GradeBookSnapshot.ClassSnapshot, Object[][]> newRowCache = new IdentityHashMap<>();
+        GradeBookSnapshot snapshot = gradeBook.snapshot();
+        Vector<Vector<Object>> rows = buildTableRows(snapshot, null, rowCache, newRowCache);
+        IdentityHashMap<GradeBookSnapshot.ClassSnapshot, Object[][]> oldRowCache = rowCache;
+        rowCache = newRowCache;
+
+        // Replace all rows with a single table event
+        classesTableModel.getDataVector().clear();
+        classesTableModel.getDataVector().addAll(rows);
+        classesTableModel.fireTableDataChanged();
+        // Searches such as "avg < 70" depend on the grades, so match them again
+        searchTimer.stop();
+        applySearchFilter();
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.classCount = snapshot.getClasses().size();
+            for (GradeBookSnapshot.ClassSnapshot classSnapshot : newRowCache.keySet()) {
+                if (!oldRowCache.containsKey(classSnapshot)) {
+                    event.formattedClasses++;
+                }
+            }
+            event.rowCount = classesTable.getRowCount();
+            event.query = searchField.getText();
+            event.commit();
+        }
+    }
 
-                // Convert grades to a comma-separated string
-                String gradesStr = category.getGrades().isEmpty() ? "No grades" : String.join(", ", category.getGrades().stream()
-                        .map(grade -> String.format("%.2f", grade))
-                        .toArray(String[]::new));
+    /**
+     * Shows only the rows of the classes and categories that match the search box. The rows of the model
+     * are not touched; the table only re-checks which of them to show.
+     */
+    private void applySearchFilter() {
+        String query = searchField.getText();
+        if (query.trim().isEmpty()) {
+            classesSorter.setRowFilter(null);
+            return;
+        }
+        // Class name -> names of the matching categories
+        HashMap<String, Set<String>> matches = new HashMap<>();
+        for (Map.Entry<ClassRecord, List<Category>> match : searchIndex.search(query).entrySet()) {
+            Set<String> categoryNames = new HashSet<>();
+            for (Category category : match.getValue()) {
+                categoryNames.add(category.getName());
+            }
+            matches.put(match.getKey().getName(), categoryNames);
+        }
+        classesSorter.setRowFilter(new RowFilter<DefaultTableModel, Integer>() {
+            @Override
+            public boolean include(Entry<? extends DefaultTableModel, ? extends Integer> entry) {
+                Set<String> categoryNames = matches.get((String) entry.getValue(CLASS_NAME_COLUMN));
+                if (categoryNames == null) {
+                    return false;
+                }
+                // The class row is shown with any of its categories
+                Object categoryName = entry.getValue(CATEGORY_NAME_COLUMN);
+                return categoryName == null || categoryNames.contains(categoryName);
+            }
+        });
+    }
 
-                // Combine category name and average
-                String categoryDisplay = String.format("%s (Avg: %s):", categoryName, averageStr);
+    /**
+     * Builds the rows of the classes table. Only classes that changed since the previous build are
+     * formatted again; the others reuse their rows from the cache.
+     *
+     * @param snapshot    The version of the GradeBook to show.
+     * @param matches     Class name -> names of the categories to show, or null to show everything.
+     * @param rowCache    Rows of the previous build per class version.
+     * @param newRowCache Receives the rows of this build per class version.
+     * @return The table rows: display text, grades text, row type ("class" or "category"), class name and
+     * category name (null in the class row).
+     */
+    static Vector<Vector<Object>> buildTableRows(GradeBookSnapshot snapshot, Map<String, Set<String>> matches,
+                                                 Map<GradeBookSnapshot.ClassSnapshot, Object[][]> rowCache,
+                                                 Map<GradeBookSnapshot.ClassSnapshot, Object[][]> newRowCache) {
+        Vector<Vector<Object>> rows = new Vector<>();
+        for (GradeBookSnapshot.ClassSnapshot classSnapshot : snapshot.getClasses()) {
+            Object[][] classRows = rowCache.get(classSnapshot);
+            if (classRows == null) {
+                classRows = formatClassRows(classSnapshot);
+            }
+            newRowCache.put(classSnapshot, classRows);
 
-                // Add category and grades row, rowType = "category"
-                classesTableModel.addRow(new Object[]{categoryDisplay, gradesStr, "category"});
+            Set<String> shownCategories = matches != null ? matches.get(classSnapshot.getName()) : null;
+            if (matches != null && shownCategories == null) {
+                continue;
+            }
+            List<GradeBookSnapshot.CategorySnapshot> categories = classSnapshot.getCategories();
+            for (int i = 0; i < classRows.length; i++) {
+                // Row 0 is the class; row i is category i - 1
+                if (i > 0 && shownCategories != null && !shownCategories.contains(categories.get(i - 1).getName())) {
+                    continue;
+                }
+                rows.add(new Vector<>(Arrays.asList(classRows[i])));
             }
         }
+        return rows;
+    }
+
+    /**
+     * Formats the table rows of one class: the class row followed by one row per category.
+     */
+    static Object[][] formatClassRows(GradeBookSnapshot.ClassSnapshot classSnapshot) {
+        List<GradeBookSnapshot.CategorySnapshot> categories = classSnapshot.getCategories();
+        Object[][] classRows = new Object[categories.size() + 1][];
+
+        // Calculate final grade and letter grade
+        double finalGrade = classSnapshot.getFinalGrade();
+        String letterGrade = classSnapshot.getLetterGrade();
+        String finalGradeStr = String.format("Final Grade: %.2f%% (%s)", finalGrade, letterGrade);
+
+        // Include Extra Credit in the display if applicable
+        String extraCreditStr = classSnapshot.getExtraCredit() > 0.0 ? String.format(" | Extra Credit: %.2f points", classSnapshot.getExtraCredit()) : "";
+
+        // Combine class name and final grade
+        String classDisplay = String.format("%s - %s%s", classSnapshot.getName(), finalGradeStr, extraCreditStr);
+
+        // Class name row (merged cells), rowType = "class"
+        classRows[0] = new Object[]{classDisplay, "", "class", classSnapshot.getName(), null};
+
+        for (int i = 0; i < categories.size(); i++) {
+            GradeBookSnapshot.CategorySnapshot category = categories.get(i);
+            String averageStr = category.hasGrades() ? String.format("%.2f%%", category.getAverage()) : "N/A";
+
+            // Convert grades to a comma-separated string
+            String gradesStr = category.hasGrades() ? IntStream.range(0, category.getGradeCount())
+                    .mapToObj(g -> formatGrade(category.getPointsEarned(g), category.getPointsPossible(g)))
+                    .collect(Collectors.joining(", ")) : "No grades";
+
+            // Combine category name and average
+            String categoryDisplay = String.format("%s (Avg: %s):", category.getName(), averageStr);
+
+            // Category and grades row, rowType = "category"
+            classRows[i + 1] = new Object[]{categoryDisplay, gradesStr, "category", classSnapshot.getName(), category.getName()};
+        }
+        return classRows;
     }
 
     /**
@@ -296,24 +647,7 @@ public class GradeBookGUI extends JFrame {
             return null;
         } else if (choice == JOptionPane.YES_OPTION) {
             // Use default grading scale
-            // Example default scale (Adjust as desired):
-            // A:93%, A-:90%, B+:87%, B:83%, B-:80%, C+:77%, C:73%, C-:70%, D+:67%, D:63%, D-:60%, F:0%
-
-            TreeMap<Double, String> defaultScaleMap = new TreeMap<>(java.util.Collections.reverseOrder());
-            defaultScaleMap.put(93.0, "A");
-            defaultScaleMap.put(90.0, "A-");
-            defaultScaleMap.put(87.0, "B+");
-            defaultScaleMap.put(83.0, "B");
-            defaultScaleMap.put(80.0, "B-");
-            defaultScaleMap.put(77.0, "C+");
-            defaultScaleMap.put(73.0, "C");
-            defaultScaleMap.put(70.0, "C-");
-            defaultScaleMap.put(67.0, "D+");
-            defaultScaleMap.put(63.0, "D");
-            defaultScaleMap.put(60.0, "D-");
-            defaultScaleMap.put(0.0, "F");
-
-            return new GradingScale(defaultScaleMap);
+            return GradingScale.defaultScale();
         }
 
         // If user chose custom scale:
@@ -375,7 +709,58 @@ public class GradeBookGUI extends JFrame {
             scaleMap.put(0.0, "F");
         }
 
-        return new GradingScale(scaleMap);
+        // Grade points for the GPA
+        int pointsOption = JOptionPane.showConfirmDialog(this, "Use the standard grade points for the GPA (A = 4.0, A- = 3.7, B+ = 3.3, ...)?",
+                "Grade Points", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
+        if (pointsOption != JOptionPane.NO_OPTION) {
+            return GradingScale.of(scaleMap);
+        }
+        Map<String, Double> gradePoints = new HashMap<>();
+        for (String letter : scaleMap.values()) {
+            double standardPoints = GradingScale.STANDARD_GRADE_POINTS.getOrDefault(letter, 0.0);
+            while (true) {
+                String pointsStr = JOptionPane.showInputDialog(this, "Enter the grade points of " + letter + ":", String.valueOf(standardPoints));
+                if (pointsStr == null) {
+                    // Keep the standard points for the rest
+                    return GradingScale.of(scaleMap, gradePoints);
+                }
+                try {
+                    double points = Double.parseDouble(pointsStr.trim());
+                    if (points < 0.0) {
+                        JOptionPane.showMessageDialog(this, "Grade points cannot be negative.");
+                        continue;
+                    }
+                    gradePoints.put(letter, points);
+                    break;
+                } catch (NumberFormatException ex) {
+                    JOptionPane.showMessageDialog(this, "Invalid input. Please enter a valid number.");
+                }
+            }
+        }
+        return GradingScale.of(scaleMap, gradePoints);
+    }
+
+    /**
+     * Prompts for the credit hours of a class until a valid number is entered.
+     * @param current The credit hours suggested in the input field.
+     * @return The credit hours, or null if canceled.
+     */
+    private Double promptCreditHours(double current) {
+        while (true) {
+            String creditHoursStr = JOptionPane.showInputDialog(this, "Enter the credit hours of the class (0 to leave it out of the GPA):",
+                    formatCredits(current));
+            if (creditHoursStr == null) return null; // User cancelled
+            try {
+                double creditHours = Double.parseDouble(creditHoursStr.trim());
+                if (creditHours < 0.0) {
+                    JOptionPane.showMessageDialog(this, "Credit hours cannot be negative.");
+                    continue;
+                }
+                return creditHours;
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(this, "Invalid input. Please enter a valid number.");
+            }
+        }
     }
 
     /**
@@ -388,6 +773,11 @@ public class GradeBookGUI extends JFrame {
             JOptionPane.showMessageDialog(this, "Class name cannot be empty.");
             return;
         }
+        className = className.trim();
+        if (gradeBook.hasClass(className)) {
+            JOptionPane.showMessageDialog(this, "A class named '" + className + "' already exists.");
+            return;
+        }
 
         // Ask if the class uses rounding
         int roundingOption = JOptionPane.showConfirmDialog(this, "Does this class use rounding for final grades?", "Rounding Option", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
@@ -422,15 +812,17 @@ public class GradeBookGUI extends JFrame {
         GradingScale gradingScale = configureGradingScale();
         if (gradingScale == null) return;
 
+        // Credit hours, for the GPA
+        Double creditHours = promptCreditHours(ClassRecord.DEFAULT_CREDIT_HOURS);
+        if (creditHours == null) return;
+
         // Create and add the class record
         ClassRecord classRecord = new ClassRecord(className, gradingScale, usesRounding, roundingThreshold);
+        classRecord.setCreditHours(creditHours);
         gradeBook.addClass(classRecord);
 
         // Add categories
         addCategories(classRecord);
-
-        // Update table
-        updateClassesTable();
     }
 
     /**
@@ -463,6 +855,12 @@ public class GradeBookGUI extends JFrame {
                 i--;
                 continue;
             }
+            categoryName = categoryName.trim();
+            if (classRecord.hasCategory(categoryName)) {
+                JOptionPane.showMessageDialog(this, "A category named '" + categoryName + "' already exists in this class.");
+                i--;
+                continue;
+            }
 
             double weight = 0.0;
             while (true) {
@@ -499,13 +897,23 @@ public class GradeBookGUI extends JFrame {
                 }
             }
 
-            Category category = new Category(categoryName, weight, numGradesDropped);
+            // Prompt for how the grades are combined
+            String[] averagingOptions = {"Equal weight", "Total points"};
+            int averagingChoice = JOptionPane.showOptionDialog(this,
+                    "How should grades in '" + categoryName + "' be averaged?\n"
+                            + "Equal weight: every grade counts the same.\n"
+                            + "Total points: points earned over points possible, so larger assignments count more.",
+                    "Averaging", JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, averagingOptions, averagingOptions[0]);
+            if (averagingChoice == JOptionPane.CLOSED_OPTION) return;
+            Category.Averaging averaging = averagingChoice == 1 ? Category.Averaging.TOTAL_POINTS : Category.Averaging.EQUAL_WEIGHT;
+
+            Category category = new Category(categoryName, weight, numGradesDropped, averaging);
             classRecord.addCategory(category);
         }
 
         if (Math.abs(totalWeight - 100.0) > 0.01) {
             JOptionPane.showMessageDialog(this, "Total weight of categories must equal 100%. Please re-enter categories.");
-            classRecord.getCategories().clear();
+            classRecord.clearCategories();
             addCategories(classRecord);
         }
     }
@@ -516,7 +924,7 @@ public class GradeBookGUI extends JFrame {
      */
     private void addGrade() {
         // Select class
-        ArrayList<ClassRecord> classes = gradeBook.getClasses();
+        List<ClassRecord> classes = gradeBook.getClasses();
         if (classes.isEmpty()) {
             JOptionPane.showMessageDialog(this, "No classes available.");
             return;
@@ -528,7 +936,7 @@ public class GradeBookGUI extends JFrame {
         ClassRecord classRecord = gradeBook.getClassByName(selectedClassName);
 
         // Select category
-        ArrayList<Category> categories = classRecord.getCategories();
+        List<Category> categories = classRecord.getCategories();
         if (categories.isEmpty()) {
             JOptionPane.showMessageDialog(this, "No categories available in this class.");
             return;
@@ -542,26 +950,26 @@ public class GradeBookGUI extends JFrame {
         boolean addMore = true;
         while (addMore) {
             // Enter grade
-            double grade = 0.0;
+            double[] grade;
             while (true) {
-                String gradeStr = JOptionPane.showInputDialog(this, "Enter the grade (0-100):");
+                String gradeStr = JOptionPane.showInputDialog(this, "Enter the grade (0-100, or points like 18/20):");
                 if (gradeStr == null) {
                     // User cancelled adding grades
                     return;
                 }
                 try {
-                    grade = Double.parseDouble(gradeStr.trim());
-                    if (grade < 0.0 || grade > 100.0) {
-                        JOptionPane.showMessageDialog(this, "Grade must be between 0 and 100.");
+                    grade = Category.parseGrade(gradeStr);
+                    if (grade == null) {
+                        JOptionPane.showMessageDialog(this, "Grade must be between 0 and 100, or between 0 and the points possible.");
                         continue;
                     }
                     break;
                 } catch (NumberFormatException ex) {
-                    JOptionPane.showMessageDialog(this, "Invalid input. Please enter a valid number.");
+                    JOptionPane.showMessageDialog(this, "Invalid input. Please enter a number or points like 18/20.");
                 }
             }
 
-            selectedCategory.addGrade(grade);
+            selectedCategory.addGrade(grade[0], grade[1]);
 
             // Ask if the user wants to add another grade
             int response = JOptionPane.showConfirmDialog(this, "Do you want to add another grade to '" + selectedCategoryName + "'?", "Add Another Grade", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
@@ -569,9 +977,6 @@ public class GradeBookGUI extends JFrame {
                 addMore = false;
             }
         }
-
-        // Update table
-        updateClassesTable();
     }
 
     /**
@@ -580,7 +985,7 @@ public class GradeBookGUI extends JFrame {
      */
     private void addExtraCredit() {
         // Select class
-        ArrayList<ClassRecord> classes = gradeBook.getClasses();
+        List<ClassRecord> classes = gradeBook.getClasses();
         if (classes.isEmpty()) {
             JOptionPane.showMessageDialog(this, "No classes available.");
             return;
@@ -619,8 +1024,7 @@ public class GradeBookGUI extends JFrame {
             }
 
             // Update extra credit
-            double newExtraCredit = classRecord.getExtraCredit() + extraCredit;
-            classRecord.setExtraCredit(newExtraCredit);
+            double newExtraCredit = classRecord.addExtraCredit(extraCredit);
 
             // Inform the user
             JOptionPane.showMessageDialog(this, String.format("Added %.2f points of Extra Credit to '%s'.\nTotal Extra Credit: %.2f points.", extraCredit, selectedClassName, newExtraCredit), "Extra Credit Added", JOptionPane.INFORMATION_MESSAGE);
@@ -633,9 +1037,58 @@ public class GradeBookGUI extends JFrame {
             }
         }
         // If Cancel or any other option, do nothing
+    }
 
-        // Update table
-        updateClassesTable();
+    /**
+     * Shows the GPA and lets users change the credit hours of a class or the totals of their earlier terms.
+     */
+    private void setCreditHours() {
+        List<ClassRecord> classes = gradeBook.getClasses();
+        double gpa = gpaTracker.getGpa();
+        String summary = String.format("Term GPA: %s over %s credits\nCumulative GPA: %s over %s credits",
+                Double.isNaN(gpa) ? "-" : String.format("%.2f", gpa), formatCredits(gpaTracker.getCreditHours()),
+                Double.isNaN(gpaTracker.getCumulativeGpa()) ? "-" : String.format("%.2f", gpaTracker.getCumulativeGpa()),
+                formatCredits(gpaTracker.getCumulativeCreditHours()));
+        String[] options = {"Set Credit Hours", "Set Prior Terms", "Cancel"};
+        int choice = JOptionPane.showOptionDialog(this, summary, "Credit Hours and GPA",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE, null, options, options[0]);
+
+        if (choice == 0) { // Set Credit Hours
+            if (classes.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "No classes available.");
+                return;
+            }
+            String[] classNames = classes.stream().map(ClassRecord::getName).toArray(String[]::new);
+            String selectedClassName = (String) JOptionPane.showInputDialog(this, "Select a class:", "Set Credit Hours", JOptionPane.PLAIN_MESSAGE, null, classNames, classNames[0]);
+            if (selectedClassName == null) return;
+            ClassRecord classRecord = gradeBook.getClassByName(selectedClassName);
+            Double creditHours = promptCreditHours(classRecord.getCreditHours());
+            if (creditHours == null) return;
+            classRecord.setCreditHours(creditHours);
+
+        } else if (choice == 1) { // Set Prior Terms
+            JTextField creditsField = new JTextField(formatCredits(gradeBook.getPriorCreditHours()), 6);
+            double priorGpa = gradeBook.getPriorCreditHours() > 0.0 ? gradeBook.getPriorQualityPoints() / gradeBook.getPriorCreditHours() : 0.0;
+            JTextField gpaField = new JTextField(String.format("%.2f", priorGpa), 6);
+            JPanel panel = new JPanel(new GridLayout(2, 2, 5, 5));
+            panel.add(new JLabel("Credit hours of earlier terms:"));
+            panel.add(creditsField);
+            panel.add(new JLabel("GPA of earlier terms:"));
+            panel.add(gpaField);
+            int result = JOptionPane.showConfirmDialog(this, panel, "Set Prior Terms", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+            if (result != JOptionPane.OK_OPTION) return;
+            try {
+                double priorCredits = Double.parseDouble(creditsField.getText().trim());
+                double newPriorGpa = Double.parseDouble(gpaField.getText().trim());
+                gradeBook.setPriorTerms(priorCredits, priorCredits * newPriorGpa);
+            } catch (IllegalArgumentException ex) {
+                // NumberFormatException is an IllegalArgumentException as well
+                JOptionPane.showMessageDialog(this, "Invalid input. Please enter non-negative numbers.");
+                return;
+            }
+            // Not a change event of any class, so refresh the status here
+            updateStatus();
+        }
     }
 
     /**
@@ -643,7 +1096,7 @@ public class GradeBookGUI extends JFrame {
      */
     private void calculateHypotheticalGrades() {
         // Select class
-        ArrayList<ClassRecord> classes = gradeBook.getClasses();
+        List<ClassRecord> classes = gradeBook.getClasses();
         if (classes.isEmpty()) {
             JOptionPane.showMessageDialog(this, "No classes available.");
             return;
@@ -655,7 +1108,7 @@ public class GradeBookGUI extends JFrame {
         ClassRecord classRecord = gradeBook.getClassByName(selectedClassName);
 
         // Collect hypothetical data for each category
-        ArrayList<Category> categories = classRecord.getCategories();
+        List<Category> categories = classRecord.getCategories();
         if (categories.isEmpty()) {
             JOptionPane.showMessageDialog(this, "No categories available in this class.");
             return;
@@ -680,8 +1133,10 @@ public class GradeBookGUI extends JFrame {
             categoryPanel.add(remainingLabel);
             categoryPanel.add(remainingField);
 
+            // Suggest where the category is heading
+            GradeTrend.Projection next = category.projectGrades(1);
             JLabel averageLabel = new JLabel("Hypothetical Average (%):");
-            JTextField averageField = new JTextField("0.0", 5);
+            JTextField averageField = new JTextField(next != null ? String.format("%.2f", next.getScore()) : "0.0", 5);
             categoryPanel.add(averageLabel);
             categoryPanel.add(averageField);
 
@@ -722,13 +1177,26 @@ public class GradeBookGUI extends JFrame {
         }
 
         // Perform hypothetical grade calculation
-        double hypotheticalFinalGrade = calculateHypotheticalFinalGrade(classRecord, inputs);
+        int[] remaining = new int[inputs.size()];
+        double[] averages = new double[inputs.size()];
+        for (int i = 0; i < inputs.size(); i++) {
+            remaining[i] = inputs.get(i).remaining;
+            averages[i] = inputs.get(i).average;
+        }
+        double hypotheticalFinalGrade = GradeCalculator.calculateHypotheticalFinalGrade(classRecord, remaining, averages);
 
         // Get corresponding letter grade
         String hypotheticalLetterGrade = classRecord.getGradingScale().getLetterGrade(hypotheticalFinalGrade);
 
         // Display the results
         String message = String.format("Hypothetical Final Grade: %.2f%% (%s)", hypotheticalFinalGrade, hypotheticalLetterGrade);
+        double[] projected = GradeCalculator.calculateProjectedFinalGrade(classRecord, remaining);
+        message += String.format("\nIf current trends continue: %.2f%% (%s), likely between %.2f%% and %.2f%%",
+                projected[1], classRecord.getGradingScale().getLetterGrade(projected[1]), projected[0], projected[2]);
+        double whatIfGpa = gpaTracker.whatIf(selectedClassName, hypotheticalFinalGrade);
+        if (!Double.isNaN(whatIfGpa)) {
+            message += String.format("\nGPA with the hypothetical grade: %.2f", whatIfGpa);
+        }
         JOptionPane.showMessageDialog(this, message, "Hypothetical Grades Result", JOptionPane.INFORMATION_MESSAGE);
     }
 
@@ -756,128 +1224,6 @@ public class GradeBookGUI extends JFrame {
         }
     }
 
-    /**
-     * Calculates the hypothetical final grade based on user inputs.
-     *
-     * @param classRecord The selected class record.
-     * @param inputs      List of HypotheticalInput containing remaining assignments and hypothetical averages.
-     * @return The calculated hypothetical final grade.
-     */
-    private double calculateHypotheticalFinalGrade(ClassRecord classRecord, ArrayList<HypotheticalInput> inputs) {
-        double finalGrade = 0.0;
-        double sumWeights = 0.0;
-
-        // Collect averages of categories that have grades
-        ArrayList<Double> existingAverages = new ArrayList<>();
-        for (Category category : classRecord.getCategories()) {
-            if (!category.getGrades().isEmpty()) {
-                existingAverages.add(category.calculateAverage());
-            }
-        }
-
-        // Compute the average of existing category averages
-        double averageOfAverages = 0.0;
-        if (!existingAverages.isEmpty()) {
-            double sumAverages = 0.0;
-            for (double avg : existingAverages) {
-                sumAverages += avg;
-            }
-            averageOfAverages = sumAverages / existingAverages.size();
-        }
-
-        // Calculate the hypothetical final grade based on user inputs
-        for (HypotheticalInput input : inputs) {
-            Category category = input.category;
-            double categoryAverage;
-
-            if (!category.getGrades().isEmpty()) {
-                categoryAverage = category.calculateAverage();
-            } else {
-                // Assign average of existing categories
-                categoryAverage = averageOfAverages;
-            }
-
-            // Incorporate hypothetical grades
-            if (input.remaining > 0) {
-                // Calculate new average considering hypothetical grades
-                ArrayList<Double> allGrades = new ArrayList<>(category.getGrades());
-
-                // Add hypothetical grades
-                for (int i = 0; i < input.remaining; i++) {
-                    allGrades.add(input.average);
-                }
-
-                // Adjust for dropped grades
-                ArrayList<Double> sortedGrades = new ArrayList<>(allGrades);
-                sortedGrades.sort(Double::compare);
-
-                int numGradesDropped = category.getNumGradesDropped();
-                int numGradesToConsider = sortedGrades.size() - numGradesDropped;
-                if (numGradesToConsider <= 0) {
-                    categoryAverage = 0.0; // All grades dropped
-                } else {
-                    double sum = 0.0;
-                    for (int i = numGradesDropped; i < sortedGrades.size(); i++) {
-                        sum += sortedGrades.get(i);
-                    }
-                    categoryAverage = sum / numGradesToConsider;
-                }
-            }
-
-            finalGrade += categoryAverage * (category.getWeight() / 100.0);
-            sumWeights += category.getWeight();
-        }
-
-        // Handle categories with no grades and no hypothetical assignments
-        for (Category category : classRecord.getCategories()) {
-            boolean hasInput = inputs.stream().anyMatch(input -> input.category.equals(category));
-            if (!category.getGrades().isEmpty() || hasInput) {
-                continue; // Already handled
-            }
-            // Assign average of existing categories
-            finalGrade += averageOfAverages * (category.getWeight() / 100.0);
-            sumWeights += category.getWeight();
-        }
-
-        // Apply rounding if enabled
-        if (classRecord.isUsesRounding()) {
-            // Retrieve the grading scale map in descending order
-            TreeMap<Double, String> scaleMapDesc = classRecord.getGradingScale().getScale();
-
-            Double nextCutoff = null;
-            for (Map.Entry<Double, String> entry : scaleMapDesc.entrySet()) {
-                if (finalGrade < entry.getKey()) {
-                    nextCutoff = entry.getKey();
-                } else {
-                    break; // Found the appropriate cutoff
-                }
-            }
-
-            if (nextCutoff != null) {
-                double difference = nextCutoff - finalGrade;
-                if (difference <= classRecord.getRoundingThreshold()) {
-                    finalGrade = nextCutoff;
-                }
-            }
-        } else {
-            // Round to two decimal places without rounding up
-            finalGrade = Math.round(finalGrade * 100.0) / 100.0;
-        }
-
-        // Add extra credit
-        finalGrade += classRecord.getExtraCredit();
-
-        // Ensure final grade does not exceed 100%
-        if (finalGrade > 100.0) {
-            finalGrade = 100.0;
-        }
-
-        // Round again if necessary after adding extra credit
-        finalGrade = Math.round(finalGrade * 100.0) / 100.0;
-
-        return finalGrade;
-    }
-
     /**
      * Calculates the needed grades to achieve a desired letter grade.
      * Steps:
@@ -893,7 +1239,7 @@ public class GradeBookGUI extends JFrame {
      */
     private void calculateNeededGrades() {
         // Select class
-        ArrayList<ClassRecord> classes = gradeBook.getClasses();
+        List<ClassRecord> classes = gradeBook.getClasses();
         if (classes.isEmpty()) {
             JOptionPane.showMessageDialog(this, "No classes available.");
             return;
@@ -910,7 +1256,7 @@ public class GradeBookGUI extends JFrame {
         }
 
         // Prompt for desired letter grade
-        TreeMap<Double, String> scaleMap = classRecord.getGradingScale().getScale();
+        SortedMap<Double, String> scaleMap = classRecord.getGradingScale().getScale();
         java.util.Set<String> letterSet = new java.util.HashSet<>(scaleMap.values());
         java.util.List<String> letterGrades = new java.util.ArrayList<>(letterSet);
         String desiredLetterGrade = (String) JOptionPane.showInputDialog(this,
@@ -923,14 +1269,14 @@ public class GradeBookGUI extends JFrame {
         if (desiredLetterGrade == null) return;
 
         // Find numeric cutoff for that letter grade
-        double desiredCutoff = getCutoffForLetterGrade(desiredLetterGrade, scaleMap);
+        double desiredCutoff = GradeCalculator.getCutoffForLetterGrade(desiredLetterGrade, scaleMap);
         if (desiredCutoff < 0) {
             JOptionPane.showMessageDialog(this, "Invalid letter grade selected.");
             return;
         }
 
         // Prompt for remaining assignments
-        ArrayList<Category> categories = classRecord.getCategories();
+        List<Category> categories = classRecord.getCategories();
         if (categories.isEmpty()) {
             JOptionPane.showMessageDialog(this, "No categories in this class.");
             return;
@@ -967,245 +1313,111 @@ public class GradeBookGUI extends JFrame {
             }
         }
 
-        // Check feasibility: max out future assignments at 100%
-        double maxPossibleFinal = calculateHypotheticalFinalWithGivenScores(classRecord, remainingAssignments, fillArray(categories.size(), 100.0));
-        if (maxPossibleFinal < desiredCutoff) {
+        // Generate the scenarios; none are returned if the cutoff is out of reach
+        java.util.List<GradeCalculator.Scenario> scenarios = GradeCalculator.neededGradeScenarios(classRecord, remainingAssignments, desiredCutoff);
+        if (scenarios.isEmpty()) {
             JOptionPane.showMessageDialog(this, "It is not possible to achieve " + desiredLetterGrade + " even if all future assignments are perfect.");
             return;
         }
 
-        java.util.List<String> scenarioReports = new java.util.ArrayList<>();
-        // Lazy Scenario: only if current final with minimal effort (0% on all future) is already >= desiredCutoff.
-        double lazyFinal = calculateHypotheticalFinalWithGivenScores(classRecord, remainingAssignments, fillArray(categories.size(), 0.0));
-        if (lazyFinal >= desiredCutoff) {
-            // We can do nothing and still achieve desired grade
-            scenarioReports.add("Scenario L (Lazy):\n" + scenarioReport(classRecord, categories, remainingAssignments, fillArray(categories.size(), 0.0)));
-        } else if (lazyFinal < desiredCutoff) {
-            // We are currently above desired grade (as per your clarification)
-            // but zero future assignments drop us below the cutoff.
-            // Let's find minimal scores needed.
-            double[] lazyScores = scenarioLazyMinimalEffort(classRecord, remainingAssignments, desiredCutoff);
-            scenarioReports.add("Scenario L (Lazy):\n" + scenarioReport(classRecord, categories, remainingAssignments, lazyScores));
-        }
-
-        // Scenario 1: Close to current trend
-        double[] scenario1Scores = scenarioCloseToCurrentTrend(classRecord, remainingAssignments, desiredCutoff);
-        scenarioReports.add("Scenario 1 (Close to Current Trend):\n" + scenarioReport(classRecord, categories, remainingAssignments, scenario1Scores));
-
-        // Additional scenarios: focus on each category (only if it has remaining assignments)
-        int scenarioCounter = 2 + scenarioReports.size(); // Adjust scenario numbering based on how many we have so far
-        for (int i = 0; i < categories.size(); i++) {
-            if (remainingAssignments[i] > 0) {
-                double[] focusedScores = scenarioFocusOnCategory(classRecord, remainingAssignments, desiredCutoff, i);
-                scenarioReports.add("Scenario " + scenarioCounter++ + " (Focus on " + categories.get(i).getName() + "):\n"
-                        + scenarioReport(classRecord, categories, remainingAssignments, focusedScores));
-            }
-        }
-
         String fullReport = "Desired Letter Grade: " + desiredLetterGrade + " (Cutoff: " + desiredCutoff + "%)\n\n";
-        for (String rep : scenarioReports) {
-            fullReport += rep + "\n\n";
+        fullReport += trendReport(categories, GradeCalculator.projectTrends(classRecord, remainingAssignments)) + "\n";
+        for (GradeCalculator.Scenario scenario : scenarios) {
+            fullReport += scenario.getTitle() + ":\n" + scenarioReport(categories, remainingAssignments, scenario) + "\n\n";
         }
 
         JOptionPane.showMessageDialog(this, new JScrollPane(new JTextArea(fullReport, 20, 50)), "Needed Grades Results", JOptionPane.INFORMATION_MESSAGE);
     }
 
-    /**
-     * This scenario tries to find minimal future scores needed if currently at/above desired grade but
-     * going forward zero scores would drop below the cutoff.
-     * We'll start from all zeros and increment all categories slightly until we reach the cutoff.
-     * This is a simplistic approach; you can refine it using binary search if desired.
-     */
-    private double[] scenarioLazyMinimalEffort(ClassRecord classRecord, int[] remainingAssignments, double desiredCutoff) {
-        ArrayList<Category> categories = classRecord.getCategories();
-        double[] futureScores = fillArray(categories.size(), 0.0);
-
-        // Simple increment approach: we try small increments across all categories until we reach the cutoff
-        double increment = 0.5;
-        double currentFinal = calculateHypotheticalFinalWithGivenScores(classRecord, remainingAssignments, futureScores);
-
-        while (currentFinal < desiredCutoff) {
-            boolean changed = false;
-            for (int i = 0; i < futureScores.length; i++) {
-                if (remainingAssignments[i] > 0 && futureScores[i] < 100.0) {
-                    futureScores[i] = Math.min(100.0, futureScores[i] + increment);
-                    changed = true;
-                }
+    private String trendReport(List<Category> categories, GradeTrend.Projection[] trends) {
+        StringBuilder sb = new StringBuilder("Current trend (projected average of the remaining assignments):\n");
+        for (int i = 0; i < categories.size(); i++) {
+            GradeTrend.Projection trend = trends[i];
+            if (trend != null) {
+                sb.append(String.format("  %s: %.2f%% (95%% range %.2f%%-%.2f%%, %+.2f points per assignment)\n",
+                        categories.get(i).getName(), trend.getScore(), trend.getLower(), trend.getUpper(), trend.getSlope()));
+            } else {
+                sb.append(String.format("  %s: No grades yet\n", categories.get(i).getName()));
             }
-            currentFinal = calculateHypotheticalFinalWithGivenScores(classRecord, remainingAssignments, futureScores);
-            if (!changed) break;
         }
-
-        // If needed, we could try to lower some categories again to find truly minimal scores,
-        // but this at least ensures we meet the cutoff with small increments.
-        return futureScores;
+        return sb.toString();
     }
 
-    /**
-     * Returns the cutoff percentage for a given letter grade.
-     */
-    private double getCutoffForLetterGrade(String letterGrade, TreeMap<Double, String> scaleMap) {
-        double foundCutoff = -1.0;
-        for (Map.Entry<Double, String> entry : scaleMap.entrySet()) {
-            if (entry.getValue().equalsIgnoreCase(letterGrade)) {
-                foundCutoff = entry.getKey();
-                break;
+    private String scenarioReport(List<Category> categories, int[] remainingAssignments, GradeCalculator.Scenario scenario) {
+        double[] scores = scenario.getScores();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Final Grade: %.2f%% (%s)\n", scenario.getFinalGrade(), scenario.getLetterGrade()));
+        sb.append("Needed future assignment averages:\n");
+        for (int i = 0; i < categories.size(); i++) {
+            if (remainingAssignments[i] > 0) {
+                sb.append(String.format("  %s: %.2f%% on each of the %d remaining assignments\n",
+                        categories.get(i).getName(), scores[i], remainingAssignments[i]));
+            } else {
+                sb.append(String.format("  %s: No remaining assignments\n", categories.get(i).getName()));
             }
         }
-        return foundCutoff;
+        return sb.toString();
     }
 
-    private double calculateHypotheticalFinalWithGivenScores(ClassRecord classRecord, int[] remainingAssignments, double[] futureScores) {
-        double finalGrade = 0.0;
-        for (int i = 0; i < classRecord.getCategories().size(); i++) {
-            Category cat = classRecord.getCategories().get(i);
-            ArrayList<Double> allGrades = new ArrayList<>(cat.getGrades());
-            for (int r = 0; r < remainingAssignments[i]; r++) {
-                allGrades.add(futureScores[i]);
-            }
-
-            double avg = calculateAverageWithDrops(allGrades, cat.getNumGradesDropped());
-            finalGrade += avg * (cat.getWeight() / 100.0);
+    /**
+     * Shows, for the next assignment of every category of every class, how many points of final grade each
+     * point on it is worth, in a table sorted by that impact; any column can be sorted by clicking its header.
+     */
+    private void showSensitivity() {
+        List<GradeSensitivity.Result> results = GradeSensitivity.analyze(gradeBook);
+        if (results.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No categories available.");
+            return;
         }
-
-        finalGrade += classRecord.getExtraCredit();
-        if (finalGrade > 100.0) finalGrade = 100.0;
-
-        if (classRecord.isUsesRounding()) {
-            TreeMap<Double, String> scaleMapDesc = classRecord.getGradingScale().getScale();
-            Double nextCutoff = null;
-            for (Map.Entry<Double, String> entry : scaleMapDesc.entrySet()) {
-                if (finalGrade < entry.getKey()) {
-                    nextCutoff = entry.getKey();
-                } else {
-                    break;
-                }
-            }
-            if (nextCutoff != null) {
-                double difference = nextCutoff - finalGrade;
-                if (difference <= classRecord.getRoundingThreshold()) {
-                    finalGrade = nextCutoff;
-                }
+        String[] columns = {"Class", "Category", "Weight (%)", "Expected Next (%)", "Impact per Point", "Next Letter",
+                "To Next Letter", "Needed on Next (%)", "Note"};
+        DefaultTableModel model = new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
             }
-        } else {
-            finalGrade = Math.round(finalGrade * 100.0) / 100.0;
-        }
-
-        return finalGrade;
-    }
-
-    private double calculateAverageWithDrops(ArrayList<Double> grades, int numDrops) {
-        if (grades.isEmpty()) return 0.0;
-        grades.sort(Double::compareTo);
-        int size = grades.size();
-        int considered = size - numDrops;
-        if (considered <= 0) return 0.0;
-        double sum = 0.0;
-        for (int i = numDrops; i < size; i++) {
-            sum += grades.get(i);
-        }
-        return sum / considered;
-    }
 
-    private double[] fillArray(int length, double val) {
-        double[] arr = new double[length];
-        for (int i = 0; i < length; i++) arr[i] = val;
-        return arr;
-    }
-
-    private double calcAverageOfAverages(ArrayList<Category> categories) {
-        ArrayList<Double> existingAverages = new ArrayList<>();
-        for (Category category : categories) {
-            if (!category.getGrades().isEmpty()) {
-                existingAverages.add(category.calculateAverage());
+            @Override
+            public Class<?> getColumnClass(int column) {
+                // Numbers sort as numbers
+                return column == 0 || column == 1 || column == 5 || column == 8 ? String.class : Double.class;
             }
+        };
+        for (GradeSensitivity.Result result : results) {
+            model.addRow(new Object[]{result.getClassName(), result.getCategoryName(), result.getWeight(),
+                    round2(result.getExpectedScore()), Math.round(result.getImpact() * 10000.0) / 10000.0,
+                    result.getNextLetter() != null ? result.getNextLetter() : "-", round2(result.getDistance()),
+                    round2(result.getNeededScore()), result.getNote() != null ? result.getNote() : ""});
         }
-        if (existingAverages.isEmpty()) return 0.0;
-        double sum = 0.0;
-        for (double avg : existingAverages) sum += avg;
-        return sum / existingAverages.size();
+        JTable table = new JTable(model);
+        TableRowSorter<DefaultTableModel> sorter = new TableRowSorter<>(model);
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(4, SortOrder.DESCENDING)));
+        table.setRowSorter(sorter);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(900, 300));
+        JOptionPane.showMessageDialog(this, scrollPane, "Grade Sensitivity", JOptionPane.PLAIN_MESSAGE);
     }
 
-    private double[] scenarioCloseToCurrentTrend(ClassRecord classRecord, int[] remainingAssignments, double desiredCutoff) {
-        ArrayList<Category> categories = classRecord.getCategories();
-        double[] futureScores = new double[categories.size()];
-        double averageOfAverages = calcAverageOfAverages(categories);
-
-        for (int i = 0; i < categories.size(); i++) {
-            Category cat = categories.get(i);
-            double avg = cat.getGrades().isEmpty() ? averageOfAverages : cat.calculateAverage();
-            futureScores[i] = avg;
-        }
-
-        double currentFinal = calculateHypotheticalFinalWithGivenScores(classRecord, remainingAssignments, futureScores);
-        if (currentFinal >= desiredCutoff) {
-            return futureScores;
-        }
-
-        double increment = 0.5;
-        while (currentFinal < desiredCutoff) {
-            boolean canIncrease = false;
-            for (int i = 0; i < futureScores.length; i++) {
-                if (futureScores[i] < 100.0) {
-                    futureScores[i] = Math.min(100.0, futureScores[i] + increment);
-                    canIncrease = true;
-                }
-            }
-            currentFinal = calculateHypotheticalFinalWithGivenScores(classRecord, remainingAssignments, futureScores);
-            if (!canIncrease) break;
-        }
-        return futureScores;
+    /**
+     * @return The value rounded to hundredths, or null (an empty cell) for NaN.
+     */
+    private static Double round2(double value) {
+        return Double.isNaN(value) ? null : Math.round(value * 100.0) / 100.0;
     }
 
-    private double[] scenarioFocusOnCategory(ClassRecord classRecord, int[] remainingAssignments, double desiredCutoff, int focusIndex) {
-        ArrayList<Category> categories = classRecord.getCategories();
-        double averageOfAverages = calcAverageOfAverages(categories);
-
-        double[] futureScores = new double[categories.size()];
-        for (int i = 0; i < categories.size(); i++) {
-            if (i == focusIndex) {
-                futureScores[i] = 100.0;
-            } else {
-                Category cat = categories.get(i);
-                double avg = cat.getGrades().isEmpty() ? averageOfAverages : cat.calculateAverage();
-                futureScores[i] = avg;
-            }
-        }
-
-        double currentFinal = calculateHypotheticalFinalWithGivenScores(classRecord, remainingAssignments, futureScores);
-        if (currentFinal >= desiredCutoff) return futureScores;
-
-        double increment = 1.0;
-        boolean improved = true;
-        while (currentFinal < desiredCutoff && improved) {
-            improved = false;
-            for (int i = 0; i < futureScores.length; i++) {
-                if (i != focusIndex && futureScores[i] < 100.0) {
-                    futureScores[i] = Math.min(100.0, futureScores[i] + increment);
-                    improved = true;
-                }
-            }
-            currentFinal = calculateHypotheticalFinalWithGivenScores(classRecord, remainingAssignments, futureScores);
+    /**
+     * Formats a grade as a percentage ("92.50"), or as points ("18/20") if it is not out of 100.
+     */
+    static String formatGrade(double earned, double possible) {
+        if (possible == 100.0) {
+            return String.format("%.2f", earned);
         }
-        return futureScores;
+        return formatPoints(earned) + "/" + formatPoints(possible);
     }
 
-    private String scenarioReport(ClassRecord classRecord, ArrayList<Category> categories, int[] remainingAssignments, double[] scores) {
-        double finalGrade = calculateHypotheticalFinalWithGivenScores(classRecord, remainingAssignments, scores);
-        String finalLetter = classRecord.getGradingScale().getLetterGrade(finalGrade);
-
-        StringBuilder sb = new StringBuilder();
-        sb.append(String.format("Final Grade: %.2f%% (%s)\n", finalGrade, finalLetter));
-        sb.append("Needed future assignment averages:\n");
-        for (int i = 0; i < categories.size(); i++) {
-            if (remainingAssignments[i] > 0) {
-                sb.append(String.format("  %s: %.2f%% on each of the %d remaining assignments\n",
-                        categories.get(i).getName(), scores[i], remainingAssignments[i]));
-            } else {
-                sb.append(String.format("  %s: No remaining assignments\n", categories.get(i).getName()));
-            }
-        }
-        return sb.toString();
+    private static String formatPoints(double points) {
+        return points == Math.rint(points) ? String.valueOf((long) points) : String.format("%.2f", points);
     }
 
     /**
@@ -1213,7 +1425,7 @@ public class GradeBookGUI extends JFrame {
      */
     private void editGrade() {
         // Select class
-        ArrayList<ClassRecord> classes = gradeBook.getClasses();
+        List<ClassRecord> classes = gradeBook.getClasses();
         if (classes.isEmpty()) {
             JOptionPane.showMessageDialog(this, "No classes available.");
             return;
@@ -1225,7 +1437,7 @@ public class GradeBookGUI extends JFrame {
         ClassRecord classRecord = gradeBook.getClassByName(selectedClassName);
 
         // Select category
-        ArrayList<Category> categories = classRecord.getCategories();
+        List<Category> categories = classRecord.getCategories();
         if (categories.isEmpty()) {
             JOptionPane.showMessageDialog(this, "No categories available in this class.");
             return;
@@ -1237,14 +1449,15 @@ public class GradeBookGUI extends JFrame {
         Category selectedCategory = classRecord.getCategoryByName(selectedCategoryName);
 
         // Select grade to edit or delete
-        ArrayList<Double> grades = selectedCategory.getGrades();
-        if (grades.isEmpty()) {
+        int gradeCount = selectedCategory.getGradeCount();
+        if (gradeCount == 0) {
             JOptionPane.showMessageDialog(this, "No grades available in this category.");
             return;
         }
-        String[] gradeOptions = new String[grades.size()];
-        for (int i = 0; i < grades.size(); i++) {
-            gradeOptions[i] = String.format("%d: %.2f", i + 1, grades.get(i));
+        String[] gradeOptions = new String[gradeCount];
+        for (int i = 0; i < gradeCount; i++) {
+            gradeOptions[i] = String.format("%d: %s", i + 1,
+                    formatGrade(selectedCategory.getPointsEarned(i), selectedCategory.getPointsPossible(i)));
         }
         String selectedGradeOption = (String) JOptionPane.showInputDialog(this, "Select a grade to edit or delete:", "Edit or Delete Grades", JOptionPane.PLAIN_MESSAGE, null, gradeOptions, gradeOptions[0]);
         if (selectedGradeOption == null) return;
@@ -1259,18 +1472,18 @@ public class GradeBookGUI extends JFrame {
         if ("Edit".equals(selectedAction)) {
             // Edit grade
             while (true) {
-                String gradeStr = JOptionPane.showInputDialog(this, "Enter the new grade (0-100):");
+                String gradeStr = JOptionPane.showInputDialog(this, "Enter the new grade (0-100, or points like 18/20):");
                 if (gradeStr == null) return;
                 try {
-                    double newGrade = Double.parseDouble(gradeStr.trim());
-                    if (newGrade < 0.0 || newGrade > 100.0) {
-                        JOptionPane.showMessageDialog(this, "Grade must be between 0 and 100.");
+                    double[] newGrade = Category.parseGrade(gradeStr);
+                    if (newGrade == null) {
+                        JOptionPane.showMessageDialog(this, "Grade must be between 0 and 100, or between 0 and the points possible.");
                         continue;
                     }
-                    selectedCategory.editGrade(selectedIndex, newGrade);
+                    selectedCategory.editGrade(selectedIndex, newGrade[0], newGrade[1]);
                     break;
                 } catch (NumberFormatException ex) {
-                    JOptionPane.showMessageDialog(this, "Invalid input. Please enter a valid number.");
+                    JOptionPane.showMessageDialog(this, "Invalid input. Please enter a number or points like 18/20.");
                 }
             }
         } else if ("Delete".equals(selectedAction)) {
@@ -1280,9 +1493,6 @@ public class GradeBookGUI extends JFrame {
                 selectedCategory.deleteGrade(selectedIndex);
             }
         }
-
-        // Update table
-        updateClassesTable();
     }
 
     /**
@@ -1290,7 +1500,7 @@ public class GradeBookGUI extends JFrame {
      */
     private void deleteClass() {
         // Select class
-        ArrayList<ClassRecord> classes = gradeBook.getClasses();
+        List<ClassRecord> classes = gradeBook.getClasses();
         if (classes.isEmpty()) {
             JOptionPane.showMessageDialog(this, "No classes available.");
             return;
@@ -1301,8 +1511,7 @@ public class GradeBookGUI extends JFrame {
 
         int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to delete the class '" + selectedClassName + "'?", "Confirm Delete", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            gradeBook.getClasses().removeIf(c -> c.getName().equalsIgnoreCase(selectedClassName));
-            updateClassesTable();
+            gradeBook.removeClass(selectedClassName);
         }
     }
 
@@ -1312,16 +1521,242 @@ public class GradeBookGUI extends JFrame {
     private void deleteAllData() {
         int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to delete all data?", "Confirm Delete All", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            gradeBook = new GradeBook();
-            updateClassesTable();
+            replaceGradeBook(new GradeBook());
+        }
+    }
+
+    /**
+     * Switches every view and recorder to another GradeBook, discarding the undo steps of the old one.
+     *
+     * @param newGradeBook The GradeBook to show from now on.
+     */
+    private void replaceGradeBook(GradeBook newGradeBook) {
+        gradeBook = newGradeBook;
+        attachHistory();
+        undo.attach(gradeBook);
+        changeBus.attach(gradeBook);
+        gpaTracker.attach(gradeBook);
+        searchIndex.rebuild(gradeBook);
+        updateClassesTable();
+        updateStatus();
+    }
+
+    /**
+     * Seals the current classes into the term archive and starts the next term with no classes.
+     * The sealed term's credit hours and grade points carry over into the cumulative GPA.
+     */
+    private void archiveTerm() {
+        int classCount = gradeBook.getClasses().size();
+        if (classCount == 0) {
+            JOptionPane.showMessageDialog(this, "No classes available.");
+            return;
+        }
+        String termName = JOptionPane.showInputDialog(this, "Enter the name of the term to archive (e.g., Fall 2024):");
+        if (termName == null) return;
+        int confirm = JOptionPane.showConfirmDialog(this, String.format("Archive the %d classes of '%s'?\nThey become read-only and are removed from the grade book; " +
+                "you can still browse them under File > Browse Archived Terms.", classCount, termName.trim()), "Confirm Archive", JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) return;
+        try {
+            // Saves the next term as well, so the data file never holds classes that are archived too
+            GradeBook next = termArchive.archive(gradeBook, termName, new File(DATA_FILE));
+            replaceGradeBook(next);
+            double gpa = gpaTracker.getCumulativeGpa();
+            JOptionPane.showMessageDialog(this, String.format("Archived '%s'.%s", termName.trim(),
+                    Double.isNaN(gpa) ? "" : String.format("\nCumulative GPA: %.2f", gpa)), "Term Archived", JOptionPane.INFORMATION_MESSAGE);
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage());
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Could not archive the term: " + ex.getMessage(), "Archive Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Writes the report cards of every class to an HTML file chosen by the user, in the background with a
+     * progress dialog that can cancel it.
+     */
+    private void exportReport() {
+        if (gradeBook.getClasses().isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No classes available.");
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("gradebook-report-" + new SimpleDateFormat("yyyyMMdd").format(new Date()) + ".html"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        List<ClassRecord> classes = gradeBook.getClasses();
+        ProgressMonitor monitor = new ProgressMonitor(this, String.format("Writing the report of %d classes...", classes.size()), null, 0, classes.size());
+        exportReportItem.setEnabled(false);
+        // Rendered off the event thread, so the window stays responsive and the export can be cancelled
+        SwingWorker<Integer, Integer> worker = new SwingWorker<Integer, Integer>() {
+            @Override
+            protected Integer doInBackground() throws IOException {
+                try {
+                    try (Writer writer = new FileWriter(file, java.nio.charset.StandardCharsets.UTF_8)) {
+                        return GradeBookReport.write(classes, "Grade Report", writer, written -> publish(written));
+                    }
+                } catch (InterruptedIOException e) {
+                    // Cancelled; the file is closed now, so the partial report can be removed
+                    file.delete();
+                    throw e;
+                }
+            }
+
+            @Override
+            protected void process(List<Integer> written) {
+                if (monitor.isCanceled()) {
+                    cancel(true);
+                } else {
+                    monitor.setProgress(written.get(written.size() - 1));
+                }
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                exportReportItem.setEnabled(true);
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    JOptionPane.showMessageDialog(GradeBookGUI.this, String.format("Report of %d classes saved to %s.\nOpen it in a browser and print it to get a PDF.",
+                            get(), file), "Export Report", JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                    JOptionPane.showMessageDialog(GradeBookGUI.this, "Could not save the report: " + e.getCause().getMessage(), "Export Report", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    /**
+     * Lists the archived terms and shows the classes of the one selected, loading it only then.
+     */
+    private void browseTerms() {
+        List<TermArchive.Term> terms;
+        try {
+            terms = termArchive.getTerms();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Could not read the term archive: " + ex.getMessage(), "Archive Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (terms.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No archived terms.");
+            return;
+        }
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        String[] columns = {"Term", "Archived", "Classes", "Grades", "Credit Hours", "GPA"};
+        DefaultTableModel model = new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        for (TermArchive.Term term : terms) {
+            model.addRow(new Object[]{term.getName(), format.format(new Date(term.getSealedAt())), term.getClassCount(),
+                    term.getGradeCount(), formatCredits(term.getCreditHours()),
+                    Double.isNaN(term.getGpa()) ? "-" : String.format("%.2f", term.getGpa())});
+        }
+        JTable table = new JTable(model);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.setRowSelectionInterval(terms.size() - 1, terms.size() - 1);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(600, 200));
+        String[] options = {"Open", "Close"};
+        int choice = JOptionPane.showOptionDialog(this, scrollPane, "Archived Terms", JOptionPane.DEFAULT_OPTION,
+                JOptionPane.PLAIN_MESSAGE, null, options, options[0]);
+        if (choice != 0 || table.getSelectedRow() < 0) return;
+
+        TermArchive.Term term = terms.get(table.getSelectedRow());
+        try {
+            GradeBookSnapshot snapshot = term.load();
+            StringBuilder sb = new StringBuilder(term.getName() + ":\n\n");
+            for (GradeBookSnapshot.ClassSnapshot classSnapshot : snapshot.getClasses()) {
+                sb.append(classSnapshot.getName()).append(": ");
+                if (classSnapshot.hasGrades()) {
+                    sb.append(String.format("%.2f", classSnapshot.getFinalGrade())).append("% (")
+                            .append(classSnapshot.getLetterGrade()).append(")");
+                } else {
+                    sb.append("no grades");
+                }
+                sb.append(", ").append(formatCredits(classSnapshot.getCreditHours())).append(" credits\n");
+                for (GradeBookSnapshot.CategorySnapshot category : classSnapshot.getCategories()) {
+                    sb.append("  ").append(category.getName()).append(": ").append(Arrays.toString(category.getGrades())).append("\n");
+                }
+            }
+            JTextArea textArea = new JTextArea(sb.toString(), 20, 50);
+            textArea.setEditable(false);
+            JOptionPane.showMessageDialog(this, new JScrollPane(textArea), "Archived Term", JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Could not read the term: " + ex.getMessage(), "Archive Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
     /**
-     * Displays more information about the application. (Feature Pending)
+     * Displays the statistics of a class chosen by the user: all its grades, then each category.
      */
     private void seeMoreInformation() {
-        JOptionPane.showMessageDialog(this, "Feature not implemented yet.", "Info", JOptionPane.INFORMATION_MESSAGE);
+        List<ClassRecord> classes = gradeBook.getClasses();
+        if (classes.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No classes available.");
+            return;
+        }
+        String[] classNames = classes.stream().map(ClassRecord::getName).toArray(String[]::new);
+        String selectedClassName = (String) JOptionPane.showInputDialog(this, "Select a class:", "See More Information", JOptionPane.PLAIN_MESSAGE, null, classNames, classNames[0]);
+        if (selectedClassName == null) return;
+
+        ClassRecord classRecord = gradeBook.getClassByName(selectedClassName);
+        if (classRecord == null) return;
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(classRecord.getName()).append(String.format(": %.2f%% (%s)%n%n", classRecord.calculateFinalGrade(), classRecord.getLetterGrade()));
+        appendStatistics(sb, "All grades", classRecord.getStatistics());
+        long now = System.currentTimeMillis();
+        long monthAgo = now - TimeUnit.DAYS.toMillis(30);
+        for (Category category : classRecord.getCategories()) {
+            sb.append('\n');
+            appendStatistics(sb, category.getName() + " (" + category.getWeight() + "%)", category.getStatistics());
+            int recent = category.getGradeCountBetween(monthAgo, now + 1);
+            if (recent > 0) {
+                sb.append(String.format("  Last 30 days: %d grades, average %.2f%n", recent, category.calculateAverageBetween(monthAgo, now + 1)));
+            }
+        }
+
+        JTextArea textArea = new JTextArea(sb.toString(), 25, 55);
+        textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        textArea.setEditable(false);
+        textArea.setCaretPosition(0);
+        JOptionPane.showMessageDialog(this, new JScrollPane(textArea), "Statistics for " + classRecord.getName(), JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    /**
+     * Appends the summary and a text histogram of one set of grades to the statistics view.
+     */
+    private static void appendStatistics(StringBuilder sb, String title, GradeStatistics statistics) {
+        sb.append(title).append('\n');
+        if (statistics.getCount() == 0) {
+            sb.append("  No grades\n");
+            return;
+        }
+        sb.append(String.format("  Grades: %d   Mean: %.2f   Std. dev.: %s%n", statistics.getCount(), statistics.getMean(),
+                statistics.getCount() < 2 ? "-" : String.format("%.2f", statistics.getStandardDeviation())));
+        sb.append(String.format("  Min: %.2f   Median: %.2f   Max: %.2f%n", statistics.getMin(), statistics.getMedian(), statistics.getMax()));
+        sb.append(String.format("  Percentiles: 10th %.2f   25th %.2f   75th %.2f   90th %.2f%n", statistics.getPercentile(10.0),
+                statistics.getPercentile(25.0), statistics.getPercentile(75.0), statistics.getPercentile(90.0)));
+
+        long[] histogram = statistics.getHistogram(10);
+        long largest = Arrays.stream(histogram).max().orElse(0);
+        for (int i = histogram.length - 1; i >= 0; i--) {
+            // Scale the bars to at most 30 characters
+            int bar = (int) Math.round(30.0 * histogram[i] / largest);
+            sb.append(String.format("  %3d-%-3d %s %d%n", i * 10, i * 10 + 10,
+                    "#".repeat(bar), histogram[i]));
+        }
     }
 
     /**
@@ -1332,28 +1767,123 @@ public class GradeBookGUI extends JFrame {
                 "- **Add Class**: Create a new class with custom grading scales and categories.\n" +
                 "- **Add Grade**: Add one or multiple grades to a specific category within a class.\n" +
                 "- **Add Extra Credit**: Add or reset extra credit points to a class.\n" +
+                "- **Credit Hours and GPA**: Set the credit hours of a class, or the credit hours and GPA of your earlier terms for the cumulative GPA.\n" +
                 "- **Hypothetical Grades**: Input remaining assignments and hypothetical averages to see how they affect your final grade.\n" +
                 "- **Calculate Needed Grades**: Determine what average you need on remaining assignments to achieve a desired final grade.\n" +
                 "- **Edit or Delete Grades**: Modify or remove existing grades in a category.\n" +
                 "- **Delete Class**: Remove an entire class and all its data.\n" +
                 "- **Delete All Data**: Remove all classes and associated data from the grade book.\n" +
-                "- **See More Information**: [Feature Pending]\n" +
-                "- **Help**: Display this help message.\n\n" +
+                "- **Archive Term** (File menu): Seal the current classes into a read-only archive at the end of a term and start the next one; their GPA carries over into the cumulative GPA.\n" +
+                "- **Browse Archived Terms** (File menu): See the classes and grades of earlier terms.\n" +
+                "- **Export Report** (File menu): Save a report card of every class as an HTML page; print it from a browser to get a PDF with one page per class.\n" +
+                "- **Undo / Redo** (Edit menu): Revert or repeat the last changes, one menu action at a time.\n" +
+                "- **See More Information**: See the median, spread, percentiles and a histogram of the grades of a class and each of its categories.\n" +
+                "- **Help**: Display this help message.\n" +
+                "- **Diagnostics** (Help menu): See how long each action kept the window busy and save the stacks of freezes.\n" +
+                "- **Save Performance Recording** (Help menu): Save a Java Flight Recorder file of the last 30 minutes to attach to a report of slowness.\n\n" +
                 "Ensure that the total weight of all categories in a class sums up to 100%.\n\n" +
                 "**New Features:**\n" +
                 "- **Rounding:** If a class uses rounding, final grades within the specified threshold of the next letter grade's cutoff will be rounded up accordingly.\n" +
                 "- **Handling Missing Grades:** Categories with no grades will have their average set to the average of existing categories, ensuring fair final grade calculations.\n" +
                 "- **Extra Credit:** Add or reset extra credit points to boost your final grade directly.\n" +
-                "- **Hypothetical Grades:** Plan your future performance by inputting hypothetical averages and see their impact on your final grade.";
+                "- **Hypothetical Grades:** Plan your future performance by inputting hypothetical averages and see their impact on your final grade.\n" +
+                "- **Grade Sensitivity:** See which category's next assignment moves each final grade the most, and how far the next letter grade is.\n" +
+                "- **GPA:** The status bar shows the GPA of your classes weighted by credit hours, using each grading scale's grade points.";
         JOptionPane.showMessageDialog(this, helpMessage, "Help", JOptionPane.INFORMATION_MESSAGE);
     }
 
+    /**
+     * Shows how long the event dispatch thread took per menu action (p50, p99 and max), how long events
+     * waited to be dispatched, the hits and misses of the result caches, and the recorded freezes, whose
+     * stacks can be saved to a file.
+     */
+    private void showDiagnostics() {
+        DefaultTableModel model = new DefaultTableModel(new Object[]{"Action", "Count", "p50", "p99", "Max"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        model.addRow(diagnosticsRow("(Event dispatch delay)", watchdog.getDispatchLatency()));
+        for (Map.Entry<String, LatencyHistogram> entry : watchdog.getActionHistograms().entrySet()) {
+            model.addRow(diagnosticsRow(entry.getKey(), entry.getValue()));
+        }
+        JTable table = new JTable(model);
+        table.getColumnModel().getColumn(0).setPreferredWidth(220);
+
+        List<GradeBookWatchdog.Stall> stalls = watchdog.getStalls();
+        long longest = 0;
+        for (GradeBookWatchdog.Stall stall : stalls) {
+            longest = Math.max(longest, stall.getDurationNanos());
+        }
+        JPanel panel = new JPanel(new BorderLayout(0, 5));
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(520, 250));
+        panel.add(scrollPane, BorderLayout.CENTER);
+        JPanel summary = new JPanel(new GridLayout(0, 1));
+        summary.add(new JLabel(stalls.isEmpty() ? "No freezes recorded."
+                : "Freezes recorded: " + stalls.size() + " (longest " + LatencyHistogram.formatMillis(longest) + ")"));
+        summary.add(new JLabel("Needed grades cache: " + GradeCalculator.getNeededGradesCache()));
+        summary.add(new JLabel("Hypothetical grades cache: " + GradeCalculator.getHypotheticalCache()));
+        panel.add(summary, BorderLayout.SOUTH);
+
+        Object[] options = {"Save Freeze Stacks...", "Close"};
+        int choice = JOptionPane.showOptionDialog(this, panel, "Diagnostics", JOptionPane.DEFAULT_OPTION,
+                JOptionPane.PLAIN_MESSAGE, null, options, options[1]);
+        if (choice != 0) return;
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("gradebook-freezes-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".txt"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        try (Writer writer = new FileWriter(chooser.getSelectedFile())) {
+            watchdog.dumpStalls(writer);
+        } catch (IOException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Could not save the stacks: " + e.getMessage(), "Diagnostics", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private static Object[] diagnosticsRow(String name, LatencyHistogram histogram) {
+        return new Object[]{name, histogram.getCount(),
+                LatencyHistogram.formatMillis(histogram.getValueAtPercentile(50.0)),
+                LatencyHistogram.formatMillis(histogram.getValueAtPercentile(99.0)),
+                LatencyHistogram.formatMillis(histogram.getMax())};
+    }
+
+    /**
+     * Writes the recent flight recording to a file chosen by the user, to be attached to a report of slowness.
+     */
+    private void savePerformanceRecording() {
+        if (!GradeBookEvents.isRecording()) {
+            JOptionPane.showMessageDialog(this, "Performance recording is not available in this Java installation or was turned off.",
+                    "Performance Recording", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("gradebook-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".jfr"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            GradeBookEvents.dumpRecording(chooser.getSelectedFile().toPath());
+            JOptionPane.showMessageDialog(this, "Recording of the last 30 minutes saved to " + chooser.getSelectedFile() + ".",
+                    "Performance Recording", JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException | IllegalStateException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Could not save the recording: " + e.getMessage(), "Performance Recording", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     /**
      * Saves the GradeBook data to a file.
      */
     private void saveGradeBook() {
-        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(DATA_FILE))) {
-            out.writeObject(gradeBook);
+        try {
+            // Save a consistent copy of the latest version; the API may keep changing the GradeBook meanwhile
+            GradeBookStore.save(gradeBook.snapshot().toGradeBook(), new File(DATA_FILE));
+            if (history != null) {
+                history.flush();
+            }
             JOptionPane.showMessageDialog(this, "GradeBook data saved successfully.", "Save Successful", JOptionPane.INFORMATION_MESSAGE);
         } catch (IOException e) {
             e.printStackTrace();
@@ -1365,14 +1895,8 @@ public class GradeBookGUI extends JFrame {
      * Loads the GradeBook data from a file.
      */
     private void loadGradeBook() {
-        File dataFile = new File(DATA_FILE);
-        if (!dataFile.exists()) {
-            gradeBook = new GradeBook();
-            return;
-        }
-
-        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(DATA_FILE))) {
-            gradeBook = (GradeBook) in.readObject();
+        try {
+            gradeBook = GradeBookStore.load(new File(DATA_FILE));
         } catch (InvalidClassException e) {
             JOptionPane.showMessageDialog(this, "Data format is incompatible. Starting with a new GradeBook.", "Load Error", JOptionPane.ERROR_MESSAGE);
             gradeBook = new GradeBook();
@@ -1383,6 +1907,124 @@ public class GradeBookGUI extends JFrame {
         }
     }
 
+    /**
+     * Starts recording the current GradeBook in the grade history next to the data file, dropping the
+     * history older than {@code gradebook.historyDays} when the log is opened.
+     * The GradeBook still works without a history if the log cannot be opened.
+     */
+    private void attachHistory() {
+        try {
+            if (history == null) {
+                history = new GradeHistory(new File(DATA_FILE + ".history"), GradeHistory.DEFAULT_SNAPSHOT_INTERVAL);
+                history.setFailureHandler(e -> SwingUtilities.invokeLater(() -> historyFailed(e)));
+                long retentionDays = Long.getLong("gradebook.historyDays", GradeHistory.DEFAULT_RETENTION_DAYS);
+                history.compact(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays));
+            }
+            history.attach(gradeBook);
+        } catch (IOException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Could not open the grade history: " + e.getMessage(), "History Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Tells the user that a change could not be recorded in the grade history, then records again from
+     * the current grades.
+     *
+     * @param failure Why the change could not be written.
+     */
+    private void historyFailed(IOException failure) {
+        failure.printStackTrace();
+        JOptionPane.showMessageDialog(this, "A change could not be recorded in the grade history: " + failure.getCause().getMessage() +
+                "\nThe change itself was made; the history continues from the current grades.", "History Error", JOptionPane.WARNING_MESSAGE);
+        attachHistory();
+    }
+
+    /**
+     * Writes the rest of the grade history to disk before exiting.
+     */
+    private void closeHistory() {
+        if (history != null) {
+            try {
+                history.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Shows the classes, final grades and grades as they were at a date and time entered by the user.
+     */
+    private void viewGradesAsOf() {
+        if (history == null) {
+            JOptionPane.showMessageDialog(this, "The grade history is not available.");
+            return;
+        }
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        String whenStr = JOptionPane.showInputDialog(this, "Show grades as of (yyyy-MM-dd HH:mm):", format.format(new Date()));
+        if (whenStr == null) return;
+        try {
+            Date when = format.parse(whenStr.trim());
+            // Include every change made within the entered minute
+            GradeBook past = history.asOf(when.getTime() + 59999);
+
+            StringBuilder sb = new StringBuilder("Grades as of " + format.format(when) + ":\n\n");
+            if (past.getClasses().isEmpty()) {
+                sb.append("No classes recorded");
+                if (history.getStartTime() > when.getTime() + 59999) {
+                    sb.append(" (the history starts ").append(format.format(new Date(history.getStartTime()))).append(")");
+                }
+                sb.append(".\n");
+            }
+            for (ClassRecord classRecord : past.getClasses()) {
+                sb.append(classRecord.getName()).append(": ")
+                        .append(String.format("%.2f", classRecord.calculateFinalGrade())).append("% (")
+                        .append(classRecord.getLetterGrade()).append(")\n");
+                for (Category category : classRecord.getCategories()) {
+                    sb.append("  ").append(category.getName()).append(": ").append(category.getGrades()).append("\n");
+                }
+            }
+            JTextArea textArea = new JTextArea(sb.toString(), 20, 50);
+            textArea.setEditable(false);
+            JOptionPane.showMessageDialog(this, new JScrollPane(textArea), "Grade History", JOptionPane.INFORMATION_MESSAGE);
+        } catch (ParseException ex) {
+            JOptionPane.showMessageDialog(this, "Invalid date. Please use the format yyyy-MM-dd HH:mm.");
+        } catch (IOException | IllegalStateException ex) {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Could not read the grade history: " + ex.getMessage(), "History Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Starts the local HTTP API on a port chosen by the user, or stops it if it is running.
+     */
+    private void toggleLocalApi() {
+        if (apiServer.isRunning()) {
+            apiServer.stop();
+            localApiItem.setText("Start Local API...");
+            JOptionPane.showMessageDialog(this, "Local API stopped.", "Local API", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        String portStr = JOptionPane.showInputDialog(this, "Enter the port for the local API (localhost only):", "8765");
+        if (portStr == null) return;
+        try {
+            int port = Integer.parseInt(portStr.trim());
+            if (port < 0 || port > 65535) {
+                JOptionPane.showMessageDialog(this, "Port must be between 0 and 65535.");
+                return;
+            }
+            apiServer.start(port);
+            localApiItem.setText("Stop Local API");
+            JOptionPane.showMessageDialog(this, "Local API running at http://localhost:" + apiServer.getPort() + "/classes", "Local API", JOptionPane.INFORMATION_MESSAGE);
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Invalid input. Please enter a valid port number.");
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Could not start the local API: " + ex.getMessage(), "Local API", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     /**
      * Handles application exit by prompting the user to save changes.
      */
@@ -1390,8 +2032,12 @@ public class GradeBookGUI extends JFrame {
         int confirm = JOptionPane.showConfirmDialog(this, "Do you want to save changes before exiting?", "Exit", JOptionPane.YES_NO_CANCEL_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
             saveGradeBook();
+            apiServer.stop();
+            closeHistory();
             System.exit(0);
         } else if (confirm == JOptionPane.NO_OPTION) {
+            apiServer.stop();
+            closeHistory();
             System.exit(0);
         }
         // If CANCEL_OPTION, do nothing
@@ -1402,6 +2048,8 @@ public class GradeBookGUI extends JFrame {
      * @param args Command-line arguments (not used).
      */
     public static void main(String[] args) {
+        // Records in the background so a slow session can be saved afterwards; disable with -Dgradebook.jfr=false
+        GradeBookEvents.startRecording();
         SwingUtilities.invokeLater(() -> new GradeBookGUI());
     }
 
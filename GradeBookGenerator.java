@@ -0,0 +1,417 @@
+// GradeBookGenerator.java
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+/**
+ * Generates synthetic GradeBooks for load and scale testing.
+ * The output depends only on the seed and the settings: every class is drawn from its own random stream
+ * derived from the seed and its position, so the same settings always produce the same classes, whether
+ * they are built in memory with {@link #generate()} or streamed as CSV with {@link #writeCsv(Writer)}.
+ * Streaming keeps only the current category's settings in memory, so it scales to tens of millions of
+ * grades; the CSV can then be loaded with {@code GradeBookBatch import}.
+ * <p>
+ * Grades are drawn around a per-class mean with a per-category offset, rounded to half points, with an
+ * occasional missed assignment scored as zero.
+ */
+public class GradeBookGenerator {
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java GradeBookGenerator [options] [--csv <file>|- | --data <file>]",
+            "  --seed <n>                  Random seed (default 1)",
+            "  --classes <n>               Number of classes (default 10)",
+            "  --categories <min>-<max>    Categories per class (default 3-6)",
+            "  --grades <min>-<max>        Grades per category (default 3-25)",
+            "  --mean <percent>            Average grade (default 82)",
+            "  --stddev <percent>          Spread of grades within a category (default 9)",
+            "  --max-drops <n>             Most lowest grades dropped per category (default 2)",
+            "  --equal-weights             Weigh the categories of a class equally",
+            "  --extra-credit <chance>     Share of classes with extra credit (default 0.2)",
+            "  --rounding <chance>         Share of classes that round final grades (default 0.5)",
+            "  --custom-scale <chance>     Share of classes with a non-default grading scale (default 0.3)",
+            "Without --csv or --data, CSV is written to standard output.");
+
+    private static final String[] SUBJECTS = {"MATH", "PHYS", "CHEM", "BIOL", "HIST", "ENGL", "COMP", "ECON", "PSYC", "PHIL"};
+    private static final String[] CATEGORIES = {"Homework", "Quizzes", "Labs", "Projects", "Midterms", "Final Exam", "Participation", "Essays"};
+    private static final String[] LETTERS = {"A", "A-", "B+", "B", "B-", "C+", "C", "C-", "D+", "D", "D-"};
+
+    private final long seed;
+    private int classes = 10;
+    private int minCategories = 3;
+    private int maxCategories = 6;
+    private int minGrades = 3;
+    private int maxGrades = 25;
+    private double gradeMean = 82.0;
+    private double gradeStdDev = 9.0;
+    private int maxDrops = 2;
+    private boolean equalWeights;
+    private double extraCreditChance = 0.2;
+    private double roundingChance = 0.5;
+    private double customScaleChance = 0.3;
+
+    /**
+     * Receives the generated data in order: each class, then each of its categories followed by its grades.
+     */
+    private interface Sink {
+        void beginClass(String name, boolean usesRounding, double roundingThreshold, double extraCredit, GradingScale gradingScale) throws IOException;
+
+        void beginCategory(String className, String name, double weight, int numGradesDropped) throws IOException;
+
+        void grade(String className, String categoryName, double grade) throws IOException;
+
+        void endClass() throws IOException;
+    }
+
+    /**
+     * @param seed The seed all generated data is derived from.
+     */
+    public GradeBookGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public GradeBookGenerator classes(int classes) {
+        if (classes < 0) {
+            throw new IllegalArgumentException("Number of classes cannot be negative.");
+        }
+        this.classes = classes;
+        return this;
+    }
+
+    public GradeBookGenerator categories(int min, int max) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("Categories per class must be a range of at least 1.");
+        }
+        this.minCategories = min;
+        this.maxCategories = max;
+        return this;
+    }
+
+    public GradeBookGenerator grades(int min, int max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Grades per category must be a range of at least 0.");
+        }
+        this.minGrades = min;
+        this.maxGrades = max;
+        return this;
+    }
+
+    /**
+     * @param mean   The average grade in percent.
+     * @param stdDev The standard deviation of grades within a category.
+     */
+    public GradeBookGenerator gradeDistribution(double mean, double stdDev) {
+        if (mean < 0.0 || mean > 100.0 || stdDev < 0.0) {
+            throw new IllegalArgumentException("Grade mean must be between 0 and 100 and the deviation cannot be negative.");
+        }
+        this.gradeMean = mean;
+        this.gradeStdDev = stdDev;
+        return this;
+    }
+
+    /**
+     * @param maxDrops The most lowest grades a category drops; each category drops between 0 and this many.
+     */
+    public GradeBookGenerator maxDrops(int maxDrops) {
+        if (maxDrops < 0) {
+            throw new IllegalArgumentException("Number of dropped grades cannot be negative.");
+        }
+        this.maxDrops = maxDrops;
+        return this;
+    }
+
+    /**
+     * @param equalWeights True to weigh the categories of a class equally, false for random weights summing to 100.
+     */
+    public GradeBookGenerator equalWeights(boolean equalWeights) {
+        this.equalWeights = equalWeights;
+        return this;
+    }
+
+    public GradeBookGenerator extraCreditChance(double chance) {
+        this.extraCreditChance = requireChance(chance);
+        return this;
+    }
+
+    public GradeBookGenerator roundingChance(double chance) {
+        this.roundingChance = requireChance(chance);
+        return this;
+    }
+
+    public GradeBookGenerator customScaleChance(double chance) {
+        this.customScaleChance = requireChance(chance);
+        return this;
+    }
+
+    private static double requireChance(double chance) {
+        if (chance < 0.0 || chance > 1.0) {
+            throw new IllegalArgumentException("A chance must be between 0 and 1.");
+        }
+        return chance;
+    }
+
+    /**
+     * Builds the generated classes in memory.
+     *
+     * @return A new GradeBook.
+     */
+    public GradeBook generate() {
+        GradeBook gradeBook = new GradeBook();
+        Sink sink = new Sink() {
+            private ClassRecord classRecord;
+            private Category category;
+
+            @Override
+            public void beginClass(String name, boolean usesRounding, double roundingThreshold, double extraCredit, GradingScale gradingScale) {
+                classRecord = new ClassRecord(name, gradingScale, usesRounding, roundingThreshold);
+                classRecord.setExtraCredit(extraCredit);
+            }
+
+            @Override
+            public void beginCategory(String className, String name, double weight, int numGradesDropped) {
+                category = new Category(name, weight, numGradesDropped);
+                classRecord.addCategory(category);
+            }
+
+            @Override
+            public void grade(String className, String categoryName, double grade) {
+                category.addGrade(grade);
+            }
+
+            @Override
+            public void endClass() {
+                // Built before it is added, so building it fires nothing; adding it fires the class, its categories
+                // and their grades as one burst, with the class locked throughout
+                gradeBook.addClass(classRecord);
+            }
+        };
+        try {
+            generate(sink);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // The in-memory sink does no I/O
+        }
+        return gradeBook;
+    }
+
+    /**
+     * Streams the generated classes as CSV records in the format of {@link GradeBookStore#importCsv}.
+     *
+     * @param writer Destination of the records; it is flushed but not closed.
+     * @return The number of grades written.
+     */
+    public long writeCsv(Writer writer) throws IOException {
+        BufferedWriter out = writer instanceof BufferedWriter ? (BufferedWriter) writer : new BufferedWriter(writer, 1 << 16);
+        long[] gradesWritten = {0};
+        out.write("# generated by GradeBookGenerator, seed " + seed);
+        out.newLine();
+        generate(new Sink() {
+            @Override
+            public void beginClass(String name, boolean usesRounding, double roundingThreshold, double extraCredit, GradingScale gradingScale) throws IOException {
+                GradeBookStore.writeClass(out, name, usesRounding, roundingThreshold, extraCredit, gradingScale);
+            }
+
+            @Override
+            public void beginCategory(String className, String name, double weight, int numGradesDropped) throws IOException {
+                GradeBookStore.writeCategory(out, className, name, weight, numGradesDropped);
+            }
+
+            @Override
+            public void grade(String className, String categoryName, double grade) throws IOException {
+                GradeBookStore.writeGrade(out, className, categoryName, grade);
+                gradesWritten[0]++;
+            }
+
+            @Override
+            public void endClass() {
+            }
+        });
+        out.flush();
+        return gradesWritten[0];
+    }
+
+    private void generate(Sink sink) throws IOException {
+        for (int i = 0; i < classes; i++) {
+            generateClass(i, sink);
+        }
+    }
+
+    private void generateClass(int index, Sink sink) throws IOException {
+        // Independent of the other classes, so any class can be regenerated on its own
+        SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + index);
+        String className = SUBJECTS[index % SUBJECTS.length] + " " + (101 + index / SUBJECTS.length);
+        boolean usesRounding = random.nextDouble() < roundingChance;
+        double roundingThreshold = usesRounding ? 0.5 : 0.0;
+        double extraCredit = random.nextDouble() < extraCreditChance ? 0.5 * (1 + random.nextInt(10)) : 0.0;
+        GradingScale gradingScale = random.nextDouble() < customScaleChance ? randomScale(random) : GradingScale.defaultScale();
+        sink.beginClass(className, usesRounding, roundingThreshold, extraCredit, gradingScale);
+
+        int categoryCount = minCategories + random.nextInt(maxCategories - minCategories + 1);
+        double[] weights = randomWeights(random, categoryCount);
+        double classMean = gradeMean + random.nextGaussian() * 5.0;
+        for (int c = 0; c < categoryCount; c++) {
+            String categoryName = c < CATEGORIES.length ? CATEGORIES[c] : "Category " + (c + 1);
+            int gradeCount = minGrades + random.nextInt(maxGrades - minGrades + 1);
+            int drops = Math.min(random.nextInt(maxDrops + 1), Math.max(0, gradeCount - 1));
+            sink.beginCategory(className, categoryName, weights[c], drops);
+
+            double categoryMean = classMean + random.nextGaussian() * 4.0;
+            for (int g = 0; g < gradeCount; g++) {
+                double grade = random.nextDouble() < 0.02 ? 0.0 : categoryMean + random.nextGaussian() * gradeStdDev;
+                sink.grade(className, categoryName, Math.round(Math.max(0.0, Math.min(100.0, grade)) * 2.0) / 2.0);
+            }
+        }
+        sink.endClass();
+    }
+
+    /**
+     * Returns category weights in half percent steps that add up to exactly 100.
+     */
+    private double[] randomWeights(SplittableRandom random, int count) {
+        double[] shares = new double[count];
+        double total = 0.0;
+        for (int i = 0; i < count; i++) {
+            shares[i] = equalWeights ? 1.0 : 0.5 + random.nextDouble();
+            total += shares[i];
+        }
+        double[] weights = new double[count];
+        double assigned = 0.0;
+        for (int i = 0; i < count - 1; i++) {
+            weights[i] = Math.round(shares[i] / total * 200.0) / 2.0;
+            assigned += weights[i];
+        }
+        weights[count - 1] = 100.0 - assigned;
+        return weights;
+    }
+
+    /**
+     * Returns a scale that moves the default cutoffs up or down and spaces them a little differently.
+     */
+    private static GradingScale randomScale(SplittableRandom random) {
+        TreeMap<Double, String> scaleMap = new TreeMap<>(Collections.reverseOrder());
+        double cutoff = 90.0 + random.nextInt(7);
+        double step = 2.5 + random.nextInt(3) * 0.5;
+        for (String letter : LETTERS) {
+            scaleMap.put(cutoff, letter);
+            cutoff -= step;
+        }
+        scaleMap.put(0.0, "F");
+        return GradingScale.of(scaleMap);
+    }
+
+    public static void main(String[] args) {
+        GradeBookGenerator generator = null;
+        File csvFile = null;
+        File dataFile = null;
+        try {
+            long seed = 1;
+            for (int i = 0; i < args.length; i++) {
+                if ("--seed".equals(args[i]) && i + 1 < args.length) {
+                    seed = Long.parseLong(args[i + 1]);
+                }
+            }
+            generator = new GradeBookGenerator(seed);
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if ("--equal-weights".equals(option)) {
+                    generator.equalWeights(true);
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException(option + " requires a value");
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--seed":
+                        break;
+                    case "--classes":
+                        generator.classes(Integer.parseInt(value));
+                        break;
+                    case "--categories":
+                        int[] categories = parseRange(value);
+                        generator.categories(categories[0], categories[1]);
+                        break;
+                    case "--grades":
+                        int[] grades = parseRange(value);
+                        generator.grades(grades[0], grades[1]);
+                        break;
+                    case "--mean":
+                        generator.gradeDistribution(Double.parseDouble(value), generator.gradeStdDev);
+                        break;
+                    case "--stddev":
+                        generator.gradeDistribution(generator.gradeMean, Double.parseDouble(value));
+                        break;
+                    case "--max-drops":
+                        generator.maxDrops(Integer.parseInt(value));
+                        break;
+                    case "--extra-credit":
+                        generator.extraCreditChance(Double.parseDouble(value));
+                        break;
+                    case "--rounding":
+                        generator.roundingChance(Double.parseDouble(value));
+                        break;
+                    case "--custom-scale":
+                        generator.customScaleChance(Double.parseDouble(value));
+                        break;
+                    case "--csv":
+                        csvFile = "-".equals(value) ? null : new File(value);
+                        break;
+                    case "--data":
+                        dataFile = new File(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + option);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        try {
+            long start = System.nanoTime();
+            long grades;
+            if (dataFile != null) {
+                // The data file is one serialized object graph, so this path needs the whole GradeBook in memory
+                GradeBook gradeBook = generator.generate();
+                GradeBookStore.save(gradeBook, dataFile);
+                grades = 0;
+                for (GradeBookSnapshot.ClassSnapshot classSnapshot : gradeBook.snapshot().getClasses()) {
+                    for (GradeBookSnapshot.CategorySnapshot category : classSnapshot.getCategories()) {
+                        grades += category.getGradeCount();
+                    }
+                }
+            } else if (csvFile != null) {
+                try (Writer writer = new OutputStreamWriter(new FileOutputStream(csvFile), StandardCharsets.UTF_8)) {
+                    grades = generator.writeCsv(writer);
+                }
+            } else {
+                Writer writer = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+                grades = generator.writeCsv(writer);
+            }
+            System.err.printf("Generated %d classes with %d grades in %d ms%n", generator.classes, grades,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static int[] parseRange(String text) {
+        int dash = text.indexOf('-');
+        try {
+            if (dash < 0) {
+                int value = Integer.parseInt(text);
+                return new int[]{value, value};
+            }
+            return new int[]{Integer.parseInt(text.substring(0, dash)), Integer.parseInt(text.substring(dash + 1))};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid range '" + text + "', expected <min>-<max>");
+        }
+    }
+}
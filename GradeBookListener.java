@@ -0,0 +1,12 @@
+// GradeBookListener.java
+
+/**
+ * Receives every change made to a GradeBook, its classes and their categories.
+ * Listeners are called on the thread that made the change while it still holds the lock of the
+ * changed class (or of the GradeBook), so events of one class arrive in order. Listeners must be
+ * quick and must not lock other classes.
+ */
+public interface GradeBookListener {
+
+    void gradeBookChanged(GradeEvent event);
+}
@@ -0,0 +1,256 @@
+// GradeBookReport.java
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Report cards for every class as one paginated HTML document: each class gets a page with its final
+ * grade, letter grade, category averages, grades, and what the next assignment of each category needs
+ * for the next letter grade (see {@link GradeSensitivity}).
+ * <p>
+ * The document is streamed: classes are rendered in batches, each batch in parallel, and written in the
+ * GradeBook's order while the next batch renders. At most two batches of pages are held in memory, however
+ * many classes there are. Each class is rendered under its read lock, so a page shows one consistent state.
+ * Pages break for printing, so printing the document to PDF from a browser gives one page per class.
+ */
+public final class GradeBookReport {
+    // Classes rendered at a time; large enough to keep every core busy, small enough to bound memory
+    private static final int BATCH_SIZE = Math.max(8, 4 * Runtime.getRuntime().availableProcessors());
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final String STYLE = String.join("\n",
+            "@page { size: letter; margin: 0.6in; }",
+            "body { font-family: sans-serif; font-size: 11pt; color: #222; }",
+            "section { break-after: page; page-break-after: always; }",
+            "section:last-of-type { break-after: auto; page-break-after: auto; }",
+            "header { display: flex; justify-content: space-between; align-items: baseline; border-bottom: 2px solid #444; }",
+            "h1, h2 { margin: 0.2em 0; }",
+            "h3 { margin: 1.2em 0 0.4em; }",
+            "table { border-collapse: collapse; width: 100%; page-break-inside: auto; }",
+            "tr { page-break-inside: avoid; }",
+            "th, td { border: 1px solid #999; padding: 3px 6px; text-align: left; vertical-align: top; }",
+            "th { background: #eee; }",
+            "td.number { text-align: right; white-space: nowrap; }",
+            ".summary { font-size: 13pt; }",
+            ".note { color: #666; }",
+            "@media screen { section { border-bottom: 1px dashed #aaa; margin-bottom: 2em; padding-bottom: 1em; } }");
+
+    private GradeBookReport() {
+    }
+
+    /**
+     * Writes the report of every class of a GradeBook.
+     *
+     * @return The number of classes written.
+     * @throws IOException If the writer fails; the document is then incomplete.
+     */
+    public static int write(GradeBook gradeBook, Writer writer) throws IOException {
+        return write(gradeBook.getClasses(), "Grade Report", writer);
+    }
+
+    /**
+     * Writes the report of some classes, one page per class in the order given.
+     *
+     * @param classes The classes.
+     * @param title   The title of the document.
+     * @param writer  Receives the document, flushed after every batch of pages; it is not closed.
+     * @return The number of classes written.
+     * @throws IOException If the writer fails; the document is then incomplete.
+     */
+    public static int write(List<ClassRecord> classes, String title, Writer writer) throws IOException {
+        return write(classes, title, writer, written -> {
+        });
+    }
+
+    /**
+     * Writes the report of some classes, reporting progress after every batch of pages. Interrupting the
+     * writing thread stops the report at the next batch.
+     *
+     * @param classes  The classes.
+     * @param title    The title of the document.
+     * @param writer   Receives the document, flushed after every batch of pages; it is not closed.
+     * @param progress Receives the number of pages written so far, in the writing thread.
+     * @return The number of classes written.
+     * @throws InterruptedIOException If the thread was interrupted; the document is then incomplete.
+     * @throws IOException            If the writer fails; the document is then incomplete.
+     */
+    public static int write(List<ClassRecord> classes, String title, Writer writer, IntConsumer progress) throws IOException {
+        BufferedWriter out = writer instanceof BufferedWriter ? (BufferedWriter) writer : new BufferedWriter(writer, BUFFER_SIZE);
+        int total = classes.size();
+        out.write("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n<meta charset=\"utf-8\">\n<title>");
+        out.write(escape(title));
+        out.write("</title>\n<style>\n");
+        out.write(STYLE);
+        out.write("\n</style>\n</head>\n<body>\n<section>\n<h1>");
+        out.write(escape(title));
+        out.write("</h1>\n<p>");
+        out.write(String.format(Locale.ROOT, "%d %s, generated %s.", total, total == 1 ? "class" : "classes",
+                new SimpleDateFormat("yyyy-MM-dd HH:mm").format(new Date())));
+        out.write("</p>\n</section>\n");
+
+        CompletableFuture<List<String>> next = total > 0 ? renderBatch(classes, 0) : null;
+        for (int from = 0; from < total; from += BATCH_SIZE) {
+            List<String> pages = join(next);
+            // Render the following batch while this one is written
+            next = from + BATCH_SIZE < total ? renderBatch(classes, from + BATCH_SIZE) : null;
+            for (String page : pages) {
+                out.write(page);
+            }
+            out.flush();
+            progress.accept(from + pages.size());
+            if (Thread.interrupted()) {
+                throw new InterruptedIOException("The report was cancelled after " + (from + pages.size()) + " of " + total + " classes");
+            }
+        }
+        out.write("</body>\n</html>\n");
+        out.flush();
+        return total;
+    }
+
+    private static CompletableFuture<List<String>> renderBatch(List<ClassRecord> classes, int from) {
+        int to = Math.min(classes.size(), from + BATCH_SIZE);
+        return CompletableFuture.supplyAsync(() -> IntStream.range(from, to).parallel()
+                .mapToObj(i -> renderPage(classes.get(i), i + 1, classes.size()))
+                .collect(Collectors.toList()));
+    }
+
+    private static List<String> join(CompletableFuture<List<String>> batch) {
+        try {
+            return batch.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Renders the page of one class in one consistent state of the class.
+     *
+     * @param number The position of the class in the report, from 1.
+     * @param total  The number of classes in the report.
+     */
+    static String renderPage(ClassRecord classRecord, int number, int total) {
+        return classRecord.withReadLock(() -> renderPage(GradeBookSnapshot.ClassSnapshot.of(classRecord),
+                GradeSensitivity.analyze(classRecord), number, total));
+    }
+
+    private static String renderPage(GradeBookSnapshot.ClassSnapshot classSnapshot, List<GradeSensitivity.Result> sensitivity,
+                                     int number, int total) {
+        StringBuilder sb = new StringBuilder(2048);
+        sb.append("<section>\n<header><h2>").append(escape(classSnapshot.getName())).append("</h2><span>Class ")
+                .append(number).append(" of ").append(total).append("</span></header>\n");
+
+        double finalGrade = classSnapshot.getFinalGrade();
+        sb.append("<p class=\"summary\">Final grade <strong>").append(percent(finalGrade)).append("</strong> &middot; Letter <strong>")
+                .append(escape(classSnapshot.getLetterGrade())).append("</strong> &middot; ")
+                .append(number(classSnapshot.getCreditHours())).append(" credit hours</p>\n");
+        StringBuilder notes = new StringBuilder();
+        if (classSnapshot.getExtraCredit() != 0.0) {
+            notes.append("Includes ").append(number(classSnapshot.getExtraCredit())).append(" points of extra credit. ");
+        }
+        if (classSnapshot.isUsesRounding()) {
+            notes.append("Grades within ").append(number(classSnapshot.getRoundingThreshold()))
+                    .append(" points of a cutoff are rounded up. ");
+        }
+        if (!classSnapshot.hasGrades()) {
+            notes.append("No grades yet. ");
+        }
+        if (notes.length() > 0) {
+            sb.append("<p class=\"note\">").append(notes.toString().trim()).append("</p>\n");
+        }
+
+        List<GradeBookSnapshot.CategorySnapshot> categories = classSnapshot.getCategories();
+        sb.append("<h3>Categories</h3>\n");
+        if (categories.isEmpty()) {
+            sb.append("<p class=\"note\">No categories.</p>\n");
+        } else {
+            sb.append("<table>\n<tr><th>Category</th><th>Weight</th><th>Dropped</th><th>Average</th><th>Grades</th></tr>\n");
+            for (GradeBookSnapshot.CategorySnapshot category : categories) {
+                sb.append("<tr><td>").append(escape(category.getName()))
+                        .append("</td><td class=\"number\">").append(number(category.getWeight())).append("%")
+                        .append("</td><td class=\"number\">").append(category.getNumGradesDropped())
+                        .append("</td><td class=\"number\">").append(category.hasGrades() ? percent(category.getAverage()) : "&ndash;")
+                        .append("</td><td>");
+                for (int g = 0; g < category.getGradeCount(); g++) {
+                    if (g > 0) {
+                        sb.append(", ");
+                    }
+                    double possible = category.getPointsPossible(g);
+                    if (possible == 100.0) {
+                        sb.append(number(category.getPointsEarned(g)));
+                    } else {
+                        sb.append(number(category.getPointsEarned(g))).append('/').append(number(possible));
+                    }
+                }
+                sb.append("</td></tr>\n");
+            }
+            sb.append("</table>\n");
+        }
+
+        sb.append("<h3>Needed Grades</h3>\n");
+        GradeSensitivity.Result first = sensitivity.isEmpty() ? null : sensitivity.get(0);
+        if (first == null) {
+            sb.append("<p class=\"note\">No categories to grade.</p>\n");
+        } else if (first.getNextLetter() == null) {
+            sb.append("<p>The class has the highest letter grade.</p>\n");
+        } else {
+            sb.append("<p>").append(number(first.getDistance())).append(" points to ")
+                    .append(escape(first.getNextLetter())).append(". The score the next assignment of each category needs to get there on its own:</p>\n");
+            sb.append("<table>\n<tr><th>Category</th><th>Expected score</th><th>Final grade per point</th><th>Needed score</th></tr>\n");
+            for (GradeSensitivity.Result result : sensitivity) {
+                sb.append("<tr><td>").append(escape(result.getCategoryName()))
+                        .append("</td><td class=\"number\">").append(percent(result.getExpectedScore()))
+                        .append("</td><td class=\"number\">").append(String.format(Locale.ROOT, "%.3f", result.getImpact()))
+                        .append("</td><td class=\"number\">");
+                if (!Double.isNaN(result.getNeededScore())) {
+                    sb.append(percent(result.getNeededScore()));
+                } else {
+                    sb.append(result.getNote() != null ? escape(result.getNote()) : "Out of reach");
+                }
+                sb.append("</td></tr>\n");
+            }
+            sb.append("</table>\n");
+        }
+        return sb.append("</section>\n").toString();
+    }
+
+    private static String percent(double value) {
+        return String.format(Locale.ROOT, "%.2f%%", value);
+    }
+
+    /**
+     * @return The number with at most two decimals and no trailing zeros, e.g. "92.5" or "18".
+     */
+    private static String number(double value) {
+        String text = String.format(Locale.ROOT, "%.2f", value);
+        return text.contains(".") ? text.replaceAll("\\.?0+$", "") : text;
+    }
+
+    static String escape(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&': sb.append("&amp;"); break;
+                case '<': sb.append("&lt;"); break;
+                case '>': sb.append("&gt;"); break;
+                case '"': sb.append("&quot;"); break;
+                case '\'': sb.append("&#39;"); break;
+                default: sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,299 @@
+// GradeBookSearchIndex.java
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Search index over the class and category names of a GradeBook.
+ * Names are indexed by word prefix (for short queries) and by trigram (for substring queries),
+ * and each entry caches its average, final grade and letter so that numeric filters such as
+ * "avg < 70" or "letter = B-" never recompute grades while the user types.
+ * The index is maintained per class: call update() after a class changes and remove() after it is deleted.
+ */
+public class GradeBookSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private static final Pattern NUMERIC_FILTER = Pattern.compile("\\b(avg|final)\\s*(<=|>=|!=|=|<|>)\\s*(\\d+(?:\\.\\d+)?)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern LETTER_FILTER = Pattern.compile("\\bletter\\s*(!=|=)\\s*([A-Za-z][+-]?)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * One searchable row: a class (category == null) or one of its categories.
+     */
+    private static class Entry {
+        final ClassRecord classRecord;
+        final Category category;
+        final String nameKey;
+        final boolean hasAverage;
+        final double average; // Category average, or the final grade for class entries
+        final double finalGrade;
+        final String letterGrade;
+        int matchedQuery; // Number of the last query whose text matched this entry
+
+        Entry(ClassRecord classRecord, Category category, double finalGrade, String letterGrade) {
+            this.classRecord = classRecord;
+            this.category = category;
+            this.finalGrade = finalGrade;
+            this.letterGrade = letterGrade;
+            if (category == null) {
+                this.nameKey = classRecord.getName().toLowerCase(Locale.ROOT);
+                this.hasAverage = true;
+                this.average = finalGrade;
+            } else {
+                this.nameKey = category.getName().toLowerCase(Locale.ROOT);
+                this.hasAverage = category.hasGrades();
+                this.average = category.calculateAverage();
+            }
+        }
+    }
+
+    /**
+     * A single "field op value" clause parsed from the query.
+     */
+    private static class Filter {
+        final String field;
+        final String op;
+        final double number;
+        final String letter;
+
+        Filter(String field, String op, double number, String letter) {
+            this.field = field;
+            this.op = op;
+            this.number = number;
+            this.letter = letter;
+        }
+
+        boolean matches(Entry entry) {
+            if ("letter".equals(field)) {
+                boolean equal = entry.letterGrade.equalsIgnoreCase(letter);
+                return "=".equals(op) == equal;
+            }
+            if ("avg".equals(field) && !entry.hasAverage) {
+                return false;
+            }
+            double value = "final".equals(field) ? entry.finalGrade : entry.average;
+            switch (op) {
+                case "<": return value < number;
+                case "<=": return value <= number;
+                case ">": return value > number;
+                case ">=": return value >= number;
+                case "=": return Math.abs(value - number) < 0.005;
+                default: return Math.abs(value - number) >= 0.005;
+            }
+        }
+    }
+
+    // Entries per class, in the order the classes were indexed
+    private final LinkedHashMap<ClassRecord, List<Entry>> entriesByClass = new LinkedHashMap<>();
+    // Word prefix lookups for queries shorter than a trigram
+    private final TreeMap<String, Set<Entry>> words = new TreeMap<>();
+    // Trigram -> entries whose name contains it
+    private final HashMap<String, Set<Entry>> grams = new HashMap<>();
+    private int queryCount;
+
+    /**
+     * Discards the index and indexes every class of the GradeBook.
+     *
+     * @param gradeBook The GradeBook to index.
+     */
+    public void rebuild(GradeBook gradeBook) {
+        entriesByClass.clear();
+        words.clear();
+        grams.clear();
+        for (ClassRecord classRecord : gradeBook.getClasses()) {
+            update(classRecord);
+        }
+    }
+
+    /**
+     * Re-indexes a single class after it was added or changed.
+     *
+     * @param classRecord The class to (re-)index.
+     */
+    public void update(ClassRecord classRecord) {
+        List<Entry> old = entriesByClass.get(classRecord);
+        if (old != null) {
+            unindex(old);
+        }
+
+        double finalGrade = classRecord.calculateFinalGrade();
+        String letterGrade = classRecord.getGradingScale().getLetterGrade(finalGrade);
+        List<Entry> entries = new ArrayList<>();
+        entries.add(new Entry(classRecord, null, finalGrade, letterGrade));
+        for (Category category : classRecord.getCategories()) {
+            entries.add(new Entry(classRecord, category, finalGrade, letterGrade));
+        }
+        for (Entry entry : entries) {
+            for (String word : entry.nameKey.split("\\s+")) {
+                if (!word.isEmpty()) {
+                    words.computeIfAbsent(word, k -> new HashSet<>()).add(entry);
+                }
+            }
+            for (String gram : gramsOf(entry.nameKey)) {
+                grams.computeIfAbsent(gram, k -> new HashSet<>()).add(entry);
+            }
+        }
+        // put() keeps the original position of a class that is already indexed
+        entriesByClass.put(classRecord, entries);
+    }
+
+    /**
+     * Removes a class from the index after it was deleted.
+     *
+     * @param classRecord The deleted class.
+     */
+    public void remove(ClassRecord classRecord) {
+        List<Entry> old = entriesByClass.remove(classRecord);
+        if (old != null) {
+            unindex(old);
+        }
+    }
+
+    /**
+     * Searches the index.
+     * The query may mix free text (matched against class and category names) with filters such as
+     * "avg &lt; 70", "final &gt;= 90" or "letter = B-". All parts must match.
+     * A class whose name matches is returned with all of its categories; otherwise only the
+     * matching categories are returned.
+     *
+     * @param query The search text.
+     * @return The matching classes, in GradeBook order, mapped to the categories to show.
+     */
+    public LinkedHashMap<ClassRecord, List<Category>> search(String query) {
+        List<Filter> filters = new ArrayList<>();
+        String text = parseFilters(query, filters).trim().toLowerCase(Locale.ROOT);
+
+        // Entries whose name matches are stamped with the query number instead of being copied into a set
+        int queryNumber = ++queryCount;
+        boolean byName = !text.isEmpty();
+        LinkedHashMap<ClassRecord, List<Category>> result = new LinkedHashMap<>();
+        if (byName && markNameMatches(text, queryNumber) == 0) {
+            return result;
+        }
+
+        for (Map.Entry<ClassRecord, List<Entry>> classEntries : entriesByClass.entrySet()) {
+            List<Entry> entries = classEntries.getValue();
+            Entry classEntry = entries.get(0);
+            boolean classMatches = (!byName || classEntry.matchedQuery == queryNumber) && matchesAll(classEntry, filters);
+
+            if (classMatches) {
+                result.put(classEntries.getKey(), classEntries.getKey().getCategories());
+                continue;
+            }
+            List<Category> shown = null;
+            for (int i = 1; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                if ((!byName || entry.matchedQuery == queryNumber) && matchesAll(entry, filters)) {
+                    if (shown == null) {
+                        shown = new ArrayList<>();
+                    }
+                    shown.add(entry.category);
+                }
+            }
+            if (shown != null) {
+                result.put(classEntries.getKey(), shown);
+            }
+        }
+        return result;
+    }
+
+    private void unindex(List<Entry> entries) {
+        for (Entry entry : entries) {
+            for (String word : entry.nameKey.split("\\s+")) {
+                removePosting(words, word, entry);
+            }
+            for (String gram : gramsOf(entry.nameKey)) {
+                removePosting(grams, gram, entry);
+            }
+        }
+    }
+
+    private static void removePosting(Map<String, Set<Entry>> postings, String key, Entry entry) {
+        Set<Entry> set = postings.get(key);
+        if (set != null) {
+            set.remove(entry);
+            if (set.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Stamps the entries whose name contains the text (or has a word starting with it, for short text).
+     *
+     * @return The number of matching entries.
+     */
+    private int markNameMatches(String text, int query) {
+        int count = 0;
+        if (text.length() < GRAM_LENGTH) {
+            for (Set<Entry> set : words.subMap(text, true, text + Character.MAX_VALUE, true).values()) {
+                for (Entry entry : set) {
+                    entry.matchedQuery = query;
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        // Intersect the postings of every trigram, starting from the rarest one
+        List<Set<Entry>> postings = new ArrayList<>();
+        for (String gram : gramsOf(text)) {
+            Set<Entry> set = grams.get(gram);
+            if (set == null) {
+                return 0;
+            }
+            postings.add(set);
+        }
+        postings.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        for (Entry entry : postings.get(0)) {
+            // Trigrams can match out of order, so confirm the substring
+            if (entry.nameKey.contains(text)) {
+                entry.matchedQuery = query;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean matchesAll(Entry entry, List<Filter> filters) {
+        for (Filter filter : filters) {
+            if (!filter.matches(entry)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Extracts the filter clauses from the query and returns the remaining free text.
+     */
+    private static String parseFilters(String query, List<Filter> filters) {
+        Matcher numeric = NUMERIC_FILTER.matcher(query);
+        while (numeric.find()) {
+            filters.add(new Filter(numeric.group(1).toLowerCase(Locale.ROOT), numeric.group(2), Double.parseDouble(numeric.group(3)), null));
+        }
+        String rest = numeric.replaceAll(" ");
+
+        Matcher letter = LETTER_FILTER.matcher(rest);
+        while (letter.find()) {
+            filters.add(new Filter("letter", letter.group(1), 0.0, letter.group(2)));
+        }
+        return letter.replaceAll(" ");
+    }
+
+    private static Set<String> gramsOf(String text) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            result.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return result;
+    }
+}
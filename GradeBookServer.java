@@ -0,0 +1,368 @@
+// GradeBookServer.java
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Optional embedded HTTP/JSON API so local tools can query and update grades while the gradebook runs.
+ * It listens on the loopback interface only and serves each request on its own virtual thread when the
+ * JDK supports them (Java 21+), falling back to a cached thread pool on older JDKs.
+ * <p>
+ * Endpoints:
+ * <pre>
+ * GET  /classes                                        All classes with final grades and category averages
+ * GET  /classes/{class}                                One class, including its grades
+ * GET  /classes/{class}/needed?letter=B&amp;remaining=2,1  Needed-grades scenarios
+ * POST /classes/{class}/categories/{category}/grades   Adds the grade in the request body, e.g. "92.5" or "18/20"
+ * GET  /gpa                                            Term and cumulative GPA
+ * GET  /gpa?class=Math&amp;finalGrade=88.5                 The same, with the GPA if that class ended at that grade
+ * GET  /report                                         Report cards of every class as a paginated HTML document
+ * </pre>
+ * Reads run on the request thread. Mutations are handed to the mutation executor (the Swing event thread
+ * in the GUI) so they never race with dialogs; the request thread waits for them, the UI does not.
+ * If the executor has not run a mutation within 10 seconds the request fails with 503, but the mutation
+ * is not cancelled and may still be applied later, so clients should read the class before retrying.
+ */
+public class GradeBookServer {
+    static final long MUTATION_TIMEOUT_MILLIS = 10_000;
+
+    private final Supplier<GradeBook> gradeBookSupplier;
+    private final Executor mutationExecutor;
+    private final long mutationTimeoutMillis;
+
+    private HttpServer server;
+    private ExecutorService requestExecutor;
+    // Follows the supplied GradeBook, so GPA requests only recompute the classes changed since the last one
+    private final GpaTracker gpaTracker = new GpaTracker();
+    private GradeBook trackedGradeBook;
+
+    /**
+     * Creates a server; call start() to begin listening.
+     *
+     * @param gradeBookSupplier Supplies the current GradeBook (it may be replaced, e.g. by Delete All Data).
+     * @param mutationExecutor  Runs every mutation, one at a time.
+     */
+    public GradeBookServer(Supplier<GradeBook> gradeBookSupplier, Executor mutationExecutor) {
+        this(gradeBookSupplier, mutationExecutor, MUTATION_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param mutationTimeoutMillis How long a request waits for its mutation before failing with 503.
+     */
+    GradeBookServer(Supplier<GradeBook> gradeBookSupplier, Executor mutationExecutor, long mutationTimeoutMillis) {
+        this.gradeBookSupplier = gradeBookSupplier;
+        this.mutationExecutor = mutationExecutor;
+        this.mutationTimeoutMillis = mutationTimeoutMillis;
+    }
+
+    /**
+     * Starts listening on the loopback interface.
+     *
+     * @param port The port, or 0 for an ephemeral port.
+     */
+    public synchronized void start(int port) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Server is already running on port " + getPort());
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        requestExecutor = newRequestExecutor();
+        server.setExecutor(requestExecutor);
+        server.createContext("/classes", this::handle);
+        server.createContext("/gpa", this::handleGpa);
+        server.createContext("/report", this::handleReport);
+        server.start();
+    }
+
+    /**
+     * Stops the server, waiting at most a second for requests in progress.
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(1);
+            requestExecutor.shutdown();
+            server = null;
+            requestExecutor = null;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    public synchronized int getPort() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    /**
+     * Returns a virtual-thread-per-task executor when available, else a cached thread pool.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "gradebook-api");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            List<String> path = pathSegments(exchange.getRequestURI());
+            String method = exchange.getRequestMethod();
+            GradeBook gradeBook = gradeBookSupplier.get();
+
+            // Reads use the latest published snapshot, so they never wait for or block the GUI's changes
+            if (path.size() == 1 && "GET".equals(method)) {
+                respond(exchange, 200, classesJson(gradeBook.snapshot()));
+                return;
+            }
+            if (path.size() == 2 && "GET".equals(method)) {
+                GradeBookSnapshot.ClassSnapshot classSnapshot = gradeBook.snapshot().getClassByName(path.get(1));
+                if (classSnapshot == null) {
+                    respondError(exchange, 404, "Class not found");
+                } else {
+                    respond(exchange, 200, classDetailJson(classSnapshot));
+                }
+                return;
+            }
+            ClassRecord classRecord = path.size() >= 2 ? gradeBook.getClassByName(path.get(1)) : null;
+            if (classRecord == null) {
+                respondError(exchange, 404, "Class not found");
+                return;
+            }
+
+            if (path.size() == 3 && "needed".equals(path.get(2)) && "GET".equals(method)) {
+                Map<String, String> query = queryParameters(exchange.getRequestURI());
+                String letter = query.get("letter");
+                if (letter == null) {
+                    respondError(exchange, 400, "Missing 'letter' parameter");
+                    return;
+                }
+                int[] remaining = GradeBookBatch.parseRemaining(query.getOrDefault("remaining", "1"), classRecord.getCategories().size());
+                respond(exchange, 200, GradeBookBatch.neededJson(classRecord, letter, remaining));
+            } else if (path.size() == 5 && "categories".equals(path.get(2)) && "grades".equals(path.get(4)) && "POST".equals(method)) {
+                Category category = classRecord.getCategoryByName(path.get(3));
+                if (category == null) {
+                    respondError(exchange, 404, "Category not found");
+                    return;
+                }
+                // A percentage, or points as "earned/possible"
+                double[] grade = Category.parseGrade(readBody(exchange));
+                if (grade == null) {
+                    respondError(exchange, 400, "Grade must be between 0 and the points possible.");
+                    return;
+                }
+                String json = mutate(() -> {
+                    category.addGrade(grade[0], grade[1]);
+                    return GradeBookBatch.classJson(classRecord);
+                });
+                respond(exchange, 201, json);
+            } else {
+                respondError(exchange, 405, "Unsupported method or path");
+            }
+        } catch (IllegalArgumentException e) {
+            // Includes NumberFormatException from malformed grades or remaining counts
+            respondError(exchange, 400, e.getMessage());
+        } catch (TimeoutException e) {
+            // The mutation was not cancelled, so it may still be applied after this response
+            respondError(exchange, 503, "The gradebook is busy; the grade may still be added.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respondError(exchange, 503, "The server is stopping.");
+        } catch (Exception e) {
+            respondError(exchange, 500, String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleGpa(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod()) || pathSegments(exchange.getRequestURI()).size() != 1) {
+                respondError(exchange, 405, "Unsupported method or path");
+                return;
+            }
+            GpaTracker tracker = currentGpaTracker();
+            String json = GradeBookBatch.gpaJson(tracker);
+            Map<String, String> query = queryParameters(exchange.getRequestURI());
+            String className = query.get("class");
+            if (className != null) {
+                String finalGrade = query.get("finalGrade");
+                if (finalGrade == null) {
+                    respondError(exchange, 400, "Missing 'finalGrade' parameter");
+                    return;
+                }
+                double whatIf = tracker.whatIf(className, Double.parseDouble(finalGrade));
+                json = json.substring(0, json.length() - 1) + ",\"whatIfGpa\":" + Json.number(whatIf) + "}";
+            }
+            respond(exchange, 200, json);
+        } catch (IllegalArgumentException e) {
+            // Unknown classes and malformed grades
+            respondError(exchange, 400, e.getMessage());
+        } catch (Exception e) {
+            respondError(exchange, 500, String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleReport(HttpExchange exchange) throws IOException {
+        boolean started = false;
+        try {
+            if (!"GET".equals(exchange.getRequestMethod()) || pathSegments(exchange.getRequestURI()).size() != 1) {
+                respondError(exchange, 405, "Unsupported method or path");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            // Chunked: pages are sent as they are rendered instead of after the whole document
+            exchange.sendResponseHeaders(200, 0);
+            started = true;
+            try (Writer writer = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+                GradeBookReport.write(gradeBookSupplier.get(), writer);
+            }
+        } catch (IOException e) {
+            // The client went away; the response has started, so there is no error to send
+        } catch (Exception e) {
+            if (started) {
+                // The status is sent already; closing the exchange cuts the document short, which the client sees
+                e.printStackTrace();
+            } else {
+                respondError(exchange, 500, String.valueOf(e.getMessage()));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private synchronized GpaTracker currentGpaTracker() {
+        GradeBook gradeBook = gradeBookSupplier.get();
+        if (gradeBook != trackedGradeBook) {
+            gpaTracker.attach(gradeBook);
+            trackedGradeBook = gradeBook;
+        }
+        return gpaTracker;
+    }
+
+    /**
+     * Runs a mutation on the mutation executor and waits for its result. Whatever the mutation throws is
+     * rethrown unwrapped, so e.g. an IllegalArgumentException still answers 400.
+     *
+     * @throws TimeoutException If the mutation has not run in time; it is not cancelled and may still run.
+     */
+    private <T> T mutate(Supplier<T> mutation) throws InterruptedException, TimeoutException {
+        try {
+            return CompletableFuture.supplyAsync(mutation, mutationExecutor).get(mutationTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static String classesJson(GradeBookSnapshot snapshot) {
+        StringBuilder sb = new StringBuilder("[");
+        List<GradeBookSnapshot.ClassSnapshot> classes = snapshot.getClasses();
+        for (int i = 0; i < classes.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(GradeBookBatch.classJson(classes.get(i)));
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String classDetailJson(GradeBookSnapshot.ClassSnapshot classSnapshot) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"summary\":").append(GradeBookBatch.classJson(classSnapshot)).append(",\"grades\":{");
+        List<GradeBookSnapshot.CategorySnapshot> categories = classSnapshot.getCategories();
+        for (int i = 0; i < categories.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            GradeBookSnapshot.CategorySnapshot category = categories.get(i);
+            sb.append(Json.quote(category.getName())).append(":[");
+            for (int g = 0; g < category.getGradeCount(); g++) {
+                if (g > 0) {
+                    sb.append(',');
+                }
+                sb.append(Json.number(category.getGrade(g)));
+            }
+            sb.append(']');
+        }
+        return sb.append("}}").toString();
+    }
+
+    private static List<String> pathSegments(URI uri) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : uri.getRawPath().split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(URLDecoder.decode(segment, StandardCharsets.UTF_8));
+            }
+        }
+        return segments;
+    }
+
+    private static Map<String, String> queryParameters(URI uri) {
+        Map<String, String> parameters = new HashMap<>();
+        String rawQuery = uri.getRawQuery();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void respondError(HttpExchange exchange, int status, String message) throws IOException {
+        respond(exchange, status, "{\"error\":" + Json.quote(message) + "}");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,451 @@
+// GradeBookSnapshot.java
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable version of a GradeBook, see {@link GradeBook#snapshot()}.
+ * Readers can use a snapshot without any locking while the GradeBook keeps changing. Each change
+ * produces the next version by copying only what changed: the path to the class in a PersistentVector,
+ * the class's category array and the changed category's grades. Everything else is shared.
+ */
+public final class GradeBookSnapshot {
+    private final long version;
+    private final PersistentVector<ClassSnapshot> classes;
+    // Case-folded class name -> position; shared between versions until a class is added or removed
+    private final Map<String, Integer> classIndex;
+    // Totals of the terms before these classes, see GradeBook#setPriorTerms
+    private final double priorCreditHours;
+    private final double priorQualityPoints;
+
+    private GradeBookSnapshot(long version, PersistentVector<ClassSnapshot> classes, Map<String, Integer> classIndex,
+                              double priorCreditHours, double priorQualityPoints) {
+        this.version = version;
+        this.classes = classes;
+        this.classIndex = classIndex;
+        this.priorCreditHours = priorCreditHours;
+        this.priorQualityPoints = priorQualityPoints;
+    }
+
+    static GradeBookSnapshot of(List<ClassSnapshot> classes, double priorCreditHours, double priorQualityPoints) {
+        PersistentVector<ClassSnapshot> vector = PersistentVector.of(classes);
+        return new GradeBookSnapshot(0, vector, indexOf(vector), priorCreditHours, priorQualityPoints);
+    }
+
+    /**
+     * @return The number of changes published before this version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public List<ClassSnapshot> getClasses() {
+        return classes;
+    }
+
+    public ClassSnapshot getClassByName(String name) {
+        Integer position = classIndex.get(GradeBook.indexKey(name));
+        return position == null ? null : classes.get(position);
+    }
+
+    public double getPriorCreditHours() {
+        return priorCreditHours;
+    }
+
+    public double getPriorQualityPoints() {
+        return priorQualityPoints;
+    }
+
+    /**
+     * Copies this version into a new, independent GradeBook, e.g. to save it, including the prior terms.
+     */
+    public GradeBook toGradeBook() {
+        GradeBook gradeBook = new GradeBook();
+        for (ClassSnapshot classSnapshot : classes) {
+            gradeBook.addClass(classSnapshot.toClassRecord());
+        }
+        gradeBook.setPriorTerms(priorCreditHours, priorQualityPoints);
+        return gradeBook;
+    }
+
+    /**
+     * Returns the next version with a change applied. It does not modify this version.
+     */
+    GradeBookSnapshot apply(GradeEvent event) {
+        switch (event.getType()) {
+            case CLASS_ADDED: {
+                ClassSnapshot added = new ClassSnapshot(event.getClassName(), GradeBookStore.parseScale(event.getScale()),
+                        event.isUsesRounding(), event.getValue(), 0.0, ClassRecord.DEFAULT_CREDIT_HOURS, new CategorySnapshot[0]);
+                PersistentVector<ClassSnapshot> newClasses = classes.append(added);
+                Map<String, Integer> newIndex = new HashMap<>(classIndex);
+                newIndex.put(GradeBook.indexKey(added.getName()), classes.size());
+                return new GradeBookSnapshot(version + 1, newClasses, Collections.unmodifiableMap(newIndex), priorCreditHours,
+                        priorQualityPoints);
+            }
+            case CLASS_REMOVED: {
+                Integer position = classIndex.get(GradeBook.indexKey(event.getClassName()));
+                if (position == null) {
+                    return this;
+                }
+                PersistentVector<ClassSnapshot> newClasses = classes.without(position);
+                return new GradeBookSnapshot(version + 1, newClasses, indexOf(newClasses), priorCreditHours, priorQualityPoints);
+            }
+            case PRIOR_TERMS_SET:
+                return new GradeBookSnapshot(version + 1, classes, classIndex, event.getValue(), event.getPossible());
+            default:
+                Integer position = classIndex.get(GradeBook.indexKey(event.getClassName()));
+                if (position == null) {
+                    return this;
+                }
+                ClassSnapshot changed = classes.get(position).apply(event);
+                return new GradeBookSnapshot(version + 1, classes.with(position, changed), classIndex, priorCreditHours,
+                        priorQualityPoints);
+        }
+    }
+
+    private static Map<String, Integer> indexOf(List<ClassSnapshot> classes) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < classes.size(); i++) {
+            index.putIfAbsent(GradeBook.indexKey(classes.get(i).getName()), i);
+        }
+        return Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * An immutable version of a ClassRecord.
+     */
+    public static final class ClassSnapshot {
+        private final String name;
+        private final GradingScale gradingScale;
+        private final boolean usesRounding;
+        private final double roundingThreshold;
+        private final double extraCredit;
+        private final double creditHours;
+        private final CategorySnapshot[] categories;
+        private volatile double finalGrade = Double.NaN; // Computed on first use
+
+        ClassSnapshot(String name, GradingScale gradingScale, boolean usesRounding, double roundingThreshold,
+                      double extraCredit, double creditHours, CategorySnapshot[] categories) {
+            this.name = name;
+            this.gradingScale = gradingScale;
+            this.usesRounding = usesRounding;
+            this.roundingThreshold = roundingThreshold;
+            this.extraCredit = extraCredit;
+            this.creditHours = creditHours;
+            this.categories = categories;
+        }
+
+        /**
+         * Captures the current state of a class.
+         */
+        static ClassSnapshot of(ClassRecord classRecord) {
+            return classRecord.withReadLock(() -> {
+                List<Category> categories = classRecord.getCategories();
+                CategorySnapshot[] categorySnapshots = new CategorySnapshot[categories.size()];
+                for (int i = 0; i < categorySnapshots.length; i++) {
+                    Category category = categories.get(i);
+                    categorySnapshots[i] = new CategorySnapshot(category.getName(), category.getWeight(), category.getNumGradesDropped(),
+                            category.getAveraging(), category.getPackedGrades(),
+                            GradeTimeline.of(category.getTimestamps(), category.getGradeCount()));
+                }
+                return new ClassSnapshot(classRecord.getName(), classRecord.getGradingScale(), classRecord.isUsesRounding(),
+                        classRecord.getRoundingThreshold(), classRecord.getExtraCredit(), classRecord.getCreditHours(),
+                        categorySnapshots);
+            });
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public GradingScale getGradingScale() {
+            return gradingScale;
+        }
+
+        public boolean isUsesRounding() {
+            return usesRounding;
+        }
+
+        public double getRoundingThreshold() {
+            return roundingThreshold;
+        }
+
+        public double getExtraCredit() {
+            return extraCredit;
+        }
+
+        public double getCreditHours() {
+            return creditHours;
+        }
+
+        public List<CategorySnapshot> getCategories() {
+            return Collections.unmodifiableList(Arrays.asList(categories));
+        }
+
+        public CategorySnapshot getCategoryByName(String categoryName) {
+            int position = categoryPosition(categoryName);
+            return position < 0 ? null : categories[position];
+        }
+
+        /**
+         * @return The final grade, calculated as by {@link ClassRecord#calculateFinalGrade()}.
+         */
+        public double getFinalGrade() {
+            double result = finalGrade;
+            if (Double.isNaN(result)) {
+                long[] numerators = new long[categories.length];
+                long[] denominators = new long[categories.length];
+                double[] weights = new double[categories.length];
+                for (int i = 0; i < categories.length; i++) {
+                    long[] average = categories[i].getAverageFraction();
+                    numerators[i] = average[0];
+                    denominators[i] = average[1];
+                    weights[i] = categories[i].getWeight();
+                }
+                // Benign race: every thread computes the same value
+                result = ClassRecord.calculateFinalGrade(numerators, denominators, weights, gradingScale, usesRounding, roundingThreshold, extraCredit);
+                finalGrade = result;
+            }
+            return result;
+        }
+
+        public String getLetterGrade() {
+            return gradingScale.getLetterGrade(getFinalGrade());
+        }
+
+        /**
+         * @return The grade points of the letter grade, as the grading scale maps them.
+         */
+        public double getGradePoints() {
+            return gradingScale.getGradePointsFor(getFinalGrade());
+        }
+
+        /**
+         * @return Whether any category has a grade; a class without grades has no final grade to count in a GPA.
+         */
+        public boolean hasGrades() {
+            for (CategorySnapshot category : categories) {
+                if (category.hasGrades()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        ClassRecord toClassRecord() {
+            ClassRecord classRecord = new ClassRecord(name, gradingScale, usesRounding, roundingThreshold);
+            classRecord.setExtraCredit(extraCredit);
+            classRecord.setCreditHours(creditHours);
+            for (CategorySnapshot categorySnapshot : categories) {
+                Category category = new Category(categorySnapshot.getName(), categorySnapshot.getWeight(),
+                        categorySnapshot.getNumGradesDropped(), categorySnapshot.getAveraging());
+                long[] timestamps = categorySnapshot.timeline.toArray();
+                for (int g = 0; g < timestamps.length; g++) {
+                    long grade = categorySnapshot.grades[g];
+                    category.addGrade(Category.earnedPointsOf(grade), Category.possiblePointsOf(grade), timestamps[g]);
+                }
+                classRecord.addCategory(category);
+            }
+            return classRecord;
+        }
+
+        private ClassSnapshot apply(GradeEvent event) {
+            switch (event.getType()) {
+                case CATEGORY_ADDED: {
+                    CategorySnapshot[] newCategories = Arrays.copyOf(categories, categories.length + 1);
+                    newCategories[categories.length] = new CategorySnapshot(event.getCategoryName(), event.getValue(),
+                            event.getNumGradesDropped(), event.getAveraging(), new long[0], new GradeTimeline());
+                    return withCategories(newCategories);
+                }
+                case CATEGORY_REMOVED: {
+                    int position = categoryPosition(event.getCategoryName());
+                    if (position < 0) {
+                        return this;
+                    }
+                    List<CategorySnapshot> remaining = new ArrayList<>(Arrays.asList(categories));
+                    remaining.remove(position);
+                    return withCategories(remaining.toArray(new CategorySnapshot[0]));
+                }
+                case CATEGORIES_CLEARED:
+                    return withCategories(new CategorySnapshot[0]);
+                case EXTRA_CREDIT_SET:
+                    return new ClassSnapshot(name, gradingScale, usesRounding, roundingThreshold, event.getValue(), creditHours,
+                            categories);
+                case CREDIT_HOURS_SET:
+                    return new ClassSnapshot(name, gradingScale, usesRounding, roundingThreshold, extraCredit, event.getValue(),
+                            categories);
+                case SCALE_CHANGED:
+                    return new ClassSnapshot(name, GradeBookStore.parseScale(event.getScale()), usesRounding, roundingThreshold,
+                            extraCredit, creditHours, categories);
+                default:
+                    int position = categoryPosition(event.getCategoryName());
+                    if (position < 0) {
+                        return this;
+                    }
+                    CategorySnapshot[] newCategories = categories.clone();
+                    newCategories[position] = categories[position].apply(event);
+                    return withCategories(newCategories);
+            }
+        }
+
+        private ClassSnapshot withCategories(CategorySnapshot[] newCategories) {
+            return new ClassSnapshot(name, gradingScale, usesRounding, roundingThreshold, extraCredit, creditHours, newCategories);
+        }
+
+        private int categoryPosition(String categoryName) {
+            if (categoryName == null) {
+                return -1;
+            }
+            String key = GradeBook.indexKey(categoryName);
+            // Classes have a handful of categories, so a scan beats an index here
+            for (int i = 0; i < categories.length; i++) {
+                if (GradeBook.indexKey(categories[i].getName()).equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * An immutable version of a Category.
+     */
+    public static final class CategorySnapshot {
+        private final String name;
+        private final double weight;
+        private final int numGradesDropped;
+        private final Category.Averaging averaging;
+        private final long[] grades; // Packed points in hundredths, see Category.pack()
+        private final GradeTimeline timeline; // Never changed; a change makes a copy
+        private volatile long[] average; // Computed on first use
+
+        CategorySnapshot(String name, double weight, int numGradesDropped, Category.Averaging averaging, long[] grades,
+                         GradeTimeline timeline) {
+            this.name = name;
+            this.weight = weight;
+            this.numGradesDropped = numGradesDropped;
+            this.averaging = averaging;
+            this.grades = grades;
+            this.timeline = timeline;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+
+        public int getNumGradesDropped() {
+            return numGradesDropped;
+        }
+
+        public Category.Averaging getAveraging() {
+            return averaging;
+        }
+
+        public int getGradeCount() {
+            return grades.length;
+        }
+
+        public boolean hasGrades() {
+            return grades.length > 0;
+        }
+
+        /**
+         * @return A grade as a percentage.
+         */
+        public double getGrade(int index) {
+            return FixedPoint.toPoints(Category.percentOf(grades[index]));
+        }
+
+        public double getPointsEarned(int index) {
+            return Category.earnedPointsOf(grades[index]);
+        }
+
+        public double getPointsPossible(int index) {
+            return Category.possiblePointsOf(grades[index]);
+        }
+
+        /**
+         * @return When a grade was given, as by {@link Category#getTimestamp(int)}.
+         */
+        public long getTimestamp(int index) {
+            return timeline.get(index);
+        }
+
+        /**
+         * @return A copy of the grades as percentages.
+         */
+        public double[] getGrades() {
+            double[] values = new double[grades.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = getGrade(i);
+            }
+            return values;
+        }
+
+        /**
+         * @return The average grade, calculated as by {@link Category#calculateAverage()}.
+         */
+        public double getAverage() {
+            long[] fraction = getAverageFraction();
+            return FixedPoint.average(fraction[0], fraction[1]);
+        }
+
+        private long[] getAverageFraction() {
+            long[] result = average;
+            if (result == null) {
+                result = Category.averageFraction(grades, grades.length, numGradesDropped, averaging);
+                average = result;
+            }
+            return result;
+        }
+
+        private CategorySnapshot apply(GradeEvent event) {
+            long[] newGrades;
+            GradeTimeline newTimeline = timeline;
+            int index = event.getIndex();
+            switch (event.getType()) {
+                case GRADE_ADDED:
+                    newGrades = Arrays.copyOf(grades, grades.length + 1);
+                    newGrades[grades.length] = Category.pack(event.getValue(), event.getPossible());
+                    newTimeline = timeline.copy();
+                    newTimeline.add(event.getGradeTime());
+                    break;
+                case GRADE_INSERTED:
+                    newGrades = new long[grades.length + 1];
+                    System.arraycopy(grades, 0, newGrades, 0, index);
+                    newGrades[index] = Category.pack(event.getValue(), event.getPossible());
+                    System.arraycopy(grades, index, newGrades, index + 1, grades.length - index);
+                    newTimeline = timeline.copy();
+                    newTimeline.insert(index, event.getGradeTime());
+                    break;
+                case GRADE_EDITED:
+                    newGrades = grades.clone();
+                    newGrades[index] = Category.pack(event.getValue(), event.getPossible());
+                    break;
+                case GRADE_DELETED:
+                    newTimeline = timeline.copy();
+                    newTimeline.remove(index);
+                    newGrades = new long[grades.length - 1];
+                    System.arraycopy(grades, 0, newGrades, 0, index);
+                    System.arraycopy(grades, index + 1, newGrades, index, grades.length - index - 1);
+                    break;
+                case WEIGHT_CHANGED:
+                    // The grades and their cached average stay valid
+                    CategorySnapshot reweighted = new CategorySnapshot(name, event.getValue(), numGradesDropped, averaging, grades,
+                            timeline);
+                    reweighted.average = average;
+                    return reweighted;
+                default:
+                    return this;
+            }
+            return new CategorySnapshot(name, weight, numGradesDropped, averaging, newGrades, newTimeline);
+        }
+    }
+}
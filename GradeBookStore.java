@@ -0,0 +1,366 @@
+// GradeBookStore.java
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads and writes GradeBooks: the serialized data file used by the GUI, and a line-based CSV
+ * format for exports and bulk imports.
+ * <p>
+ * CSV records (one per line, fields quoted when they contain commas or quotes):
+ * <pre>
+ * class,&lt;name&gt;,&lt;usesRounding&gt;,&lt;roundingThreshold&gt;,&lt;extraCredit&gt;,&lt;scale e.g. 93:A;90:A-;0:F&gt;[,&lt;creditHours&gt;]
+ * prior,&lt;creditHours&gt;,&lt;qualityPoints&gt;
+ * category,&lt;class&gt;,&lt;name&gt;,&lt;weight&gt;,&lt;numGradesDropped&gt;[,points]
+ * grade,&lt;class&gt;,&lt;category&gt;,&lt;grade or points earned&gt;[,&lt;points possible&gt;[,&lt;given at e.g. 2024-09-30T14:00:00Z&gt;]]
+ * </pre>
+ * A class without credit hours has {@link ClassRecord#DEFAULT_CREDIT_HOURS}. A scale letter may carry its
+ * grade points as "cutoff:letter:points" where they differ from the standard ones. The prior record holds
+ * the totals of earlier terms for the cumulative GPA.
+ * A category marked "points" averages by total points; a grade without points possible is a percentage.
+ * A grade without a time is imported as given now.
+ * Lines starting with '#' are comments.
+ */
+public final class GradeBookStore {
+    public static final String DEFAULT_DATA_FILE = System.getProperty("user.home") + File.separator + "gradebook.dat";
+
+    private GradeBookStore() {
+    }
+
+    /**
+     * Loads a GradeBook from a data file.
+     *
+     * @param file The data file.
+     * @return The loaded GradeBook, or a new empty GradeBook if the file does not exist.
+     */
+    public static GradeBook load(File file) throws IOException, ClassNotFoundException {
+        if (!file.exists()) {
+            return new GradeBook();
+        }
+        GradeBookEvents.LoadEvent event = new GradeBookEvents.LoadEvent();
+        event.begin();
+        GradeBook gradeBook;
+        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
+            gradeBook = (GradeBook) in.readObject();
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = file.getPath();
+            event.bytes = file.length();
+            event.classCount = gradeBook.getClasses().size();
+            event.gradeCount = countGrades(gradeBook);
+            event.commit();
+        }
+        return gradeBook;
+    }
+
+    /**
+     * Saves a GradeBook to a data file.
+     *
+     * @param gradeBook The GradeBook to save.
+     * @param file      The data file.
+     */
+    public static void save(GradeBook gradeBook, File file) throws IOException {
+        GradeBookEvents.SaveEvent event = new GradeBookEvents.SaveEvent();
+        event.begin();
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))) {
+            out.writeObject(gradeBook);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = file.getPath();
+            event.bytes = file.length();
+            event.classCount = gradeBook.getClasses().size();
+            event.gradeCount = countGrades(gradeBook);
+            event.commit();
+        }
+    }
+
+    private static long countGrades(GradeBook gradeBook) {
+        long grades = 0;
+        for (ClassRecord classRecord : gradeBook.getClasses()) {
+            for (Category category : classRecord.getCategories()) {
+                grades += category.getGradeCount();
+            }
+        }
+        return grades;
+    }
+
+    /**
+     * Writes every class, category and grade of a GradeBook as CSV records.
+     *
+     * @param gradeBook The GradeBook to export.
+     * @param writer    Destination of the records; it is flushed but not closed.
+     */
+    public static void exportCsv(GradeBook gradeBook, Writer writer) throws IOException {
+        BufferedWriter out = writer instanceof BufferedWriter ? (BufferedWriter) writer : new BufferedWriter(writer);
+        out.write("# type,fields...");
+        out.newLine();
+        if (gradeBook.getPriorCreditHours() > 0.0 || gradeBook.getPriorQualityPoints() > 0.0) {
+            out.write(csvLine("prior", String.valueOf(gradeBook.getPriorCreditHours()),
+                    String.valueOf(gradeBook.getPriorQualityPoints())));
+            out.newLine();
+        }
+        // One consistent version, without holding any locks while writing
+        for (GradeBookSnapshot.ClassSnapshot classSnapshot : gradeBook.snapshot().getClasses()) {
+            writeClass(out, classSnapshot);
+            for (GradeBookSnapshot.CategorySnapshot category : classSnapshot.getCategories()) {
+                writeCategory(out, classSnapshot.getName(), category);
+                for (int g = 0; g < category.getGradeCount(); g++) {
+                    writeGrade(out, classSnapshot.getName(), category.getName(), category.getPointsEarned(g),
+                            category.getPointsPossible(g), category.getTimestamp(g));
+                }
+            }
+        }
+        out.flush();
+    }
+
+    static void writeClass(BufferedWriter out, GradeBookSnapshot.ClassSnapshot classSnapshot) throws IOException {
+        writeClass(out, classSnapshot.getName(), classSnapshot.isUsesRounding(), classSnapshot.getRoundingThreshold(),
+                classSnapshot.getExtraCredit(), classSnapshot.getGradingScale(), classSnapshot.getCreditHours());
+    }
+
+    static void writeClass(BufferedWriter out, String name, boolean usesRounding, double roundingThreshold,
+                           double extraCredit, GradingScale gradingScale) throws IOException {
+        writeClass(out, name, usesRounding, roundingThreshold, extraCredit, gradingScale, ClassRecord.DEFAULT_CREDIT_HOURS);
+    }
+
+    static void writeClass(BufferedWriter out, String name, boolean usesRounding, double roundingThreshold,
+                           double extraCredit, GradingScale gradingScale, double creditHours) throws IOException {
+        if (creditHours != ClassRecord.DEFAULT_CREDIT_HOURS) {
+            out.write(csvLine("class", name, String.valueOf(usesRounding), String.valueOf(roundingThreshold),
+                    String.valueOf(extraCredit), formatScale(gradingScale), String.valueOf(creditHours)));
+        } else {
+            out.write(csvLine("class", name, String.valueOf(usesRounding), String.valueOf(roundingThreshold),
+                    String.valueOf(extraCredit), formatScale(gradingScale)));
+        }
+        out.newLine();
+    }
+
+    static void writeCategory(BufferedWriter out, String className, GradeBookSnapshot.CategorySnapshot category) throws IOException {
+        if (category.getAveraging() == Category.Averaging.TOTAL_POINTS) {
+            out.write(csvLine("category", className, category.getName(), String.valueOf(category.getWeight()),
+                    String.valueOf(category.getNumGradesDropped()), "points"));
+            out.newLine();
+        } else {
+            writeCategory(out, className, category.getName(), category.getWeight(), category.getNumGradesDropped());
+        }
+    }
+
+    static void writeCategory(BufferedWriter out, String className, String name, double weight, int numGradesDropped) throws IOException {
+        out.write(csvLine("category", className, name, String.valueOf(weight), String.valueOf(numGradesDropped)));
+        out.newLine();
+    }
+
+    static void writeGrade(BufferedWriter out, String className, String categoryName, double grade) throws IOException {
+        out.write(csvLine("grade", className, categoryName, String.valueOf(grade)));
+        out.newLine();
+    }
+
+    static void writeGrade(BufferedWriter out, String className, String categoryName, double pointsEarned,
+                           double pointsPossible, long gradedAt) throws IOException {
+        if (gradedAt != Category.NO_TIMESTAMP) {
+            out.write(csvLine("grade", className, categoryName, String.valueOf(pointsEarned), String.valueOf(pointsPossible),
+                    Instant.ofEpochMilli(gradedAt).toString()));
+        } else if (pointsPossible != 100.0) {
+            out.write(csvLine("grade", className, categoryName, String.valueOf(pointsEarned), String.valueOf(pointsPossible)));
+        } else {
+            out.write(csvLine("grade", className, categoryName, String.valueOf(pointsEarned)));
+        }
+        out.newLine();
+    }
+
+    /**
+     * Reads CSV records into a GradeBook.
+     * Classes and categories that do not exist yet are created; grades are appended.
+     *
+     * @param gradeBook The GradeBook to import into.
+     * @param reader    Source of the records; it is not closed.
+     * @return The number of grades imported.
+     * @throws IOException If reading fails or a record is malformed (the message names the line).
+     */
+    public static long importCsv(GradeBook gradeBook, Reader reader) throws IOException {
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        long gradesImported = 0;
+        long lineNumber = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                List<String> fields = parseCsvLine(line);
+                switch (fields.get(0)) {
+                    case "class":
+                        requireFields(fields, 6);
+                        if (!gradeBook.hasClass(fields.get(1))) {
+                            ClassRecord classRecord = new ClassRecord(fields.get(1), parseScale(fields.get(5)),
+                                    Boolean.parseBoolean(fields.get(2)), Double.parseDouble(fields.get(3)));
+                            classRecord.setExtraCredit(Double.parseDouble(fields.get(4)));
+                            if (fields.size() > 6 && !fields.get(6).isEmpty()) {
+                                classRecord.setCreditHours(Double.parseDouble(fields.get(6)));
+                            }
+                            gradeBook.addClass(classRecord);
+                        }
+                        break;
+                    case "prior":
+                        requireFields(fields, 3);
+                        gradeBook.setPriorTerms(Double.parseDouble(fields.get(1)), Double.parseDouble(fields.get(2)));
+                        break;
+                    case "category":
+                        requireFields(fields, 5);
+                        ClassRecord owner = requireClass(gradeBook, fields.get(1));
+                        if (!owner.hasCategory(fields.get(2))) {
+                            Category.Averaging averaging = fields.size() > 5 && fields.get(5).equalsIgnoreCase("points")
+                                    ? Category.Averaging.TOTAL_POINTS : Category.Averaging.EQUAL_WEIGHT;
+                            owner.addCategory(new Category(fields.get(2), Double.parseDouble(fields.get(3)),
+                                    Integer.parseInt(fields.get(4)), averaging));
+                        }
+                        break;
+                    case "grade":
+                        requireFields(fields, 4);
+                        Category category = requireClass(gradeBook, fields.get(1)).getCategoryByName(fields.get(2));
+                        if (category == null) {
+                            throw new IllegalArgumentException("Unknown category '" + fields.get(2) + "'");
+                        }
+                        double pointsPossible = fields.size() > 4 ? Double.parseDouble(fields.get(4)) : 100.0;
+                        if (fields.size() > 5 && !fields.get(5).isEmpty()) {
+                            category.addGrade(Double.parseDouble(fields.get(3)), pointsPossible, parseTime(fields.get(5)));
+                        } else {
+                            category.addGrade(Double.parseDouble(fields.get(3)), pointsPossible);
+                        }
+                        gradesImported++;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown record type '" + fields.get(0) + "'");
+                }
+            } catch (IllegalArgumentException e) {
+                // NumberFormatException is an IllegalArgumentException as well
+                throw new IOException("Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return gradesImported;
+    }
+
+    private static long parseTime(String text) {
+        try {
+            return Instant.parse(text).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time '" + text + "'", e);
+        }
+    }
+
+    private static ClassRecord requireClass(GradeBook gradeBook, String name) {
+        ClassRecord classRecord = gradeBook.getClassByName(name);
+        if (classRecord == null) {
+            throw new IllegalArgumentException("Unknown class '" + name + "'");
+        }
+        return classRecord;
+    }
+
+    private static void requireFields(List<String> fields, int count) {
+        if (fields.size() < count) {
+            throw new IllegalArgumentException("Expected " + count + " fields for '" + fields.get(0) + "' but found " + fields.size());
+        }
+    }
+
+    /**
+     * Formats a grading scale as "cutoff:letter" pairs separated by ';', highest cutoff first. A letter
+     * with other than the standard grade points is followed by ":points".
+     */
+    static String formatScale(GradingScale gradingScale) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Double, String> entry : gradingScale.getScale().entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            sb.append(entry.getKey()).append(':').append(entry.getValue());
+            if (gradingScale.hasCustomGradePoints(entry.getValue())) {
+                sb.append(':').append(gradingScale.getGradePoints(entry.getValue()));
+            }
+        }
+        return sb.toString();
+    }
+
+    static GradingScale parseScale(String text) {
+        if (text.isEmpty()) {
+            return GradingScale.defaultScale();
+        }
+        TreeMap<Double, String> scaleMap = new TreeMap<>(Collections.reverseOrder());
+        Map<String, Double> gradePoints = new HashMap<>();
+        for (String pair : text.split(";")) {
+            int colon = pair.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Invalid grading scale entry '" + pair + "'");
+            }
+            String letter = pair.substring(colon + 1);
+            int pointsColon = letter.lastIndexOf(':');
+            if (pointsColon >= 0) {
+                gradePoints.put(letter.substring(0, pointsColon), Double.parseDouble(letter.substring(pointsColon + 1)));
+                letter = letter.substring(0, pointsColon);
+            }
+            scaleMap.put(Double.parseDouble(pair.substring(0, colon)), letter);
+        }
+        return GradingScale.of(scaleMap, gradePoints);
+    }
+
+    static String csvLine(String... fields) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            String field = fields[i];
+            if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0) {
+                sb.append('"').append(field.replace("\"", "\"\"")).append('"');
+            } else {
+                sb.append(field);
+            }
+        }
+        return sb.toString();
+    }
+
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,378 @@
+// GradeBookUndo.java
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Undo and redo for a GradeBook.
+ * Instead of copying the GradeBook for each step, a step keeps only the GradeEvents of the changes it made
+ * (edits and deletions carry the previous value, removals keep the removed class or category), so a step
+ * costs memory in proportion to what changed and undoing or redoing it takes time in proportion to the
+ * number of changes, independent of the size of the GradeBook.
+ * <p>
+ * Changes made between {@link #beginStep} and {@link #endStep} form one step; any other change is a step of
+ * its own. Changes from another source, such as the local API, are run through {@link #runAsStep} so they
+ * form a step of their own even when they arrive on the same thread while a step is open (e.g. while a
+ * modal dialog of the open step pumps the Swing events). The number of steps and their estimated memory are capped, dropping the oldest steps first.
+ */
+public class GradeBookUndo implements GradeBookListener {
+    public static final int DEFAULT_MAX_STEPS = 100;
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    /**
+     * The changes of one user action.
+     */
+    private static class Step {
+        String label;
+        final List<GradeEvent> events = new ArrayList<>();
+        long bytes;
+
+        Step(String label) {
+            this.label = label;
+        }
+    }
+
+    private final int maxSteps;
+    private final long maxBytes;
+    private final Deque<Step> undoSteps = new ArrayDeque<>();
+    private final Deque<Step> redoSteps = new ArrayDeque<>();
+    // Collects the changes this thread makes while undoing or redoing a step, so they are not recorded as a new step
+    private final ThreadLocal<Step> applying = new ThreadLocal<>();
+    // Collects the changes this thread makes in runAsStep, so they are not mixed into the open step
+    private final ThreadLocal<Step> separate = new ThreadLocal<>();
+    private Step openStep;
+    private long bytes;
+    private GradeBook gradeBook;
+
+    /**
+     * @param maxSteps The maximum number of steps that can be undone.
+     * @param maxBytes The maximum estimated memory of all undo and redo steps.
+     */
+    public GradeBookUndo(int maxSteps, long maxBytes) {
+        if (maxSteps < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("Undo depth and memory cap must be positive.");
+        }
+        this.maxSteps = maxSteps;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Starts recording the changes of a GradeBook, discarding all steps of the GradeBook recorded before.
+     */
+    public synchronized void attach(GradeBook newGradeBook) {
+        if (gradeBook != null) {
+            gradeBook.removeListener(this);
+        }
+        gradeBook = newGradeBook;
+        undoSteps.clear();
+        redoSteps.clear();
+        openStep = null;
+        bytes = 0;
+        gradeBook.addListener(this);
+    }
+
+    /**
+     * Groups all following changes into one step until {@link #endStep()} is called.
+     *
+     * @param label A short description of the action, e.g. "Add Grade".
+     */
+    public synchronized void beginStep(String label) {
+        endStep();
+        openStep = new Step(label);
+    }
+
+    /**
+     * Finishes the step started by {@link #beginStep}. A step without changes is discarded.
+     */
+    public synchronized void endStep() {
+        if (openStep != null) {
+            Step step = openStep;
+            openStep = null;
+            push(step);
+        }
+    }
+
+    /**
+     * Runs changes as one step of their own, apart from any step opened by {@link #beginStep}.
+     *
+     * @param changes The changes, e.g. one request of the local API; the step is named after the first one.
+     */
+    public void runAsStep(Runnable changes) {
+        GradeBook target;
+        synchronized (this) {
+            target = gradeBook;
+        }
+        Step outer = separate.get();
+        Step step = new Step(null);
+        separate.set(step);
+        try {
+            changes.run();
+        } finally {
+            if (outer == null) {
+                separate.remove();
+            } else {
+                separate.set(outer);
+            }
+            synchronized (this) {
+                // Dropped if another GradeBook was attached meanwhile
+                if (gradeBook == target) {
+                    push(step);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void gradeBookChanged(GradeEvent event) {
+        Step replay = applying.get();
+        if (replay != null) {
+            replay.events.add(event);
+            replay.bytes += estimateBytes(event);
+            return;
+        }
+        Step own = separate.get();
+        if (own != null) {
+            if (own.label == null) {
+                own.label = describe(event);
+            }
+            own.events.add(event);
+            own.bytes += estimateBytes(event);
+        } else if (openStep != null) {
+            openStep.events.add(event);
+            openStep.bytes += estimateBytes(event);
+        } else {
+            Step step = new Step(describe(event));
+            step.events.add(event);
+            step.bytes = estimateBytes(event);
+            push(step);
+        }
+    }
+
+    public synchronized boolean canUndo() {
+        return !undoSteps.isEmpty();
+    }
+
+    public synchronized boolean canRedo() {
+        return !redoSteps.isEmpty();
+    }
+
+    /**
+     * @return The label of the step {@link #undo()} would revert, or null if there is none.
+     */
+    public synchronized String getUndoLabel() {
+        return undoSteps.isEmpty() ? null : undoSteps.peek().label;
+    }
+
+    /**
+     * @return The label of the step {@link #redo()} would repeat, or null if there is none.
+     */
+    public synchronized String getRedoLabel() {
+        return redoSteps.isEmpty() ? null : redoSteps.peek().label;
+    }
+
+    /**
+     * @return The estimated memory of all undo and redo steps in bytes.
+     */
+    public synchronized long getMemoryEstimate() {
+        return bytes;
+    }
+
+    /**
+     * Reverts the most recent step.
+     *
+     * @return The label of the reverted step, or null if there was nothing to undo.
+     */
+    public String undo() {
+        Step step;
+        GradeBook target;
+        synchronized (this) {
+            endStep();
+            step = undoSteps.poll();
+            if (step == null) {
+                return null;
+            }
+            redoSteps.push(step);
+            target = gradeBook;
+        }
+        // Applied outside the monitor: the changes take class locks, and listeners are called while holding them
+        applying.set(new Step(step.label));
+        try {
+            for (int i = step.events.size() - 1; i >= 0; i--) {
+                revert(target, step.events.get(i));
+            }
+        } finally {
+            applying.remove();
+        }
+        return step.label;
+    }
+
+    /**
+     * Repeats the most recently undone step.
+     *
+     * @return The label of the repeated step, or null if there was nothing to redo.
+     */
+    public String redo() {
+        Step step;
+        GradeBook target;
+        synchronized (this) {
+            endStep();
+            step = redoSteps.poll();
+            if (step == null) {
+                return null;
+            }
+            bytes -= step.bytes;
+            target = gradeBook;
+        }
+        // Record the repeated changes as the new step: a removal must refer to the class or category removed now
+        Step repeated = new Step(step.label);
+        applying.set(repeated);
+        try {
+            for (GradeEvent event : step.events) {
+                event.applyTo(target);
+            }
+        } finally {
+            applying.remove();
+            synchronized (this) {
+                undoSteps.push(repeated);
+                bytes += repeated.bytes;
+            }
+        }
+        return step.label;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void revert(GradeBook gradeBook, GradeEvent event) {
+        switch (event.getType()) {
+            case CLASS_ADDED:
+                gradeBook.removeClass(event.getClassName());
+                break;
+            case CLASS_REMOVED:
+                gradeBook.addClass((ClassRecord) event.getRemoved());
+                break;
+            case CATEGORY_ADDED:
+                requireClass(gradeBook, event).removeCategory(event.getCategoryName());
+                break;
+            case CATEGORY_REMOVED:
+                requireClass(gradeBook, event).addCategory((Category) event.getRemoved());
+                break;
+            case CATEGORIES_CLEARED:
+                ClassRecord classRecord = requireClass(gradeBook, event);
+                for (Category category : (List<Category>) event.getRemoved()) {
+                    classRecord.addCategory(category);
+                }
+                break;
+            case EXTRA_CREDIT_SET:
+                requireClass(gradeBook, event).setExtraCredit(event.getOldValue());
+                break;
+            case CREDIT_HOURS_SET:
+                requireClass(gradeBook, event).setCreditHours(event.getOldValue());
+                break;
+            case GRADE_ADDED:
+            case GRADE_INSERTED:
+                requireCategory(gradeBook, event).deleteGrade(event.getIndex());
+                break;
+            case GRADE_EDITED:
+                requireCategory(gradeBook, event).editGrade(event.getIndex(), event.getOldValue(), event.getOldPossible());
+                break;
+            case GRADE_DELETED:
+                requireCategory(gradeBook, event).insertGrade(event.getIndex(), event.getOldValue(), event.getOldPossible(),
+                        event.getGradeTime());
+                break;
+            case WEIGHT_CHANGED:
+                requireCategory(gradeBook, event).setWeight(event.getOldValue());
+                break;
+            case SCALE_CHANGED:
+                requireClass(gradeBook, event).setGradingScale((GradingScale) event.getRemoved());
+                break;
+            case PRIOR_TERMS_SET:
+                gradeBook.setPriorTerms(event.getOldValue(), event.getOldPossible());
+                break;
+            default:
+                throw new IllegalStateException("Cannot undo " + event);
+        }
+    }
+
+    private static ClassRecord requireClass(GradeBook gradeBook, GradeEvent event) {
+        ClassRecord classRecord = gradeBook.getClassByName(event.getClassName());
+        if (classRecord == null) {
+            throw new IllegalStateException("Unknown class '" + event.getClassName() + "' in " + event.getType() + " event");
+        }
+        return classRecord;
+    }
+
+    private static Category requireCategory(GradeBook gradeBook, GradeEvent event) {
+        Category category = requireClass(gradeBook, event).getCategoryByName(event.getCategoryName());
+        if (category == null) {
+            throw new IllegalStateException("Unknown category '" + event.getCategoryName() + "' in " + event.getType() + " event");
+        }
+        return category;
+    }
+
+    private void push(Step step) {
+        if (step.events.isEmpty()) {
+            return;
+        }
+        // A new change makes the undone steps unreachable
+        for (Step undone : redoSteps) {
+            bytes -= undone.bytes;
+        }
+        redoSteps.clear();
+        undoSteps.push(step);
+        bytes += step.bytes;
+        while (undoSteps.size() > maxSteps || (bytes > maxBytes && undoSteps.size() > 1)) {
+            bytes -= undoSteps.removeLast().bytes;
+        }
+    }
+
+    private static String describe(GradeEvent event) {
+        switch (event.getType()) {
+            case CLASS_ADDED:
+                return "Add Class";
+            case CLASS_REMOVED:
+                return "Delete Class";
+            case GRADE_ADDED:
+            case GRADE_INSERTED:
+                return "Add Grade";
+            case GRADE_EDITED:
+                return "Edit Grade";
+            case GRADE_DELETED:
+                return "Delete Grade";
+            case EXTRA_CREDIT_SET:
+                return "Extra Credit";
+            case CREDIT_HOURS_SET:
+                return "Credit Hours";
+            case SCALE_CHANGED:
+                return "Grading Scale";
+            case PRIOR_TERMS_SET:
+                return "Prior Terms";
+            default:
+                return "Edit Categories";
+        }
+    }
+
+    /**
+     * Roughly estimates the memory an event keeps alive, including a removed class or category.
+     */
+    private static long estimateBytes(GradeEvent event) {
+        long estimate = 96;
+        Object removed = event.getRemoved();
+        if (removed instanceof ClassRecord) {
+            for (Category category : ((ClassRecord) removed).getCategories()) {
+                estimate += estimateBytes(category);
+            }
+        } else if (removed instanceof Category) {
+            estimate += estimateBytes((Category) removed);
+        } else if (removed instanceof List) {
+            for (Object category : (List<?>) removed) {
+                estimate += estimateBytes((Category) category);
+            }
+        }
+        return estimate;
+    }
+
+    private static long estimateBytes(Category category) {
+        // A boxed grade and its list slot
+        return 128 + 20L * category.getGradeCount();
+    }
+}
@@ -0,0 +1,296 @@
+// GradeBookWatchdog.java
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+
+/**
+ * Watches the Swing event dispatch thread (EDT) for freezes.
+ * <p>
+ * A background thread posts a heartbeat to the EDT every {@value #SAMPLE_INTERVAL_MILLIS} ms and records how
+ * long it waits to run, which is the delay a user's click would see. While a heartbeat has been waiting
+ * longer than the stall threshold, the EDT's stack is sampled on every tick, so a stall is captured
+ * together with the code that caused it.
+ * <p>
+ * Actions wrapped with {@link #timed} are timed per action name. Only the time the EDT is busy with the
+ * action counts: many actions open modal dialogs, which dispatch events of their own while the user
+ * types, and the time spent inside such a nested event loop is left out.
+ */
+public class GradeBookWatchdog {
+    public static final long DEFAULT_STALL_THRESHOLD_MILLIS = 250;
+    static final long SAMPLE_INTERVAL_MILLIS = 50;
+    private static final int MAX_STALLS = 100;
+    private static final int MAX_SAMPLES_PER_STALL = 20;
+
+    /**
+     * One freeze of the EDT.
+     */
+    public static final class Stall {
+        private final long startTime; // Wall clock, milliseconds
+        private final String action;
+        private final List<StackTraceElement[]> samples = new ArrayList<>();
+        private final List<Long> sampleOffsets = new ArrayList<>(); // Milliseconds after the start
+        private long durationNanos;
+
+        Stall(long startTime, String action) {
+            this.startTime = startTime;
+            this.action = action;
+        }
+
+        public long getStartTime() {
+            return startTime;
+        }
+
+        /**
+         * @return The action that was running when the stall was detected, or null.
+         */
+        public String getAction() {
+            return action;
+        }
+
+        public synchronized long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public synchronized List<StackTraceElement[]> getSamples() {
+            return new ArrayList<>(samples);
+        }
+    }
+
+    /**
+     * A dispatch in progress; nested dispatches happen in the event loops of modal dialogs.
+     */
+    private static final class Dispatch {
+        final long start;
+        long firstNestedStart = -1;
+        long lastNestedEnd;
+        String action;
+
+        Dispatch(long start) {
+            this.start = start;
+        }
+    }
+
+    private final long stallThresholdNanos;
+    private final LatencyHistogram dispatchLatency = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> actionHistograms = new ConcurrentHashMap<>();
+    // Confined to the EDT
+    private final Deque<Dispatch> dispatches = new ArrayDeque<>();
+
+    // Guarded by this
+    private final Deque<Stall> stalls = new ArrayDeque<>();
+    private Stall currentStall;
+    private long heartbeatPostedAt; // System.nanoTime() of the waiting heartbeat, 0 if none is waiting
+    private Thread edt;
+    private volatile String currentAction;
+    private ScheduledExecutorService sampler;
+
+    /**
+     * @param stallThresholdMillis How long the EDT may be unresponsive before its stack is sampled.
+     */
+    public GradeBookWatchdog(long stallThresholdMillis) {
+        if (stallThresholdMillis < 1) {
+            throw new IllegalArgumentException("Stall threshold must be positive.");
+        }
+        this.stallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(stallThresholdMillis);
+    }
+
+    /**
+     * Starts watching. Must be called on the EDT, once.
+     */
+    public synchronized void install() {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            throw new IllegalStateException("The watchdog must be installed on the event dispatch thread.");
+        }
+        if (sampler != null) {
+            throw new IllegalStateException("The watchdog is already installed.");
+        }
+        edt = Thread.currentThread();
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new MeasuringEventQueue());
+        sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "EDT watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(this::tick, SAMPLE_INTERVAL_MILLIS, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Wraps an action listener so that the EDT time of each action is recorded under its name, and
+     * stalls during the action are attributed to it.
+     */
+    public ActionListener timed(String action, ActionListener listener) {
+        return e -> {
+            Dispatch dispatch = dispatches.peek();
+            String outerAction = currentAction;
+            currentAction = action;
+            long start = System.nanoTime();
+            try {
+                listener.actionPerformed(e);
+            } finally {
+                currentAction = outerAction;
+                if (dispatch != null && dispatch.action == null) {
+                    // Recorded when the dispatch ends, without the time spent in nested event loops
+                    dispatch.action = action;
+                } else {
+                    histogram(action).record(System.nanoTime() - start);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return How long heartbeats waited for the EDT.
+     */
+    public LatencyHistogram getDispatchLatency() {
+        return dispatchLatency;
+    }
+
+    /**
+     * @return The EDT time per action, by action name.
+     */
+    public Map<String, LatencyHistogram> getActionHistograms() {
+        return Collections.unmodifiableMap(new TreeMap<>(actionHistograms));
+    }
+
+    /**
+     * @return The most recent stalls, oldest first, including one still in progress.
+     */
+    public synchronized List<Stall> getStalls() {
+        return new ArrayList<>(stalls);
+    }
+
+    /**
+     * Writes the sampled stacks of the recorded stalls in a format similar to a thread dump.
+     *
+     * @param writer Destination of the dump; it is flushed but not closed.
+     */
+    public void dumpStalls(Writer writer) throws IOException {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        List<Stall> recorded = getStalls();
+        writer.write("EDT stalls longer than " + LatencyHistogram.formatMillis(stallThresholdNanos) + ": " + recorded.size() + "\n\n");
+        for (Stall stall : recorded) {
+            List<Long> offsets;
+            List<StackTraceElement[]> samples;
+            long duration;
+            synchronized (stall) {
+                offsets = new ArrayList<>(stall.sampleOffsets);
+                samples = new ArrayList<>(stall.samples);
+                duration = stall.durationNanos;
+            }
+            writer.write("Stall at " + format.format(new Date(stall.startTime)) + ", " + LatencyHistogram.formatMillis(duration)
+                    + (stall.action != null ? ", during \"" + stall.action + "\"" : "") + "\n");
+            for (int i = 0; i < samples.size(); i++) {
+                writer.write("  Sample at +" + offsets.get(i) + " ms:\n");
+                for (StackTraceElement element : samples.get(i)) {
+                    writer.write("    at " + element + "\n");
+                }
+            }
+            writer.write("\n");
+        }
+        writer.flush();
+    }
+
+    private LatencyHistogram histogram(String action) {
+        return actionHistograms.computeIfAbsent(action, name -> new LatencyHistogram());
+    }
+
+    /**
+     * Runs on the watchdog thread: posts the next heartbeat, or samples the EDT if the last one is late.
+     */
+    private void tick() {
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (heartbeatPostedAt == 0) {
+                heartbeatPostedAt = now;
+                SwingUtilities.invokeLater(this::heartbeat);
+                return;
+            }
+            long waited = now - heartbeatPostedAt;
+            if (waited < stallThresholdNanos) {
+                return;
+            }
+            if (currentStall == null) {
+                long startTime = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(waited);
+                currentStall = new Stall(startTime, currentAction);
+                stalls.addLast(currentStall);
+                if (stalls.size() > MAX_STALLS) {
+                    stalls.removeFirst();
+                }
+            }
+            synchronized (currentStall) {
+                currentStall.durationNanos = waited;
+                if (currentStall.samples.size() < MAX_SAMPLES_PER_STALL) {
+                    currentStall.samples.add(edt.getStackTrace());
+                    currentStall.sampleOffsets.add(TimeUnit.NANOSECONDS.toMillis(waited));
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs on the EDT when it gets to the heartbeat.
+     */
+    private void heartbeat() {
+        long waited;
+        synchronized (this) {
+            waited = System.nanoTime() - heartbeatPostedAt;
+            heartbeatPostedAt = 0;
+            edt = Thread.currentThread(); // AWT starts a new EDT after an uncaught exception
+            if (currentStall != null) {
+                synchronized (currentStall) {
+                    currentStall.durationNanos = waited;
+                }
+                currentStall = null;
+            }
+        }
+        dispatchLatency.record(waited);
+    }
+
+    /**
+     * Times every event the EDT dispatches, to find the busy time of the actions.
+     */
+    private final class MeasuringEventQueue extends EventQueue {
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            long start = System.nanoTime();
+            Dispatch outer = dispatches.peek();
+            if (outer != null && outer.firstNestedStart < 0) {
+                outer.firstNestedStart = start;
+            }
+            Dispatch dispatch = new Dispatch(start);
+            dispatches.push(dispatch);
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                long end = System.nanoTime();
+                dispatches.pop();
+                if (outer != null) {
+                    outer.lastNestedEnd = end;
+                }
+                if (dispatch.action != null) {
+                    long busy = dispatch.firstNestedStart < 0
+                            ? end - dispatch.start
+                            : (dispatch.firstNestedStart - dispatch.start) + (end - dispatch.lastNestedEnd);
+                    histogram(dispatch.action).record(busy);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,494 @@
+// GradeCalculator.java
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Grade computations that go beyond a single ClassRecord: hypothetical final grades and
+ * the needed-grades scenarios. Shared by the GUI and the headless batch mode.
+ */
+public final class GradeCalculator {
+
+    // Hypothetical final grades evaluated by each thread, reported as the iterations of the needed-grades search
+    private static final ThreadLocal<int[]> EVALUATIONS = ThreadLocal.withInitial(() -> new int[1]);
+
+    // Results of repeated queries; a class's version is part of every key, so a change to the class makes its entries unreachable
+    private static final int CACHE_CAPACITY = 64;
+    private static final ResultCache<QueryKey, List<Scenario>> NEEDED_RESULTS = new ResultCache<>(CACHE_CAPACITY);
+    private static final ResultCache<QueryKey, double[]> HYPOTHETICAL_RESULTS = new ResultCache<>(CACHE_CAPACITY);
+
+    private GradeCalculator() {
+    }
+
+    /**
+     * One needed-grades scenario: the score to earn on each remaining assignment of every category.
+     */
+    public static class Scenario {
+        private final String title;
+        private final double[] scores;
+        private final double finalGrade;
+        private final String letterGrade;
+
+        Scenario(String title, double[] scores, double finalGrade, String letterGrade) {
+            this.title = title;
+            this.scores = scores;
+            this.finalGrade = finalGrade;
+            this.letterGrade = letterGrade;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public double[] getScores() {
+            return scores.clone(); // Scenarios are cached and shared
+        }
+
+        public double getFinalGrade() {
+            return finalGrade;
+        }
+
+        public String getLetterGrade() {
+            return letterGrade;
+        }
+    }
+
+    /**
+     * The inputs of a query on one version of a class. The class is compared by identity.
+     */
+    private static final class QueryKey {
+        private final String query;
+        private final ClassRecord classRecord;
+        private final long version;
+        private final double target;
+        private final int[] remaining;
+        private final double[] averages;
+
+        QueryKey(String query, ClassRecord classRecord, double target, int[] remaining, double[] averages) {
+            this.query = query;
+            this.classRecord = classRecord;
+            this.version = classRecord.getVersion();
+            this.target = target;
+            this.remaining = remaining.clone();
+            this.averages = averages == null ? null : averages.clone();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof QueryKey)) {
+                return false;
+            }
+            QueryKey other = (QueryKey) o;
+            return classRecord == other.classRecord && version == other.version && query.equals(other.query)
+                    && Double.compare(target, other.target) == 0 && Arrays.equals(remaining, other.remaining)
+                    && Arrays.equals(averages, other.averages);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(classRecord);
+            hash = 31 * hash + Long.hashCode(version);
+            hash = 31 * hash + query.hashCode();
+            hash = 31 * hash + Double.hashCode(target);
+            hash = 31 * hash + Arrays.hashCode(remaining);
+            return 31 * hash + Arrays.hashCode(averages);
+        }
+    }
+
+    /**
+     * @return The cache of needed-grades scenarios, for diagnostics.
+     */
+    static ResultCache<?, ?> getNeededGradesCache() {
+        return NEEDED_RESULTS;
+    }
+
+    /**
+     * @return The cache of hypothetical and projected final grades, for diagnostics.
+     */
+    static ResultCache<?, ?> getHypotheticalCache() {
+        return HYPOTHETICAL_RESULTS;
+    }
+
+    /**
+     * Empties the result caches, e.g. to measure the computations themselves.
+     */
+    static void clearCaches() {
+        NEEDED_RESULTS.clear();
+        HYPOTHETICAL_RESULTS.clear();
+    }
+
+    /**
+     * Calculates the hypothetical final grade when each category receives a number of additional
+     * grades at a hypothetical average.
+     *
+     * @param classRecord The class record.
+     * @param remaining   Number of remaining assignments per category (same order as the categories).
+     * @param averages    Hypothetical average per category (same order as the categories).
+     * @return The calculated hypothetical final grade.
+     */
+    public static double calculateHypotheticalFinalGrade(ClassRecord classRecord, int[] remaining, double[] averages) {
+        return classRecord.withReadLock(() -> HYPOTHETICAL_RESULTS.get(new QueryKey("hypothetical", classRecord, 0.0, remaining, averages),
+                () -> new double[]{hypotheticalFinalGrade(classRecord, remaining, averages)}))[0];
+    }
+
+    private static double hypotheticalFinalGrade(ClassRecord classRecord, int[] remaining, double[] averages) {
+        double finalGrade = 0.0;
+        List<Category> categories = classRecord.getCategories();
+
+        // Compute the average of existing category averages
+        double averageOfAverages = calcAverageOfAverages(categories);
+
+        // Calculate the hypothetical final grade based on user inputs
+        for (int c = 0; c < categories.size(); c++) {
+            Category category = categories.get(c);
+            double categoryAverage;
+
+            if (category.hasGrades()) {
+                categoryAverage = category.calculateAverage();
+            } else {
+                // Assign average of existing categories
+                categoryAverage = averageOfAverages;
+            }
+
+            // Incorporate hypothetical grades
+            if (remaining[c] > 0) {
+                categoryAverage = category.calculateAverageWith(remaining[c], averages[c]);
+            }
+
+            finalGrade += categoryAverage * (category.getWeight() / 100.0);
+        }
+
+        // Apply rounding if enabled
+        if (classRecord.isUsesRounding()) {
+            finalGrade = roundUpToNextCutoff(classRecord, finalGrade);
+        } else {
+            // Round to two decimal places without rounding up
+            finalGrade = Math.round(finalGrade * 100.0) / 100.0;
+        }
+
+        // Add extra credit
+        finalGrade += classRecord.getExtraCredit();
+
+        // Ensure final grade does not exceed 100%
+        if (finalGrade > 100.0) {
+            finalGrade = 100.0;
+        }
+
+        // Round again if necessary after adding extra credit
+        finalGrade = Math.round(finalGrade * 100.0) / 100.0;
+
+        return finalGrade;
+    }
+
+    /**
+     * Projects each category's remaining assignments from the trend of its grades so far.
+     *
+     * @param classRecord The class record.
+     * @param remaining   Number of remaining assignments per category; categories without any count as one.
+     * @return Per category, the projection, or null if the category has no grades yet.
+     */
+    public static GradeTrend.Projection[] projectTrends(ClassRecord classRecord, int[] remaining) {
+        return classRecord.withReadLock(() -> trends(classRecord, remaining));
+    }
+
+    private static GradeTrend.Projection[] trends(ClassRecord classRecord, int[] remaining) {
+        List<Category> categories = classRecord.getCategories();
+        GradeTrend.Projection[] projections = new GradeTrend.Projection[categories.size()];
+        for (int i = 0; i < projections.length; i++) {
+            projections[i] = categories.get(i).projectGrades(Math.max(1, remaining[i]));
+        }
+        return projections;
+    }
+
+    /**
+     * Calculates the final grade if every category keeps its current trend, together with the final
+     * grades at the low and the high end of the projected ranges. Categories without grades count with
+     * the average of the other categories.
+     *
+     * @param classRecord The class record.
+     * @param remaining   Number of remaining assignments per category.
+     * @return The final grades {lower, projected, upper}.
+     */
+    public static double[] calculateProjectedFinalGrade(ClassRecord classRecord, int[] remaining) {
+        return classRecord.withReadLock(() -> HYPOTHETICAL_RESULTS.get(new QueryKey("projected", classRecord, 0.0, remaining, null),
+                () -> projectedFinalGrade(classRecord, remaining))).clone();
+    }
+
+    private static double[] projectedFinalGrade(ClassRecord classRecord, int[] remaining) {
+        GradeTrend.Projection[] projections = trends(classRecord, remaining);
+        double averageOfAverages = calcAverageOfAverages(classRecord.getCategories());
+        double[] lower = new double[projections.length];
+        double[] projected = new double[projections.length];
+        double[] upper = new double[projections.length];
+        for (int i = 0; i < projections.length; i++) {
+            GradeTrend.Projection projection = projections[i];
+            lower[i] = projection != null ? projection.getLower() : averageOfAverages;
+            projected[i] = projection != null ? projection.getScore() : averageOfAverages;
+            upper[i] = projection != null ? projection.getUpper() : averageOfAverages;
+        }
+        return new double[]{
+                hypotheticalFinalGrade(classRecord, remaining, lower),
+                hypotheticalFinalGrade(classRecord, remaining, projected),
+                hypotheticalFinalGrade(classRecord, remaining, upper)
+        };
+    }
+
+    /**
+     * Calculates the final grade if every remaining assignment of a category is scored at the given value.
+     *
+     * @param classRecord          The class record.
+     * @param remainingAssignments Number of remaining assignments per category.
+     * @param futureScores         Score on each remaining assignment, per category.
+     * @return The resulting final grade.
+     */
+    public static double calculateHypotheticalFinalWithGivenScores(ClassRecord classRecord, int[] remainingAssignments, double[] futureScores) {
+        EVALUATIONS.get()[0]++;
+        double finalGrade = 0.0;
+        List<Category> categories = classRecord.getCategories();
+        for (int i = 0; i < categories.size(); i++) {
+            Category cat = categories.get(i);
+            double avg = cat.calculateAverageWith(remainingAssignments[i], futureScores[i]);
+            finalGrade += avg * (cat.getWeight() / 100.0);
+        }
+
+        finalGrade += classRecord.getExtraCredit();
+        if (finalGrade > 100.0) finalGrade = 100.0;
+
+        if (classRecord.isUsesRounding()) {
+            finalGrade = roundUpToNextCutoff(classRecord, finalGrade);
+        } else {
+            finalGrade = Math.round(finalGrade * 100.0) / 100.0;
+        }
+
+        return finalGrade;
+    }
+
+    /**
+     * Builds the needed-grades scenarios for reaching a cutoff:
+     * the lazy scenario, the scenario close to the current trend, and one scenario focusing on each
+     * category that has remaining assignments. Asking again with the same inputs before the class changes
+     * returns the cached scenarios at once.
+     *
+     * @param classRecord          The class record.
+     * @param remainingAssignments Number of remaining assignments per category.
+     * @param desiredCutoff        The final grade to reach.
+     * @return The scenarios (read-only), or an empty list if the cutoff cannot be reached even with perfect scores.
+     */
+    public static List<Scenario> neededGradeScenarios(ClassRecord classRecord, int[] remainingAssignments, double desiredCutoff) {
+        GradeBookEvents.NeededGradesEvent event = new GradeBookEvents.NeededGradesEvent();
+        int[] evaluations = EVALUATIONS.get();
+        int evaluationsBefore = evaluations[0];
+        event.begin();
+        // All scenarios are computed from one consistent state of the class, or were for the same state before
+        boolean[] computed = new boolean[1];
+        List<Scenario> scenarios = classRecord.withReadLock(() -> NEEDED_RESULTS.get(
+                new QueryKey("needed", classRecord, desiredCutoff, remainingAssignments, null), () -> {
+                    computed[0] = true;
+                    return Collections.unmodifiableList(scenarios(classRecord, remainingAssignments, desiredCutoff));
+                }));
+        event.end();
+        if (event.shouldCommit()) {
+            event.className = classRecord.getName();
+            event.categoryCount = remainingAssignments.length;
+            event.scenarioCount = scenarios.size();
+            event.iterations = evaluations[0] - evaluationsBefore;
+            event.cached = !computed[0];
+            event.commit();
+        }
+        return scenarios;
+    }
+
+    private static List<Scenario> scenarios(ClassRecord classRecord, int[] remainingAssignments, double desiredCutoff) {
+        List<Category> categories = classRecord.getCategories();
+        List<Scenario> scenarios = new ArrayList<>();
+
+        // Check feasibility: max out future assignments at 100%
+        double maxPossibleFinal = calculateHypotheticalFinalWithGivenScores(classRecord, remainingAssignments, fillArray(categories.size(), 100.0));
+        if (maxPossibleFinal < desiredCutoff) {
+            return scenarios;
+        }
+
+        // Lazy Scenario: zero effort if that already reaches the cutoff, otherwise the minimal scores needed
+        double[] zeroScores = fillArray(categories.size(), 0.0);
+        double lazyFinal = calculateHypotheticalFinalWithGivenScores(classRecord, remainingAssignments, zeroScores);
+        double[] lazyScores = lazyFinal >= desiredCutoff ? zeroScores : scenarioLazyMinimalEffort(classRecord, remainingAssignments, desiredCutoff);
+        scenarios.add(scenario(classRecord, "Scenario L (Lazy)", remainingAssignments, lazyScores));
+
+        // Scenario 1: Close to current trend
+        double[] scenario1Scores = scenarioCloseToCurrentTrend(classRecord, remainingAssignments, desiredCutoff);
+        scenarios.add(scenario(classRecord, "Scenario 1 (Close to Current Trend)", remainingAssignments, scenario1Scores));
+
+        // Additional scenarios: focus on each category (only if it has remaining assignments)
+        int scenarioCounter = 2 + scenarios.size(); // Adjust scenario numbering based on how many we have so far
+        for (int i = 0; i < categories.size(); i++) {
+            if (remainingAssignments[i] > 0) {
+                double[] focusedScores = scenarioFocusOnCategory(classRecord, remainingAssignments, desiredCutoff, i);
+                scenarios.add(scenario(classRecord, "Scenario " + scenarioCounter++ + " (Focus on " + categories.get(i).getName() + ")",
+                        remainingAssignments, focusedScores));
+            }
+        }
+        return scenarios;
+    }
+
+    private static Scenario scenario(ClassRecord classRecord, String title, int[] remainingAssignments, double[] scores) {
+        double finalGrade = calculateHypotheticalFinalWithGivenScores(classRecord, remainingAssignments, scores);
+        return new Scenario(title, scores, finalGrade, classRecord.getGradingScale().getLetterGrade(finalGrade));
+    }
+
+    /**
+     * This scenario tries to find minimal future scores needed if currently at/above desired grade but
+     * going forward zero scores would drop below the cutoff.
+     * We'll start from all zeros and increment all categories slightly until we reach the cutoff.
+     * This is a simplistic approach; you can refine it using binary search if desired.
+     */
+    static double[] scenarioLazyMinimalEffort(ClassRecord classRecord, int[] remainingAssignments, double desiredCutoff) {
+        List<Category> categories = classRecord.getCategories();
+        double[] futureScores = fillArray(categories.size(), 0.0);
+
+        // Simple increment approach: we try small increments across all categories until we reach the cutoff
+        double increment = 0.5;
+        double currentFinal = calculateHypotheticalFinalWithGivenScores(classRecord, remainingAssignments, futureScores);
+
+        while (currentFinal < desiredCutoff) {
+            boolean changed = false;
+            for (int i = 0; i < futureScores.length; i++) {
+                if (remainingAssignments[i] > 0 && futureScores[i] < 100.0) {
+                    futureScores[i] = Math.min(100.0, futureScores[i] + increment);
+                    changed = true;
+                }
+            }
+            currentFinal = calculateHypotheticalFinalWithGivenScores(classRecord, remainingAssignments, futureScores);
+            if (!changed) break;
+        }
+
+        // If needed, we could try to lower some categories again to find truly minimal scores,
+        // but this at least ensures we meet the cutoff with small increments.
+        return futureScores;
+    }
+
+    /**
+     * This scenario starts from where each category is heading: the scores projected from the trend of its
+     * grades (see {@link GradeTrend}), then raises all categories evenly until the cutoff is reached.
+     */
+    static double[] scenarioCloseToCurrentTrend(ClassRecord classRecord, int[] remainingAssignments, double desiredCutoff) {
+        List<Category> categories = classRecord.getCategories();
+        double[] futureScores = new double[categories.size()];
+        double averageOfAverages = calcAverageOfAverages(categories);
+        GradeTrend.Projection[] projections = trends(classRecord, remainingAssignments);
+
+        for (int i = 0; i < categories.size(); i++) {
+            futureScores[i] = projections[i] != null ? projections[i].getScore() : averageOfAverages;
+        }
+
+        double currentFinal = calculateHypotheticalFinalWithGivenScores(classRecord, remainingAssignments, futureScores);
+        if (currentFinal >= desiredCutoff) {
+            return futureScores;
+        }
+
+        double increment = 0.5;
+        while (currentFinal < desiredCutoff) {
+            boolean canIncrease = false;
+            for (int i = 0; i < futureScores.length; i++) {
+                if (futureScores[i] < 100.0) {
+                    futureScores[i] = Math.min(100.0, futureScores[i] + increment);
+                    canIncrease = true;
+                }
+            }
+            currentFinal = calculateHypotheticalFinalWithGivenScores(classRecord, remainingAssignments, futureScores);
+            if (!canIncrease) break;
+        }
+        return futureScores;
+    }
+
+    static double[] scenarioFocusOnCategory(ClassRecord classRecord, int[] remainingAssignments, double desiredCutoff, int focusIndex) {
+        List<Category> categories = classRecord.getCategories();
+        double averageOfAverages = calcAverageOfAverages(categories);
+
+        double[] futureScores = new double[categories.size()];
+        for (int i = 0; i < categories.size(); i++) {
+            if (i == focusIndex) {
+                futureScores[i] = 100.0;
+            } else {
+                Category cat = categories.get(i);
+                double avg = cat.hasGrades() ? cat.calculateAverage() : averageOfAverages;
+                futureScores[i] = avg;
+            }
+        }
+
+        double currentFinal = calculateHypotheticalFinalWithGivenScores(classRecord, remainingAssignments, futureScores);
+        if (currentFinal >= desiredCutoff) return futureScores;
+
+        double increment = 1.0;
+        boolean improved = true;
+        while (currentFinal < desiredCutoff && improved) {
+            improved = false;
+            for (int i = 0; i < futureScores.length; i++) {
+                if (i != focusIndex && futureScores[i] < 100.0) {
+                    futureScores[i] = Math.min(100.0, futureScores[i] + increment);
+                    improved = true;
+                }
+            }
+            currentFinal = calculateHypotheticalFinalWithGivenScores(classRecord, remainingAssignments, futureScores);
+        }
+        return futureScores;
+    }
+
+    /**
+     * Returns the cutoff percentage for a given letter grade, or -1 if the scale has no such letter.
+     */
+    public static double getCutoffForLetterGrade(String letterGrade, SortedMap<Double, String> scaleMap) {
+        double foundCutoff = -1.0;
+        for (Map.Entry<Double, String> entry : scaleMap.entrySet()) {
+            if (entry.getValue().equalsIgnoreCase(letterGrade)) {
+                foundCutoff = entry.getKey();
+                break;
+            }
+        }
+        return foundCutoff;
+    }
+
+    /**
+     * Rounds a grade up to the next cutoff of the class's grading scale if it is within the rounding threshold.
+     */
+    private static double roundUpToNextCutoff(ClassRecord classRecord, double finalGrade) {
+        // Retrieve the grading scale map in descending order
+        SortedMap<Double, String> scaleMapDesc = classRecord.getGradingScale().getScale();
+        Double nextCutoff = null;
+        for (Map.Entry<Double, String> entry : scaleMapDesc.entrySet()) {
+            if (finalGrade < entry.getKey()) {
+                nextCutoff = entry.getKey();
+            } else {
+                break; // Found the appropriate cutoff
+            }
+        }
+        if (nextCutoff != null) {
+            double difference = nextCutoff - finalGrade;
+            if (difference <= classRecord.getRoundingThreshold()) {
+                finalGrade = nextCutoff;
+            }
+        }
+        return finalGrade;
+    }
+
+    static double[] fillArray(int length, double val) {
+        double[] arr = new double[length];
+        for (int i = 0; i < length; i++) arr[i] = val;
+        return arr;
+    }
+
+    static double calcAverageOfAverages(List<Category> categories) {
+        ArrayList<Double> existingAverages = new ArrayList<>();
+        for (Category category : categories) {
+            if (category.hasGrades()) {
+                existingAverages.add(category.calculateAverage());
+            }
+        }
+        if (existingAverages.isEmpty()) return 0.0;
+        double sum = 0.0;
+        for (double avg : existingAverages) sum += avg;
+        return sum / existingAverages.size();
+    }
+}
@@ -0,0 +1,335 @@
+// GradeEvent.java
+import java.util.List;
+
+/**
+ * A single change to a GradeBook: the typed unit of the grade history log.
+ * Each event names the class and category by name and carries enough data to replay the change
+ * (and, for edits and deletions, the previous value so it can be reverted).
+ */
+public final class GradeEvent {
+
+    public enum Type {
+        CLASS_ADDED,
+        CLASS_REMOVED,
+        CATEGORY_ADDED,
+        CATEGORIES_CLEARED,
+        GRADE_ADDED,
+        GRADE_EDITED,
+        GRADE_DELETED,
+        EXTRA_CREDIT_SET,
+        CATEGORY_REMOVED,
+        GRADE_INSERTED,
+        WEIGHT_CHANGED,
+        SCALE_CHANGED,
+        CREDIT_HOURS_SET,
+        PRIOR_TERMS_SET
+    }
+
+    private final Type type;
+    private final long timestamp;
+    private final String className;
+    private final String categoryName;
+    private final int index;
+    private final double value;
+    private final double oldValue;
+    // Points the new and the previous grade are out of; 100 for grades entered as percentages
+    private final double possible;
+    private final double oldPossible;
+    // When the added, inserted or deleted grade was given
+    private final long gradeTime;
+    // Class settings (CLASS_ADDED) or category settings (CATEGORY_ADDED, where it means total-points averaging)
+    private final boolean usesRounding;
+    private final String scale;
+    private final int numGradesDropped;
+    // The removed ClassRecord, Category or List of Categories, kept in memory only so the removal can be undone
+    private final transient Object removed;
+
+    GradeEvent(Type type, long timestamp, String className, String categoryName, int index, double value, double oldValue,
+               boolean usesRounding, String scale, int numGradesDropped) {
+        this(type, timestamp, className, categoryName, index, value, oldValue, 100.0, 100.0, Category.NO_TIMESTAMP, usesRounding,
+                scale, numGradesDropped, null);
+    }
+
+    GradeEvent(Type type, long timestamp, String className, String categoryName, int index, double value, double oldValue,
+               double possible, double oldPossible, long gradeTime, boolean usesRounding, String scale, int numGradesDropped) {
+        this(type, timestamp, className, categoryName, index, value, oldValue, possible, oldPossible, gradeTime, usesRounding,
+                scale, numGradesDropped, null);
+    }
+
+    private GradeEvent(Type type, long timestamp, String className, String categoryName, int index, double value, double oldValue,
+                       double possible, double oldPossible, long gradeTime, boolean usesRounding, String scale,
+                       int numGradesDropped, Object removed) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.className = className;
+        this.categoryName = categoryName;
+        this.index = index;
+        this.value = value;
+        this.oldValue = oldValue;
+        this.possible = possible;
+        this.oldPossible = oldPossible;
+        this.gradeTime = gradeTime;
+        this.usesRounding = usesRounding;
+        this.scale = scale;
+        this.numGradesDropped = numGradesDropped;
+        this.removed = removed;
+    }
+
+    static GradeEvent classAdded(ClassRecord classRecord) {
+        return new GradeEvent(Type.CLASS_ADDED, System.currentTimeMillis(), classRecord.getName(), null, -1,
+                classRecord.getRoundingThreshold(), 0.0, classRecord.isUsesRounding(),
+                GradeBookStore.formatScale(classRecord.getGradingScale()), 0);
+    }
+
+    static GradeEvent classRemoved(ClassRecord classRecord) {
+        return new GradeEvent(Type.CLASS_REMOVED, System.currentTimeMillis(), classRecord.getName(), null, -1, 0.0, 0.0,
+                100.0, 100.0, Category.NO_TIMESTAMP, false, null, 0, classRecord);
+    }
+
+    static GradeEvent categoryAdded(String className, Category category) {
+        return new GradeEvent(Type.CATEGORY_ADDED, System.currentTimeMillis(), className, category.getName(), -1,
+                category.getWeight(), 0.0, category.getAveraging() == Category.Averaging.TOTAL_POINTS, null,
+                category.getNumGradesDropped());
+    }
+
+    static GradeEvent categoryRemoved(String className, Category category) {
+        return new GradeEvent(Type.CATEGORY_REMOVED, System.currentTimeMillis(), className, category.getName(), -1, 0.0, 0.0,
+                100.0, 100.0, Category.NO_TIMESTAMP, false, null, 0, category);
+    }
+
+    static GradeEvent categoriesCleared(String className, List<Category> categories) {
+        return new GradeEvent(Type.CATEGORIES_CLEARED, System.currentTimeMillis(), className, null, -1, 0.0, 0.0,
+                100.0, 100.0, Category.NO_TIMESTAMP, false, null, 0, categories);
+    }
+
+    static GradeEvent gradeAdded(String className, String categoryName, int index, double earned, double possible,
+                                 long gradeTime, long timestamp) {
+        return new GradeEvent(Type.GRADE_ADDED, timestamp, className, categoryName, index, earned, 0.0,
+                possible, 100.0, gradeTime, false, null, 0);
+    }
+
+    static GradeEvent gradeInserted(String className, String categoryName, int index, double earned, double possible,
+                                    long gradeTime, long timestamp) {
+        return new GradeEvent(Type.GRADE_INSERTED, timestamp, className, categoryName, index, earned, 0.0,
+                possible, 100.0, gradeTime, false, null, 0);
+    }
+
+    static GradeEvent gradeEdited(String className, String categoryName, int index, double earned, double possible,
+                                  double oldEarned, double oldPossible) {
+        return new GradeEvent(Type.GRADE_EDITED, System.currentTimeMillis(), className, categoryName, index, earned, oldEarned,
+                possible, oldPossible, Category.NO_TIMESTAMP, false, null, 0);
+    }
+
+    static GradeEvent gradeDeleted(String className, String categoryName, int index, double oldEarned, double oldPossible,
+                                   long oldGradeTime) {
+        return new GradeEvent(Type.GRADE_DELETED, System.currentTimeMillis(), className, categoryName, index, 0.0, oldEarned,
+                100.0, oldPossible, oldGradeTime, false, null, 0);
+    }
+
+    static GradeEvent weightChanged(String className, String categoryName, double weight, double oldWeight) {
+        return simple(Type.WEIGHT_CHANGED, className, categoryName, -1, weight, oldWeight);
+    }
+
+    static GradeEvent scaleChanged(String className, GradingScale gradingScale, GradingScale oldGradingScale) {
+        return new GradeEvent(Type.SCALE_CHANGED, System.currentTimeMillis(), className, null, -1, 0.0, 0.0,
+                100.0, 100.0, Category.NO_TIMESTAMP, false, GradeBookStore.formatScale(gradingScale), 0, oldGradingScale);
+    }
+
+    static GradeEvent extraCreditSet(String className, double extraCredit, double oldExtraCredit) {
+        return simple(Type.EXTRA_CREDIT_SET, className, null, -1, extraCredit, oldExtraCredit);
+    }
+
+    static GradeEvent creditHoursSet(String className, double creditHours, double oldCreditHours) {
+        return simple(Type.CREDIT_HOURS_SET, className, null, -1, creditHours, oldCreditHours);
+    }
+
+    /**
+     * The totals of earlier terms changed; the event belongs to the GradeBook, not to a class.
+     */
+    static GradeEvent priorTermsSet(double creditHours, double qualityPoints, double oldCreditHours, double oldQualityPoints) {
+        return new GradeEvent(Type.PRIOR_TERMS_SET, System.currentTimeMillis(), null, null, -1, creditHours, oldCreditHours,
+                qualityPoints, oldQualityPoints, Category.NO_TIMESTAMP, false, null, 0);
+    }
+
+    private static GradeEvent simple(Type type, String className, String categoryName, int index, double value, double oldValue) {
+        return new GradeEvent(type, System.currentTimeMillis(), className, categoryName, index, value, oldValue, false, null, 0);
+    }
+
+    /**
+     * Returns a copy of this event with another timestamp.
+     */
+    GradeEvent withTimestamp(long newTimestamp) {
+        return new GradeEvent(type, newTimestamp, className, categoryName, index, value, oldValue, possible, oldPossible, gradeTime,
+                usesRounding, scale, numGradesDropped, removed);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return The name of the changed class, or null for a change to the whole GradeBook (PRIOR_TERMS_SET).
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    /**
+     * @return The grade index for additions, insertions, edits and deletions (-1 if not known), -1 otherwise.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The points earned on the new grade, the new extra credit or credit hours, the rounding threshold (CLASS_ADDED), the weight (CATEGORY_ADDED, WEIGHT_CHANGED) or the prior credit hours (PRIOR_TERMS_SET).
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * @return The points earned on the previous grade (GRADE_EDITED, GRADE_DELETED), extra credit (EXTRA_CREDIT_SET), credit hours (CREDIT_HOURS_SET), weight (WEIGHT_CHANGED) or prior credit hours (PRIOR_TERMS_SET).
+     */
+    public double getOldValue() {
+        return oldValue;
+    }
+
+    /**
+     * @return The points the new grade is out of (GRADE_ADDED, GRADE_INSERTED, GRADE_EDITED) or the prior quality
+     * points (PRIOR_TERMS_SET); 100 otherwise.
+     */
+    public double getPossible() {
+        return possible;
+    }
+
+    /**
+     * @return The points the previous grade was out of (GRADE_EDITED, GRADE_DELETED) or the previous prior
+     * quality points (PRIOR_TERMS_SET); 100 otherwise.
+     */
+    public double getOldPossible() {
+        return oldPossible;
+    }
+
+    /**
+     * @return When the added or inserted grade (GRADE_ADDED, GRADE_INSERTED) or the deleted grade
+     * (GRADE_DELETED) was given, which differs from the event's timestamp for grades entered after the
+     * fact; {@link Category#NO_TIMESTAMP} otherwise.
+     */
+    public long getGradeTime() {
+        return gradeTime;
+    }
+
+    public boolean isUsesRounding() {
+        return usesRounding;
+    }
+
+    /**
+     * @return How the added category averages its grades (CATEGORY_ADDED).
+     */
+    public Category.Averaging getAveraging() {
+        return usesRounding ? Category.Averaging.TOTAL_POINTS : Category.Averaging.EQUAL_WEIGHT;
+    }
+
+    /**
+     * @return The grading scale in GradeBookStore's "cutoff:letter;..." form (CLASS_ADDED, SCALE_CHANGED).
+     */
+    public String getScale() {
+        return scale;
+    }
+
+    public int getNumGradesDropped() {
+        return numGradesDropped;
+    }
+
+    /**
+     * @return The removed ClassRecord (CLASS_REMOVED), Category (CATEGORY_REMOVED), List of Categories
+     * (CATEGORIES_CLEARED) or replaced GradingScale (SCALE_CHANGED); null for events read back from a history log.
+     */
+    Object getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Applies this event to a GradeBook, e.g. to replay a history log.
+     * The GradeBook's listeners are notified as usual.
+     *
+     * @param gradeBook The GradeBook to change.
+     * @throws IllegalStateException If the class or category the event refers to does not exist.
+     */
+    public void applyTo(GradeBook gradeBook) {
+        if (type == Type.CLASS_ADDED) {
+            gradeBook.addClass(new ClassRecord(className, GradeBookStore.parseScale(scale), usesRounding, value));
+            return;
+        }
+        if (type == Type.CLASS_REMOVED) {
+            gradeBook.removeClass(className);
+            return;
+        }
+        if (type == Type.PRIOR_TERMS_SET) {
+            gradeBook.setPriorTerms(value, possible);
+            return;
+        }
+        ClassRecord classRecord = gradeBook.getClassByName(className);
+        if (classRecord == null) {
+            throw new IllegalStateException("Unknown class '" + className + "' in " + type + " event");
+        }
+        switch (type) {
+            case CATEGORY_ADDED:
+                classRecord.addCategory(new Category(categoryName, value, numGradesDropped, getAveraging()));
+                return;
+            case CATEGORY_REMOVED:
+                classRecord.removeCategory(categoryName);
+                return;
+            case CATEGORIES_CLEARED:
+                classRecord.clearCategories();
+                return;
+            case EXTRA_CREDIT_SET:
+                classRecord.setExtraCredit(value);
+                return;
+            case CREDIT_HOURS_SET:
+                classRecord.setCreditHours(value);
+                return;
+            case SCALE_CHANGED:
+                classRecord.setGradingScale(GradeBookStore.parseScale(scale));
+                return;
+            default:
+                break;
+        }
+        Category category = classRecord.getCategoryByName(categoryName);
+        if (category == null) {
+            throw new IllegalStateException("Unknown category '" + categoryName + "' in " + type + " event");
+        }
+        switch (type) {
+            case GRADE_ADDED:
+                category.addGrade(value, possible, gradeTime);
+                break;
+            case GRADE_INSERTED:
+                category.insertGrade(index, value, possible, gradeTime);
+                break;
+            case GRADE_EDITED:
+                category.editGrade(index, value, possible);
+                break;
+            case WEIGHT_CHANGED:
+                category.setWeight(value);
+                break;
+            default:
+                category.deleteGrade(index);
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return type + "[" + className + (categoryName != null ? "/" + categoryName : "") + (index >= 0 ? " #" + index : "")
+                + " value=" + value + " old=" + oldValue + " at " + timestamp + "]";
+    }
+}
@@ -0,0 +1,726 @@
+// GradeHistory.java
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only, event-sourced history of a GradeBook.
+ * Every change is appended to a compact binary log as a typed GradeEvent, so the GradeBook can be
+ * rebuilt as of any point in time. Every {@code snapshotInterval} events (and whenever a GradeBook that
+ * differs from the end of the log is attached) a compressed snapshot of the whole book is written into
+ * the log as well, so rebuilding only replays the events after the nearest snapshot instead of the whole
+ * log. {@link #compact(long)} drops the part of the log before a point in time.
+ * <p>
+ * A change that cannot be written stops the recording instead of failing the change: the failure is
+ * handed to the failure handler, and recording resumes with a new snapshot when a GradeBook is attached
+ * again.
+ * <p>
+ * Record layout: a type byte and a timestamp (epoch millis), followed by the event's fields, or for
+ * snapshots by the length-prefixed, GZIP-compressed contents of every class, category and grade.
+ * Events about points-based grades or total-points categories are written as extended records: the
+ * byte {@link #EXTENDED}, the timestamp, the event's type byte and fields, and then the points possible
+ * or the averaging. A grade given at another time than it was recorded (entered after the fact, or
+ * restored by an undo) is written as a timed record: like an extended one, with the time it was given
+ * after the points possible. Other events keep the shorter form, which older versions can read.
+ */
+public class GradeHistory implements GradeBookListener, Closeable {
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 5000;
+    public static final long DEFAULT_RETENTION_DAYS = 365;
+
+    private static final int MAGIC = 0x47424831; // "GBH1"
+    private static final byte SNAPSHOT = 127;
+    private static final byte EXTENDED = 126;
+    private static final byte TIMED = 125;
+    // Lead snapshots that store points and averaging, also grade times, also credit hours, and also the
+    // prior terms; older snapshots start with the class count
+    private static final int POINTS_SNAPSHOT = -1;
+    private static final int TIMED_SNAPSHOT = -2;
+    private static final int CREDIT_SNAPSHOT = -3;
+    private static final int PRIOR_SNAPSHOT = -4;
+    private static final GradeEvent.Type[] TYPES = GradeEvent.Type.values();
+
+    /**
+     * Position and time of a snapshot record in the log.
+     */
+    private static class SnapshotRef {
+        final long timestamp;
+        final long offset;
+
+        SnapshotRef(long timestamp, long offset) {
+            this.timestamp = timestamp;
+            this.offset = offset;
+        }
+    }
+
+    private final File file;
+    private final int snapshotInterval;
+    private final List<SnapshotRef> snapshots = new ArrayList<>();
+    private FileOutputStream fileOut;
+    private DataOutputStream out;
+    private long size; // Bytes in the log, including buffered ones
+    private long lastTimestamp;
+    private int eventsSinceSnapshot;
+    private GradeBook attached;
+    private IOException failure; // Why recording stopped, or null while it works
+    private Consumer<IOException> failureHandler;
+
+    /**
+     * Opens (or creates) a history log. A torn record at the end, e.g. after a crash, is cut off.
+     *
+     * @param file             The log file.
+     * @param snapshotInterval Number of events between two snapshots.
+     */
+    public GradeHistory(File file, int snapshotInterval) throws IOException {
+        this.file = file;
+        this.snapshotInterval = snapshotInterval;
+        if (file.exists() && file.length() > 0) {
+            size = scan();
+            truncate(size);
+            openForAppend();
+        } else {
+            fileOut = new FileOutputStream(file);
+            out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(MAGIC);
+            size = 4;
+        }
+    }
+
+    /**
+     * Starts recording the changes of a GradeBook, replacing any GradeBook recorded before.
+     * Unless the GradeBook's current state is the state at the end of the log, it is written as a snapshot
+     * first, so the history stays correct even if the data file was changed outside of it (e.g. the previous
+     * session ended without saving). After a failure, the log is cut back to its last intact record first.
+     */
+    public synchronized void attach(GradeBook gradeBook) throws IOException {
+        if (attached != null) {
+            attached.removeListener(this);
+            attached = null;
+        }
+        if (failure != null) {
+            reopen();
+        }
+        byte[] state = encodeSnapshot(gradeBook);
+        if (snapshots.isEmpty() || !Arrays.equals(state, encodeSnapshot(rebuild(Long.MAX_VALUE)))) {
+            writeSnapshot(state, nextTimestamp(System.currentTimeMillis()));
+        }
+        attached = gradeBook;
+        gradeBook.addListener(this);
+    }
+
+    /**
+     * Sets who is told when a change cannot be recorded. The handler runs in the thread that made the
+     * change, with the changed class locked, so it should only hand the failure on, e.g. to the GUI.
+     *
+     * @param failureHandler Receives the failure, or null to only keep it for {@link #getFailure()}.
+     */
+    public synchronized void setFailureHandler(Consumer<IOException> failureHandler) {
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * @return Why recording stopped, or null if every change since the last attach was recorded.
+     */
+    public synchronized IOException getFailure() {
+        return failure;
+    }
+
+    @Override
+    public synchronized void gradeBookChanged(GradeEvent event) {
+        if (failure != null) {
+            // The log misses a change, so nothing after it can be replayed until a new snapshot is written
+            return;
+        }
+        try {
+            long timestamp = nextTimestamp(event.getTimestamp());
+            writeEvent(event, timestamp);
+            if (++eventsSinceSnapshot >= snapshotInterval) {
+                // Snapshot the state replayed from the log itself, so no other class locks are needed here
+                writeSnapshot(encodeSnapshot(rebuild(timestamp)), timestamp);
+            }
+        } catch (IOException e) {
+            // The change itself is already made; failing it here would only break the caller
+            failure = new IOException("Could not record " + event, e);
+            if (failureHandler != null) {
+                failureHandler.accept(failure);
+            }
+        }
+    }
+
+    /**
+     * Drops the part of the log that is only needed for points in time before the given one. The log then
+     * starts with the latest snapshot at or before that time, so every later point in time can still be
+     * rebuilt.
+     *
+     * @param keepSince The earliest point in time (epoch millis) to keep.
+     * @return The number of bytes dropped.
+     */
+    public synchronized long compact(long keepSince) throws IOException {
+        SnapshotRef start = latestSnapshotAtOrBefore(keepSince);
+        if (start == null || start.offset == 4) {
+            return 0;
+        }
+        out.flush();
+        // Written next to the log and moved into place, so a failed compaction leaves the log as it was
+        File temporary = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             DataOutputStream copy = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16))) {
+            copy.writeInt(MAGIC);
+            raf.seek(start.offset);
+            byte[] buffer = new byte[1 << 16];
+            for (long remaining = size - start.offset; remaining > 0; ) {
+                int read = raf.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new EOFException(file + " is shorter than expected");
+                }
+                copy.write(buffer, 0, read);
+                remaining -= read;
+            }
+        } catch (IOException e) {
+            temporary.delete();
+            throw e;
+        }
+        out.close();
+        try {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            temporary.delete();
+            openForAppend();
+            throw e;
+        }
+        openForAppend();
+        long dropped = start.offset - 4;
+        List<SnapshotRef> kept = new ArrayList<>();
+        for (SnapshotRef snapshot : snapshots) {
+            if (snapshot.offset >= start.offset) {
+                kept.add(new SnapshotRef(snapshot.timestamp, snapshot.offset - dropped));
+            }
+        }
+        snapshots.clear();
+        snapshots.addAll(kept);
+        size -= dropped;
+        return dropped;
+    }
+
+    /**
+     * Rebuilds the GradeBook as it was at a point in time.
+     *
+     * @param timestamp The point in time (epoch millis); changes made later are not included.
+     * @return A new GradeBook with the state at that time (empty if the history starts later).
+     */
+    public synchronized GradeBook asOf(long timestamp) throws IOException {
+        return rebuild(timestamp);
+    }
+
+    /**
+     * @return The timestamp of the first snapshot, or -1 if the history is empty.
+     */
+    public synchronized long getStartTime() {
+        return snapshots.isEmpty() ? -1 : snapshots.get(0).timestamp;
+    }
+
+    /**
+     * Writes buffered records to the file.
+     */
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (attached != null) {
+            attached.removeListener(this);
+            attached = null;
+        }
+        out.close();
+    }
+
+    private void openForAppend() throws IOException {
+        fileOut = new FileOutputStream(file, true);
+        out = new DataOutputStream(new BufferedOutputStream(fileOut));
+    }
+
+    private void truncate(long length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        }
+    }
+
+    /**
+     * Reopens the log after a failed write: records still buffered are discarded rather than written after
+     * a gap, and a torn record at the end is cut off.
+     */
+    private void reopen() throws IOException {
+        try {
+            fileOut.close();
+        } catch (IOException e) {
+            // The stream is abandoned either way
+        }
+        snapshots.clear();
+        eventsSinceSnapshot = 0;
+        size = scan();
+        truncate(size);
+        openForAppend();
+        failure = null;
+    }
+
+    private GradeBook rebuild(long timestamp) throws IOException {
+        out.flush();
+        SnapshotRef start = latestSnapshotAtOrBefore(timestamp);
+        if (start == null) {
+            return new GradeBook();
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(start.offset);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(raf.getFD()), 1 << 16));
+            GradeBook gradeBook = null;
+            long position = start.offset;
+            while (position < size) {
+                byte type = in.readByte();
+                long recordTime = in.readLong();
+                if (recordTime > timestamp) {
+                    break;
+                }
+                if (type == SNAPSHOT) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    position += 1 + 8 + 4 + bytes.length;
+                    // A later snapshot within the range replaces everything replayed so far
+                    gradeBook = readSnapshot(bytes);
+                } else {
+                    GradeEvent event = type == EXTENDED || type == TIMED
+                            ? readEvent(in, TYPES[in.readByte()], recordTime, true, type == TIMED)
+                            : readEvent(in, TYPES[type], recordTime, false, false);
+                    position += 1 + 8 + eventSize(event);
+                    event.applyTo(gradeBook);
+                }
+            }
+            return gradeBook;
+        }
+    }
+
+    private SnapshotRef latestSnapshotAtOrBefore(long timestamp) {
+        int low = 0;
+        int high = snapshots.size() - 1;
+        SnapshotRef found = null;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (snapshots.get(mid).timestamp <= timestamp) {
+                found = snapshots.get(mid);
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private long nextTimestamp(long timestamp) {
+        // Keep the log ordered even if the clock goes backwards
+        lastTimestamp = Math.max(lastTimestamp, timestamp);
+        return lastTimestamp;
+    }
+
+    /**
+     * @return The uncompressed contents of a snapshot of the GradeBook.
+     */
+    private static byte[] encodeSnapshot(GradeBook gradeBook) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream snapshotOut = new DataOutputStream(new BufferedOutputStream(bytes, 1 << 16))) {
+            List<ClassRecord> classes = gradeBook.getClasses();
+            snapshotOut.writeInt(PRIOR_SNAPSHOT);
+            snapshotOut.writeDouble(gradeBook.getPriorCreditHours());
+            snapshotOut.writeDouble(gradeBook.getPriorQualityPoints());
+            snapshotOut.writeInt(classes.size());
+            for (ClassRecord classRecord : classes) {
+                snapshotOut.writeUTF(classRecord.getName());
+                snapshotOut.writeBoolean(classRecord.isUsesRounding());
+                snapshotOut.writeDouble(classRecord.getRoundingThreshold());
+                snapshotOut.writeUTF(GradeBookStore.formatScale(classRecord.getGradingScale()));
+                snapshotOut.writeDouble(classRecord.getExtraCredit());
+                snapshotOut.writeDouble(classRecord.getCreditHours());
+                List<Category> categories = classRecord.getCategories();
+                snapshotOut.writeInt(categories.size());
+                for (Category category : categories) {
+                    snapshotOut.writeUTF(category.getName());
+                    snapshotOut.writeDouble(category.getWeight());
+                    snapshotOut.writeInt(category.getNumGradesDropped());
+                    snapshotOut.writeBoolean(category.getAveraging() == Category.Averaging.TOTAL_POINTS);
+                    long[] grades = category.getPackedGrades();
+                    long[] timestamps = category.getTimestamps();
+                    snapshotOut.writeInt(grades.length);
+                    for (int g = 0; g < grades.length; g++) {
+                        snapshotOut.writeDouble(Category.earnedPointsOf(grades[g]));
+                        snapshotOut.writeDouble(Category.possiblePointsOf(grades[g]));
+                        snapshotOut.writeLong(timestamps[g]);
+                    }
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private void writeSnapshot(byte[] state, long timestamp) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream compressed = new GZIPOutputStream(bytes, 1 << 16)) {
+            compressed.write(state);
+        }
+        snapshots.add(new SnapshotRef(timestamp, size));
+        out.writeByte(SNAPSHOT);
+        out.writeLong(timestamp);
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+        size += 1 + 8 + 4 + bytes.size();
+        eventsSinceSnapshot = 0;
+    }
+
+    private static GradeBook readSnapshot(byte[] bytes) throws IOException {
+        // A plain field-by-field encoding: Java serialization of the boxed grades would dominate the rebuild time
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new ByteArrayInputStream(bytes)), 1 << 16))) {
+            GradeBook gradeBook = new GradeBook();
+            int classCount = in.readInt();
+            if (classCount == PRIOR_SNAPSHOT) {
+                gradeBook.setPriorTerms(in.readDouble(), in.readDouble());
+            }
+            boolean withCredits = classCount == PRIOR_SNAPSHOT || classCount == CREDIT_SNAPSHOT;
+            boolean withTimes = withCredits || classCount == TIMED_SNAPSHOT;
+            boolean withPoints = withTimes || classCount == POINTS_SNAPSHOT;
+            if (withPoints) {
+                classCount = in.readInt();
+            }
+            for (int c = 0; c < classCount; c++) {
+                String name = in.readUTF();
+                boolean usesRounding = in.readBoolean();
+                double roundingThreshold = in.readDouble();
+                ClassRecord classRecord = new ClassRecord(name, GradeBookStore.parseScale(in.readUTF()), usesRounding, roundingThreshold);
+                classRecord.setExtraCredit(in.readDouble());
+                if (withCredits) {
+                    classRecord.setCreditHours(in.readDouble());
+                }
+                int categoryCount = in.readInt();
+                for (int i = 0; i < categoryCount; i++) {
+                    String categoryName = in.readUTF();
+                    double weight = in.readDouble();
+                    int numGradesDropped = in.readInt();
+                    boolean totalPoints = withPoints && in.readBoolean();
+                    Category category = new Category(categoryName, weight, numGradesDropped,
+                            totalPoints ? Category.Averaging.TOTAL_POINTS : Category.Averaging.EQUAL_WEIGHT);
+                    int gradeCount = in.readInt();
+                    for (int g = 0; g < gradeCount; g++) {
+                        double earned = in.readDouble();
+                        double possible = withPoints ? in.readDouble() : 100.0;
+                        category.addGrade(earned, possible, withTimes ? in.readLong() : Category.NO_TIMESTAMP);
+                    }
+                    classRecord.addCategory(category);
+                }
+                gradeBook.addClass(classRecord);
+            }
+            return gradeBook;
+        }
+    }
+
+    private void writeEvent(GradeEvent event, long timestamp) throws IOException {
+        int before = out.size();
+        boolean timed = isTimed(event, timestamp);
+        boolean extended = timed || isExtended(event);
+        if (extended) {
+            out.writeByte(timed ? TIMED : EXTENDED);
+            out.writeLong(timestamp);
+            out.writeByte(event.getType().ordinal());
+        } else {
+            out.writeByte(event.getType().ordinal());
+            out.writeLong(timestamp);
+        }
+        out.writeUTF(classNameOf(event));
+        switch (event.getType()) {
+            case CLASS_ADDED:
+                out.writeBoolean(event.isUsesRounding());
+                out.writeDouble(event.getValue());
+                out.writeUTF(event.getScale());
+                break;
+            case CATEGORY_ADDED:
+                out.writeUTF(event.getCategoryName());
+                out.writeDouble(event.getValue());
+                out.writeInt(event.getNumGradesDropped());
+                break;
+            case GRADE_ADDED:
+                out.writeUTF(event.getCategoryName());
+                out.writeDouble(event.getValue());
+                break;
+            case GRADE_INSERTED:
+                out.writeUTF(event.getCategoryName());
+                out.writeInt(event.getIndex());
+                out.writeDouble(event.getValue());
+                break;
+            case CATEGORY_REMOVED:
+                out.writeUTF(event.getCategoryName());
+                break;
+            case WEIGHT_CHANGED:
+                out.writeUTF(event.getCategoryName());
+                out.writeDouble(event.getValue());
+                out.writeDouble(event.getOldValue());
+                break;
+            case SCALE_CHANGED:
+                out.writeUTF(event.getScale());
+                break;
+            case GRADE_EDITED:
+                out.writeUTF(event.getCategoryName());
+                out.writeInt(event.getIndex());
+                out.writeDouble(event.getValue());
+                out.writeDouble(event.getOldValue());
+                break;
+            case GRADE_DELETED:
+                out.writeUTF(event.getCategoryName());
+                out.writeInt(event.getIndex());
+                out.writeDouble(event.getOldValue());
+                break;
+            case EXTRA_CREDIT_SET:
+            case CREDIT_HOURS_SET:
+                out.writeDouble(event.getValue());
+                out.writeDouble(event.getOldValue());
+                break;
+            case PRIOR_TERMS_SET:
+                out.writeDouble(event.getValue());
+                out.writeDouble(event.getOldValue());
+                out.writeDouble(event.getPossible());
+                out.writeDouble(event.getOldPossible());
+                break;
+            default:
+                // CLASS_REMOVED and CATEGORIES_CLEARED carry the class name only
+                break;
+        }
+        if (extended) {
+            if (event.getType() == GradeEvent.Type.CATEGORY_ADDED) {
+                out.writeBoolean(event.isUsesRounding());
+            } else {
+                out.writeDouble(event.getPossible());
+                out.writeDouble(event.getOldPossible());
+            }
+            if (timed) {
+                out.writeLong(event.getGradeTime());
+            }
+        }
+        // DataOutputStream.size() wraps after 2 GB, but a single record is tiny
+        size += out.size() - before;
+    }
+
+    private static GradeEvent readEvent(DataInputStream in, GradeEvent.Type type, long timestamp, boolean extended, boolean timed)
+            throws IOException {
+        String className = in.readUTF();
+        switch (type) {
+            case CLASS_ADDED: {
+                boolean usesRounding = in.readBoolean();
+                double threshold = in.readDouble();
+                return new GradeEvent(type, timestamp, className, null, -1, threshold, 0.0, usesRounding, in.readUTF(), 0);
+            }
+            case CATEGORY_ADDED: {
+                String categoryName = in.readUTF();
+                double weight = in.readDouble();
+                int numGradesDropped = in.readInt();
+                boolean totalPoints = extended && in.readBoolean();
+                return new GradeEvent(type, timestamp, className, categoryName, -1, weight, 0.0, totalPoints, null, numGradesDropped);
+            }
+            case GRADE_ADDED: {
+                String categoryName = in.readUTF();
+                return gradeEvent(in, type, timestamp, className, categoryName, -1, in.readDouble(), 0.0, extended, timed);
+            }
+            case GRADE_INSERTED: {
+                String categoryName = in.readUTF();
+                int index = in.readInt();
+                return gradeEvent(in, type, timestamp, className, categoryName, index, in.readDouble(), 0.0, extended, timed);
+            }
+            case CATEGORY_REMOVED:
+                return new GradeEvent(type, timestamp, className, in.readUTF(), -1, 0.0, 0.0, false, null, 0);
+            case WEIGHT_CHANGED: {
+                String categoryName = in.readUTF();
+                double weight = in.readDouble();
+                return new GradeEvent(type, timestamp, className, categoryName, -1, weight, in.readDouble(), false, null, 0);
+            }
+            case SCALE_CHANGED:
+                return new GradeEvent(type, timestamp, className, null, -1, 0.0, 0.0, false, in.readUTF(), 0);
+            case GRADE_EDITED: {
+                String categoryName = in.readUTF();
+                int index = in.readInt();
+                double value = in.readDouble();
+                return gradeEvent(in, type, timestamp, className, categoryName, index, value, in.readDouble(), extended, timed);
+            }
+            case GRADE_DELETED: {
+                String categoryName = in.readUTF();
+                int index = in.readInt();
+                return gradeEvent(in, type, timestamp, className, categoryName, index, 0.0, in.readDouble(), extended, timed);
+            }
+            case EXTRA_CREDIT_SET:
+            case CREDIT_HOURS_SET: {
+                double value = in.readDouble();
+                return new GradeEvent(type, timestamp, className, null, -1, value, in.readDouble(), false, null, 0);
+            }
+            case PRIOR_TERMS_SET: {
+                double creditHours = in.readDouble();
+                double oldCreditHours = in.readDouble();
+                double qualityPoints = in.readDouble();
+                return new GradeEvent(type, timestamp, null, null, -1, creditHours, oldCreditHours, qualityPoints,
+                        in.readDouble(), Category.NO_TIMESTAMP, false, null, 0);
+            }
+            default:
+                return new GradeEvent(type, timestamp, className, null, -1, 0.0, 0.0, false, null, 0);
+        }
+    }
+
+    /**
+     * Finishes reading a grade event: an extended record is followed by the points possible, and a timed
+     * one by the time the grade was given as well. Otherwise an added grade was given when it was recorded.
+     */
+    private static GradeEvent gradeEvent(DataInputStream in, GradeEvent.Type type, long timestamp, String className,
+                                         String categoryName, int index, double value, double oldValue, boolean extended,
+                                         boolean timed) throws IOException {
+        double possible = extended ? in.readDouble() : 100.0;
+        double oldPossible = extended ? in.readDouble() : 100.0;
+        boolean added = type == GradeEvent.Type.GRADE_ADDED || type == GradeEvent.Type.GRADE_INSERTED;
+        long gradeTime = timed ? in.readLong() : added ? timestamp : Category.NO_TIMESTAMP;
+        return new GradeEvent(type, timestamp, className, categoryName, index, value, oldValue, possible, oldPossible,
+                gradeTime, false, null, 0);
+    }
+
+    /**
+     * @return Whether an event needs a timed record: an added grade given at another time than it is recorded.
+     */
+    private static boolean isTimed(GradeEvent event, long timestamp) {
+        GradeEvent.Type type = event.getType();
+        return (type == GradeEvent.Type.GRADE_ADDED || type == GradeEvent.Type.GRADE_INSERTED) && event.getGradeTime() != timestamp;
+    }
+
+    /**
+     * @return Whether an event needs an extended record: a total-points category or a grade not out of 100.
+     */
+    private static boolean isExtended(GradeEvent event) {
+        switch (event.getType()) {
+            case CATEGORY_ADDED:
+                return event.isUsesRounding();
+            case GRADE_ADDED:
+            case GRADE_INSERTED:
+            case GRADE_EDITED:
+            case GRADE_DELETED:
+                return event.getPossible() != 100.0 || event.getOldPossible() != 100.0;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the encoded size of an event's fields after its type and timestamp, including the type byte
+     * and the extension of an extended record.
+     */
+    private static int eventSize(GradeEvent event) {
+        int size = utfSize(classNameOf(event));
+        if (isTimed(event, event.getTimestamp())) {
+            size += 1 + 8 + 8 + 8;
+        } else if (isExtended(event)) {
+            size += 1 + (event.getType() == GradeEvent.Type.CATEGORY_ADDED ? 1 : 8 + 8);
+        }
+        switch (event.getType()) {
+            case CLASS_ADDED:
+                return size + 1 + 8 + utfSize(event.getScale());
+            case CATEGORY_ADDED:
+                return size + utfSize(event.getCategoryName()) + 8 + 4;
+            case GRADE_ADDED:
+                return size + utfSize(event.getCategoryName()) + 8;
+            case GRADE_INSERTED:
+                return size + utfSize(event.getCategoryName()) + 4 + 8;
+            case CATEGORY_REMOVED:
+                return size + utfSize(event.getCategoryName());
+            case WEIGHT_CHANGED:
+                return size + utfSize(event.getCategoryName()) + 8 + 8;
+            case SCALE_CHANGED:
+                return size + utfSize(event.getScale());
+            case GRADE_EDITED:
+                return size + utfSize(event.getCategoryName()) + 4 + 8 + 8;
+            case GRADE_DELETED:
+                return size + utfSize(event.getCategoryName()) + 4 + 8;
+            case EXTRA_CREDIT_SET:
+            case CREDIT_HOURS_SET:
+                return size + 8 + 8;
+            case PRIOR_TERMS_SET:
+                return size + 8 + 8 + 8 + 8;
+            default:
+                return size;
+        }
+    }
+
+    /**
+     * @return The class name as written to the log: empty for events about the whole GradeBook.
+     */
+    private static String classNameOf(GradeEvent event) {
+        return event.getClassName() == null ? "" : event.getClassName();
+    }
+
+    private static int utfSize(String value) {
+        int bytes = 2;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            bytes += (c >= 0x0001 && c <= 0x007F) ? 1 : (c > 0x07FF ? 3 : 2);
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads the whole log once to index its snapshots.
+     *
+     * @return The length of the valid part of the log.
+     */
+    private long scan() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a grade history log");
+            }
+            long position = 4;
+            try {
+                while (true) {
+                    byte type = in.readByte();
+                    long timestamp = in.readLong();
+                    long length;
+                    if (type == SNAPSHOT) {
+                        int bytes = in.readInt();
+                        in.readFully(new byte[bytes]);
+                        snapshots.add(new SnapshotRef(timestamp, position));
+                        eventsSinceSnapshot = 0;
+                        length = 4 + bytes;
+                    } else if (type == EXTENDED || type == TIMED) {
+                        byte extendedType = in.readByte();
+                        if (extendedType < 0 || extendedType >= TYPES.length) {
+                            break;
+                        }
+                        length = eventSize(readEvent(in, TYPES[extendedType], timestamp, true, type == TIMED));
+                        eventsSinceSnapshot++;
+                    } else if (type >= 0 && type < TYPES.length) {
+                        length = eventSize(readEvent(in, TYPES[type], timestamp, false, false));
+                        eventsSinceSnapshot++;
+                    } else {
+                        break; // Garbage after a torn write
+                    }
+                    position += 1 + 8 + length;
+                    lastTimestamp = Math.max(lastTimestamp, timestamp);
+                }
+            } catch (EOFException e) {
+                // A torn record at the end; everything before position is intact
+            }
+            return position;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+// GradeSensitivity.java
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Which category moves the final grade the most: for the next assignment of every category, how many
+ * points of final grade each point on that assignment is worth, and how far the class is from its next
+ * letter grade.
+ * <p>
+ * The final grade is a weighted sum of category averages, so its derivative is found analytically instead
+ * of by trying scores: the category's weight, plus its share of the weight of categories without grades
+ * (which count with the average of the others), times how much one point moves the category average
+ * given its drops (see {@link Category#marginalRate}). Where rounding up to a cutoff or the 100% cap holds
+ * the final grade still, a point changes nothing. Each class is analyzed under its read lock, and classes
+ * are analyzed in parallel.
+ */
+public final class GradeSensitivity {
+
+    private GradeSensitivity() {
+    }
+
+    /**
+     * The sensitivity of one category's next assignment.
+     */
+    public static final class Result {
+        private final String className;
+        private final String categoryName;
+        private final double weight;
+        private final double expectedScore;
+        private final double impact;
+        private final String note;
+        private final String nextLetter;
+        private final double distance;
+        private final double neededScore;
+
+        Result(String className, String categoryName, double weight, double expectedScore, double impact, String note,
+               String nextLetter, double distance, double neededScore) {
+            this.className = className;
+            this.categoryName = categoryName;
+            this.weight = weight;
+            this.expectedScore = expectedScore;
+            this.impact = impact;
+            this.note = note;
+            this.nextLetter = nextLetter;
+            this.distance = distance;
+            this.neededScore = neededScore;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getCategoryName() {
+            return categoryName;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+
+        /**
+         * @return The score the next assignment is expected at (see {@link Category#projectGrades}), where the
+         * impact is evaluated.
+         */
+        public double getExpectedScore() {
+            return expectedScore;
+        }
+
+        /**
+         * @return Points of final grade per point on the next assignment of this category.
+         */
+        public double getImpact() {
+            return impact;
+        }
+
+        /**
+         * @return Why the impact is 0 (the grade would be dropped, rounded up or capped), or null.
+         */
+        public String getNote() {
+            return note;
+        }
+
+        /**
+         * @return The next higher letter grade of the class, or null if it has the highest one.
+         */
+        public String getNextLetter() {
+            return nextLetter;
+        }
+
+        /**
+         * @return The points of final grade to the next letter grade's cutoff, or NaN if there is none.
+         */
+        public double getDistance() {
+            return distance;
+        }
+
+        /**
+         * @return The score on the next assignment that would reach the next letter grade on its own at
+         * this rate, or NaN if even 100% would not.
+         */
+        public double getNeededScore() {
+            return neededScore;
+        }
+    }
+
+    /**
+     * Analyzes every category of every class, in parallel over the classes.
+     *
+     * @return The results, class by class in the GradeBook's order.
+     */
+    public static List<Result> analyze(GradeBook gradeBook) {
+        return gradeBook.getClasses().parallelStream()
+                .map(GradeSensitivity::analyze)
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Analyzes every category of a class in one consistent state of the class.
+     */
+    public static List<Result> analyze(ClassRecord classRecord) {
+        return classRecord.withReadLock(() -> analyzeLocked(classRecord));
+    }
+
+    private static List<Result> analyzeLocked(ClassRecord classRecord) {
+        List<Category> categories = classRecord.getCategories();
+        int size = categories.size();
+        long[] numerators = new long[size];
+        long[] denominators = new long[size];
+        double[] weights = new double[size];
+        for (int i = 0; i < size; i++) {
+            long[] fraction = categories.get(i).getAverageFraction();
+            numerators[i] = fraction[0];
+            denominators[i] = fraction[1];
+            weights[i] = categories.get(i).getWeight();
+        }
+        GradingScale gradingScale = classRecord.getGradingScale();
+        boolean usesRounding = classRecord.isUsesRounding();
+        double threshold = classRecord.getRoundingThreshold();
+        double extraCredit = classRecord.getExtraCredit();
+        double[] cutoffs = gradingScale.getCutoffs();
+
+        double finalGrade = ClassRecord.calculateFinalGrade(numerators, denominators, weights, gradingScale, usesRounding,
+                threshold, extraCredit);
+        double nextCutoff = Double.NaN;
+        for (double cutoff : cutoffs) {
+            if (cutoff > finalGrade) {
+                nextCutoff = cutoff;
+                break;
+            }
+        }
+        String nextLetter = Double.isNaN(nextCutoff) ? null : gradingScale.getLetterGrade(nextCutoff);
+        double target = Double.isNaN(nextCutoff) ? Double.NaN : rawTarget(nextCutoff, cutoffs, usesRounding, threshold, extraCredit);
+        double averageOfAverages = averageOfAverages(numerators, denominators);
+
+        List<Result> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Category category = categories.get(i);
+            GradeTrend.Projection projection = category.projectGrades(1);
+            double score = projection != null ? projection.getScore() : averageOfAverages;
+
+            // The category with its next assignment at the expected score
+            long[] grades = category.getPackedGrades();
+            long[] withNext = Arrays.copyOf(grades, grades.length + 1);
+            withNext[grades.length] = nextGrade(grades, score, category.getAveraging());
+            long[] fraction = Category.averageFraction(withNext, withNext.length, category.getNumGradesDropped(),
+                    category.getAveraging());
+            double rate = Category.marginalRate(withNext, withNext.length, category.getNumGradesDropped(), category.getAveraging());
+            long[] nextNumerators = numerators.clone();
+            long[] nextDenominators = denominators.clone();
+            nextNumerators[i] = fraction[0];
+            nextDenominators[i] = fraction[1];
+
+            // Categories without grades count with the average of the others, this one included
+            int existing = 0;
+            double fallbackWeight = 0.0;
+            for (int j = 0; j < size; j++) {
+                if (nextDenominators[j] >= 0) {
+                    existing++;
+                } else {
+                    fallbackWeight += weights[j];
+                }
+            }
+            double rawImpact = rate * (weights[i] + fallbackWeight / existing) / 100.0;
+            double raw = rawGrade(nextNumerators, nextDenominators, weights);
+            double nextFinal = ClassRecord.calculateFinalGrade(nextNumerators, nextDenominators, weights, gradingScale,
+                    usesRounding, threshold, extraCredit);
+
+            double impact = rawImpact;
+            String note = null;
+            if (rate == 0.0) {
+                note = fraction[1] == 0 ? "All grades dropped" : "Would be dropped";
+            } else if (nextFinal >= 100.0) {
+                impact = 0.0;
+                note = "At the 100% cap";
+            } else if (usesRounding && roundedUp(raw, cutoffs, threshold)) {
+                impact = 0.0;
+                note = "Rounded up to " + gradingScale.getLetterGrade(nextFinal);
+            }
+
+            double neededScore = Double.NaN;
+            if (!Double.isNaN(target) && rawImpact > 0.0) {
+                double needed = score + (target - raw) / rawImpact;
+                neededScore = needed <= 100.0 ? Math.max(0.0, needed) : Double.NaN;
+            }
+            results.add(new Result(classRecord.getName(), category.getName(), weights[i], score, impact, note, nextLetter,
+                    Double.isNaN(nextCutoff) ? Double.NaN : nextCutoff - finalGrade, neededScore));
+        }
+        return results;
+    }
+
+    /**
+     * @return The next assignment as a packed grade: out of 100 points, or by total points out of the
+     * category's average points possible.
+     */
+    private static long nextGrade(long[] grades, double score, Category.Averaging averaging) {
+        if (averaging != Category.Averaging.TOTAL_POINTS || grades.length == 0) {
+            return Category.pack(score, 100.0);
+        }
+        long possibleTotal = 0;
+        for (long grade : grades) {
+            possibleTotal += Category.possibleOf(grade);
+        }
+        double possible = FixedPoint.toPoints(possibleTotal / grades.length);
+        return Category.pack(score * possible / 100.0, possible);
+    }
+
+    /**
+     * The weighted sum of the category averages before rounding, extra credit and the cap.
+     */
+    private static double rawGrade(long[] numerators, long[] denominators, double[] weights) {
+        double averageOfAverages = averageOfAverages(numerators, denominators);
+        double raw = 0.0;
+        for (int i = 0; i < denominators.length; i++) {
+            double average = denominators[i] < 0 ? averageOfAverages : FixedPoint.average(numerators[i], denominators[i]);
+            raw += average * weights[i] / 100.0;
+        }
+        return raw;
+    }
+
+    private static double averageOfAverages(long[] numerators, long[] denominators) {
+        double sum = 0.0;
+        int existing = 0;
+        for (int i = 0; i < denominators.length; i++) {
+            if (denominators[i] >= 0) {
+                sum += FixedPoint.average(numerators[i], denominators[i]);
+                existing++;
+            }
+        }
+        return existing > 0 ? sum / existing : 0.0;
+    }
+
+    /**
+     * @return Whether rounding lifts a weighted sum to the next cutoff, where small changes do not move it.
+     */
+    private static boolean roundedUp(double raw, double[] cutoffs, double threshold) {
+        for (double cutoff : cutoffs) {
+            if (raw < cutoff) {
+                return cutoff - raw <= threshold;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The weighted sum that reaches a cutoff: extra credit is added after rounding, so either the sum plus
+     * extra credit reaches it, or the sum is rounded up to a cutoff that does.
+     */
+    private static double rawTarget(double nextCutoff, double[] cutoffs, boolean usesRounding, double threshold,
+                                    double extraCredit) {
+        double target = nextCutoff - extraCredit;
+        if (usesRounding) {
+            for (double cutoff : cutoffs) {
+                if (cutoff >= target) {
+                    return Math.min(target, cutoff - threshold);
+                }
+            }
+        }
+        return target;
+    }
+}
@@ -0,0 +1,253 @@
+// GradeStatistics.java
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summary statistics of a set of grades that can be updated one grade at a time and merged.
+ * <p>
+ * The mean and variance follow Welford's method, extended to removals, so adding, editing or deleting a
+ * grade costs O(1). Grades between 0 and 100 are also counted in 10001 bins of a hundredth of a point,
+ * which answers the median, any percentile, the minimum, the maximum and histograms by scanning the bins
+ * instead of sorting the grades; grades are stored in hundredths, so they are reported exactly, and only
+ * a percentage of points earned that is not a whole hundredth (e.g. 18 of 19) is rounded, by at most
+ * 0.005 points. The rare grades outside 0-100 (e.g. bonus points) are kept exactly in a sorted map.
+ */
+public class GradeStatistics {
+    private static final int BINS_PER_POINT = 100;
+    private static final int BINS = 100 * BINS_PER_POINT + 1;
+
+    private long count;
+    private double mean;
+    private double m2; // Sum of squared differences from the mean
+    private final int[] bins;
+    private final TreeMap<Double, Integer> outliers; // Grades outside 0-100 -> count
+
+    public GradeStatistics() {
+        this.bins = new int[BINS];
+        this.outliers = new TreeMap<>();
+    }
+
+    private GradeStatistics(GradeStatistics other) {
+        this.count = other.count;
+        this.mean = other.mean;
+        this.m2 = other.m2;
+        this.bins = other.bins.clone();
+        this.outliers = new TreeMap<>(other.outliers);
+    }
+
+    /**
+     * @return The statistics of the given grades.
+     */
+    public static GradeStatistics of(Iterable<Double> grades) {
+        GradeStatistics statistics = new GradeStatistics();
+        for (double grade : grades) {
+            statistics.add(grade);
+        }
+        return statistics;
+    }
+
+    /**
+     * @return An independent copy, e.g. to hand to another thread.
+     */
+    public GradeStatistics copy() {
+        return new GradeStatistics(this);
+    }
+
+    public void add(double grade) {
+        if (Double.isNaN(grade)) {
+            throw new IllegalArgumentException("Grade cannot be NaN.");
+        }
+        count++;
+        double delta = grade - mean;
+        mean += delta / count;
+        m2 += delta * (grade - mean);
+        int bin = binOf(grade);
+        if (bin >= 0) {
+            bins[bin]++;
+        } else {
+            outliers.merge(grade, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Removes one occurrence of a grade that was added before.
+     */
+    public void remove(double grade) {
+        int bin = binOf(grade);
+        if (bin >= 0) {
+            if (bins[bin] == 0) {
+                throw new IllegalArgumentException("Grade " + grade + " was not added.");
+            }
+            bins[bin]--;
+        } else {
+            Integer outlierCount = outliers.get(grade);
+            if (outlierCount == null) {
+                throw new IllegalArgumentException("Grade " + grade + " was not added.");
+            }
+            if (outlierCount == 1) {
+                outliers.remove(grade);
+            } else {
+                outliers.put(grade, outlierCount - 1);
+            }
+        }
+        count--;
+        if (count == 0) {
+            mean = 0.0;
+            m2 = 0.0;
+            return;
+        }
+        // Welford's update run backwards
+        double delta = grade - mean;
+        mean -= delta / count;
+        m2 = Math.max(0.0, m2 - delta * (grade - mean));
+    }
+
+    public void replace(double oldGrade, double newGrade) {
+        remove(oldGrade);
+        add(newGrade);
+    }
+
+    /**
+     * Adds all grades counted by other statistics, e.g. to combine the categories of a class.
+     */
+    public void merge(GradeStatistics other) {
+        if (other.count == 0) {
+            return;
+        }
+        // Chan et al.'s pairwise combination of the means and squared differences
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        m2 += other.m2 + delta * delta * count * other.count / total;
+        mean += delta * other.count / total;
+        count = total;
+        for (int i = 0; i < BINS; i++) {
+            bins[i] += other.bins[i];
+        }
+        for (Map.Entry<Double, Integer> outlier : other.outliers.entrySet()) {
+            outliers.merge(outlier.getKey(), outlier.getValue(), Integer::sum);
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The mean of all grades, or NaN if there are none.
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * @return The sample variance, or NaN for fewer than two grades.
+     */
+    public double getVariance() {
+        return count < 2 ? Double.NaN : m2 / (count - 1);
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * @return The lowest grade, or NaN if there are none.
+     */
+    public double getMin() {
+        return count == 0 ? Double.NaN : valueAtRank(0);
+    }
+
+    /**
+     * @return The highest grade, or NaN if there are none.
+     */
+    public double getMax() {
+        return count == 0 ? Double.NaN : valueAtRank(count - 1);
+    }
+
+    public double getMedian() {
+        return getPercentile(50.0);
+    }
+
+    /**
+     * Returns a percentile, interpolating linearly between the two nearest grades.
+     *
+     * @param percentile The percentile between 0 and 100, e.g. 25.0 for the first quartile.
+     * @return The grade at the percentile, or NaN if there are no grades.
+     */
+    public double getPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double position = (count - 1) * percentile / 100.0;
+        long lower = (long) Math.floor(position);
+        double lowerValue = valueAtRank(lower);
+        if (position == lower) {
+            return lowerValue;
+        }
+        return lowerValue + (position - lower) * (valueAtRank(lower + 1) - lowerValue);
+    }
+
+    /**
+     * Counts the grades in equal ranges between 0 and 100. Grades below 0 count in the first range,
+     * grades above 100 and grades of exactly 100 in the last.
+     *
+     * @param ranges The number of ranges, e.g. 10 for 0-10, 10-20, ..., 90-100.
+     * @return The number of grades per range.
+     */
+    public long[] getHistogram(int ranges) {
+        if (ranges < 1) {
+            throw new IllegalArgumentException("Number of ranges must be positive.");
+        }
+        long[] histogram = new long[ranges];
+        for (int bin = 0; bin < BINS; bin++) {
+            if (bins[bin] > 0) {
+                int range = (int) Math.min(ranges - 1, (long) bin * ranges / (BINS - 1));
+                histogram[range] += bins[bin];
+            }
+        }
+        for (Map.Entry<Double, Integer> outlier : outliers.entrySet()) {
+            histogram[outlier.getKey() < 0.0 ? 0 : ranges - 1] += outlier.getValue();
+        }
+        return histogram;
+    }
+
+    /**
+     * @return The grade at a position in the sorted grades, counting from 0.
+     */
+    private double valueAtRank(long rank) {
+        long seen = 0;
+        Map<Double, Integer> below = outliers.headMap(0.0);
+        for (Map.Entry<Double, Integer> outlier : below.entrySet()) {
+            seen += outlier.getValue();
+            if (seen > rank) {
+                return outlier.getKey();
+            }
+        }
+        for (int bin = 0; bin < BINS; bin++) {
+            seen += bins[bin];
+            if (seen > rank) {
+                return (double) bin / BINS_PER_POINT;
+            }
+        }
+        for (Map.Entry<Double, Integer> outlier : outliers.tailMap(0.0).entrySet()) {
+            seen += outlier.getValue();
+            if (seen > rank) {
+                return outlier.getKey();
+            }
+        }
+        throw new IllegalStateException("Rank " + rank + " out of range for " + count + " grades");
+    }
+
+    /**
+     * @return The bin of a grade between 0 and 100, or -1 for other grades.
+     */
+    private static int binOf(double grade) {
+        if (grade < 0.0 || grade > 100.0) {
+            return -1;
+        }
+        return (int) Math.round(grade * BINS_PER_POINT);
+    }
+}
@@ -0,0 +1,218 @@
+// GradeTimeline.java
+import java.util.Arrays;
+
+/**
+ * The time column of a category: when each grade was given, in epoch millis, in grade order.
+ * Grades are mostly added in the order they are given, so consecutive timestamps are close together;
+ * each one is stored as the zigzag varint of its difference to the previous one, one to four bytes
+ * instead of eight. Every {@link #CHECKPOINT_INTERVAL}th timestamp is also kept in full with the
+ * position of its bytes, so a timestamp is decoded from the nearest checkpoint, and as long as the
+ * column is sorted, time ranges are found by binary search over the checkpoints.
+ * <p>
+ * Not thread-safe; the owning category guards it with its lock.
+ */
+final class GradeTimeline {
+    static final int CHECKPOINT_INTERVAL = 32;
+
+    private byte[] data = new byte[16];
+    private int length; // Bytes in use
+    private int count;
+    // Timestamp and byte position of every CHECKPOINT_INTERVAL-th entry
+    private long[] checkpointTimes = new long[1];
+    private int[] checkpointOffsets = new int[1];
+    private long last; // The last timestamp, the base of the next difference
+    private boolean sorted = true; // Whether the timestamps never decrease
+
+    /**
+     * Creates a timeline from encoded bytes, as returned by {@link #toBytes()}.
+     *
+     * @param bytes The encoded timestamps.
+     * @param count The number of timestamps.
+     * @throws IllegalArgumentException If the bytes do not hold that many timestamps.
+     */
+    static GradeTimeline fromBytes(byte[] bytes, int count) {
+        GradeTimeline timeline = new GradeTimeline();
+        long time = 0;
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            long encoded = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (position >= bytes.length || shift > 63) {
+                    throw new IllegalArgumentException("Corrupt grade timestamps.");
+                }
+                b = bytes[position++];
+                encoded |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            time += (encoded >>> 1) ^ -(encoded & 1);
+            timeline.add(time);
+        }
+        return timeline;
+    }
+
+    static GradeTimeline of(long[] times, int count) {
+        GradeTimeline timeline = new GradeTimeline();
+        for (int i = 0; i < count; i++) {
+            timeline.add(times[i]);
+        }
+        return timeline;
+    }
+
+    GradeTimeline copy() {
+        GradeTimeline copy = new GradeTimeline();
+        copy.data = Arrays.copyOf(data, Math.max(16, length));
+        copy.length = length;
+        copy.count = count;
+        copy.checkpointTimes = checkpointTimes.clone();
+        copy.checkpointOffsets = checkpointOffsets.clone();
+        copy.last = last;
+        copy.sorted = sorted;
+        return copy;
+    }
+
+    boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * @return The encoded timestamps, for {@link #fromBytes(byte[], int)}.
+     */
+    byte[] toBytes() {
+        return Arrays.copyOf(data, length);
+    }
+
+    void add(long time) {
+        if (count % CHECKPOINT_INTERVAL == 0) {
+            int checkpoint = count / CHECKPOINT_INTERVAL;
+            if (checkpoint == checkpointTimes.length) {
+                checkpointTimes = Arrays.copyOf(checkpointTimes, checkpoint * 2);
+                checkpointOffsets = Arrays.copyOf(checkpointOffsets, checkpoint * 2);
+            }
+            checkpointTimes[checkpoint] = time;
+            checkpointOffsets[checkpoint] = length;
+        }
+        if (count > 0 && time < last) {
+            sorted = false;
+        }
+        long difference = time - last; // Wraps for far-apart values, and wraps back when decoded
+        long encoded = (difference << 1) ^ (difference >> 63);
+        if (length + 10 > data.length) {
+            data = Arrays.copyOf(data, Math.max(length + 10, data.length * 2));
+        }
+        while ((encoded & ~0x7FL) != 0) {
+            data[length++] = (byte) ((encoded & 0x7F) | 0x80);
+            encoded >>>= 7;
+        }
+        data[length++] = (byte) encoded;
+        last = time;
+        count++;
+    }
+
+    long get(int index) {
+        if (index < 0 || index >= count) {
+            throw new IllegalArgumentException("Grade position " + index + " is out of range.");
+        }
+        long[] block = decodeBlock(index / CHECKPOINT_INTERVAL);
+        return block[index % CHECKPOINT_INTERVAL];
+    }
+
+    /**
+     * Inserts a timestamp; the encoding of the following timestamps changes, so the column is rebuilt.
+     */
+    void insert(int index, long time) {
+        long[] times = toArray();
+        long[] newTimes = new long[count + 1];
+        System.arraycopy(times, 0, newTimes, 0, index);
+        newTimes[index] = time;
+        System.arraycopy(times, index, newTimes, index + 1, count - index);
+        rebuild(newTimes);
+    }
+
+    void remove(int index) {
+        long[] times = toArray();
+        long[] newTimes = new long[count - 1];
+        System.arraycopy(times, 0, newTimes, 0, index);
+        System.arraycopy(times, index + 1, newTimes, index, count - index - 1);
+        rebuild(newTimes);
+    }
+
+    long[] toArray() {
+        long[] times = new long[count];
+        for (int checkpoint = 0; checkpoint * CHECKPOINT_INTERVAL < count; checkpoint++) {
+            long[] block = decodeBlock(checkpoint);
+            System.arraycopy(block, 0, times, checkpoint * CHECKPOINT_INTERVAL, block.length);
+        }
+        return times;
+    }
+
+    /**
+     * Finds the first timestamp at or after a time, for a sorted timeline: a binary search over the
+     * checkpoints, then a scan of at most one block.
+     *
+     * @return The index of the first timestamp not before {@code time}, or the size if there is none.
+     */
+    int lowerBound(long time) {
+        int checkpoints = (count + CHECKPOINT_INTERVAL - 1) / CHECKPOINT_INTERVAL;
+        // The first checkpoint at or after time
+        int low = 0;
+        int high = checkpoints;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (checkpointTimes[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low == 0) {
+            return 0;
+        }
+        // The answer is in the block before that checkpoint, or is the checkpoint itself
+        int checkpoint = low - 1;
+        long[] block = decodeBlock(checkpoint);
+        for (int i = 1; i < block.length; i++) {
+            if (block[i] >= time) {
+                return checkpoint * CHECKPOINT_INTERVAL + i;
+            }
+        }
+        return Math.min(count, low * CHECKPOINT_INTERVAL);
+    }
+
+    private long[] decodeBlock(int checkpoint) {
+        int start = checkpoint * CHECKPOINT_INTERVAL;
+        long[] block = new long[Math.min(CHECKPOINT_INTERVAL, count - start)];
+        long time = checkpointTimes[checkpoint];
+        block[0] = time;
+        int position = checkpointOffsets[checkpoint];
+        // Skip the checkpoint's own difference; its time is known
+        while (data[position] < 0) {
+            position++;
+        }
+        position++;
+        for (int i = 1; i < block.length; i++) {
+            long encoded = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                encoded |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            time += (encoded >>> 1) ^ -(encoded & 1);
+            block[i] = time;
+        }
+        return block;
+    }
+
+    private void rebuild(long[] times) {
+        length = 0;
+        count = 0;
+        last = 0;
+        sorted = true;
+        for (long time : times) {
+            add(time);
+        }
+    }
+}
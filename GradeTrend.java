@@ -0,0 +1,182 @@
+// GradeTrend.java
+
+/**
+ * The trend of a category's grades: a straight line through the grades in the order they were given,
+ * fitted by least squares with exponentially decaying weights, so a student who improves or slides
+ * over the last assignments moves the line more than the first weeks of the term do. A grade's weight
+ * halves every {@link #HALF_LIFE} grades.
+ * <p>
+ * The fit needs only weighted sums of the grades, their ages (0 for the newest grade) and their
+ * products. Adding a grade ages all others by one, which scales and shifts those sums, so adding or
+ * editing a grade costs O(1) and a projection never looks at the grades again.
+ */
+public class GradeTrend {
+    public static final int HALF_LIFE = 8;
+    // Fewer grades than this do not make a trend; the projection is then the weighted mean
+    public static final int MIN_GRADES = 3;
+
+    private static final double DECAY = Math.pow(0.5, 1.0 / HALF_LIFE);
+    private static final double Z_95 = 1.96; // Two-sided 95% normal quantile
+
+    private int count;
+    // Weighted sums over the grades: of the weights, squared weights, ages, squared ages, grades,
+    // squared grades and age times grade, where the grade of age a has weight DECAY^a
+    private double weights;
+    private double squaredWeights;
+    private double ages;
+    private double squaredAges;
+    private double grades;
+    private double squaredGrades;
+    private double ageGrades;
+
+    /**
+     * The projected average of a number of future grades, with a 95% prediction interval.
+     */
+    public static final class Projection {
+        private final double score;
+        private final double lower;
+        private final double upper;
+        private final double slope;
+
+        Projection(double score, double lower, double upper, double slope) {
+            this.score = score;
+            this.lower = lower;
+            this.upper = upper;
+            this.slope = slope;
+        }
+
+        /**
+         * @return The expected average of the future grades, between 0 and 100.
+         */
+        public double getScore() {
+            return score;
+        }
+
+        public double getLower() {
+            return lower;
+        }
+
+        public double getUpper() {
+            return upper;
+        }
+
+        /**
+         * @return The change in points from one grade to the next; 0 with fewer than {@link #MIN_GRADES} grades.
+         */
+        public double getSlope() {
+            return slope;
+        }
+    }
+
+    /**
+     * @return The trend of the given grades, oldest first.
+     */
+    public static GradeTrend of(Iterable<Double> grades) {
+        GradeTrend trend = new GradeTrend();
+        for (double grade : grades) {
+            trend.add(grade);
+        }
+        return trend;
+    }
+
+    public GradeTrend copy() {
+        GradeTrend copy = new GradeTrend();
+        copy.count = count;
+        copy.weights = weights;
+        copy.squaredWeights = squaredWeights;
+        copy.ages = ages;
+        copy.squaredAges = squaredAges;
+        copy.grades = grades;
+        copy.squaredGrades = squaredGrades;
+        copy.ageGrades = ageGrades;
+        return copy;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Adds the newest grade.
+     */
+    public void add(double grade) {
+        if (Double.isNaN(grade)) {
+            throw new IllegalArgumentException("Grade cannot be NaN.");
+        }
+        // Every grade ages by one: sum w(a+1) = sum wa + sum w, sum w(a+1)^2 = sum wa^2 + 2 sum wa + sum w
+        ageGrades = DECAY * (ageGrades + grades);
+        squaredAges = DECAY * (squaredAges + 2 * ages + weights);
+        ages = DECAY * (ages + weights);
+        weights *= DECAY;
+        squaredWeights *= DECAY * DECAY;
+        grades *= DECAY;
+        squaredGrades *= DECAY;
+        // The new grade has age 0 and weight 1
+        weights += 1;
+        squaredWeights += 1;
+        grades += grade;
+        squaredGrades += grade * grade;
+        count++;
+    }
+
+    /**
+     * Replaces a grade that was added before.
+     *
+     * @param index    The position of the grade, 0 for the oldest.
+     * @param oldGrade The grade that was added at that position.
+     * @param newGrade The grade to replace it with.
+     */
+    public void replace(int index, double oldGrade, double newGrade) {
+        if (index < 0 || index >= count) {
+            throw new IllegalArgumentException("Grade position " + index + " is out of range.");
+        }
+        int age = count - 1 - index;
+        double weight = Math.pow(DECAY, age);
+        double difference = newGrade - oldGrade;
+        grades += weight * difference;
+        squaredGrades += weight * (newGrade * newGrade - oldGrade * oldGrade);
+        ageGrades += weight * age * difference;
+    }
+
+    /**
+     * Projects the average of the next grades from the trend line. The interval covers the noise of
+     * the grades around the line as well as the uncertainty of the line itself, which grows the further
+     * ahead the projection reaches.
+     *
+     * @param remaining The number of future grades, at least 1.
+     * @return The projection, or null if there are no grades.
+     */
+    public Projection project(int remaining) {
+        if (remaining < 1) {
+            throw new IllegalArgumentException("The number of future grades must be positive.");
+        }
+        if (count == 0) {
+            return null;
+        }
+        double meanAge = ages / weights;
+        double meanGrade = grades / weights;
+        double ageSpread = squaredAges - ages * meanAge;
+        // Weighted grades count like fewer unweighted ones
+        double effectiveCount = weights * weights / squaredWeights;
+        if (count < MIN_GRADES || ageSpread <= 1e-9 || effectiveCount <= 2) {
+            return new Projection(clamp(meanGrade), 0.0, 100.0, 0.0);
+        }
+        double covariance = ageGrades - ages * meanGrade;
+        double gradeSpread = squaredGrades - grades * meanGrade;
+        double slopePerAge = covariance / ageSpread;
+        // The future grades have ages -1 to -remaining; the line at their mean age is their expected average
+        double futureAge = -(remaining + 1) / 2.0;
+        double score = meanGrade + slopePerAge * (futureAge - meanAge);
+        double residual = Math.max(0.0, gradeSpread - slopePerAge * covariance) / weights
+                * effectiveCount / (effectiveCount - 2);
+        double distance = futureAge - meanAge;
+        double variance = residual * (1.0 / remaining + 1.0 / effectiveCount
+                + distance * distance * weights / (effectiveCount * ageSpread));
+        double margin = Z_95 * Math.sqrt(variance);
+        return new Projection(clamp(score), clamp(score - margin), clamp(score + margin), -slopePerAge);
+    }
+
+    private static double clamp(double grade) {
+        return Math.max(0.0, Math.min(100.0, grade));
+    }
+}
@@ -1,19 +1,211 @@
 // GradingScale.java
 import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.TreeMap;
+import java.util.WeakHashMap;
 
+/**
+ * The cutoffs of the letter grades of a class, and the grade points of each letter.
+ * <p>
+ * Immutable. Almost every class uses one of a few scales, so equal scales are shared: {@link #of} and
+ * deserialization return the one pooled instance of each scale, and a saved file holds each scale once
+ * no matter how many classes use it. Lookups use tables built once per scale: the cutoffs in ascending
+ * order with their letters and grade points, searched by binary search.
+ */
 public class GradingScale implements Serializable {
     private static final long serialVersionUID = 1L;
 
-    private TreeMap<Double, String> scale;
+    /**
+     * The usual 4.0 grade points of the letters, used for every letter a scale does not map itself.
+     */
+    public static final Map<String, Double> STANDARD_GRADE_POINTS = standardGradePoints();
+
+    // Scales in use -> their shared instance; a scale no class uses any more is dropped
+    private static final Map<GradingScale, WeakReference<GradingScale>> POOL = new WeakHashMap<>();
+    private static final GradingScale DEFAULT = intern(new GradingScale(defaultScaleMap(), Collections.emptyMap()));
+
+    // Cutoff -> letter, highest cutoff first; never changed after construction
+    private final TreeMap<Double, String> scale;
+    // Letter -> grade points where they differ from the standard ones; null if none do (and in older files)
+    private final HashMap<String, Double> gradePoints;
+
+    // Tables built from the fields above, in ascending cutoff order
+    private transient double[] cutoffs;
+    private transient long[] cutoffsInHundredths;
+    private transient String[] letters;
+    private transient double[] letterGradePoints;
+    private transient int hash;
+
+    /**
+     * Creates a scale that is not shared; prefer {@link #of(Map)}.
+     *
+     * @param scale Cutoff -&gt; letter.
+     */
+    public GradingScale(Map<Double, String> scale) {
+        this(scale, Collections.emptyMap());
+    }
+
+    /**
+     * Creates a scale that is not shared; prefer {@link #of(Map, Map)}.
+     *
+     * @param scale       Cutoff -&gt; letter.
+     * @param gradePoints Letter -&gt; grade points for the GPA; letters left out get the standard points.
+     * @throws IllegalArgumentException If grade points are negative.
+     */
+    public GradingScale(Map<Double, String> scale, Map<String, Double> gradePoints) {
+        TreeMap<Double, String> copy = new TreeMap<>(Collections.reverseOrder());
+        for (Map.Entry<Double, String> entry : scale.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().intern());
+        }
+        HashMap<String, Double> custom = null;
+        for (Map.Entry<String, Double> entry : gradePoints.entrySet()) {
+            if (entry.getValue() < 0.0 || Double.isNaN(entry.getValue())) {
+                throw new IllegalArgumentException("Grade points for " + entry.getKey() + " cannot be negative.");
+            }
+            if (!entry.getValue().equals(STANDARD_GRADE_POINTS.get(entry.getKey()))) {
+                if (custom == null) {
+                    custom = new HashMap<>();
+                }
+                custom.put(entry.getKey().intern(), entry.getValue());
+            }
+        }
+        this.scale = copy;
+        this.gradePoints = custom;
+        buildTables();
+    }
 
-    public GradingScale(TreeMap<Double, String> scale) {
-        this.scale = scale;
+    /**
+     * @return The shared scale with these cutoffs and the standard grade points.
+     */
+    public static GradingScale of(Map<Double, String> scale) {
+        return intern(new GradingScale(scale));
     }
 
+    /**
+     * @return The shared scale with these cutoffs and grade points.
+     * @throws IllegalArgumentException If grade points are negative.
+     */
+    public static GradingScale of(Map<Double, String> scale, Map<String, Double> gradePoints) {
+        return intern(new GradingScale(scale, gradePoints));
+    }
+
+    /**
+     * Returns the shared instance of a scale, making this one the shared instance if there is none yet.
+     */
+    public static GradingScale intern(GradingScale gradingScale) {
+        synchronized (POOL) {
+            WeakReference<GradingScale> shared = POOL.get(gradingScale);
+            GradingScale existing = shared != null ? shared.get() : null;
+            if (existing != null) {
+                return existing;
+            }
+            POOL.put(gradingScale, new WeakReference<>(gradingScale));
+            return gradingScale;
+        }
+    }
+
+    private static Map<String, Double> standardGradePoints() {
+        Map<String, Double> points = new HashMap<>();
+        points.put("A+", 4.0);
+        points.put("A", 4.0);
+        points.put("A-", 3.7);
+        points.put("B+", 3.3);
+        points.put("B", 3.0);
+        points.put("B-", 2.7);
+        points.put("C+", 2.3);
+        points.put("C", 2.0);
+        points.put("C-", 1.7);
+        points.put("D+", 1.3);
+        points.put("D", 1.0);
+        points.put("D-", 0.7);
+        points.put("F", 0.0);
+        return Collections.unmodifiableMap(points);
+    }
+
+    /**
+     * Creates the default grading scale:
+     * A:93%, A-:90%, B+:87%, B:83%, B-:80%, C+:77%, C:73%, C-:70%, D+:67%, D:63%, D-:60%, F:0%
+     * @return The shared GradingScale with the default cutoffs.
+     */
+    public static GradingScale defaultScale() {
+        return DEFAULT;
+    }
+
+    private static TreeMap<Double, String> defaultScaleMap() {
+        TreeMap<Double, String> defaultScaleMap = new TreeMap<>(Collections.reverseOrder());
+        defaultScaleMap.put(93.0, "A");
+        defaultScaleMap.put(90.0, "A-");
+        defaultScaleMap.put(87.0, "B+");
+        defaultScaleMap.put(83.0, "B");
+        defaultScaleMap.put(80.0, "B-");
+        defaultScaleMap.put(77.0, "C+");
+        defaultScaleMap.put(73.0, "C");
+        defaultScaleMap.put(70.0, "C-");
+        defaultScaleMap.put(67.0, "D+");
+        defaultScaleMap.put(63.0, "D");
+        defaultScaleMap.put(60.0, "D-");
+        defaultScaleMap.put(0.0, "F");
+        return defaultScaleMap;
+    }
+
+    /**
+     * @return A copy of cutoff -&gt; letter, highest cutoff first; changing it does not change the scale,
+     * which may be shared by many classes.
+     */
     public TreeMap<Double, String> getScale() {
-        return scale;
+        return new TreeMap<>(scale);
+    }
+
+    /**
+     * @return The grade points a letter counts with in the GPA: the scale's own, else the standard ones,
+     * else 0 for letters the standard mapping does not know.
+     */
+    public double getGradePoints(String letter) {
+        Double points = gradePoints != null ? gradePoints.get(letter) : null;
+        if (points == null) {
+            points = STANDARD_GRADE_POINTS.get(letter);
+        }
+        return points != null ? points : 0.0;
+    }
+
+    /**
+     * @return Whether the scale maps a letter to other grade points than the standard ones.
+     */
+    boolean hasCustomGradePoints(String letter) {
+        return gradePoints != null && gradePoints.containsKey(letter);
+    }
+
+    /**
+     * @return The cutoffs in hundredths of a point (see {@link FixedPoint}), in ascending order. The array
+     * is shared and must not be changed.
+     */
+    long[] getCutoffsInHundredths() {
+        return cutoffsInHundredths;
+    }
+
+    /**
+     * @return A copy of the cutoffs in ascending order.
+     */
+    public double[] getCutoffs() {
+        return cutoffs.clone();
+    }
+
+    /**
+     * @return The cutoff of a letter grade (ignoring case), or -1 if the scale has no such letter.
+     */
+    public double getCutoff(String letter) {
+        // Highest cutoff first, as a scale with the same letter twice has always been read
+        for (int i = letters.length - 1; i >= 0; i--) {
+            if (letters[i].equalsIgnoreCase(letter)) {
+                return cutoffs[i];
+            }
+        }
+        return -1.0;
     }
 
     /**
@@ -22,11 +214,80 @@ public class GradingScale implements Serializable {
      * @return The corresponding letter grade.
      */
     public String getLetterGrade(double percentage) {
-        for (Map.Entry<Double, String> entry : scale.entrySet()) {
-            if (percentage >= entry.getKey()) {
-                return entry.getValue();
+        int index = cutoffIndex(percentage);
+        return index >= 0 ? letters[index] : "F"; // Default to "F" if no other grade matches
+    }
+
+    /**
+     * @return The grade points of the letter grade a percentage earns.
+     */
+    public double getGradePointsFor(double percentage) {
+        int index = cutoffIndex(percentage);
+        return index >= 0 ? letterGradePoints[index] : getGradePoints("F");
+    }
+
+    /**
+     * @return The index of the highest cutoff at or below a percentage, or -1 if there is none.
+     */
+    private int cutoffIndex(double percentage) {
+        int low = 0;
+        int high = cutoffs.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (cutoffs[mid] <= percentage) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
             }
         }
-        return "F"; // Default to "F" if no other grade matches
+        return found;
+    }
+
+    private void buildTables() {
+        int size = scale.size();
+        cutoffs = new double[size];
+        cutoffsInHundredths = new long[size];
+        letters = new String[size];
+        letterGradePoints = new double[size];
+        int i = size;
+        // The map is in descending order; the tables are ascending
+        for (Map.Entry<Double, String> entry : scale.entrySet()) {
+            i--;
+            cutoffs[i] = entry.getKey();
+            cutoffsInHundredths[i] = FixedPoint.toHundredths(entry.getKey());
+            letters[i] = entry.getValue();
+            letterGradePoints[i] = getGradePoints(entry.getValue());
+        }
+        // Cutoffs that differ by less than a hundredth round to the same value; keep the fixed-point order
+        Arrays.sort(cutoffsInHundredths);
+        hash = scale.hashCode() * 31 + (gradePoints != null ? gradePoints.hashCode() : 0);
+    }
+
+    /**
+     * Replaces a deserialized scale with the shared instance of an equal one, so a loaded file does not
+     * hold a copy of the scale per class.
+     */
+    private Object readResolve() {
+        // Also normalizes scales saved with an ascending map, and interns the letters
+        return intern(new GradingScale(scale, gradePoints != null ? gradePoints : Collections.emptyMap()));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof GradingScale)) {
+            return false;
+        }
+        GradingScale that = (GradingScale) other;
+        return hash == that.hash && scale.equals(that.scale) && Objects.equals(gradePoints, that.gradePoints);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,117 @@
+// PersistentVector.java
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list stored as a 32-way trie. Changing an element or appending one copies only the
+ * path from the root to that element (at most a few arrays of 32 entries), and the new list shares
+ * everything else with the old one, so older versions stay valid and cheap to keep.
+ *
+ * @param <T> The element type.
+ */
+public final class PersistentVector<T> extends AbstractList<T> implements RandomAccess {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, 0, new Object[0]);
+
+    private final int size;
+    private final int shift; // Bits of the index consumed above the leaves
+    private final Object[] root;
+
+    private PersistentVector(int size, int shift, Object[] root) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentVector<T> empty() {
+        return (PersistentVector<T>) EMPTY;
+    }
+
+    public static <T> PersistentVector<T> of(Collection<? extends T> elements) {
+        PersistentVector<T> vector = empty();
+        for (T element : elements) {
+            vector = vector.append(element);
+        }
+        return vector;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return (T) node[index & MASK];
+    }
+
+    /**
+     * @return A vector with the element at {@code index} replaced.
+     */
+    public PersistentVector<T> with(int index, T element) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return new PersistentVector<>(size, shift, replace(root, shift, index, element));
+    }
+
+    /**
+     * @return A vector with the element added at the end.
+     */
+    public PersistentVector<T> append(T element) {
+        if (size == 1 << (shift + BITS)) {
+            // The trie is full: add a level on top
+            Object[] newRoot = {root};
+            return new PersistentVector<>(size + 1, shift + BITS, append(newRoot, shift + BITS, size, element));
+        }
+        return new PersistentVector<>(size + 1, shift, append(root, shift, size, element));
+    }
+
+    /**
+     * Returns a vector without the element at {@code index}. Unlike the other changes this copies the
+     * whole vector, which is fine for rare changes such as removing a class.
+     */
+    public PersistentVector<T> without(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        PersistentVector<T> vector = empty();
+        for (int i = 0; i < size; i++) {
+            if (i != index) {
+                vector = vector.append(get(i));
+            }
+        }
+        return vector;
+    }
+
+    private static Object[] replace(Object[] node, int level, int index, Object element) {
+        Object[] copy = node.clone();
+        int slot = (index >>> level) & MASK;
+        copy[slot] = level == 0 ? element : replace((Object[]) node[slot], level - BITS, index, element);
+        return copy;
+    }
+
+    private static Object[] append(Object[] node, int level, int index, Object element) {
+        int slot = (index >>> level) & MASK;
+        Object[] copy = Arrays.copyOf(node, Math.max(node.length, slot + 1));
+        if (level == 0) {
+            copy[slot] = element;
+        } else {
+            Object[] child = slot < node.length ? (Object[]) node[slot] : new Object[0];
+            copy[slot] = append(child, level - BITS, index, element);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,99 @@
+// ResultCache.java
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache of computed results that evicts the least recently used entry when it is full.
+ * Keys must identify the state a result was computed from (e.g. include a version number), so a
+ * result never has to be invalidated: once the state changes, its entries are no longer asked for
+ * and age out.
+ * <p>
+ * Thread-safe. The computation runs outside the cache's monitor, so two threads that miss on the
+ * same key at once both compute the result.
+ */
+final class ResultCache<K, V> {
+    private final int capacity;
+    private final LinkedHashMap<K, V> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param capacity The maximum number of results kept.
+     */
+    ResultCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive.");
+        }
+        this.capacity = capacity;
+        // Access order: a lookup moves the entry to the end, so the eldest entry is the least recently used
+        this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > ResultCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached result for a key, computing and caching it first if it is not cached.
+     *
+     * @param key         The key; it must not be changed afterwards.
+     * @param computation Computes the result if it is not cached.
+     * @return The cached or computed result.
+     */
+    V get(K key, Supplier<V> computation) {
+        synchronized (this) {
+            V cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+        V result = computation.get();
+        synchronized (this) {
+            entries.put(key, result);
+        }
+        return result;
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return e.g. "12 hits, 3 misses (80% hit rate), 2 evictions, 15/64 entries".
+     */
+    @Override
+    public synchronized String toString() {
+        long lookups = hits + misses;
+        return hits + " hits, " + misses + " misses (" + (lookups == 0 ? 0 : Math.round(100.0 * hits / lookups))
+                + "% hit rate), " + evictions + " evictions, " + entries.size() + "/" + capacity + " entries";
+    }
+}
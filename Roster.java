@@ -0,0 +1,397 @@
+// Roster.java
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A section of a class with many students, as opposed to a ClassRecord, which holds one student's grades.
+ * The categories store their grades by column (see {@link RosterCategory}), and
+ * {@link #calculateFinalGrades()} applies the ClassRecord formula (weights, dropped grades, missing
+ * categories, rounding to the next cutoff and extra credit) to all students in a few passes over
+ * primitive arrays, so a section of 50,000 students is graded in milliseconds.
+ * <p>
+ * A roster and its categories share one read/write lock, like a ClassRecord and its categories.
+ * <p>
+ * A roster is usually started from a ClassRecord ({@link #of(ClassRecord)}), which gives it the class's
+ * scale, rounding and categories, and filled with one ClassRecord of grades per student
+ * ({@link #addStudent(String, ClassRecord)}). Every student gets exactly the grade their ClassRecord gets.
+ */
+public class Roster implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final GradingScale gradingScale;
+    private final boolean usesRounding;
+    private final double roundingThreshold;
+    private final ArrayList<String> students = new ArrayList<>();
+    private int[] extraCredit = new int[16]; // Per student, in hundredths
+    private final ArrayList<RosterCategory> categories = new ArrayList<>();
+
+    // Case-folded student name -> index, rebuilt after deserialization
+    private transient HashMap<String, Integer> studentIndex = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public Roster(String name, GradingScale gradingScale, boolean usesRounding, double roundingThreshold) {
+        this.name = name;
+        this.gradingScale = GradingScale.intern(gradingScale);
+        this.usesRounding = usesRounding;
+        this.roundingThreshold = roundingThreshold;
+    }
+
+    /**
+     * Starts a roster with the grading scale, rounding and categories of a class, and no students.
+     *
+     * @param classRecord The class to grade a whole section of.
+     * @return The new roster, named after the class.
+     * @throws IllegalArgumentException If the class has a total-points category; the roster averages percentages only.
+     */
+    public static Roster of(ClassRecord classRecord) {
+        Roster roster = new Roster(classRecord.getName(), classRecord.getGradingScale(), classRecord.isUsesRounding(),
+                classRecord.getRoundingThreshold());
+        for (Category category : classRecord.getCategories()) {
+            requireEqualWeight(category);
+            roster.addCategory(category.getName(), category.getWeight(), category.getNumGradesDropped());
+        }
+        return roster;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public GradingScale getGradingScale() {
+        return gradingScale;
+    }
+
+    /**
+     * Adds a student without any grades.
+     *
+     * @param studentName The student's name, unique within the roster (case-insensitive).
+     * @return The index of the student, used to address their grades.
+     */
+    public int addStudent(String studentName) {
+        String key = GradeBook.indexKey(studentName);
+        lock.writeLock().lock();
+        try {
+            if (studentIndex.containsKey(key)) {
+                throw new IllegalArgumentException("Student '" + studentName + "' is already in the roster.");
+            }
+            int student = students.size();
+            students.add(studentName);
+            studentIndex.put(key, student);
+            if (student >= extraCredit.length) {
+                extraCredit = Arrays.copyOf(extraCredit, Math.max(student + 1, extraCredit.length * 2));
+            }
+            for (RosterCategory category : categories) {
+                category.ensureCapacity(extraCredit.length);
+            }
+            return student;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a student with the grades and extra credit of a ClassRecord. The grades of each category become
+     * the student's grades on the category's first assignments, in order; assignments are added as needed.
+     * A grade given in points is stored as its percentage, rounded to a hundredth.
+     *
+     * @param studentName The student's name, unique within the roster (case-insensitive).
+     * @param grades      The student's grades, in the roster's categories (an empty category for no grades yet).
+     * @return The index of the student.
+     * @throws IllegalArgumentException If the name is taken, the categories are not the roster's, or one totals points.
+     */
+    public int addStudent(String studentName, ClassRecord grades) {
+        List<Category> studentCategories = grades.getCategories();
+        lock.writeLock().lock();
+        try {
+            for (Category category : studentCategories) {
+                requireEqualWeight(category);
+                if (getCategoryByName(category.getName()) == null) {
+                    throw new IllegalArgumentException("Category '" + category.getName() + "' is not in '" + name + "'.");
+                }
+            }
+            // A ClassRecord without a category is graded differently from one where it is empty
+            if (studentCategories.size() != categories.size()) {
+                throw new IllegalArgumentException("The grades of '" + studentName + "' need every category of '" + name + "'.");
+            }
+            int student = addStudent(studentName);
+            extraCredit[student] = FixedPoint.toHundredths(grades.getExtraCredit());
+            for (Category category : studentCategories) {
+                RosterCategory rosterCategory = getCategoryByName(category.getName());
+                List<Double> categoryGrades = category.getGrades();
+                while (rosterCategory.getAssignmentCount() < categoryGrades.size()) {
+                    rosterCategory.addAssignment();
+                }
+                for (int a = 0; a < categoryGrades.size(); a++) {
+                    rosterCategory.setGrade(student, a, categoryGrades.get(a));
+                }
+            }
+            return student;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getStudentCount() {
+        lock.readLock().lock();
+        try {
+            return students.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String getStudentName(int student) {
+        lock.readLock().lock();
+        try {
+            return students.get(student);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The index of a student, or -1 if there is no student with that name.
+     */
+    public int getStudentIndex(String studentName) {
+        lock.readLock().lock();
+        try {
+            return studentIndex.getOrDefault(GradeBook.indexKey(studentName), -1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public double getExtraCredit(int student) {
+        lock.readLock().lock();
+        try {
+            return FixedPoint.toPoints(extraCredit[checkStudent(student)]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void setExtraCredit(int student, double points) {
+        if (points < 0.0) {
+            throw new IllegalArgumentException("Extra credit cannot be negative.");
+        }
+        int value = FixedPoint.toHundredths(points);
+        lock.writeLock().lock();
+        try {
+            extraCredit[checkStudent(student)] = value;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a category without assignments.
+     *
+     * @return The new category.
+     */
+    public RosterCategory addCategory(String categoryName, double weight, int numGradesDropped) {
+        lock.writeLock().lock();
+        try {
+            if (getCategoryByName(categoryName) != null) {
+                throw new IllegalArgumentException("Category '" + categoryName + "' already exists in '" + name + "'.");
+            }
+            RosterCategory category = new RosterCategory(this, categoryName, weight, numGradesDropped, extraCredit.length, lock);
+            categories.add(category);
+            return category;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<RosterCategory> getCategories() {
+        lock.readLock().lock();
+        try {
+            return Collections.unmodifiableList(new ArrayList<>(categories));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public RosterCategory getCategoryByName(String categoryName) {
+        String key = GradeBook.indexKey(categoryName);
+        lock.readLock().lock();
+        try {
+            for (RosterCategory category : categories) {
+                if (GradeBook.indexKey(category.getName()).equals(key)) {
+                    return category;
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Calculates the final grade of every student, with the result of {@link ClassRecord#calculateFinalGrade()}
+     * on that student's {@link #toClassRecord(int) ClassRecord}. The formula is estimated for all students
+     * in floating point, and redone exactly, as {@link FixedPoint} describes, only for the few students
+     * whose grade is too close to a rounding boundary to tell.
+     *
+     * @return The final grade per student, indexed like the students.
+     */
+    public double[] calculateFinalGrades() {
+        lock.readLock().lock();
+        try {
+            int count = students.size();
+            int categoryCount = categories.size();
+            long[][] keptSums = new long[categoryCount][count];
+            int[][] keptCounts = new int[categoryCount][count];
+            long[] weights = new long[categoryCount];
+            for (int c = 0; c < categoryCount; c++) {
+                categories.get(c).calculateKeptSums(count, keptSums[c], keptCounts[c]);
+                weights[c] = FixedPoint.toWeight(categories.get(c).getWeight());
+            }
+
+            // Categories a student has no grades in get the average of the student's other categories
+            double[] averageOfAverages = new double[count];
+            int[] existingAverages = new int[count];
+            for (int c = 0; c < categoryCount; c++) {
+                long[] sums = keptSums[c];
+                int[] counts = keptCounts[c];
+                for (int s = 0; s < count; s++) {
+                    if (counts[s] >= 0) {
+                        averageOfAverages[s] += counts[s] == 0 ? 0.0 : (double) sums[s] / counts[s];
+                        existingAverages[s]++;
+                    }
+                }
+            }
+            for (int s = 0; s < count; s++) {
+                averageOfAverages[s] = existingAverages[s] > 0 ? averageOfAverages[s] / existingAverages[s] : 0.0;
+            }
+
+            // Weighted sums in hundredths
+            double[] estimates = new double[count];
+            for (int c = 0; c < categoryCount; c++) {
+                long[] sums = keptSums[c];
+                int[] counts = keptCounts[c];
+                double share = weights[c] / (double) FixedPoint.FULL_WEIGHT;
+                for (int s = 0; s < count; s++) {
+                    double average = counts[s] < 0 ? averageOfAverages[s] : counts[s] == 0 ? 0.0 : (double) sums[s] / counts[s];
+                    estimates[s] += average * share;
+                }
+            }
+
+            long[] cutoffs = gradingScale.getCutoffsInHundredths();
+            long threshold = FixedPoint.toHundredths(roundingThreshold);
+            double[] finalGrades = new double[count];
+            for (int s = 0; s < count; s++) {
+                long finalGrade = FixedPoint.round(estimates[s], cutoffs, usesRounding, threshold, extraCredit[s]);
+                if (finalGrade == FixedPoint.AMBIGUOUS) {
+                    long[] studentSums = new long[categoryCount];
+                    long[] studentCounts = new long[categoryCount];
+                    for (int c = 0; c < categoryCount; c++) {
+                        studentSums[c] = keptSums[c][s];
+                        studentCounts[c] = keptCounts[c][s];
+                    }
+                    finalGrade = FixedPoint.exactFinalGrade(studentSums, studentCounts, weights, cutoffs, usesRounding,
+                            threshold, extraCredit[s]);
+                }
+                finalGrades[s] = FixedPoint.toPoints(finalGrade);
+            }
+            return finalGrades;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The letter grade per student, indexed like the students.
+     */
+    public String[] calculateLetterGrades() {
+        double[] finalGrades = calculateFinalGrades();
+        String[] letters = new String[finalGrades.length];
+        for (int s = 0; s < finalGrades.length; s++) {
+            letters[s] = gradingScale.getLetterGrade(finalGrades[s]);
+        }
+        return letters;
+    }
+
+    /**
+     * @return The final grade of one student, as {@link ClassRecord#calculateFinalGrade()} gives it.
+     * Use {@link #calculateFinalGrades()} for the whole section.
+     * @throws IllegalArgumentException If there is no student with that name.
+     */
+    public double getFinalGrade(String studentName) {
+        return toClassRecord(requireStudent(studentName)).calculateFinalGrade();
+    }
+
+    /**
+     * @return The letter grade of one student.
+     * @throws IllegalArgumentException If there is no student with that name.
+     */
+    public String getLetterGrade(String studentName) {
+        return gradingScale.getLetterGrade(getFinalGrade(studentName));
+    }
+
+    /**
+     * Copies one student's grades into a ClassRecord named after the roster, e.g. to use the
+     * single-student views and calculations on them.
+     */
+    public ClassRecord toClassRecord(int student) {
+        lock.readLock().lock();
+        try {
+            checkStudent(student);
+            ClassRecord classRecord = new ClassRecord(name, gradingScale, usesRounding, roundingThreshold);
+            classRecord.setExtraCredit(FixedPoint.toPoints(extraCredit[student]));
+            for (RosterCategory rosterCategory : categories) {
+                Category category = new Category(rosterCategory.getName(), rosterCategory.getWeight(), rosterCategory.getNumGradesDropped());
+                for (double grade : rosterCategory.gradesOf(student)) {
+                    category.addGrade(grade);
+                }
+                classRecord.addCategory(category);
+            }
+            return classRecord;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of students; the caller holds the lock.
+     */
+    int studentCountLocked() {
+        return students.size();
+    }
+
+    private int requireStudent(String studentName) {
+        int student = getStudentIndex(studentName);
+        if (student < 0) {
+            throw new IllegalArgumentException("Student '" + studentName + "' is not in '" + name + "'.");
+        }
+        return student;
+    }
+
+    private static void requireEqualWeight(Category category) {
+        if (category.getAveraging() != Category.Averaging.EQUAL_WEIGHT) {
+            throw new IllegalArgumentException("Category '" + category.getName() + "' totals points, which a roster cannot grade.");
+        }
+    }
+
+    private int checkStudent(int student) {
+        if (student < 0 || student >= students.size()) {
+            throw new IllegalArgumentException("Student " + student + " does not exist.");
+        }
+        return student;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        studentIndex = new HashMap<>();
+        for (int i = 0; i < students.size(); i++) {
+            studentIndex.put(GradeBook.indexKey(students.get(i)), i);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+// RosterCategory.java
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A grading category of a {@link Roster}: the grades of every student on every assignment.
+ * Grades are stored by column, one primitive array per assignment indexed by student, so computing the
+ * averages of all students is a sequential pass over a few arrays instead of a walk over objects.
+ * Like a Category, the columns hold grades in hundredths of a point (see {@link FixedPoint}), which takes
+ * half the memory of doubles and keeps the sums exact. A missing grade (not submitted or not graded yet)
+ * is stored as {@link #MISSING} and ignored, as if the student's own Category did not contain it.
+ */
+public class RosterCategory implements Serializable {
+    private static final long serialVersionUID = 1L;
+    static final int MISSING = Integer.MIN_VALUE;
+
+    private final String name;
+    private double weight; // Weight as a percentage
+    private final int numGradesDropped; // Number of lowest grades to drop per student
+    private final ArrayList<int[]> columns = new ArrayList<>(); // Assignment -> grade per student, in hundredths
+    private int capacity; // Length of every column
+
+    // The roster this category belongs to, and its lock
+    private final Roster roster;
+    private final ReentrantReadWriteLock lock;
+
+    RosterCategory(Roster roster, String name, double weight, int numGradesDropped, int capacity, ReentrantReadWriteLock lock) {
+        if (weight < 0.0 || numGradesDropped < 0) {
+            throw new IllegalArgumentException("Weight and number of dropped grades cannot be negative.");
+        }
+        this.name = name;
+        this.weight = weight;
+        this.numGradesDropped = numGradesDropped;
+        this.capacity = capacity;
+        this.roster = roster;
+        this.lock = lock;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getWeight() {
+        lock.readLock().lock();
+        try {
+            return weight;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void setWeight(double weight) {
+        if (weight < 0.0) {
+            throw new IllegalArgumentException("Weight cannot be negative.");
+        }
+        lock.writeLock().lock();
+        try {
+            this.weight = weight;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getNumGradesDropped() {
+        return numGradesDropped;
+    }
+
+    public int getAssignmentCount() {
+        lock.readLock().lock();
+        try {
+            return columns.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds an assignment that no student has a grade for yet.
+     *
+     * @return The index of the new assignment.
+     */
+    public int addAssignment() {
+        lock.writeLock().lock();
+        try {
+            int[] column = new int[capacity];
+            Arrays.fill(column, MISSING);
+            columns.add(column);
+            return columns.size() - 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The grade of a student on an assignment, or NaN if there is none.
+     */
+    public double getGrade(int student, int assignment) {
+        lock.readLock().lock();
+        try {
+            int grade = column(assignment)[checkStudent(student)];
+            return grade == MISSING ? Double.NaN : FixedPoint.toPoints(grade);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the grade of a student on an assignment; NaN removes it.
+     */
+    public void setGrade(int student, int assignment, double grade) {
+        int value = toColumnValue(grade);
+        lock.writeLock().lock();
+        try {
+            column(assignment)[checkStudent(student)] = value;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the grades of all students on an assignment at once, e.g. from an import.
+     *
+     * @param grades The grade per student, NaN for none; at most one per student.
+     */
+    public void setGrades(int assignment, double[] grades) {
+        lock.writeLock().lock();
+        try {
+            if (grades.length > roster.studentCountLocked()) {
+                throw new IllegalArgumentException("More grades than students.");
+            }
+            int[] column = column(assignment);
+            for (int s = 0; s < grades.length; s++) {
+                column[s] = toColumnValue(grades[s]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Makes room for more students. Called by the roster with its write lock held.
+     */
+    void ensureCapacity(int students) {
+        if (students <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(students, capacity * 2);
+        for (int a = 0; a < columns.size(); a++) {
+            int[] column = Arrays.copyOf(columns.get(a), newCapacity);
+            Arrays.fill(column, capacity, newCapacity, MISSING);
+            columns.set(a, column);
+        }
+        capacity = newCapacity;
+    }
+
+    /**
+     * Computes what {@link Category#getAverageFraction()} would give for each student's grades in an
+     * equal-weight category: the sum and the number of the grades left after dropping the lowest
+     * {@code numGradesDropped}, with a count of -1 for a student without grades. Called with the read lock held.
+     * <p>
+     * Instead of sorting each student's grades, one pass over the columns keeps the running sum, the
+     * count and the few lowest grades of every student in arrays. The inner loops run sequentially over
+     * primitive arrays, so they stream through memory and the JIT can unroll and vectorize them.
+     *
+     * @param students   The number of students.
+     * @param sums     Receives the sum per student, in hundredths; initially 0.
+     * @param counts   Receives the count per student; initially 0.
+     */
+    void calculateKeptSums(int students, long[] sums, int[] counts) {
+        int drops = numGradesDropped;
+        // lowest[j][s] is the (j+1)-th lowest grade of student s seen so far
+        int[][] lowest = new int[drops][students];
+        for (int[] row : lowest) {
+            Arrays.fill(row, Integer.MAX_VALUE);
+        }
+
+        for (int[] column : columns) {
+            if (drops == 0) {
+                for (int s = 0; s < students; s++) {
+                    int grade = column[s];
+                    if (grade != MISSING) {
+                        sums[s] += grade;
+                        counts[s]++;
+                    }
+                }
+                continue;
+            }
+            // Reads each column once; the passes are bound by memory bandwidth, not arithmetic
+            int[] highestKept = lowest[drops - 1];
+            for (int s = 0; s < students; s++) {
+                int grade = column[s];
+                if (grade != MISSING) {
+                    sums[s] += grade;
+                    counts[s]++;
+                    if (grade < highestKept[s]) {
+                        // Insert into the sorted lowest grades, pushing out the largest
+                        int j = drops - 1;
+                        while (j > 0 && lowest[j - 1][s] > grade) {
+                            lowest[j][s] = lowest[j - 1][s];
+                            j--;
+                        }
+                        lowest[j][s] = grade;
+                    }
+                }
+            }
+        }
+
+        for (int s = 0; s < students; s++) {
+            int count = counts[s];
+            if (count <= drops) {
+                sums[s] = 0; // All grades are dropped
+            } else {
+                for (int j = 0; j < drops; j++) {
+                    sums[s] -= lowest[j][s];
+                }
+            }
+            counts[s] = Category.keptCount(count, drops);
+        }
+    }
+
+    /**
+     * @return The grades of one student, in assignment order, for a single-student Category.
+     */
+    double[] gradesOf(int student) {
+        double[] grades = new double[columns.size()];
+        int count = 0;
+        for (int[] column : columns) {
+            if (column[student] != MISSING) {
+                grades[count++] = FixedPoint.toPoints(column[student]);
+            }
+        }
+        return Arrays.copyOf(grades, count);
+    }
+
+    private static int toColumnValue(double grade) {
+        return Double.isNaN(grade) ? MISSING : FixedPoint.toHundredths(grade);
+    }
+
+    private int[] column(int assignment) {
+        if (assignment < 0 || assignment >= columns.size()) {
+            throw new IllegalArgumentException("Assignment " + assignment + " does not exist in '" + name + "'.");
+        }
+        return columns.get(assignment);
+    }
+
+    private int checkStudent(int student) {
+        if (student < 0 || student >= roster.studentCountLocked()) {
+            throw new IllegalArgumentException("Student " + student + " does not exist.");
+        }
+        return student;
+    }
+}
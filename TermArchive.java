@@ -0,0 +1,264 @@
+// TermArchive.java
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Finished terms, sealed into read-only archive segments so that only the active term is loaded,
+ * rendered and saved every session.
+ * <p>
+ * Each term is one file in the archive directory, numbered in the order the terms were sealed. A
+ * segment starts with a small uncompressed header (name, time sealed, class and grade counts, credit
+ * hours and quality points), so listing the terms reads a few bytes per term; the classes follow as
+ * GZIP-compressed CSV records of {@link GradeBookStore}, and are only read when a term is browsed.
+ * A browsed term is kept as an immutable snapshot until memory runs low.
+ */
+public class TermArchive {
+    private static final int MAGIC = 0x47425431; // "GBT1"
+    private static final String SUFFIX = ".term";
+
+    /**
+     * A sealed term.
+     */
+    public static final class Term {
+        private final File file;
+        private final String name;
+        private final long sealedAt;
+        private final int classCount;
+        private final long gradeCount;
+        private final double creditHours;
+        private final double qualityPoints;
+        // The loaded classes, dropped by the garbage collector when memory runs low
+        private SoftReference<GradeBookSnapshot> loaded = new SoftReference<>(null);
+
+        Term(File file, String name, long sealedAt, int classCount, long gradeCount, double creditHours, double qualityPoints) {
+            this.file = file;
+            this.name = name;
+            this.sealedAt = sealedAt;
+            this.classCount = classCount;
+            this.gradeCount = gradeCount;
+            this.creditHours = creditHours;
+            this.qualityPoints = qualityPoints;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return When the term was sealed, in epoch millis.
+         */
+        public long getSealedAt() {
+            return sealedAt;
+        }
+
+        public int getClassCount() {
+            return classCount;
+        }
+
+        public long getGradeCount() {
+            return gradeCount;
+        }
+
+        /**
+         * @return The credit hours of the classes that counted in the term's GPA.
+         */
+        public double getCreditHours() {
+            return creditHours;
+        }
+
+        public double getQualityPoints() {
+            return qualityPoints;
+        }
+
+        /**
+         * @return The term's GPA, or NaN if no class counted.
+         */
+        public double getGpa() {
+            return creditHours > 0.0 ? qualityPoints / creditHours : Double.NaN;
+        }
+
+        File getFile() {
+            return file;
+        }
+
+        /**
+         * Reads the term's classes, or returns them from memory if the term was browsed recently.
+         *
+         * @return The classes as they were when the term was sealed.
+         * @throws IOException If the segment cannot be read or is corrupt.
+         */
+        public synchronized GradeBookSnapshot load() throws IOException {
+            GradeBookSnapshot snapshot = loaded.get();
+            if (snapshot == null) {
+                GradeBook gradeBook = new GradeBook();
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+                    readHeader(in, file);
+                    GradeBookStore.importCsv(gradeBook, new InputStreamReader(new GZIPInputStream(in, 1 << 16), StandardCharsets.UTF_8));
+                }
+                snapshot = gradeBook.snapshot();
+                loaded = new SoftReference<>(snapshot);
+            }
+            return snapshot;
+        }
+    }
+
+    private final File directory;
+
+    /**
+     * @param directory The directory of the segments; it is created when the first term is sealed.
+     */
+    public TermArchive(File directory) {
+        this.directory = directory;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Lists the sealed terms, oldest first, reading only the segment headers.
+     *
+     * @throws IOException If a segment cannot be read or is not a term segment.
+     */
+    public synchronized List<Term> getTerms() throws IOException {
+        File[] files = directory.listFiles((dir, fileName) -> fileName.endsWith(SUFFIX));
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        // Segment names start with their zero-padded sequence number
+        Arrays.sort(files);
+        List<Term> terms = new ArrayList<>(files.length);
+        for (File file : files) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 512))) {
+                terms.add(readHeader(in, file));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Seals the classes of the active term into a new segment and starts the next term: an empty GradeBook
+     * whose prior terms include the sealed one, so the cumulative GPA carries over.
+     *
+     * <p>
+     * The next term is saved to the data file together with the segment: both are written next to their final
+     * names first and only then moved into place, so the sealed classes are never in the archive and in the data
+     * file at once, and never in neither.
+     *
+     * @param active   The GradeBook of the term to seal; it is not changed.
+     * @param termName The name of the term, e.g. "Fall 2024".
+     * @param dataFile The file the next term is saved to, replacing the active term.
+     * @return The GradeBook of the next term.
+     * @throws IllegalArgumentException If the name is empty or a term of that name (ignoring case) is already sealed.
+     * @throws IOException               If the segment or the next term cannot be written; the archive and the
+     *                                   data file are then unchanged.
+     */
+    public synchronized GradeBook archive(GradeBook active, String termName, File dataFile) throws IOException {
+        if (termName == null || termName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Term name cannot be empty.");
+        }
+        String name = termName.trim();
+        List<Term> terms = getTerms();
+        for (Term term : terms) {
+            if (GradeBook.indexKey(term.getName()).equals(GradeBook.indexKey(name))) {
+                throw new IllegalArgumentException("A term named '" + term.getName() + "' is already archived.");
+            }
+        }
+
+        // An independent copy of one version, so the header and the classes agree while the active term changes
+        GradeBook sealed = active.snapshot().toGradeBook();
+        GradeBookSnapshot snapshot = sealed.snapshot();
+        long gradeCount = 0;
+        for (GradeBookSnapshot.ClassSnapshot classSnapshot : snapshot.getClasses()) {
+            for (GradeBookSnapshot.CategorySnapshot category : classSnapshot.getCategories()) {
+                gradeCount += category.getGradeCount();
+            }
+        }
+        GpaTracker gpa = GpaTracker.of(sealed);
+        double creditHours = gpa.getCreditHours();
+        double qualityPoints = gpa.getQualityPoints();
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create the term archive " + directory);
+        }
+        int number = terms.size() + 1;
+        File file;
+        do {
+            file = new File(directory, String.format("%04d-%s%s", number++, fileName(name), SUFFIX));
+        } while (file.exists());
+        // Written next to its final name and moved into place, so a failed write never leaves a partial term
+        File temporary = new File(directory, file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(name);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(snapshot.getClasses().size());
+            out.writeLong(gradeCount);
+            out.writeDouble(creditHours);
+            out.writeDouble(qualityPoints);
+            out.flush();
+            GZIPOutputStream body = new GZIPOutputStream(out, 1 << 16);
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8));
+            GradeBookStore.exportCsv(sealed, writer);
+            body.finish();
+        } catch (IOException e) {
+            temporary.delete();
+            throw e;
+        }
+
+        GradeBook next = new GradeBook();
+        next.setPriorTerms(active.getPriorCreditHours() + creditHours, active.getPriorQualityPoints() + qualityPoints);
+        File nextTemporary = new File(dataFile.getPath() + ".tmp");
+        try {
+            GradeBookStore.save(next, nextTemporary);
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            temporary.delete();
+            nextTemporary.delete();
+            throw e;
+        }
+        try {
+            Files.move(nextTemporary.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The data file still holds the sealed classes, so the segment must go
+            Files.deleteIfExists(file.toPath());
+            nextTemporary.delete();
+            throw e;
+        }
+        return next;
+    }
+
+    private static Term readHeader(DataInputStream in, File file) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException(file + " is not an archived term");
+        }
+        return new Term(file, in.readUTF(), in.readLong(), in.readInt(), in.readLong(), in.readDouble(), in.readDouble());
+    }
+
+    /**
+     * @return The term name with every character that is not safe in a file name replaced.
+     */
+    private static String fileName(String name) {
+        String safe = name.replaceAll("[^A-Za-z0-9._-]", "_");
+        return safe.length() > 40 ? safe.substring(0, 40) : safe;
+    }
+}
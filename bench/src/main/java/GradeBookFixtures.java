@@ -0,0 +1,194 @@
+// GradeBookFixtures.java
+import gradebook.bench.Fixtures;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * The benchmark workloads over the gradebook classes (see {@link Fixtures}). All data is synthetic and
+ * generated from a fixed seed, so every run measures the same grades.
+ */
+public class GradeBookFixtures implements Fixtures {
+    static final long SEED = 42;
+
+    @Override
+    public Supplier<Object> categoryAverage(int grades, int drops) {
+        Category category = syntheticCategory(new Random(SEED), "Homework", 100.0, drops, grades);
+        return category::calculateAverage;
+    }
+
+    @Override
+    public Supplier<Object> finalGrade(int categories, int gradesPerCategory) {
+        ClassRecord classRecord = syntheticClass(new Random(SEED), "Class", categories, gradesPerCategory);
+        return classRecord::calculateFinalGrade;
+    }
+
+    @Override
+    public Supplier<Object> letterGrade(int cutoffs) {
+        GradingScale gradingScale = syntheticScale(cutoffs);
+        double[] percentages = new Random(SEED).doubles(1024, 0.0, 100.0).toArray();
+        int[] next = {0};
+        return () -> gradingScale.getLetterGrade(percentages[next[0]++ & 1023]);
+    }
+
+    @Override
+    public Supplier<Object> neededGrades(int categories, int gradesPerCategory, boolean cached) {
+        ClassRecord classRecord = syntheticClass(new Random(SEED), "Class", categories, gradesPerCategory);
+        int[] remaining = new int[categories];
+        Arrays.fill(remaining, 3);
+        double cutoff = GradeCalculator.getCutoffForLetterGrade("A-", classRecord.getGradingScale().getScale());
+        if (cached) {
+            return () -> GradeCalculator.neededGradeScenarios(classRecord, remaining, cutoff);
+        }
+        return () -> {
+            GradeCalculator.clearCaches(); // Measure the search, not the result cache
+            return GradeCalculator.neededGradeScenarios(classRecord, remaining, cutoff);
+        };
+    }
+
+    @Override
+    public Supplier<Object> rosterFinalGrades(int students, int categories, int assignmentsPerCategory) {
+        Roster roster = syntheticRoster(new Random(SEED), students, categories, assignmentsPerCategory);
+        return roster::calculateFinalGrades;
+    }
+
+    @Override
+    public Supplier<Object> tableRows(int classes, boolean warm) {
+        GradeBookSnapshot snapshot = syntheticGradeBook(classes, 4, 20).snapshot();
+        if (!warm) {
+            return () -> GradeBookGUI.buildTableRows(snapshot, null, new IdentityHashMap<>(), new IdentityHashMap<>());
+        }
+        Map<GradeBookSnapshot.ClassSnapshot, Object[][]> warmCache = new IdentityHashMap<>();
+        GradeBookGUI.buildTableRows(snapshot, null, new IdentityHashMap<>(), warmCache);
+        return () -> GradeBookGUI.buildTableRows(snapshot, null, warmCache, new IdentityHashMap<>());
+    }
+
+    @Override
+    public Supplier<Object> snapshotAfterChange(int classes) {
+        GradeBook gradeBook = syntheticGradeBook(classes, 4, 20);
+        List<ClassRecord> classRecords = gradeBook.getClasses();
+        gradeBook.snapshot();
+        int[] next = {0};
+        return () -> {
+            int change = next[0]++;
+            Category category = classRecords.get(change % classRecords.size()).getCategories().get(0);
+            category.editGrade(change % category.getGradeCount(), 60.0 + change % 40);
+            return gradeBook.snapshot();
+        };
+    }
+
+    @Override
+    public SharedGradeBook sharedGradeBook(int classes) {
+        List<ClassRecord> classRecords = syntheticGradeBook(classes, 4, 20).getClasses();
+        return new SharedGradeBook() {
+            @Override
+            public Supplier<Object> reader(int classIndex) {
+                return classRecords.get(classIndex)::calculateFinalGrade;
+            }
+
+            @Override
+            public Supplier<Object> writer(int classIndex) {
+                ClassRecord classRecord = classRecords.get(classIndex);
+                Category category = classRecord.getCategories().get(0);
+                int[] next = {0};
+                return () -> {
+                    int change = next[0]++;
+                    category.editGrade(change % category.getGradeCount(), 60.0 + change % 40);
+                    return classRecord.getVersion();
+                };
+            }
+        };
+    }
+
+    @Override
+    public Supplier<Object> save(int classes, int gradesPerCategory, File file) {
+        GradeBook gradeBook = syntheticGradeBook(classes, 4, gradesPerCategory);
+        return () -> {
+            try {
+                GradeBookStore.save(gradeBook, file);
+                return file.length();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    @Override
+    public Supplier<Object> load(int classes, int gradesPerCategory, File file) {
+        try {
+            GradeBookStore.save(syntheticGradeBook(classes, 4, gradesPerCategory), file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return () -> {
+            try {
+                return GradeBookStore.load(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    static GradeBook syntheticGradeBook(int classes, int categoriesPerClass, int gradesPerCategory) {
+        return new GradeBookGenerator(SEED).classes(classes).categories(categoriesPerClass, categoriesPerClass)
+                .grades(gradesPerCategory, gradesPerCategory).generate();
+    }
+
+    static ClassRecord syntheticClass(Random random, String name, int categories, int gradesPerCategory) {
+        ClassRecord classRecord = new ClassRecord(name, GradingScale.defaultScale(), true, 0.5);
+        List<Category> created = new ArrayList<>();
+        for (int i = 0; i < categories; i++) {
+            created.add(syntheticCategory(random, "Category " + i, 100.0 / categories, i % 2, gradesPerCategory));
+        }
+        created.forEach(classRecord::addCategory);
+        return classRecord;
+    }
+
+    static Category syntheticCategory(Random random, String name, double weight, int drops, int grades) {
+        Category category = new Category(name, weight, drops);
+        for (int g = 0; g < grades; g++) {
+            // Grades cluster around 82 like real ones, clamped to 0-100
+            category.addGrade(Math.max(0.0, Math.min(100.0, Math.round((82.0 + random.nextGaussian() * 10.0) * 100.0) / 100.0)));
+        }
+        return category;
+    }
+
+    static Roster syntheticRoster(Random random, int students, int categories, int assignmentsPerCategory) {
+        Roster roster = new Roster("Section", GradingScale.defaultScale(), true, 0.5);
+        for (int s = 0; s < students; s++) {
+            roster.addStudent("Student " + s);
+        }
+        for (int c = 0; c < categories; c++) {
+            RosterCategory category = roster.addCategory("Category " + c, 100.0 / categories, c % 3);
+            double[] grades = new double[students];
+            for (int a = 0; a < assignmentsPerCategory; a++) {
+                for (int s = 0; s < students; s++) {
+                    // Some assignments are missing, like real ones
+                    grades[s] = random.nextInt(20) == 0 ? Double.NaN : Math.max(0.0, Math.min(100.0, 82.0 + random.nextGaussian() * 10.0));
+                }
+                category.setGrades(category.addAssignment(), grades);
+            }
+        }
+        return roster;
+    }
+
+    static GradingScale syntheticScale(int cutoffs) {
+        TreeMap<Double, String> scaleMap = new TreeMap<>(Collections.reverseOrder());
+        for (int i = 0; i < cutoffs; i++) {
+            scaleMap.put(100.0 * i / cutoffs, "L" + i);
+        }
+        return GradingScale.of(scaleMap);
+    }
+}
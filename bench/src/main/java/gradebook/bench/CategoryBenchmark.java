@@ -0,0 +1,46 @@
+// CategoryBenchmark.java
+package gradebook.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Category.calculateAverage() over categories of different sizes, with and without dropped grades.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CategoryBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    int grades;
+
+    @Param({"0", "2"})
+    int drops;
+
+    private Supplier<Object> calculateAverage;
+
+    @Setup
+    public void setUp() {
+        calculateAverage = Fixtures.load().categoryAverage(grades, drops);
+    }
+
+    @Benchmark
+    public Object calculateAverage() {
+        return calculateAverage.get();
+    }
+}
@@ -0,0 +1,46 @@
+// ClassRecordBenchmark.java
+package gradebook.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * ClassRecord.calculateFinalGrade() over classes of different sizes; half the categories drop a grade.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassRecordBenchmark {
+    @Param({"4", "8"})
+    int categories;
+
+    @Param({"10", "100", "1000"})
+    int gradesPerCategory;
+
+    private Supplier<Object> calculateFinalGrade;
+
+    @Setup
+    public void setUp() {
+        calculateFinalGrade = Fixtures.load().finalGrade(categories, gradesPerCategory);
+    }
+
+    @Benchmark
+    public Object calculateFinalGrade() {
+        return calculateFinalGrade.get();
+    }
+}
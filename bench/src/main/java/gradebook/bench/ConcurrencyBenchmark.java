@@ -0,0 +1,95 @@
+// ConcurrencyBenchmark.java
+package gradebook.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Readers and writers of one shared GradeBook, each thread on a class of its own. Every class has its
+ * own lock, so the throughput per thread should hold as threads are added; with a single lock for the
+ * whole GradeBook it would fall. The nested classes run the same benchmarks at 1, 2, 4 and 8 threads.
+ * <p>
+ * The readWrite group pairs a reader with a writer, so JMH rounds 1 thread up to one pair.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class ConcurrencyBenchmark {
+    static final int CLASSES = 8;
+
+    @State(Scope.Benchmark)
+    public static class SharedState {
+        Fixtures.SharedGradeBook gradeBook;
+        final AtomicInteger nextClass = new AtomicInteger();
+
+        @Setup
+        public void setUp() {
+            gradeBook = Fixtures.load().sharedGradeBook(CLASSES);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OwnClass {
+        Supplier<Object> reader;
+        Supplier<Object> writer;
+
+        @Setup
+        public void setUp(SharedState shared) {
+            int classIndex = shared.nextClass.getAndIncrement() % CLASSES;
+            reader = shared.gradeBook.reader(classIndex);
+            writer = shared.gradeBook.writer(classIndex);
+        }
+    }
+
+    @Benchmark
+    public Object write(OwnClass own) {
+        return own.writer.get();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public Object reader(OwnClass own) {
+        return own.reader.get();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public Object writer(OwnClass own) {
+        return own.writer.get();
+    }
+
+    @Threads(1)
+    public static class Threads1 extends ConcurrencyBenchmark {
+    }
+
+    @Threads(2)
+    public static class Threads2 extends ConcurrencyBenchmark {
+    }
+
+    @Threads(4)
+    public static class Threads4 extends ConcurrencyBenchmark {
+    }
+
+    @Threads(8)
+    public static class Threads8 extends ConcurrencyBenchmark {
+    }
+}
@@ -0,0 +1,81 @@
+// Fixtures.java
+package gradebook.bench;
+
+import java.io.File;
+import java.util.function.Supplier;
+
+/**
+ * The synthetic data and operations the benchmarks measure. JMH only accepts benchmarks in a named package,
+ * and code in a named package cannot refer to the gradebook classes in the unnamed package, so the
+ * operations are built by GradeBookFixtures in the unnamed package, which is looked up once by name.
+ * <p>
+ * Every method builds its data from a fixed seed and returns the operation to measure; the operation
+ * returns a result for the benchmark to consume, so the JIT cannot drop the call.
+ */
+public interface Fixtures {
+
+    /**
+     * @return The gradebook's implementation.
+     */
+    static Fixtures load() {
+        try {
+            return (Fixtures) Class.forName("GradeBookFixtures").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("GradeBookFixtures is missing from the benchmark jar", e);
+        }
+    }
+
+    Supplier<Object> categoryAverage(int grades, int drops);
+
+    Supplier<Object> finalGrade(int categories, int gradesPerCategory);
+
+    /**
+     * @return Looks up the letter grade of the next of 1024 random percentages on every call.
+     */
+    Supplier<Object> letterGrade(int cutoffs);
+
+    /**
+     * @param cached Whether repeated calls may be answered from the result cache, or every call searches.
+     */
+    Supplier<Object> neededGrades(int categories, int gradesPerCategory, boolean cached);
+
+    Supplier<Object> rosterFinalGrades(int students, int categories, int assignmentsPerCategory);
+
+    /**
+     * @param warm Whether the rows of unchanged classes may be reused from the previous build.
+     */
+    Supplier<Object> tableRows(int classes, boolean warm);
+
+    /**
+     * @return Edits a grade of the next class and publishes the GradeBook's snapshot of that change.
+     */
+    Supplier<Object> snapshotAfterChange(int classes);
+
+    /**
+     * @return One GradeBook of the given number of classes, shared by every thread of a benchmark.
+     */
+    SharedGradeBook sharedGradeBook(int classes);
+
+    Supplier<Object> save(int classes, int gradesPerCategory, File file);
+
+    /**
+     * @return Loads the file, which is written once before the operation is returned.
+     */
+    Supplier<Object> load(int classes, int gradesPerCategory, File file);
+
+    /**
+     * The operations on a single class of a GradeBook that other threads change at the same time.
+     */
+    interface SharedGradeBook {
+
+        /**
+         * @return Calculates the final grade of the class at the index.
+         */
+        Supplier<Object> reader(int classIndex);
+
+        /**
+         * @return Edits the next grade of the class at the index, and returns its new version.
+         */
+        Supplier<Object> writer(int classIndex);
+    }
+}
@@ -0,0 +1,43 @@
+// GradingScaleBenchmark.java
+package gradebook.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * GradingScale.getLetterGrade() over random percentages, for the usual scale size and a very fine one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GradingScaleBenchmark {
+    @Param({"12", "100"})
+    int cutoffs;
+
+    private Supplier<Object> getLetterGrade;
+
+    @Setup
+    public void setUp() {
+        getLetterGrade = Fixtures.load().letterGrade(cutoffs);
+    }
+
+    @Benchmark
+    public Object getLetterGrade() {
+        return getLetterGrade.get();
+    }
+}
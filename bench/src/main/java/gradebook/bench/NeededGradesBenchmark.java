@@ -0,0 +1,50 @@
+// NeededGradesBenchmark.java
+package gradebook.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The needed-grades scenarios for an A- with three assignments left per category, searched every time
+ * or answered from the result cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NeededGradesBenchmark {
+    @Param({"4", "8"})
+    int categories;
+
+    @Param({"10", "100"})
+    int gradesPerCategory;
+
+    @Param({"false", "true"})
+    boolean cached;
+
+    private Supplier<Object> neededGradeScenarios;
+
+    @Setup
+    public void setUp() {
+        neededGradeScenarios = Fixtures.load().neededGrades(categories, gradesPerCategory, cached);
+    }
+
+    @Benchmark
+    public Object neededGradeScenarios() {
+        return neededGradeScenarios.get();
+    }
+}
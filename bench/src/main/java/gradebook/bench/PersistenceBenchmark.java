@@ -0,0 +1,68 @@
+// PersistenceBenchmark.java
+package gradebook.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Saving a GradeBook to a data file and loading it back, for books of different sizes with 4 categories
+ * per class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistenceBenchmark {
+    @Param({"10", "100", "1000"})
+    int classes;
+
+    @Param({"20"})
+    int gradesPerCategory;
+
+    private File saveFile;
+    private File loadFile;
+    private Supplier<Object> save;
+    private Supplier<Object> load;
+
+    @Setup
+    public void setUp() throws IOException {
+        Fixtures fixtures = Fixtures.load();
+        saveFile = File.createTempFile("gradebook-bench-save", ".dat");
+        loadFile = File.createTempFile("gradebook-bench-load", ".dat");
+        save = fixtures.save(classes, gradesPerCategory, saveFile);
+        load = fixtures.load(classes, gradesPerCategory, loadFile);
+    }
+
+    @TearDown
+    public void tearDown() {
+        saveFile.delete();
+        loadFile.delete();
+    }
+
+    @Benchmark
+    public Object save() {
+        return save.get();
+    }
+
+    @Benchmark
+    public Object load() {
+        return load.get();
+    }
+}
@@ -0,0 +1,43 @@
+// RosterBenchmark.java
+package gradebook.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The final grades of every student of a roster, 5 categories of 20 assignments with some missing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RosterBenchmark {
+    @Param({"1000", "50000"})
+    int students;
+
+    private Supplier<Object> calculateFinalGrades;
+
+    @Setup
+    public void setUp() {
+        calculateFinalGrades = Fixtures.load().rosterFinalGrades(students, 5, 20);
+    }
+
+    @Benchmark
+    public Object calculateFinalGrades() {
+        return calculateFinalGrades.get();
+    }
+}
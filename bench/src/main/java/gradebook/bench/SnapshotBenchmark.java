@@ -0,0 +1,44 @@
+// SnapshotBenchmark.java
+package gradebook.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * What publishing an immutable snapshot costs: one grade edit followed by GradeBook.snapshot(), which
+ * copies only the path to the changed class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+    @Param({"100", "1000"})
+    int classes;
+
+    private Supplier<Object> editAndSnapshot;
+
+    @Setup
+    public void setUp() {
+        editAndSnapshot = Fixtures.load().snapshotAfterChange(classes);
+    }
+
+    @Benchmark
+    public Object editAndSnapshot() {
+        return editAndSnapshot.get();
+    }
+}
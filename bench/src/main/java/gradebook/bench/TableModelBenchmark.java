@@ -0,0 +1,47 @@
+// TableModelBenchmark.java
+package gradebook.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Building the rows of the classes table (what updateClassesTable() hands to the table model), with every
+ * class formatted anew or with the rows of unchanged classes reused.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableModelBenchmark {
+    @Param({"100", "1000"})
+    int classes;
+
+    @Param({"cold", "warm"})
+    String cache;
+
+    private Supplier<Object> buildTableRows;
+
+    @Setup
+    public void setUp() {
+        buildTableRows = Fixtures.load().tableRows(classes, "warm".equals(cache));
+    }
+
+    @Benchmark
+    public Object buildTableRows() {
+        return buildTableRows.get();
+    }
+}
@@ -0,0 +1,117 @@
+// CategoryTest.java
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CategoryTest {
+
+    @Test
+    void droppingByTotalPointsFindsTheBestAverage() {
+        Random random = new Random(42);
+        for (int round = 0; round < 3000; round++) {
+            int count = 2 + random.nextInt(13);
+            int drops = 1 + random.nextInt(count - 1);
+            Category category = new Category("Homework", 100.0, drops, Category.Averaging.TOTAL_POINTS);
+            long[] earned = new long[count];
+            long[] possible = new long[count];
+            for (int i = 0; i < count; i++) {
+                // Hundredths; a few values only, so that ties come up
+                possible[i] = random.nextBoolean() ? 100 * (1 + random.nextInt(10)) * 10 : 1 + random.nextInt(10_000);
+                earned[i] = random.nextInt(4) == 0 ? 0 : random.nextInt((int) possible[i] + 1);
+                category.addGrade(earned[i] / 100.0, possible[i] / 100.0);
+            }
+
+            long[] best = bestKept(earned, possible, count - drops);
+            long[] fraction = category.getAverageFraction();
+            assertEquals(0, FixedPoint.compareFractions(fraction[0], fraction[1], best[0] * Category.PERCENT_POSSIBLE, best[1]),
+                    "Round " + round + ": " + Arrays.toString(earned) + " of " + Arrays.toString(possible) + ", dropping " + drops);
+        }
+    }
+
+    @Test
+    void droppingWithEqualWeightsDropsTheLowestGrades() {
+        Random random = new Random(42);
+        for (int round = 0; round < 1000; round++) {
+            int count = 1 + random.nextInt(30);
+            int drops = random.nextInt(count + 2);
+            Category category = new Category("Quizzes", 100.0, drops);
+            int[] grades = new int[count];
+            for (int i = 0; i < count; i++) {
+                grades[i] = random.nextInt(10_001);
+                category.addGrade(grades[i] / 100.0);
+            }
+            Arrays.sort(grades);
+            long kept = 0;
+            for (int i = drops; i < count; i++) {
+                kept += grades[i];
+            }
+            double expected = drops >= count ? 0.0 : kept / (100.0 * (count - drops));
+            assertEquals(expected, category.calculateAverage(), 1e-9, "Round " + round);
+        }
+    }
+
+    @Test
+    void selectionFindsTheSameRankAsSorting() {
+        Random random = new Random(42);
+        for (int round = 0; round < 2000; round++) {
+            int count = 1 + random.nextInt(200);
+            double[] values = new double[count];
+            for (int i = 0; i < count; i++) {
+                // Many duplicates in some rounds, none in others
+                values[i] = round % 2 == 0 ? random.nextInt(5) : random.nextGaussian();
+            }
+            double[] sorted = values.clone();
+            Arrays.sort(sorted);
+            double[] copy = values.clone();
+            int k = 1 + random.nextInt(count);
+            assertEquals(sorted[k - 1], Category.kthSmallest(values, new double[count], count, k));
+            assertEquals(Arrays.toString(copy), Arrays.toString(values), "The values must not change");
+        }
+    }
+
+    @Test
+    void gradesAreParsedAsPercentagesOrPoints() {
+        assertArrayEquals(new double[]{92.5, 100.0}, Category.parseGrade(" 92.5 "));
+        assertArrayEquals(new double[]{18.0, 20.0}, Category.parseGrade("18 / 20"));
+        assertNull(Category.parseGrade("101"));
+        assertNull(Category.parseGrade("-1"));
+        assertNull(Category.parseGrade("30/20"));
+        assertNull(Category.parseGrade("5/0"));
+        assertNull(Category.parseGrade("NaN"));
+        assertNull(Category.parseGrade("1/Infinity"));
+        assertThrows(NumberFormatException.class, () -> Category.parseGrade("ninety"));
+        assertThrows(NumberFormatException.class, () -> Category.parseGrade("18/"));
+    }
+
+    /**
+     * Tries every way of keeping some of the grades.
+     *
+     * @return The highest points earned over points possible, as a numerator and a denominator.
+     */
+    private static long[] bestKept(long[] earned, long[] possible, int keep) {
+        long[] best = null;
+        for (int subset = 0; subset < 1 << earned.length; subset++) {
+            if (Integer.bitCount(subset) != keep) {
+                continue;
+            }
+            long subsetEarned = 0;
+            long subsetPossible = 0;
+            for (int i = 0; i < earned.length; i++) {
+                if ((subset & 1 << i) != 0) {
+                    subsetEarned += earned[i];
+                    subsetPossible += possible[i];
+                }
+            }
+            if (best == null || FixedPoint.compareFractions(subsetEarned, subsetPossible, best[0], best[1]) > 0) {
+                best = new long[]{subsetEarned, subsetPossible};
+            }
+        }
+        return best;
+    }
+}
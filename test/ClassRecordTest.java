@@ -0,0 +1,45 @@
+// ClassRecordTest.java
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ClassRecordTest {
+
+    private static ClassRecord classWithEqualThirds(boolean usesRounding, double... grades) {
+        ClassRecord classRecord = new ClassRecord("Thirds", GradingScale.defaultScale(), usesRounding, 0.5);
+        for (int i = 0; i < grades.length; i++) {
+            Category category = new Category("Category " + i, 100.0 / 3, 0);
+            category.addGrade(grades[i]);
+            classRecord.addCategory(category);
+        }
+        return classRecord;
+    }
+
+    @Test
+    void weightsOfOneThirdAddUpToFullMarks() {
+        assertEquals(100.0, classWithEqualThirds(false, 100.0, 100.0, 100.0).calculateFinalGrade());
+        assertEquals(100.0, classWithEqualThirds(true, 100.0, 100.0, 100.0).calculateFinalGrade());
+    }
+
+    @Test
+    void weightsOfOneThirdAverageTheCategories() {
+        assertEquals(90.0, classWithEqualThirds(false, 90.0, 90.0, 90.0).calculateFinalGrade());
+        assertEquals(85.0, classWithEqualThirds(false, 80.0, 85.0, 90.0).calculateFinalGrade());
+        assertEquals(86.67, classWithEqualThirds(false, 80.0, 90.0, 90.0).calculateFinalGrade());
+        // 89.9999... must not fall short of the A- cutoff
+        assertEquals("A-", classWithEqualThirds(false, 90.0, 90.0, 90.0).getLetterGrade());
+    }
+
+    @Test
+    void snapshotAgreesWithTheClass() {
+        ClassRecord classRecord = classWithEqualThirds(false, 100.0, 100.0, 100.0);
+        assertEquals(classRecord.calculateFinalGrade(), GradeBookSnapshot.ClassSnapshot.of(classRecord).getFinalGrade());
+    }
+
+    @Test
+    void weightsKeepTheirFractionalPrecision() {
+        assertEquals(33_333_333L, FixedPoint.toWeight(100.0 / 3));
+        assertEquals(12_500_000L, FixedPoint.toWeight(12.5));
+        assertEquals(FixedPoint.FULL_WEIGHT, FixedPoint.toWeight(100.0));
+    }
+}
@@ -0,0 +1,34 @@
+// GradeBookChangeBusTest.java
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GradeBookChangeBusTest {
+
+    @Test
+    void averageFinalGradeDoesNotDriftOverManyChanges() {
+        GradeBook gradeBook = new GradeBook();
+        for (int c = 0; c < 3; c++) {
+            ClassRecord classRecord = new ClassRecord("Class " + c, GradingScale.defaultScale(), false, 0.0);
+            Category exams = new Category("Exams", 100.0, 0);
+            exams.addGrade(100.0 / 3);
+            classRecord.addCategory(exams);
+            gradeBook.addClass(classRecord);
+        }
+        GradeBookChangeBus bus = new GradeBookChangeBus(Runnable::run);
+        bus.attach(gradeBook);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            Category exams = gradeBook.getClassByName("Class " + random.nextInt(3)).getCategoryByName("Exams");
+            exams.editGrade(0, random.nextInt(10_001) / 100.0);
+        }
+
+        // A bus attached now sums the final grades once
+        GradeBookChangeBus fresh = new GradeBookChangeBus(Runnable::run);
+        fresh.attach(gradeBook);
+        assertEquals(fresh.getAverageFinalGrade(), bus.getAverageFinalGrade());
+    }
+}
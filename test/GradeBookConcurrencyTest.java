@@ -0,0 +1,184 @@
+// GradeBookConcurrencyTest.java
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradeBookConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int CLASSES_PER_THREAD = 4;
+    private static final int OPERATIONS = 20_000;
+
+    @Test
+    void gradeCountsAddUpWhenThreadsChangeTheirOwnClasses() throws Exception {
+        GradeBook gradeBook = new GradeBook();
+        for (int c = 0; c < THREADS * CLASSES_PER_THREAD; c++) {
+            gradeBook.addClass(newClass("Class " + c));
+        }
+
+        List<Long> expected = runConcurrently(THREADS, thread -> {
+            Random random = new Random(thread);
+            long grades = CLASSES_PER_THREAD * 40L;
+            for (int i = 0; i < OPERATIONS; i++) {
+                ClassRecord classRecord = gradeBook.getClassByName("Class " + (thread * CLASSES_PER_THREAD + random.nextInt(CLASSES_PER_THREAD)));
+                Category category = classRecord.getCategories().get(random.nextInt(2));
+                int action = random.nextInt(10);
+                if (action < 5) {
+                    double finalGrade = classRecord.calculateFinalGrade();
+                    assertTrue(finalGrade >= 0.0 && finalGrade <= 100.0, "Final grade " + finalGrade);
+                } else if (action < 7) {
+                    category.addGrade(random.nextInt(101));
+                    grades++;
+                } else if (action == 7) {
+                    category.editGrade(random.nextInt(20), random.nextInt(101));
+                } else if (category.getGradeCount() > 20) {
+                    category.deleteGrade(category.getGradeCount() - 1);
+                    grades--;
+                } else {
+                    assertEquals(THREADS * CLASSES_PER_THREAD, gradeBook.getClasses().size());
+                }
+            }
+            return grades;
+        });
+
+        List<ClassRecord> classes = gradeBook.getClasses();
+        for (int t = 0; t < THREADS; t++) {
+            long actual = 0;
+            for (int c = t * CLASSES_PER_THREAD; c < (t + 1) * CLASSES_PER_THREAD; c++) {
+                for (Category category : classes.get(c).getCategories()) {
+                    actual += category.getGradeCount();
+                }
+            }
+            assertEquals(expected.get(t), actual, "Grades of thread " + t);
+        }
+    }
+
+    @Test
+    void readersOfASharedClassNeverSeeItHalfChanged() throws Exception {
+        GradeBook gradeBook = new GradeBook();
+        ClassRecord classRecord = newClass("Shared");
+        gradeBook.addClass(classRecord);
+        Category homework = classRecord.getCategoryByName("Homework");
+
+        // Half the threads add grades, the other half read the whole category while they do
+        runConcurrently(THREADS, thread -> {
+            Random random = new Random(thread);
+            int seen = 0;
+            for (int i = 0; i < OPERATIONS / 4; i++) {
+                if (thread % 2 == 0) {
+                    homework.addGrade(random.nextInt(101));
+                } else {
+                    List<Double> grades = homework.getGrades();
+                    assertTrue(grades.size() >= seen, grades.size() + " grades after " + seen);
+                    seen = grades.size();
+                    for (double grade : grades) {
+                        assertTrue(grade >= 0.0 && grade <= 100.0);
+                    }
+                    double average = homework.calculateAverage();
+                    assertTrue(average >= 0.0 && average <= 100.0, "Average " + average);
+                }
+            }
+            return 0L;
+        });
+        assertEquals(20 + THREADS / 2 * (OPERATIONS / 4), homework.getGradeCount());
+    }
+
+    @Test
+    void onlyOneOfConcurrentClassesWithTheSameNameIsAdded() throws Exception {
+        GradeBook gradeBook = new GradeBook();
+        List<Long> added = runConcurrently(THREADS, thread -> {
+            long count = 0;
+            for (int i = 0; i < 200; i++) {
+                try {
+                    // Different case, same class
+                    gradeBook.addClass(newClass((thread % 2 == 0 ? "Class " : "CLASS ") + i));
+                    count++;
+                } catch (IllegalArgumentException e) {
+                    // Another thread was first
+                }
+            }
+            return count;
+        });
+
+        assertEquals(200, added.stream().mapToLong(Long::longValue).sum());
+        assertEquals(200, gradeBook.getClasses().size());
+        for (int i = 0; i < 200; i++) {
+            assertNotNull(gradeBook.getClassByName("class " + i));
+        }
+    }
+
+    @Test
+    void classesAddedAndRemovedConcurrentlyKeepTheIndexConsistent() throws Exception {
+        GradeBook gradeBook = new GradeBook();
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < 500; i++) {
+                String name = "Class " + thread + "-" + i;
+                gradeBook.addClass(newClass(name));
+                if (i % 2 == 1) {
+                    assertNotNull(gradeBook.removeClass(name));
+                }
+            }
+            return 0L;
+        });
+
+        List<ClassRecord> classes = gradeBook.getClasses();
+        assertEquals(THREADS * 250, classes.size());
+        for (ClassRecord classRecord : classes) {
+            assertEquals(classRecord, gradeBook.getClassByName(classRecord.getName()));
+        }
+    }
+
+    private static ClassRecord newClass(String name) {
+        ClassRecord classRecord = new ClassRecord(name, GradingScale.defaultScale(), false, 0.0);
+        classRecord.addCategory(new Category("Homework", 40.0, 1));
+        classRecord.addCategory(new Category("Exams", 60.0, 0));
+        for (Category category : classRecord.getCategories()) {
+            for (int g = 0; g < 20; g++) {
+                category.addGrade(70.0 + g);
+            }
+        }
+        return classRecord;
+    }
+
+    interface Worker {
+        long run(int thread) throws Exception;
+    }
+
+    /**
+     * Starts the workers together and returns their results by thread, rethrowing the first failure.
+     */
+    static List<Long> runConcurrently(int threads, Worker worker) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                Callable<Long> task = () -> {
+                    start.await();
+                    return worker.run(thread);
+                };
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            List<Long> results = new ArrayList<>();
+            for (Future<Long> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+// GradeBookReportTest.java
+import org.junit.jupiter.api.Test;
+
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradeBookReportTest {
+
+    private static List<ClassRecord> classes(int count) {
+        List<ClassRecord> classes = new ArrayList<>();
+        for (int c = 0; c < count; c++) {
+            ClassRecord classRecord = new ClassRecord("Class " + c, GradingScale.defaultScale(), false, 0.0);
+            Category exams = new Category("Exams", 100.0, 0);
+            exams.addGrade(80.0 + c % 20);
+            classRecord.addCategory(exams);
+            classes.add(classRecord);
+        }
+        return classes;
+    }
+
+    @Test
+    void progressCountsUpToEveryClass() throws Exception {
+        List<Integer> progress = new ArrayList<>();
+        StringWriter writer = new StringWriter();
+        assertEquals(200, GradeBookReport.write(classes(200), "Report", writer, progress::add));
+
+        assertEquals(200, progress.get(progress.size() - 1));
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i) > progress.get(i - 1));
+        }
+        assertTrue(writer.toString().endsWith("</html>\n"));
+    }
+
+    @Test
+    void anInterruptedReportStopsAtTheNextBatch() {
+        List<ClassRecord> classes = classes(200);
+        StringWriter writer = new StringWriter();
+        assertThrows(InterruptedIOException.class, () -> GradeBookReport.write(classes, "Report", writer,
+                written -> Thread.currentThread().interrupt()));
+        assertFalse(Thread.interrupted(), "The interrupt is consumed by the report");
+        assertFalse(writer.toString().endsWith("</html>\n"));
+    }
+}
@@ -0,0 +1,215 @@
+// GradeBookServerTest.java
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradeBookServerTest {
+    private static final int CLASSES = 20;
+    private static final int GRADES_PER_CATEGORY = 10;
+
+    private GradeBook gradeBook;
+    private ExecutorService mutations;
+    private GradeBookServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        gradeBook = new GradeBook();
+        for (int c = 0; c < CLASSES; c++) {
+            ClassRecord classRecord = new ClassRecord("Class " + c, GradingScale.defaultScale(), c % 2 == 0, 0.5);
+            for (String name : List.of("Homework", "Exams")) {
+                Category category = new Category(name, 50.0, 1);
+                for (int g = 0; g < GRADES_PER_CATEGORY; g++) {
+                    category.addGrade(60 + (c * 7 + g * 13) % 41);
+                }
+                classRecord.addCategory(category);
+            }
+            gradeBook.addClass(classRecord);
+        }
+        // One thread, like the Swing event thread the GUI hands mutations to
+        mutations = Executors.newSingleThreadExecutor();
+        server = new GradeBookServer(() -> gradeBook, mutations);
+        server.start(0);
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+        mutations.shutdownNow();
+    }
+
+    @Test
+    void concurrentReadsAndWritesAllSucceedAndEveryGradeIsAdded() throws Exception {
+        int threads = 16;
+        int requestsPerThread = 40;
+        ExecutorService clients = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> posted = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                posted.add(clients.submit(() -> {
+                    int posts = 0;
+                    for (int i = 0; i < requestsPerThread; i++) {
+                        String className = "Class " + ((thread + i) % CLASSES);
+                        HttpResponse<String> response;
+                        switch (i % 4) {
+                            case 0:
+                                response = send(post(className, "Homework", i % 2 == 0 ? "95" : "18/20"));
+                                assertEquals(201, response.statusCode(), response.body());
+                                posts++;
+                                break;
+                            case 1:
+                                response = send(get("/classes/" + encode(className) + "/needed?letter=A&remaining=1,1"));
+                                assertEquals(200, response.statusCode(), response.body());
+                                break;
+                            case 2:
+                                response = send(get("/classes/" + encode(className)));
+                                assertEquals(200, response.statusCode(), response.body());
+                                break;
+                            default:
+                                response = send(get("/classes"));
+                                assertEquals(200, response.statusCode(), response.body());
+                                assertTrue(response.body().startsWith("["));
+                        }
+                    }
+                    return posts;
+                }));
+            }
+            int posts = 0;
+            for (Future<Integer> future : posted) {
+                posts += future.get();
+            }
+
+            int homeworkGrades = 0;
+            for (ClassRecord classRecord : gradeBook.getClasses()) {
+                homeworkGrades += classRecord.getCategoryByName("Homework").getGradeCount();
+                assertEquals(GRADES_PER_CATEGORY, classRecord.getCategoryByName("Exams").getGradeCount());
+                // Reads serve the published version, which must have caught up with every change
+                assertEquals(classRecord.calculateFinalGrade(),
+                        gradeBook.snapshot().getClassByName(classRecord.getName()).getFinalGrade());
+            }
+            assertEquals(CLASSES * GRADES_PER_CATEGORY + posts, homeworkGrades);
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    void thousandsOfConcurrentRequestsAreServedWithinLooseLatencyBounds() throws Exception {
+        int threads = 32;
+        int requestsPerThread = 125;
+        LatencyHistogram roundTrips = new LatencyHistogram();
+        ExecutorService clients = Executors.newFixedThreadPool(threads);
+        List<Future<?>> done = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                done.add(clients.submit(() -> {
+                    for (int i = 0; i < requestsPerThread; i++) {
+                        String className = "Class " + ((thread + i) % CLASSES);
+                        // One request in ten is a grade, the rest are reads
+                        HttpRequest request = i % 10 == 0 ? post(className, "Exams", "88") : get("/classes/" + encode(className));
+                        long start = System.nanoTime();
+                        HttpResponse<String> response = send(request);
+                        roundTrips.record(System.nanoTime() - start);
+                        assertEquals(i % 10 == 0 ? 201 : 200, response.statusCode(), response.body());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : done) {
+                future.get();
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+
+        System.out.printf("%d requests: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", roundTrips.getCount(),
+                roundTrips.getValueAtPercentile(50.0) / 1e6, roundTrips.getValueAtPercentile(99.0) / 1e6, roundTrips.getMax() / 1e6);
+        assertEquals((long) threads * requestsPerThread, roundTrips.getCount());
+        // Loose enough for a loaded CI machine; a mutation that waited this long would have answered 503
+        assertTrue(roundTrips.getMax() < GradeBookServer.MUTATION_TIMEOUT_MILLIS * 1_000_000, "max " + roundTrips.getMax());
+    }
+
+    @Test
+    void postedGradeIsReturnedWithTheClass() throws Exception {
+        HttpResponse<String> response = send(post("Class 3", "Exams", "45/50"));
+        assertEquals(201, response.statusCode());
+        Category exams = gradeBook.getClassByName("Class 3").getCategoryByName("Exams");
+        assertEquals(GRADES_PER_CATEGORY + 1, exams.getGradeCount());
+        assertEquals(90.0, exams.getGrades().get(GRADES_PER_CATEGORY));
+
+        response = send(get("/classes/" + encode("Class 3")));
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().endsWith(",90]}}"), response.body());
+    }
+
+    @Test
+    void badRequestsAreRejectedWithoutChanges() throws Exception {
+        assertEquals(404, send(get("/classes/" + encode("No Such Class"))).statusCode());
+        assertEquals(404, send(post("No Such Class", "Homework", "90")).statusCode());
+        assertEquals(404, send(post("Class 1", "No Such Category", "90")).statusCode());
+        assertEquals(400, send(post("Class 1", "Homework", "ninety")).statusCode());
+        assertEquals(400, send(post("Class 1", "Homework", "30/20")).statusCode());
+        assertEquals(400, send(post("Class 1", "Homework", "-5")).statusCode());
+        assertEquals(400, send(get("/classes/" + encode("Class 1") + "/needed")).statusCode());
+        assertEquals(405, send(HttpRequest.newBuilder(uri("/classes/" + encode("Class 1"))).DELETE().build()).statusCode());
+        assertEquals(GRADES_PER_CATEGORY, gradeBook.getClassByName("Class 1").getCategoryByName("Homework").getGradeCount());
+    }
+
+    @Test
+    void mutationsTheExecutorDoesNotRunInTimeAnswer503AndMayStillBeApplied() throws Exception {
+        List<Runnable> held = new CopyOnWriteArrayList<>();
+        GradeBookServer busyServer = new GradeBookServer(() -> gradeBook, held::add, 100);
+        busyServer.start(0);
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + busyServer.getPort()
+                    + "/classes/" + encode("Class 2") + "/categories/Homework/grades")).POST(HttpRequest.BodyPublishers.ofString("80")).build();
+            assertEquals(503, send(request).statusCode());
+        } finally {
+            busyServer.stop();
+        }
+        Category homework = gradeBook.getClassByName("Class 2").getCategoryByName("Homework");
+        assertEquals(GRADES_PER_CATEGORY, homework.getGradeCount());
+        held.forEach(Runnable::run);
+        assertEquals(GRADES_PER_CATEGORY + 1, homework.getGradeCount());
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).build();
+    }
+
+    private HttpRequest post(String className, String categoryName, String body) {
+        return HttpRequest.newBuilder(uri("/classes/" + encode(className) + "/categories/" + encode(categoryName) + "/grades"))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+
+    private static String encode(String segment) {
+        return URLEncoder.encode(segment, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
@@ -0,0 +1,173 @@
+// GradeBookSnapshotTest.java
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradeBookSnapshotTest {
+    private static final int THREADS = 8;
+    private static final int CLASSES_PER_THREAD = 4;
+
+    @Test
+    void publishedVersionMatchesTheBookAfterConcurrentChanges() throws Exception {
+        GradeBook gradeBook = newGradeBook(THREADS * CLASSES_PER_THREAD);
+        gradeBook.snapshot(); // Start publishing
+
+        GradeBookConcurrencyTest.runConcurrently(THREADS, thread -> {
+            Random random = new Random(thread);
+            for (int i = 0; i < 10_000; i++) {
+                ClassRecord classRecord = gradeBook.getClassByName("Class " + (thread * CLASSES_PER_THREAD + random.nextInt(CLASSES_PER_THREAD)));
+                Category category = classRecord.getCategories().get(random.nextInt(2));
+                int action = random.nextInt(4);
+                if (action == 0) {
+                    category.addGrade(random.nextInt(101));
+                } else if (action == 1) {
+                    category.editGrade(random.nextInt(category.getGradeCount()), random.nextInt(101));
+                } else if (action == 2 && category.getGradeCount() > 1) {
+                    category.deleteGrade(random.nextInt(category.getGradeCount()));
+                } else {
+                    gradeBook.snapshot().getClasses();
+                }
+            }
+            return 0L;
+        });
+
+        assertMatches(gradeBook, gradeBook.snapshot());
+    }
+
+    @Test
+    void versionsNeverGoBackwardsForConcurrentReaders() throws Exception {
+        GradeBook gradeBook = newGradeBook(THREADS);
+        gradeBook.snapshot();
+
+        // Writers only add grades, so every later version has at least as many grades in every class
+        GradeBookConcurrencyTest.runConcurrently(THREADS, thread -> {
+            if (thread % 2 == 0) {
+                Category category = gradeBook.getClassByName("Class " + thread).getCategoryByName("Homework");
+                for (int i = 0; i < 5_000; i++) {
+                    category.addGrade(i % 101);
+                }
+                return 0L;
+            }
+            GradeBookSnapshot previous = gradeBook.snapshot();
+            for (int i = 0; i < 5_000; i++) {
+                GradeBookSnapshot current = gradeBook.snapshot();
+                assertTrue(current.getVersion() >= previous.getVersion());
+                for (GradeBookSnapshot.ClassSnapshot classSnapshot : current.getClasses()) {
+                    int before = previous.getClassByName(classSnapshot.getName()).getCategoryByName("Homework").getGradeCount();
+                    assertTrue(classSnapshot.getCategoryByName("Homework").getGradeCount() >= before);
+                }
+                previous = current;
+            }
+            return 0L;
+        });
+        assertMatches(gradeBook, gradeBook.snapshot());
+    }
+
+    @Test
+    void versionsDoNotChangeOnceTaken() {
+        GradeBook gradeBook = newGradeBook(3);
+        GradeBookSnapshot before = gradeBook.snapshot();
+        List<double[]> gradesBefore = gradesOf(before);
+        double finalGradeBefore = before.getClassByName("Class 1").getFinalGrade();
+
+        Category homework = gradeBook.getClassByName("Class 1").getCategoryByName("Homework");
+        homework.addGrade(0.0);
+        homework.editGrade(0, 0.0);
+        homework.deleteGrade(1);
+        gradeBook.removeClass("Class 2");
+
+        assertEquals(3, before.getClasses().size());
+        assertNotNull(before.getClassByName("Class 2"));
+        assertEquals(finalGradeBefore, before.getClassByName("Class 1").getFinalGrade());
+        List<double[]> gradesAfter = gradesOf(before);
+        for (int i = 0; i < gradesBefore.size(); i++) {
+            assertArrayEquals(gradesBefore.get(i), gradesAfter.get(i));
+        }
+        assertMatches(gradeBook, gradeBook.snapshot());
+    }
+
+    @Test
+    void readersDoNotWaitForAWriterHoldingTheClassLock() throws Exception {
+        GradeBook gradeBook = newGradeBook(1);
+        gradeBook.snapshot();
+        CountDownLatch writerInside = new CountDownLatch(1);
+        CountDownLatch releaseWriter = new CountDownLatch(1);
+        // Listeners run with the changed class's write lock held
+        gradeBook.addListener(event -> {
+            writerInside.countDown();
+            try {
+                releaseWriter.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(
+                () -> gradeBook.getClassByName("Class 0").getCategoryByName("Exams").addGrade(50.0));
+        try {
+            assertTrue(writerInside.await(10, TimeUnit.SECONDS));
+            CompletableFuture<Integer> reader = CompletableFuture.supplyAsync(() -> {
+                GradeBookSnapshot.ClassSnapshot classSnapshot = gradeBook.snapshot().getClassByName("Class 0");
+                classSnapshot.getFinalGrade();
+                return classSnapshot.getCategoryByName("Exams").getGradeCount();
+            });
+            // The change is published before listeners run, so the reader already sees it
+            assertEquals(21, reader.get(10, TimeUnit.SECONDS));
+        } finally {
+            releaseWriter.countDown();
+        }
+        writer.get(10, TimeUnit.SECONDS);
+    }
+
+    private static void assertMatches(GradeBook gradeBook, GradeBookSnapshot snapshot) {
+        List<ClassRecord> classes = gradeBook.getClasses();
+        assertEquals(classes.size(), snapshot.getClasses().size());
+        for (ClassRecord classRecord : classes) {
+            GradeBookSnapshot.ClassSnapshot classSnapshot = snapshot.getClassByName(classRecord.getName());
+            assertNotNull(classSnapshot, classRecord.getName());
+            assertEquals(classRecord.calculateFinalGrade(), classSnapshot.getFinalGrade(), classRecord.getName());
+            for (Category category : classRecord.getCategories()) {
+                GradeBookSnapshot.CategorySnapshot categorySnapshot = classSnapshot.getCategoryByName(category.getName());
+                double[] grades = category.getGrades().stream().mapToDouble(Double::doubleValue).toArray();
+                assertArrayEquals(grades, categorySnapshot.getGrades(), classRecord.getName() + " " + category.getName());
+                assertEquals(category.calculateAverage(), categorySnapshot.getAverage());
+            }
+        }
+    }
+
+    private static List<double[]> gradesOf(GradeBookSnapshot snapshot) {
+        List<double[]> grades = new ArrayList<>();
+        for (GradeBookSnapshot.ClassSnapshot classSnapshot : snapshot.getClasses()) {
+            for (GradeBookSnapshot.CategorySnapshot categorySnapshot : classSnapshot.getCategories()) {
+                grades.add(categorySnapshot.getGrades());
+            }
+        }
+        return grades;
+    }
+
+    private static GradeBook newGradeBook(int classes) {
+        GradeBook gradeBook = new GradeBook();
+        for (int c = 0; c < classes; c++) {
+            ClassRecord classRecord = new ClassRecord("Class " + c, GradingScale.defaultScale(), c % 2 == 0, 0.5);
+            classRecord.addCategory(new Category("Homework", 40.0, 1));
+            classRecord.addCategory(new Category("Exams", 60.0, 0));
+            for (Category category : classRecord.getCategories()) {
+                for (int g = 0; g < 20; g++) {
+                    category.addGrade(70.0 + g);
+                }
+            }
+            gradeBook.addClass(classRecord);
+        }
+        return gradeBook;
+    }
+}
@@ -0,0 +1,36 @@
+// GradeBookUndoTest.java
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GradeBookUndoTest {
+
+    @Test
+    void changesRunAsTheirOwnStepStayOutOfTheOpenStep() {
+        GradeBook gradeBook = new GradeBook();
+        ClassRecord classRecord = new ClassRecord("Math", GradingScale.defaultScale(), false, 0.0);
+        Category exams = new Category("Exams", 60.0, 0);
+        Category homework = new Category("Homework", 40.0, 0);
+        classRecord.addCategory(exams);
+        classRecord.addCategory(homework);
+        gradeBook.addClass(classRecord);
+        GradeBookUndo undo = new GradeBookUndo(GradeBookUndo.DEFAULT_MAX_STEPS, GradeBookUndo.DEFAULT_MAX_BYTES);
+        undo.attach(gradeBook);
+
+        // A dialog's step is open when a request of the local API arrives on the same thread
+        undo.beginStep("Edit Grades");
+        exams.addGrade(90.0);
+        undo.runAsStep(() -> {
+            homework.addGrade(80.0);
+            homework.addGrade(70.0);
+        });
+        exams.editGrade(0, 95.0);
+        undo.endStep();
+
+        assertEquals("Edit Grades", undo.undo());
+        assertEquals(0, exams.getGradeCount());
+        assertEquals(2, homework.getGradeCount());
+        assertEquals("Add Grade", undo.undo());
+        assertEquals(0, homework.getGradeCount());
+    }
+}
@@ -0,0 +1,81 @@
+// GradeHistoryTest.java
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradeHistoryTest {
+
+    private static GradeBook gradeBookWithOneClass() {
+        GradeBook gradeBook = new GradeBook();
+        ClassRecord classRecord = new ClassRecord("Math", GradingScale.defaultScale(), false, 0.0);
+        Category exams = new Category("Exams", 100.0, 0);
+        exams.addGrade(95.0);
+        exams.addGrade(18.0, 20.0);
+        classRecord.addCategory(exams);
+        gradeBook.addClass(classRecord);
+        return gradeBook;
+    }
+
+    @Test
+    void attachingAnUnchangedGradeBookWritesNoSnapshot(@TempDir File directory) throws Exception {
+        File log = new File(directory, "history.log");
+        GradeBook gradeBook = gradeBookWithOneClass();
+        try (GradeHistory history = new GradeHistory(log, GradeHistory.DEFAULT_SNAPSHOT_INTERVAL)) {
+            history.attach(gradeBook);
+            gradeBook.getClassByName("Math").getCategoryByName("Exams").addGrade(80.0);
+        }
+        long length = log.length();
+
+        // Reopened with the same grades, as after saving and restarting
+        GradeBook saved = gradeBook.snapshot().toGradeBook();
+        for (int i = 0; i < 3; i++) {
+            try (GradeHistory history = new GradeHistory(log, GradeHistory.DEFAULT_SNAPSHOT_INTERVAL)) {
+                history.attach(saved);
+                assertNull(history.getFailure());
+            }
+        }
+        assertEquals(length, log.length());
+
+        // A different GradeBook, e.g. after Delete All, is still recorded
+        try (GradeHistory history = new GradeHistory(log, GradeHistory.DEFAULT_SNAPSHOT_INTERVAL)) {
+            history.attach(new GradeBook());
+            assertTrue(history.asOf(Long.MAX_VALUE).getClasses().isEmpty());
+        }
+    }
+
+    @Test
+    void compactingKeepsEveryLaterPointInTime(@TempDir File directory) throws Exception {
+        File log = new File(directory, "history.log");
+        GradeBook gradeBook = gradeBookWithOneClass();
+        Category exams = gradeBook.getClassByName("Math").getCategoryByName("Exams");
+        try (GradeHistory history = new GradeHistory(log, 10)) {
+            history.attach(gradeBook);
+            for (int i = 0; i < 25; i++) {
+                exams.addGrade(i);
+            }
+            Thread.sleep(5);
+            long cut = System.currentTimeMillis();
+            Thread.sleep(5);
+            for (int i = 0; i < 25; i++) {
+                exams.addGrade(50 + i);
+            }
+            int gradesAtCut = history.asOf(cut).getClassByName("Math").getCategoryByName("Exams").getGradeCount();
+            long before = log.length();
+
+            assertTrue(history.compact(cut) > 0);
+            history.flush();
+            assertTrue(log.length() < before);
+            assertEquals(gradesAtCut, history.asOf(cut).getClassByName("Math").getCategoryByName("Exams").getGradeCount());
+            exams.addGrade(100.0);
+            assertEquals(exams.getGrades(), history.asOf(Long.MAX_VALUE).getClassByName("Math").getCategoryByName("Exams").getGrades());
+        }
+        try (GradeHistory reopened = new GradeHistory(log, 10)) {
+            assertEquals(exams.getGrades(), reopened.asOf(Long.MAX_VALUE).getClassByName("Math").getCategoryByName("Exams").getGrades());
+        }
+    }
+}
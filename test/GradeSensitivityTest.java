@@ -0,0 +1,100 @@
+// GradeSensitivityTest.java
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class GradeSensitivityTest {
+    // Final grades are kept in hundredths, so a difference over 2 points is accurate to 0.005 per point
+    private static final double STEP = 1.0;
+    private static final double TOLERANCE = 0.01;
+
+    private static Category category(String name, double weight, int drops, Category.Averaging averaging,
+                                     double possible, double... earned) {
+        Category category = new Category(name, weight, drops, averaging);
+        for (double points : earned) {
+            category.addGrade(points, possible);
+        }
+        return category;
+    }
+
+    /**
+     * The final grade if the next assignment of the category scored the given percentage.
+     */
+    private static double finalGradeWithNext(ClassRecord classRecord, Category category, double score, double possible) {
+        category.addGrade(score * possible / 100.0, possible);
+        try {
+            return classRecord.calculateFinalGrade();
+        } finally {
+            category.deleteGrade(category.getGradeCount() - 1);
+        }
+    }
+
+    /**
+     * Compares the analyzed impact with a central difference of the final grade around the expected score.
+     */
+    private static GradeSensitivity.Result assertImpactMatchesFiniteDifference(ClassRecord classRecord, String categoryName,
+                                                                            double possible) {
+        GradeSensitivity.Result result = resultFor(classRecord, categoryName);
+        Category category = classRecord.getCategoryByName(categoryName);
+        double score = result.getExpectedScore();
+        double difference = (finalGradeWithNext(classRecord, category, score + STEP, possible)
+                - finalGradeWithNext(classRecord, category, score - STEP, possible)) / (2 * STEP);
+        assertEquals(difference, result.getImpact(), TOLERANCE, categoryName + " at " + score);
+        return result;
+    }
+
+    private static GradeSensitivity.Result resultFor(ClassRecord classRecord, String categoryName) {
+        List<GradeSensitivity.Result> results = GradeSensitivity.analyze(classRecord);
+        return results.stream().filter(result -> result.getCategoryName().equals(categoryName)).findFirst().orElseThrow();
+    }
+
+    @Test
+    void impactOfAPlainClassMatchesTheFiniteDifference() {
+        ClassRecord classRecord = new ClassRecord("Plain", GradingScale.defaultScale(), false, 0.5);
+        classRecord.addCategory(category("Homework", 40.0, 0, Category.Averaging.EQUAL_WEIGHT, 100.0, 80.0, 90.0, 70.0));
+        classRecord.addCategory(category("Exams", 60.0, 0, Category.Averaging.EQUAL_WEIGHT, 100.0, 85.0, 75.0));
+
+        assertNull(assertImpactMatchesFiniteDifference(classRecord, "Homework", 100.0).getNote());
+        assertNull(assertImpactMatchesFiniteDifference(classRecord, "Exams", 100.0).getNote());
+        assertEquals(0.1, resultFor(classRecord, "Homework").getImpact(), TOLERANCE);
+        assertEquals(0.2, resultFor(classRecord, "Exams").getImpact(), TOLERANCE);
+    }
+
+    @Test
+    void aNextGradeThatWouldBeDroppedHasNoImpact() {
+        ClassRecord classRecord = new ClassRecord("Drops", GradingScale.defaultScale(), false, 0.5);
+        // Falling quiz grades project a next grade below all of them, which the drop removes
+        classRecord.addCategory(category("Quizzes", 50.0, 1, Category.Averaging.EQUAL_WEIGHT, 100.0, 100.0, 95.0, 90.0));
+        classRecord.addCategory(category("Exams", 50.0, 0, Category.Averaging.EQUAL_WEIGHT, 100.0, 80.0));
+
+        GradeSensitivity.Result result = assertImpactMatchesFiniteDifference(classRecord, "Quizzes", 100.0);
+        assertEquals(0.0, result.getImpact());
+        assertEquals("Would be dropped", result.getNote());
+    }
+
+    @Test
+    void aClassThatRoundingLiftsToACutoffHasNoImpact() {
+        ClassRecord classRecord = new ClassRecord("Rounded", GradingScale.defaultScale(), true, 0.5);
+        // 89.75 rounds up to the A- at 90; a point on the next of ten grades moves the sum only 0.1
+        classRecord.addCategory(category("Homework", 100.0, 0, Category.Averaging.EQUAL_WEIGHT, 100.0,
+                89.75, 89.75, 89.75, 89.75, 89.75, 89.75, 89.75, 89.75, 89.75));
+
+        GradeSensitivity.Result result = assertImpactMatchesFiniteDifference(classRecord, "Homework", 100.0);
+        assertEquals(0.0, result.getImpact());
+        assertEquals("Rounded up to A-", result.getNote());
+        assertEquals(90.0, classRecord.calculateFinalGrade());
+    }
+
+    @Test
+    void impactOfATotalPointsCategoryMatchesTheFiniteDifference() {
+        ClassRecord classRecord = new ClassRecord("Points", GradingScale.defaultScale(), false, 0.5);
+        classRecord.addCategory(category("Labs", 50.0, 0, Category.Averaging.TOTAL_POINTS, 20.0, 15.0, 18.0, 12.0));
+        classRecord.addCategory(category("Exams", 50.0, 0, Category.Averaging.EQUAL_WEIGHT, 100.0, 88.0, 76.0));
+
+        assertNull(assertImpactMatchesFiniteDifference(classRecord, "Labs", 20.0).getNote());
+        assertImpactMatchesFiniteDifference(classRecord, "Exams", 100.0);
+    }
+}
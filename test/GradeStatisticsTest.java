@@ -0,0 +1,45 @@
+// GradeStatisticsTest.java
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GradeStatisticsTest {
+
+    @Test
+    void gradesInHundredthsAreReportedExactly() {
+        GradeStatistics statistics = GradeStatistics.of(List.of(89.47, 89.47, 91.24));
+        assertEquals(89.47, statistics.getMin());
+        assertEquals(89.47, statistics.getMedian());
+        assertEquals(91.24, statistics.getMax());
+    }
+
+    @Test
+    void percentilesMatchTheSortedGrades() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            int count = 1 + random.nextInt(100);
+            double[] grades = new double[count];
+            GradeStatistics statistics = new GradeStatistics();
+            for (int i = 0; i < count; i++) {
+                grades[i] = (random.nextInt(12_001) - 1_000) / 100.0; // Some below 0 and above 100
+                statistics.add(grades[i]);
+            }
+            // Remove a grade again, as editing does
+            statistics.replace(grades[0], grades[0] = random.nextInt(10_001) / 100.0);
+            Arrays.sort(grades);
+
+            assertEquals(grades[0], statistics.getMin());
+            assertEquals(grades[count - 1], statistics.getMax());
+            for (double percentile : new double[]{10.0, 25.0, 50.0, 90.0}) {
+                double position = (count - 1) * percentile / 100.0;
+                int lower = (int) Math.floor(position);
+                double expected = lower + 1 < count ? grades[lower] + (position - lower) * (grades[lower + 1] - grades[lower]) : grades[lower];
+                assertEquals(expected, statistics.getPercentile(percentile), 1e-9, "Round " + round + ", percentile " + percentile);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+// PriorTermsTest.java
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The totals of earlier terms are part of the GradeBook like its classes: they are published, saved,
+ * undone and recorded in the history.
+ */
+class PriorTermsTest {
+
+    private static GradeBook gradeBookWithOneClass() {
+        GradeBook gradeBook = new GradeBook();
+        ClassRecord classRecord = new ClassRecord("Math", GradingScale.defaultScale(), false, 0.0);
+        Category exams = new Category("Exams", 100.0, 0);
+        exams.addGrade(95.0);
+        classRecord.addCategory(exams);
+        classRecord.setCreditHours(3.0);
+        gradeBook.addClass(classRecord);
+        return gradeBook;
+    }
+
+    @Test
+    void snapshotsCarryThePriorTerms() {
+        GradeBook gradeBook = gradeBookWithOneClass();
+        gradeBook.setPriorTerms(30.0, 90.0);
+        GradeBookSnapshot before = gradeBook.snapshot();
+        gradeBook.setPriorTerms(60.0, 200.0);
+        GradeBookSnapshot after = gradeBook.snapshot();
+
+        assertEquals(30.0, before.getPriorCreditHours());
+        assertEquals(200.0, after.getPriorQualityPoints());
+        GradeBook copy = after.toGradeBook();
+        assertEquals(60.0, copy.getPriorCreditHours());
+        assertEquals(200.0, copy.getPriorQualityPoints());
+    }
+
+    @Test
+    void trackerFollowsThePriorTerms() {
+        GradeBook gradeBook = gradeBookWithOneClass();
+        GpaTracker tracker = GpaTracker.of(gradeBook);
+        assertEquals(4.0, tracker.getCumulativeGpa());
+
+        gradeBook.setPriorTerms(3.0, 6.0); // A prior GPA of 2.0
+        assertEquals(6.0, tracker.getCumulativeCreditHours());
+        assertEquals(3.0, tracker.getCumulativeGpa());
+        assertEquals(4.0, tracker.getGpa());
+    }
+
+    @Test
+    void settingThePriorTermsCanBeUndoneAndRedone() {
+        GradeBook gradeBook = gradeBookWithOneClass();
+        gradeBook.setPriorTerms(30.0, 90.0);
+        GradeBookUndo undo = new GradeBookUndo(GradeBookUndo.DEFAULT_MAX_STEPS, GradeBookUndo.DEFAULT_MAX_BYTES);
+        undo.attach(gradeBook);
+
+        gradeBook.setPriorTerms(45.0, 150.0);
+        assertEquals("Prior Terms", undo.undo());
+        assertEquals(30.0, gradeBook.getPriorCreditHours());
+        assertEquals(90.0, gradeBook.getPriorQualityPoints());
+        undo.redo();
+        assertEquals(45.0, gradeBook.getPriorCreditHours());
+        assertEquals(150.0, gradeBook.getPriorQualityPoints());
+    }
+
+    @Test
+    void historyRecordsThePriorTerms(@TempDir File directory) throws Exception {
+        GradeBook gradeBook = gradeBookWithOneClass();
+        gradeBook.setPriorTerms(30.0, 90.0);
+        File log = new File(directory, "history.log");
+        try (GradeHistory history = new GradeHistory(log, GradeHistory.DEFAULT_SNAPSHOT_INTERVAL)) {
+            history.attach(gradeBook);
+            long attached = System.currentTimeMillis();
+            Thread.sleep(5);
+            gradeBook.setPriorTerms(45.0, 150.0);
+
+            GradeBook atStart = history.asOf(attached);
+            assertEquals(30.0, atStart.getPriorCreditHours());
+            GradeBook now = history.asOf(Long.MAX_VALUE);
+            assertEquals(45.0, now.getPriorCreditHours());
+            assertEquals(150.0, now.getPriorQualityPoints());
+        }
+        // And after reopening the log
+        try (GradeHistory reopened = new GradeHistory(log, GradeHistory.DEFAULT_SNAPSHOT_INTERVAL)) {
+            assertEquals(150.0, reopened.asOf(Long.MAX_VALUE).getPriorQualityPoints());
+        }
+    }
+}
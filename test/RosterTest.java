@@ -0,0 +1,124 @@
+// RosterTest.java
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The roster applies the final grade formula column by column; every student must get exactly the grade
+ * a ClassRecord with the same grades gets.
+ */
+class RosterTest {
+
+    @Test
+    void finalGradesMatchClassRecords() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            boolean usesRounding = random.nextBoolean();
+            double threshold = random.nextInt(101) / 100.0;
+            int students = 1 + random.nextInt(40);
+            int categories = 1 + random.nextInt(5);
+            int assignments = random.nextInt(8);
+
+            Roster roster = new Roster("Section", GradingScale.defaultScale(), usesRounding, threshold);
+            ClassRecord[] expected = new ClassRecord[students];
+            for (int s = 0; s < students; s++) {
+                roster.addStudent("Student " + s);
+                expected[s] = new ClassRecord("Section", GradingScale.defaultScale(), usesRounding, threshold);
+                if (random.nextInt(4) == 0) {
+                    double extraCredit = random.nextInt(500) / 100.0;
+                    roster.setExtraCredit(s, extraCredit);
+                    expected[s].setExtraCredit(extraCredit);
+                }
+            }
+            for (int c = 0; c < categories; c++) {
+                // Thirds and other weights without an exact decimal form included
+                double weight = random.nextBoolean() ? 100.0 / categories : random.nextInt(10_001) / 100.0;
+                int drops = random.nextInt(3);
+                RosterCategory rosterCategory = roster.addCategory("Category " + c, weight, drops);
+                Category[] categoriesOfStudents = new Category[students];
+                for (int s = 0; s < students; s++) {
+                    categoriesOfStudents[s] = new Category("Category " + c, weight, drops);
+                }
+                for (int a = 0; a < assignments; a++) {
+                    int assignment = rosterCategory.addAssignment();
+                    for (int s = 0; s < students; s++) {
+                        if (random.nextInt(5) == 0) {
+                            continue; // Missing
+                        }
+                        // Mostly on a few values, so that ties and exact cutoffs come up
+                        double grade = random.nextBoolean() ? 60 + 5 * random.nextInt(9) : random.nextInt(10_001) / 100.0;
+                        rosterCategory.setGrade(s, assignment, grade);
+                        categoriesOfStudents[s].addGrade(grade);
+                    }
+                }
+                for (int s = 0; s < students; s++) {
+                    expected[s].addCategory(categoriesOfStudents[s]);
+                }
+            }
+
+            double[] finalGrades = roster.calculateFinalGrades();
+            String[] letterGrades = roster.calculateLetterGrades();
+            for (int s = 0; s < students; s++) {
+                assertEquals(expected[s].calculateFinalGrade(), finalGrades[s], "Round " + round + ", student " + s);
+                assertEquals(expected[s].getLetterGrade(), letterGrades[s], "Round " + round + ", student " + s);
+            }
+        }
+    }
+
+    @Test
+    void studentsAddedFromClassRecordsKeepTheirGrades() {
+        ClassRecord template = new ClassRecord("Biology", GradingScale.defaultScale(), true, 0.5);
+        template.addCategory(new Category("Homework", 30.0, 1));
+        template.addCategory(new Category("Exams", 70.0, 0));
+        Roster roster = Roster.of(template);
+        assertEquals("Biology", roster.getName());
+        assertEquals(2, roster.getCategories().size());
+
+        Random random = new Random(42);
+        ClassRecord[] students = new ClassRecord[30];
+        for (int s = 0; s < students.length; s++) {
+            students[s] = new ClassRecord("Biology", GradingScale.defaultScale(), true, 0.5);
+            Category homework = new Category("Homework", 30.0, 1);
+            for (int g = random.nextInt(6); g > 0; g--) {
+                homework.addGrade(random.nextInt(10_001) / 100.0);
+            }
+            students[s].addCategory(homework);
+            // Some students have no exams yet
+            Category exams = new Category("Exams", 70.0, 0);
+            for (int g = s % 3 == 0 ? 0 : 1 + random.nextInt(3); g > 0; g--) {
+                exams.addGrade(random.nextInt(41) * 2.5, 100.0);
+            }
+            students[s].addCategory(exams);
+            students[s].setExtraCredit(s % 5 == 0 ? 1.5 : 0.0);
+            assertEquals(s, roster.addStudent("Student " + s, students[s]));
+        }
+
+        double[] finalGrades = roster.calculateFinalGrades();
+        for (int s = 0; s < students.length; s++) {
+            assertEquals(students[s].calculateFinalGrade(), finalGrades[s], "Student " + s);
+            assertEquals(students[s].calculateFinalGrade(), roster.getFinalGrade("student " + s));
+            assertEquals(students[s].getLetterGrade(), roster.getLetterGrade("Student " + s));
+            assertEquals(students[s].calculateFinalGrade(), roster.toClassRecord(s).calculateFinalGrade());
+        }
+    }
+
+    @Test
+    void classesTheRosterCannotGradeAreRejected() {
+        ClassRecord classRecord = new ClassRecord("Physics", GradingScale.defaultScale(), false, 0.0);
+        classRecord.addCategory(new Category("Labs", 100.0, 0, Category.Averaging.TOTAL_POINTS));
+        assertThrows(IllegalArgumentException.class, () -> Roster.of(classRecord));
+
+        Roster roster = new Roster("Physics", GradingScale.defaultScale(), false, 0.0);
+        roster.addCategory("Exams", 100.0, 0);
+        ClassRecord student = new ClassRecord("Physics", GradingScale.defaultScale(), false, 0.0);
+        student.addCategory(new Category("Quizzes", 100.0, 0));
+        assertThrows(IllegalArgumentException.class, () -> roster.addStudent("Ada", student));
+        assertThrows(IllegalArgumentException.class, () -> roster.addStudent("Ada",
+                new ClassRecord("Physics", GradingScale.defaultScale(), false, 0.0)));
+        assertEquals(0, roster.getStudentCount());
+        assertThrows(IllegalArgumentException.class, () -> roster.getFinalGrade("Ada"));
+    }
+}
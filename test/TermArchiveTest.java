@@ -0,0 +1,57 @@
+// TermArchiveTest.java
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TermArchiveTest {
+
+    private static GradeBook gradeBookWithOneClass() {
+        GradeBook gradeBook = new GradeBook();
+        ClassRecord classRecord = new ClassRecord("Math", GradingScale.defaultScale(), false, 0.0);
+        Category exams = new Category("Exams", 100.0, 0);
+        exams.addGrade(95.0);
+        classRecord.addCategory(exams);
+        classRecord.setCreditHours(3.0);
+        gradeBook.addClass(classRecord);
+        return gradeBook;
+    }
+
+    @Test
+    void archivingSavesTheNextTermWithTheSegment(@TempDir File directory) throws Exception {
+        File dataFile = new File(directory, "gradebook.dat");
+        GradeBook active = gradeBookWithOneClass();
+        GradeBookStore.save(active, dataFile);
+        TermArchive archive = new TermArchive(new File(directory, "terms"));
+
+        GradeBook next = archive.archive(active, "Fall 2024", dataFile);
+
+        assertEquals(1, archive.getTerms().size());
+        assertEquals(1, archive.getTerms().get(0).load().getClasses().size());
+        GradeBook saved = GradeBookStore.load(dataFile);
+        assertTrue(saved.getClasses().isEmpty());
+        assertEquals(3.0, saved.getPriorCreditHours());
+        assertEquals(next.getPriorQualityPoints(), saved.getPriorQualityPoints());
+        assertFalse(new File(dataFile.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    void aFailedSaveLeavesTheArchiveAndTheDataFileUnchanged(@TempDir File directory) throws Exception {
+        // A directory where the next term should be saved, so it cannot be written
+        File dataFile = new File(directory, "gradebook.dat");
+        assertTrue(new File(dataFile.getPath() + ".tmp").mkdir());
+        TermArchive archive = new TermArchive(new File(directory, "terms"));
+
+        assertThrows(IOException.class, () -> archive.archive(gradeBookWithOneClass(), "Fall 2024", dataFile));
+
+        assertTrue(archive.getTerms().isEmpty());
+        assertEquals(0, archive.getDirectory().list().length);
+        assertFalse(dataFile.exists());
+    }
+}